@@ -1,5 +1,6 @@
 package com.postech.fiap.parkingmeter.controller;
 
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.OwnerDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.TotalVehicleOwnerDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.OwnerForm;
@@ -35,6 +36,24 @@ public class OwnerController {
     return ResponseEntity.ok(ownerService.findAll(pageable));
   }
 
+  @Operation(
+      summary = "Scroll all owners",
+      description =
+          "Retrieves a page of owners ordered by id, starting after the cursor. Pass the "
+              + "returned nextCursor to fetch the following page; no total count is computed.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Owners retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/scroll")
+  public ResponseEntity<CursorPageDTO<OwnerDTO>> scrollAll(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "15") int size) {
+    return ResponseEntity.ok(ownerService.scrollAll(cursor, size));
+  }
+
   @Operation(summary = "Retrieve an owner by ID")
   @ApiResponses(
       value = {
@@ -2,22 +2,30 @@ package com.postech.fiap.parkingmeter.controller;
 
 import com.postech.fiap.parkingmeter.domain.model.dto.*;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.parkingmeter.ParkingMeterForm;
+import com.postech.fiap.parkingmeter.domain.model.enums.ActivityIntervalEnum;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyStreamService;
 import com.postech.fiap.parkingmeter.domain.service.ParkingMeterService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import java.time.LocalDate;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/parking-meter")
@@ -25,6 +33,7 @@ import org.springframework.web.bind.annotation.*;
 public class ParkingMeterController {
 
   private final ParkingMeterService parkingMeterService;
+  private final OccupancyStreamService occupancyStreamService;
 
   @Operation(summary = "Retrieve all parking meters")
   @ApiResponses(
@@ -40,6 +49,24 @@ public class ParkingMeterController {
     return ResponseEntity.ok(parkingMeterService.findAll(pageable));
   }
 
+  @Operation(
+      summary = "Scroll all parking meters",
+      description =
+          "Retrieves a page of parking meters ordered by id, starting after the cursor. Pass "
+              + "the returned nextCursor to fetch the following page; no total count is computed.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Parking meters retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/scroll")
+  public ResponseEntity<CursorPageDTO<ParkingMeterDTO>> scrollAll(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "15") int size) {
+    return ResponseEntity.ok(parkingMeterService.scrollAll(cursor, size));
+  }
+
   @Operation(summary = "Retrieve a parking meter by ID")
   @ApiResponses(
       value = {
@@ -124,6 +151,26 @@ public class ParkingMeterController {
     return ResponseEntity.ok(parkingMeterService.getAvailableSpace(id, date));
   }
 
+  @Operation(
+      summary = "Follow parking meter occupancy",
+      description =
+          "Opens a Server-Sent Events stream with the current occupancy of a parking meter, or of "
+              + "every parking meter of a city or neighborhood, followed by an 'occupancy' event "
+              + "each time a ticket takes or frees a space.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Occupancy stream opened"),
+        @ApiResponse(responseCode = "400", description = "No parking meter, city or neighborhood"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping(value = "/available/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamAvailableSpace(
+      @RequestParam(value = "id", required = false) String id,
+      @RequestParam(value = "city", required = false) String city,
+      @RequestParam(value = "neighborhood", required = false) String neighborhood) {
+    return occupancyStreamService.subscribe(id, city, neighborhood);
+  }
+
   @Operation(summary = "Get times parked within a date range")
   @ApiResponses(
       value = {
@@ -146,6 +193,76 @@ public class ParkingMeterController {
         parkingMeterService.getTimesParkedWithDateRange(parkingMeterId, licensePlate, begin, end));
   }
 
+  @Operation(summary = "Get tickets issued, paid and cancelled and the amount earned over time")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Activity retrieved successfully"),
+        @ApiResponse(responseCode = "404", description = "Parking meter not found"),
+        @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/activity")
+  public ResponseEntity<List<ParkingMeterActivityDTO>> getActivityWithDateRange(
+      @RequestParam("parkingMeterId")
+          @NotEmpty(message = "The parkingMeterId field cannot be empty or null")
+          String parkingMeterId,
+      @RequestParam("begin") @NotNull(message = "The begin field cannot be null") LocalDate begin,
+      @RequestParam(name = "end", required = false) LocalDate end,
+      @RequestParam(required = false) ActivityIntervalEnum interval) {
+    return ResponseEntity.ok(
+        parkingMeterService.getActivityWithDateRange(parkingMeterId, begin, end, interval));
+  }
+
+  @Operation(summary = "Find the nearest parking meters with free spaces")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Parking meters retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+        @ApiResponse(responseCode = "500", description = "Internal server error"),
+        @ApiResponse(responseCode = "503", description = "Parking meter locations not indexed")
+      })
+  @GetMapping("/nearest-available")
+  public ResponseEntity<List<NearbyParkingMeterDTO>> findNearestAvailable(
+      @RequestParam("latitude") @DecimalMin("-90.0") @DecimalMax("90.0") double latitude,
+      @RequestParam("longitude") @DecimalMin("-180.0") @DecimalMax("180.0") double longitude,
+      @RequestParam(name = "maxDistance", required = false) @Positive Double maxDistance,
+      @RequestParam(name = "limit", defaultValue = "10") int limit) {
+    return ResponseEntity.ok(
+        parkingMeterService.findNearestAvailable(latitude, longitude, maxDistance, limit));
+  }
+
+  @Operation(summary = "Get the tickets started and hours occupied by day of week and hour")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Heatmap retrieved successfully"),
+        @ApiResponse(responseCode = "404", description = "Parking meter not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error"),
+        @ApiResponse(responseCode = "503", description = "Occupancy histograms not ready")
+      })
+  @GetMapping("/heatmap")
+  public ResponseEntity<OccupancyHeatmapDTO> getOccupancyHeatmap(
+      @RequestParam("parkingMeterId")
+          @NotEmpty(message = "The parkingMeterId field cannot be empty or null")
+          String parkingMeterId) {
+    return ResponseEntity.ok(parkingMeterService.getOccupancyHeatmap(parkingMeterId));
+  }
+
+  @Operation(summary = "Get the occupancy heatmap of the parking meters of a locality")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Heatmap retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+        @ApiResponse(responseCode = "500", description = "Internal server error"),
+        @ApiResponse(responseCode = "503", description = "Occupancy histograms not ready")
+      })
+  @GetMapping("/heatmap-by-locality")
+  public ResponseEntity<OccupancyHeatmapDTO> getOccupancyHeatmapByLocality(
+      @RequestParam(name = "city", required = false) String city,
+      @RequestParam(name = "neighborhood", required = false) String neighborhood) {
+    return ResponseEntity.ok(
+        parkingMeterService.getOccupancyHeatmapByLocality(city, neighborhood));
+  }
+
   @Operation(summary = "Find parking meters by city or neighborhood")
   @ApiResponses(
       value = {
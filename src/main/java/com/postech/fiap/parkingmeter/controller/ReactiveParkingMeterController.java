@@ -0,0 +1,87 @@
+package com.postech.fiap.parkingmeter.controller;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.AmountEarnedDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingSpaceDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TimesParkedDTO;
+import com.postech.fiap.parkingmeter.domain.service.ReactiveParkingMeterService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/** Non-blocking variants of the {@link ParkingMeterController} analytics endpoints. */
+@RestController
+@RequestMapping("/reactive/parking-meter")
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class ReactiveParkingMeterController {
+
+  private final ReactiveParkingMeterService reactiveParkingMeterService;
+
+  @Operation(summary = "Get available parking space for a specific date")
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Available parking space retrieved successfully"),
+        @ApiResponse(responseCode = "404", description = "Parking meter not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/available")
+  public Mono<ResponseEntity<ParkingSpaceDTO>> getAvailableSpace(
+      @RequestParam("id") @NotEmpty(message = "The id field cannot be empty or null") String id,
+      @RequestParam("date") @NotNull(message = "The date field cannot be null") LocalDate date) {
+    return reactiveParkingMeterService.getAvailableSpace(id, date).map(ResponseEntity::ok);
+  }
+
+  @Operation(summary = "Get times parked within a date range")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Times parked retrieved successfully"),
+        @ApiResponse(responseCode = "404", description = "Parking meter not found"),
+        @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/times-parked-date-range")
+  public Mono<ResponseEntity<TimesParkedDTO>> getTimesParkedWithDateRange(
+      @RequestParam("parkingMeterId")
+          @NotEmpty(message = "The parkingMeterId field cannot be empty or null")
+          String parkingMeterId,
+      @RequestParam("licensePlate")
+          @NotEmpty(message = "The licensePlate field cannot be empty or null")
+          String licensePlate,
+      @RequestParam("begin") @NotNull(message = "The begin field cannot be null") LocalDate begin,
+      @RequestParam(name = "end", required = false) LocalDate end) {
+    return reactiveParkingMeterService
+        .getTimesParkedWithDateRange(parkingMeterId, licensePlate, begin, end)
+        .map(ResponseEntity::ok);
+  }
+
+  @Operation(summary = "Get parking meter earnings within a date range")
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Parking meter earnings retrieved successfully"),
+        @ApiResponse(responseCode = "404", description = "Parking meter not found"),
+        @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/earned")
+  public Mono<ResponseEntity<AmountEarnedDTO>> getParkingMeterEarningsWithDateRange(
+      @RequestParam("parkingMeterId")
+          @NotEmpty(message = "The parkingMeterId field cannot be empty or null")
+          String parkingMeterId,
+      @RequestParam("begin") @NotNull(message = "The begin field cannot be null") LocalDate begin,
+      @RequestParam(name = "end", required = false) LocalDate end) {
+    return reactiveParkingMeterService
+        .getParkingMeterEarningsWithDateRange(parkingMeterId, begin, end)
+        .map(ResponseEntity::ok);
+  }
+}
@@ -0,0 +1,72 @@
+package com.postech.fiap.parkingmeter.controller;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketForm;
+import com.postech.fiap.parkingmeter.domain.service.ReactiveTicketService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Same ticket operations as {@link TicketController}, served without holding a request thread
+ * while MongoDB works: the servlet thread is released as soon as the {@link Mono} is returned.
+ */
+@RestController
+@RequestMapping("/reactive/ticket")
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+@Validated
+public class ReactiveTicketController {
+
+  private final ReactiveTicketService reactiveTicketService;
+
+  @Operation(summary = "Create a new ticket", description = "Creates a new ticket.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Ticket created successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid input"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @PostMapping
+  public Mono<ResponseEntity<TicketDTO>> create(@Valid @RequestBody TicketForm ticketForm) {
+    return reactiveTicketService.create(ticketForm).map(ResponseEntity::ok);
+  }
+
+  @Operation(
+      summary = "Update payment status of a ticket",
+      description = "Updates the payment status of a ticket by its ID.")
+  @Parameter(
+      name = "id",
+      description = "ID of the ticket to update payment status",
+      required = true)
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Payment status updated successfully"),
+        @ApiResponse(responseCode = "404", description = "Ticket not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @PatchMapping("/{id}/payment")
+  public Mono<ResponseEntity<TicketDTO>> updatePayment(@PathVariable String id) {
+    return reactiveTicketService.updatePayment(id).map(ResponseEntity::ok);
+  }
+
+  @Operation(summary = "Cancel a ticket", description = "Cancels a ticket by its ID.")
+  @Parameter(name = "id", description = "ID of the ticket to cancel", required = true)
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Ticket canceled successfully"),
+        @ApiResponse(responseCode = "404", description = "Ticket not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @PatchMapping("/{id}/cancel")
+  public Mono<ResponseEntity<TicketDTO>> cancelTicket(@PathVariable String id) {
+    return reactiveTicketService.cancelTicket(id).map(ResponseEntity::ok);
+  }
+}
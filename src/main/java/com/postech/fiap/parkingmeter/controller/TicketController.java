@@ -1,10 +1,17 @@
 package com.postech.fiap.parkingmeter.controller;
 
 import com.postech.fiap.parkingmeter.domain.model.dto.BusyHoursDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketEventResultDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.VehicleSpentDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketBatchForm;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketForm;
+import com.postech.fiap.parkingmeter.domain.model.enums.PageModeEnum;
 import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketExportFormatEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketBatchService;
+import com.postech.fiap.parkingmeter.domain.service.TicketExportService;
 import com.postech.fiap.parkingmeter.domain.service.TicketService;
 import com.postech.fiap.parkingmeter.infrastructure.exception.TicketException;
 import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
@@ -14,6 +21,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -21,9 +29,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/ticket")
@@ -32,6 +42,8 @@ import org.springframework.web.bind.annotation.*;
 public class TicketController {
 
   private final TicketService ticketService;
+  private final TicketBatchService ticketBatchService;
+  private final TicketExportService ticketExportService;
 
   @Operation(
       summary = "Find all tickets",
@@ -46,6 +58,24 @@ public class TicketController {
     return ResponseEntity.ok(ticketService.findAll(pageable));
   }
 
+  @Operation(
+      summary = "Scroll all tickets",
+      description =
+          "Retrieves a page of tickets ordered by id, starting after the cursor. Pass the "
+              + "returned nextCursor to fetch the following page; no total count is computed.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Tickets retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/scroll")
+  public ResponseEntity<CursorPageDTO<TicketDTO>> scrollAll(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "15") int size) {
+    return ResponseEntity.ok(ticketService.scrollAll(cursor, size));
+  }
+
   @Operation(summary = "Get ticket by ID", description = "Retrieves a ticket by its ID.")
   @Parameter(name = "id", description = "ID of the ticket to be retrieved", required = true)
   @ApiResponses(
@@ -71,6 +101,23 @@ public class TicketController {
     return ResponseEntity.ok(ticketService.create(ticketForm));
   }
 
+  @Operation(
+      summary = "Apply a batch of ticket events",
+      description =
+          "Creates, pays and cancels tickets uploaded by a terminal in one request, and returns "
+              + "the result of every event in the order they were sent.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Batch processed"),
+        @ApiResponse(responseCode = "400", description = "Invalid input"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @PostMapping("/batch")
+  public ResponseEntity<List<TicketEventResultDTO>> ingest(
+      @Valid @RequestBody TicketBatchForm ticketBatchForm) {
+    return ResponseEntity.ok(ticketBatchService.ingest(ticketBatchForm.events()));
+  }
+
   @Operation(summary = "Delete ticket by ID", description = "Deletes a ticket by its ID.")
   @Parameter(name = "id", description = "ID of the ticket to be deleted", required = true)
   @ApiResponses(
@@ -137,7 +184,10 @@ public class TicketController {
 
   @Operation(
       summary = "Search tickets by date range",
-      description = "Retrieves a paginated list of tickets within the specified date range.")
+      description =
+          "Retrieves a paginated list of tickets within the specified date range. The mode "
+              + "selects whether the total is counted (PAGE), skipped (SLICE) or approximated "
+              + "(APPROXIMATE); it defaults to the configured mode.")
   @ApiResponses(
       value = {
         @ApiResponse(responseCode = "200", description = "Tickets retrieved successfully"),
@@ -145,16 +195,68 @@ public class TicketController {
         @ApiResponse(responseCode = "500", description = "Internal server error")
       })
   @GetMapping("/search-tickets")
-  public ResponseEntity<Page<TicketDTO>> searchTicketsByDateRange(
+  public ResponseEntity<Slice<TicketDTO>> searchTicketsByDateRange(
       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+      @RequestParam(required = false) PageModeEnum mode,
       Pageable pageable) {
-    return ResponseEntity.ok(ticketService.findTicketsByDateRange(startDate, endDate, pageable));
+    return ResponseEntity.ok(
+        ticketService.findTicketsByDateRange(startDate, endDate, pageable, mode));
+  }
+
+  @Operation(
+      summary = "Scroll tickets by date range",
+      description =
+          "Retrieves a page of tickets within the date range ordered by start time and id, "
+              + "starting after the cursor. Pass the returned nextCursor to fetch the following "
+              + "page; no total count is computed.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Tickets retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/search-tickets/scroll")
+  public ResponseEntity<CursorPageDTO<TicketDTO>> scrollTicketsByDateRange(
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "15") int size) {
+    return ResponseEntity.ok(
+        ticketService.scrollTicketsByDateRange(startDate, endDate, cursor, size));
+  }
+
+  @Operation(
+      summary = "Export tickets by date range",
+      description =
+          "Streams every ticket started within the date range as NDJSON or CSV, ordered by start "
+              + "time and id. Pass the id of the last ticket received as 'after' to resume an "
+              + "interrupted export.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Tickets streamed successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid date range or format"),
+        @ApiResponse(responseCode = "404", description = "Resume ticket not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> export(
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+      @RequestParam(required = false) String after,
+      @RequestParam(defaultValue = "NDJSON") TicketExportFormatEnum format) {
+    StreamingResponseBody body = ticketExportService.export(startDate, endDate, after, format);
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(format.getMediaType()))
+        .body(body);
   }
 
   @Operation(
       summary = "Search tickets by status",
-      description = "Retrieves a paginated list of tickets based on their payment status.")
+      description =
+          "Retrieves a paginated list of tickets based on their payment status. The mode "
+              + "selects whether the total is counted (PAGE), skipped (SLICE) or approximated "
+              + "(APPROXIMATE); it defaults to the configured mode.")
   @Parameter(
       name = "status",
       description = "Payment status of the tickets to search",
@@ -166,12 +268,34 @@ public class TicketController {
         @ApiResponse(responseCode = "500", description = "Internal server error")
       })
   @GetMapping("/status")
-  public ResponseEntity<Page<TicketDTO>> searchTicketsByStatus(
-      @RequestParam PaymentStatusEnum status, Pageable pageable) {
-    Page<TicketDTO> tickets = ticketService.findTicketsByStatus(status, pageable);
+  public ResponseEntity<Slice<TicketDTO>> searchTicketsByStatus(
+      @RequestParam PaymentStatusEnum status,
+      @RequestParam(required = false) PageModeEnum mode,
+      Pageable pageable) {
+    Slice<TicketDTO> tickets = ticketService.findTicketsByStatus(status, pageable, mode);
     return ResponseEntity.ok(tickets);
   }
 
+  @Operation(
+      summary = "Scroll tickets by status",
+      description =
+          "Retrieves a page of tickets with the payment status ordered by id, starting after "
+              + "the cursor. Pass the returned nextCursor to fetch the following page; no total "
+              + "count is computed.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Tickets retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/status/scroll")
+  public ResponseEntity<CursorPageDTO<TicketDTO>> scrollTicketsByStatus(
+      @RequestParam PaymentStatusEnum status,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "15") int size) {
+    return ResponseEntity.ok(ticketService.scrollTicketsByStatus(status, cursor, size));
+  }
+
   @Operation(
       summary = "Get busiest hour",
       description = "Retrieves the busiest hour within the specified date range.")
@@ -1,5 +1,6 @@
 package com.postech.fiap.parkingmeter.controller;
 
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.VehicleDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.VehicleForm;
 import com.postech.fiap.parkingmeter.domain.service.VehicleService;
@@ -37,6 +38,24 @@ public class VehicleController {
     return ResponseEntity.ok(vehicleService.findAll(pageable));
   }
 
+  @Operation(
+      summary = "Scroll all vehicles",
+      description =
+          "Retrieves a page of vehicles ordered by id, starting after the cursor. Pass the "
+              + "returned nextCursor to fetch the following page; no total count is computed.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Vehicles retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+      })
+  @GetMapping("/scroll")
+  public ResponseEntity<CursorPageDTO<VehicleDTO>> scrollAll(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "15") int size) {
+    return ResponseEntity.ok(vehicleService.scrollAll(cursor, size));
+  }
+
   @Operation(summary = "Get vehicle by ID", description = "Retrieves a vehicle by its ID.")
   @Parameter(name = "id", description = "ID of the vehicle to be retrieved", required = true)
   @ApiResponses(
@@ -0,0 +1,29 @@
+package com.postech.fiap.parkingmeter.domain.event;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+
+/**
+ * Published by the occupancy service whenever the {@code occupied} counter of a parking meter is
+ * written. The version is the one of the parking meter document after the write, so listeners that
+ * receive events out of order can discard the stale ones.
+ */
+public record OccupancyChangedEvent(
+    String parkingMeterId,
+    String city,
+    String neighborhood,
+    int spaces,
+    int occupied,
+    Long version) {
+
+  public static OccupancyChangedEvent of(ParkingMeter parkingMeter) {
+    Address address = parkingMeter.getAddress();
+    return new OccupancyChangedEvent(
+        parkingMeter.getId(),
+        address != null ? address.getCity() : null,
+        address != null ? address.getNeighborhood() : null,
+        parkingMeter.getAvailableSpaces(),
+        parkingMeter.getOccupied() != null ? parkingMeter.getOccupied() : 0,
+        parkingMeter.getVersion());
+  }
+}
@@ -7,7 +7,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class Address {
 
   private String street;
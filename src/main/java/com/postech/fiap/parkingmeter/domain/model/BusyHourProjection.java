@@ -0,0 +1,28 @@
+package com.postech.fiap.parkingmeter.domain.model;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+@Document(collection = "busy_hour_projection")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BusyHourProjection {
+
+  @Id private String id;
+
+  @Field("parking_meter_id")
+  private String parkingMeterId;
+
+  private LocalDateTime hour;
+
+  @Field("ticket_count")
+  private long ticketCount;
+}
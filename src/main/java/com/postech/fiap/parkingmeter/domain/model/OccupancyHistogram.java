@@ -0,0 +1,36 @@
+package com.postech.fiap.parkingmeter.domain.model;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Tickets started and hours occupied at a parking meter over its whole history, by hour of the
+ * week: slot {@code (dayOfWeek - 1) * 24 + hour}, Monday first. A ticket occupies every hour from
+ * the one it started in until it ended, and only once it has ended.
+ */
+@Document(collection = "occupancy_histogram")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OccupancyHistogram {
+
+  public static final int SLOTS = 7 * 24;
+
+  @Id private String parkingMeterId;
+
+  private long[] arrivals;
+
+  @Field("occupied_hours")
+  private long[] occupiedHours;
+
+  public static int slot(LocalDateTime time) {
+    return (time.getDayOfWeek().getValue() - 1) * 24 + time.getHour();
+  }
+}
@@ -6,7 +6,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class OperationHours {
 
   private String start;
@@ -8,7 +8,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "owner")
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class Owner {
 
   @Id private String id;
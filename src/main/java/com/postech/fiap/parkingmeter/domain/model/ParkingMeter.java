@@ -10,13 +10,14 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 @Document(collection = "parkingmeter")
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 public class ParkingMeter {
@@ -38,5 +39,10 @@ public class ParkingMeter {
 
   @Valid @NotNull @Indexed private Address address;
 
+  /** Longitude and latitude, searched through the 2dsphere index the index bootstrapper builds. */
+  private GeoJsonPoint location;
+
+  private Integer occupied;
+
   @Version private Long version;
 }
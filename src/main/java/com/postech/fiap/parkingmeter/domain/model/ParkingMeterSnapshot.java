@@ -0,0 +1,31 @@
+package com.postech.fiap.parkingmeter.domain.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+/**
+ * The part of a parking meter a ticket keeps: its id plus the rate and address in force when the
+ * ticket was issued. Everything else is read from the parking meter itself.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ParkingMeterSnapshot {
+
+  @Id private String id;
+
+  @Valid @NotNull private Rate rate;
+
+  @Valid private Address address;
+
+  public static ParkingMeterSnapshot of(ParkingMeter parkingMeter) {
+    return new ParkingMeterSnapshot(
+        parkingMeter.getId(), parkingMeter.getRate(), parkingMeter.getAddress());
+  }
+}
@@ -0,0 +1,40 @@
+package com.postech.fiap.parkingmeter.domain.model;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Position of a projection in the change stream it follows: the resume token of the last event
+ * applied or, right after a rebuild, the cluster time the rebuild snapshot was read at. Writes that
+ * cannot join the transaction of a batch record how far they got in {@code eventsWrittenThrough}.
+ */
+@Document(collection = "projection_checkpoint")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProjectionCheckpoint {
+
+  @Id private String id;
+
+  @Field("resume_token")
+  private String resumeToken;
+
+  @Field("start_at_operation_time")
+  private long startAtOperationTime;
+
+  @Field("events_written_through")
+  private String eventsWrittenThrough;
+
+  @Field("bootstrapped_at")
+  private LocalDateTime bootstrappedAt;
+
+  @Field("updated_at")
+  private LocalDateTime updatedAt;
+}
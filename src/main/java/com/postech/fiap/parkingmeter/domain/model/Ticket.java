@@ -9,7 +9,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -28,22 +27,19 @@ public class Ticket {
 
   @Valid
   @NotNull
-  @Indexed
   @Field("start_time")
   private LocalDateTime startTime;
 
   @Valid
-  @Indexed
   @Field("end_time")
   private LocalDateTime endTime;
 
   @Valid
   @NotNull
-  @Indexed
   @Field("payment_status")
   private PaymentStatusEnum paymentStatus;
 
-  @Valid @NotNull @Indexed private ParkingMeter parkingMeter;
+  @Valid @NotNull private ParkingMeterSnapshot parkingMeter;
 
-  @Valid @NotNull @Indexed private Vehicle vehicle;
+  @Valid @NotNull private VehicleSnapshot vehicle;
 }
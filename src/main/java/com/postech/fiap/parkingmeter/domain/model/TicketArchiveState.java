@@ -0,0 +1,32 @@
+package com.postech.fiap.parkingmeter.domain.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * How far the closed tickets have been moved out of the {@code ticket} collection: every paid or
+ * cancelled ticket started before {@code archivedBefore} may be in one of the monthly archive
+ * collections, and none started after it is.
+ */
+@Document(collection = "ticket_archive_state")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TicketArchiveState {
+
+  @Id private String id;
+
+  @Field("archived_before")
+  private LocalDateTime archivedBefore;
+
+  /** Archive collections, one per month of start time, e.g. {@code ticket_archive_202410}. */
+  private List<String> collections;
+}
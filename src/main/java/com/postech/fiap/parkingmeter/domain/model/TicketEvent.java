@@ -0,0 +1,39 @@
+package com.postech.fiap.parkingmeter.domain.model;
+
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketEventTypeEnum;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * A ticket being issued, paid or cancelled at a parking meter. Stored in a time-series collection
+ * bucketed by parking meter, so a report over a long range only reads the buckets of that meter
+ * and period.
+ */
+@Document(collection = "ticket_event")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TicketEvent {
+
+  @Id private String id;
+
+  private LocalDateTime timestamp;
+
+  @Field("parking_meter_id")
+  private String parkingMeterId;
+
+  @Field("ticket_id")
+  private String ticketId;
+
+  private TicketEventTypeEnum type;
+
+  /** Change in the amount earned: the charge when paid, its reversal when cancelled after paid. */
+  private double amount;
+}
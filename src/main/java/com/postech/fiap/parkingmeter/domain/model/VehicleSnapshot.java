@@ -0,0 +1,28 @@
+package com.postech.fiap.parkingmeter.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * The part of a vehicle a ticket keeps: its id and the license plate it was issued for. The model,
+ * color and owner are read from the vehicle itself.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class VehicleSnapshot {
+
+  @Id private String id;
+
+  @Field("license_plate")
+  private String licensePlate;
+
+  public static VehicleSnapshot of(Vehicle vehicle) {
+    return new VehicleSnapshot(vehicle.getId(), vehicle.getLicensePlate());
+  }
+}
@@ -0,0 +1,29 @@
+package com.postech.fiap.parkingmeter.domain.model;
+
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+@Document(collection = "vehicle_spend_ledger")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class VehicleSpendLedger {
+
+  @Id private String licensePlate;
+
+  @Field("total_spent")
+  private double totalSpent;
+
+  @Field("paid_tickets")
+  private long paidTickets;
+
+  @Field("monthly_spent")
+  private Map<String, Double> monthlySpent;
+}
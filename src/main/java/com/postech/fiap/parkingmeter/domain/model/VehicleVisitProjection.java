@@ -0,0 +1,31 @@
+package com.postech.fiap.parkingmeter.domain.model;
+
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+@Document(collection = "vehicle_visit_projection")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class VehicleVisitProjection {
+
+  @Id private String id;
+
+  @Field("parking_meter_id")
+  private String parkingMeterId;
+
+  @Field("license_plate")
+  private String licensePlate;
+
+  private LocalDate day;
+
+  @Field("ticket_count")
+  private long ticketCount;
+}
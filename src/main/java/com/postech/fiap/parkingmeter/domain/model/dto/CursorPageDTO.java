@@ -0,0 +1,19 @@
+package com.postech.fiap.parkingmeter.domain.model.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CursorPageDTO<T> {
+
+  private List<T> content;
+  private int size;
+  private boolean hasNext;
+  private String nextCursor;
+}
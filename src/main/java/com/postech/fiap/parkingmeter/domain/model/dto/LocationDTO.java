@@ -0,0 +1,16 @@
+package com.postech.fiap.parkingmeter.domain.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class LocationDTO {
+
+  private double latitude;
+  private double longitude;
+}
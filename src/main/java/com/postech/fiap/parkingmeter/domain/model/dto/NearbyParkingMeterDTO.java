@@ -0,0 +1,20 @@
+package com.postech.fiap.parkingmeter.domain.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NearbyParkingMeterDTO {
+
+  private ParkingMeterDTO parkingMeter;
+
+  /** In meters. */
+  private double distance;
+
+  private int available;
+}
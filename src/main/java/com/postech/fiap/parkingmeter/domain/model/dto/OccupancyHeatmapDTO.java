@@ -0,0 +1,21 @@
+package com.postech.fiap.parkingmeter.domain.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Rows are the days of the week from Monday, columns the hours of the day. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OccupancyHeatmapDTO {
+
+  private String parkingMeterId;
+  private String city;
+  private String neighborhood;
+  private int parkingMeters;
+  private long[][] arrivals;
+  private long[][] occupiedHours;
+}
@@ -0,0 +1,23 @@
+package com.postech.fiap.parkingmeter.domain.model.dto;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OccupancyUpdateDTO {
+
+  private String parkingMeterId;
+  private String city;
+  private String neighborhood;
+  private Integer spaces;
+  private Integer occupied;
+  private Integer available;
+  private Long version;
+  private LocalDateTime date;
+}
@@ -0,0 +1,20 @@
+package com.postech.fiap.parkingmeter.domain.model.dto;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ParkingMeterActivityDTO {
+
+  private LocalDateTime start;
+  private long ticketsIssued;
+  private long ticketsPaid;
+  private long ticketsCancelled;
+  private double earned;
+}
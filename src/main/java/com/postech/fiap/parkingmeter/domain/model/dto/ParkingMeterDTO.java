@@ -24,5 +24,7 @@ public class ParkingMeterDTO {
 
   private AddressDTO address;
 
+  private LocationDTO location;
+
   private long version;
 }
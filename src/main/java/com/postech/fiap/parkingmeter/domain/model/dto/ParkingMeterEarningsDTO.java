@@ -0,0 +1,18 @@
+package com.postech.fiap.parkingmeter.domain.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ParkingMeterEarningsDTO {
+
+  private String id;
+  private double earned;
+  private long ticketCount;
+  private long minutesOccupied;
+}
@@ -0,0 +1,18 @@
+package com.postech.fiap.parkingmeter.domain.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TicketEventResultDTO {
+
+  private int index;
+  private String ticketId;
+  private boolean applied;
+  private String message;
+}
@@ -1,5 +1,6 @@
 package com.postech.fiap.parkingmeter.domain.model.dto;
 
+import java.util.Map;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,5 @@ public class VehicleSpentDTO {
 
   private String licensePlate;
   private double totalSpent;
+  private Map<String, Double> monthlySpent;
 }
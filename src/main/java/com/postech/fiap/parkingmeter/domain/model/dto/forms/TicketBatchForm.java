@@ -0,0 +1,15 @@
+package com.postech.fiap.parkingmeter.domain.model.dto.forms;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TicketBatchForm(
+    @NotEmpty @Size(max = TicketBatchForm.MAX_EVENTS) List<@Valid @NotNull TicketEventForm> events) {
+
+  public static final int MAX_EVENTS = 5000;
+}
@@ -0,0 +1,21 @@
+package com.postech.fiap.parkingmeter.domain.model.dto.forms;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketEventTypeEnum;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+/**
+ * A ticket event recorded by a terminal. {@code ticketId} identifies the ticket to pay or cancel;
+ * on a create it may carry an id generated by the terminal, so that later events of the same
+ * batch can refer to the new ticket and a replayed upload is rejected instead of duplicated.
+ * {@code occurredAt} defaults to the time of the upload.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TicketEventForm(
+    @NotNull TicketEventTypeEnum type,
+    @JsonAlias("ticket_id") String ticketId,
+    @JsonAlias("vehicle_id") String vehicleId,
+    @JsonAlias("parking_meter_id") String parkingMeterId,
+    @JsonAlias("occurred_at") LocalDateTime occurredAt) {}
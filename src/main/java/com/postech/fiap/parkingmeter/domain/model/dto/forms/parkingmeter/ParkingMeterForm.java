@@ -9,4 +9,5 @@ public record ParkingMeterForm(
     @JsonAlias("operating_hours") @Valid @NotNull OperatingHoursParkingForm operatingHours,
     @Valid @NotNull RateParkingForm rate,
     @JsonAlias("available_spots") @Min(value = 1) int availableSpaces,
-    @Valid @NotNull AddressParkingForm address) {}
+    @Valid @NotNull AddressParkingForm address,
+    @Valid LocationParkingForm location) {}
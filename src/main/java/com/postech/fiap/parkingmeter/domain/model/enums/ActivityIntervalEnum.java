@@ -0,0 +1,18 @@
+package com.postech.fiap.parkingmeter.domain.model.enums;
+
+import java.time.temporal.ChronoUnit;
+
+public enum ActivityIntervalEnum {
+  HOUR(ChronoUnit.HOURS),
+  DAY(ChronoUnit.DAYS);
+
+  private final ChronoUnit unit;
+
+  ActivityIntervalEnum(ChronoUnit unit) {
+    this.unit = unit;
+  }
+
+  public ChronoUnit getUnit() {
+    return unit;
+  }
+}
@@ -0,0 +1,12 @@
+package com.postech.fiap.parkingmeter.domain.model.enums;
+
+/**
+ * How a paged ticket query computes its total: {@code PAGE} counts every matching ticket, {@code
+ * SLICE} fetches one extra ticket to tell whether a next page exists and returns no total, and
+ * {@code APPROXIMATE} does the same but reports a cached, possibly stale, count as the total.
+ */
+public enum PageModeEnum {
+  PAGE,
+  SLICE,
+  APPROXIMATE
+}
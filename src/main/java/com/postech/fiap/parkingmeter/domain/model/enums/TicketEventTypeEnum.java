@@ -0,0 +1,7 @@
+package com.postech.fiap.parkingmeter.domain.model.enums;
+
+public enum TicketEventTypeEnum {
+  CREATE,
+  PAY,
+  CANCEL
+}
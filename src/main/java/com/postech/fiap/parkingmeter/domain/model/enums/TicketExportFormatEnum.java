@@ -0,0 +1,16 @@
+package com.postech.fiap.parkingmeter.domain.model.enums;
+
+public enum TicketExportFormatEnum {
+  NDJSON("application/x-ndjson"),
+  CSV("text/csv");
+
+  private final String mediaType;
+
+  TicketExportFormatEnum(String mediaType) {
+    this.mediaType = mediaType;
+  }
+
+  public String getMediaType() {
+    return mediaType;
+  }
+}
@@ -0,0 +1,63 @@
+package com.postech.fiap.parkingmeter.domain.projection;
+
+import com.postech.fiap.parkingmeter.domain.model.BusyHourProjection;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/** Tickets per parking meter and hour, for the busy hours. */
+@Component
+public class BusyHourWriter extends TicketCountWriter<BusyHourWriter.Key> {
+
+  @Autowired
+  public BusyHourWriter(MongoTemplate mongoTemplate) {
+    super(mongoTemplate, BusyHourProjection.class);
+  }
+
+  @Override
+  protected List<Document> pipeline() {
+    return List.of(
+        new Document(
+            "$match",
+            new Document("parkingMeter._id", new Document("$ne", null))
+                .append("start_time", new Document("$ne", null))),
+        new Document(
+            "$group",
+            new Document(
+                    "_id",
+                    new Document(
+                            "parking_meter_id", new Document("$toString", "$parkingMeter._id"))
+                        .append("hour", truncate("hour")))
+                .append("ticket_count", new Document("$sum", 1))),
+        new Document(
+            "$project",
+            new Document("_id", 0)
+                .append("parking_meter_id", "$_id.parking_meter_id")
+                .append("hour", "$_id.hour")
+                .append("ticket_count", 1)));
+  }
+
+  @Override
+  protected Key keyOf(Ticket ticket) {
+    if (ticket.getParkingMeter() == null || ticket.getStartTime() == null) {
+      return null;
+    }
+    return new Key(
+        ticket.getParkingMeter().getId(), ticket.getStartTime().truncatedTo(ChronoUnit.HOURS));
+  }
+
+  @Override
+  protected Query queryOf(Key key) {
+    return Query.query(
+        Criteria.where("hour").is(key.hour()).and("parkingMeterId").is(key.parkingMeterId()));
+  }
+
+  record Key(String parkingMeterId, LocalDateTime hour) {}
+}
@@ -0,0 +1,124 @@
+package com.postech.fiap.parkingmeter.domain.projection;
+
+import com.postech.fiap.parkingmeter.domain.model.OccupancyHistogram;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hour of the week histograms of the arrivals and occupied hours of each parking meter. They take
+ * a fixed amount of space per parking meter, so a rebuild computes them in memory as one delta.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class OccupancyHistogramWriter implements TicketProjectionWriter {
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public void reset() {
+    mongoTemplate.remove(new Query(), OccupancyHistogram.class);
+  }
+
+  @Override
+  public Delta newDelta() {
+    return new HistogramDelta();
+  }
+
+  /** Net change of the histogram slots of each parking meter. */
+  private final class HistogramDelta implements Delta {
+
+    private final Map<String, long[]> arrivals = new HashMap<>();
+    private final Map<String, long[]> occupiedHours = new HashMap<>();
+
+    @Override
+    public void add(Ticket ticket, long sign) {
+      if (ticket.getParkingMeter() == null || ticket.getStartTime() == null) {
+        return;
+      }
+      String parkingMeterId = ticket.getParkingMeter().getId();
+      long[] started =
+          arrivals.computeIfAbsent(parkingMeterId, id -> new long[OccupancyHistogram.SLOTS]);
+      started[OccupancyHistogram.slot(ticket.getStartTime())] += sign;
+
+      if (ticket.getEndTime() != null) {
+        long[] occupied =
+            occupiedHours.computeIfAbsent(
+                parkingMeterId, id -> new long[OccupancyHistogram.SLOTS]);
+        for (LocalDateTime hour = ticket.getStartTime().truncatedTo(ChronoUnit.HOURS);
+            hour.isBefore(ticket.getEndTime());
+            hour = hour.plusHours(1)) {
+          occupied[OccupancyHistogram.slot(hour)] += sign;
+        }
+      }
+    }
+
+    /**
+     * Creates the histograms of parking meters seen for the first time with every slot at zero,
+     * so that the slots can then be incremented by position.
+     */
+    @Override
+    public void write() {
+      Set<String> parkingMeterIds = new HashSet<>();
+      parkingMeterIds.addAll(changedIds(arrivals));
+      parkingMeterIds.addAll(changedIds(occupiedHours));
+      if (parkingMeterIds.isEmpty()) {
+        return;
+      }
+
+      List<Long> empty = Collections.nCopies(OccupancyHistogram.SLOTS, 0L);
+      BulkOperations bulkOperations =
+          mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, OccupancyHistogram.class);
+      for (String parkingMeterId : parkingMeterIds) {
+        Query histogram = Query.query(Criteria.where("parkingMeterId").is(parkingMeterId));
+        bulkOperations.upsert(
+            histogram,
+            new Update().setOnInsert("arrivals", empty).setOnInsert("occupied_hours", empty));
+        Update update = new Update();
+        increment(update, "arrivals", arrivals.get(parkingMeterId));
+        increment(update, "occupied_hours", occupiedHours.get(parkingMeterId));
+        bulkOperations.updateOne(histogram, update);
+      }
+      bulkOperations.execute();
+    }
+
+    private static Set<String> changedIds(Map<String, long[]> slots) {
+      Set<String> ids = new HashSet<>();
+      slots.forEach(
+          (id, counts) -> {
+            for (long count : counts) {
+              if (count != 0) {
+                ids.add(id);
+                return;
+              }
+            }
+          });
+      return ids;
+    }
+
+    private static void increment(Update update, String field, long[] counts) {
+      if (counts == null) {
+        return;
+      }
+      for (int slot = 0; slot < counts.length; slot++) {
+        if (counts[slot] != 0) {
+          update.inc(field + "." + slot, counts[slot]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.postech.fiap.parkingmeter.domain.projection;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.util.MongoTimeZone;
+import com.postech.fiap.parkingmeter.domain.util.TieredTicketQueries;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * A read model counting the tickets per key, such as a parking meter and an hour. A rebuild groups
+ * the tickets on the server; a batch increments the count of each key it changed.
+ */
+public abstract class TicketCountWriter<K> implements TicketProjectionWriter {
+
+  private static final String TICKET_COUNT = "ticketCount";
+  private static final int INSERT_BATCH_SIZE = 1000;
+
+  protected final MongoTemplate mongoTemplate;
+  private final Class<?> projection;
+
+  protected TicketCountWriter(MongoTemplate mongoTemplate, Class<?> projection) {
+    this.mongoTemplate = mongoTemplate;
+    this.projection = projection;
+  }
+
+  /** Groups the tickets into the documents of the read model, starting with a {@code $match}. */
+  protected abstract List<Document> pipeline();
+
+  /** The key {@code ticket} is counted under, or {@code null} when it is not counted. */
+  protected abstract K keyOf(Ticket ticket);
+
+  protected abstract Query queryOf(K key);
+
+  @Override
+  public void reset() {
+    mongoTemplate.remove(new Query(), projection);
+  }
+
+  /** Counts the tickets of every collection as of the snapshot {@code session} reads. */
+  public void copy(ClientSession session, List<String> collections) {
+    MongoCollection<Document> target =
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(projection));
+    List<Document> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+    for (Document document :
+        mongoTemplate
+            .getCollection(collections.get(0))
+            .aggregate(session, TieredTicketQueries.acrossCollections(pipeline(), collections))
+            .allowDiskUse(true)) {
+      batch.add(document);
+      if (batch.size() == INSERT_BATCH_SIZE) {
+        target.insertMany(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      target.insertMany(batch);
+    }
+  }
+
+  @Override
+  public Delta newDelta() {
+    return new CountDelta();
+  }
+
+  /** Truncates the start time in the JVM time zone, the one the deltas bucket tickets in. */
+  protected static Document truncate(String unit) {
+    return new Document(
+        "$dateTrunc",
+        new Document("date", "$start_time")
+            .append("unit", unit)
+            .append("timezone", MongoTimeZone.id()));
+  }
+
+  private final class CountDelta implements Delta {
+
+    private final Map<K, Long> counts = new HashMap<>();
+
+    @Override
+    public void add(Ticket ticket, long sign) {
+      K key = keyOf(ticket);
+      if (key != null) {
+        counts.merge(key, sign, Long::sum);
+      }
+    }
+
+    @Override
+    public void write() {
+      counts.values().removeIf(count -> count == 0);
+      if (counts.isEmpty()) {
+        return;
+      }
+      BulkOperations bulkOperations =
+          mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, projection);
+      counts.forEach(
+          (key, count) ->
+              bulkOperations.upsert(queryOf(key), new Update().inc(TICKET_COUNT, count)));
+      bulkOperations.execute();
+    }
+  }
+}
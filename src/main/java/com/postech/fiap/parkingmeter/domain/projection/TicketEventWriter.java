@@ -0,0 +1,45 @@
+package com.postech.fiap.parkingmeter.domain.projection;
+
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import com.postech.fiap.parkingmeter.domain.model.TicketEvent;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends tickets being issued, paid and cancelled to the {@code ticket_event} time-series
+ * collection. Time-series collections cannot be written in a transaction, so the events of a batch
+ * are inserted before the projector commits it, and the projector records which change they were
+ * written through to skip them when the batch is replayed.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class TicketEventWriter {
+
+  private final MongoTemplate mongoTemplate;
+
+  /** Drops the ticket events and creates their time-series collection, bucketed by meter. */
+  public void reset() {
+    String ticketEvents = mongoTemplate.getCollectionName(TicketEvent.class);
+    mongoTemplate.dropCollection(ticketEvents);
+    mongoTemplate
+        .getDb()
+        .createCollection(
+            ticketEvents,
+            new CreateCollectionOptions()
+                .timeSeriesOptions(
+                    new TimeSeriesOptions("timestamp")
+                        .metaField("parking_meter_id")
+                        .granularity(TimeSeriesGranularity.HOURS)));
+  }
+
+  public void insert(List<TicketEvent> ticketEvents) {
+    if (!ticketEvents.isEmpty()) {
+      mongoTemplate.insert(ticketEvents, TicketEvent.class);
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.postech.fiap.parkingmeter.domain.projection;
+
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+
+/**
+ * Writes one of the read models the ticket projector maintains. The projector collects the tickets
+ * a batch of changes removed and added into a {@link Delta} of each read model, and writes them
+ * all in the transaction that commits the batch.
+ */
+public interface TicketProjectionWriter {
+
+  /** Removes the whole read model, before it is recomputed. */
+  void reset();
+
+  /** Starts the net change of a batch. */
+  Delta newDelta();
+
+  /** Net change of a read model. */
+  interface Delta {
+
+    /** Counts {@code ticket} in the read model with a {@code sign} of 1, or out with -1. */
+    void add(Ticket ticket, long sign);
+
+    void write();
+  }
+}
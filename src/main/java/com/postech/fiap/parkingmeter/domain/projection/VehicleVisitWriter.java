@@ -0,0 +1,75 @@
+package com.postech.fiap.parkingmeter.domain.projection;
+
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.VehicleVisitProjection;
+import java.time.LocalDate;
+import java.util.List;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/** Tickets per vehicle, parking meter and day, for the times parked. */
+@Component
+public class VehicleVisitWriter extends TicketCountWriter<VehicleVisitWriter.Key> {
+
+  @Autowired
+  public VehicleVisitWriter(MongoTemplate mongoTemplate) {
+    super(mongoTemplate, VehicleVisitProjection.class);
+  }
+
+  @Override
+  protected List<Document> pipeline() {
+    return List.of(
+        new Document(
+            "$match",
+            new Document("parkingMeter._id", new Document("$ne", null))
+                .append("vehicle.license_plate", new Document("$ne", null))
+                .append("start_time", new Document("$ne", null))),
+        new Document(
+            "$group",
+            new Document(
+                    "_id",
+                    new Document(
+                            "parking_meter_id", new Document("$toString", "$parkingMeter._id"))
+                        .append("license_plate", "$vehicle.license_plate")
+                        .append("day", truncate("day")))
+                .append("ticket_count", new Document("$sum", 1))),
+        new Document(
+            "$project",
+            new Document("_id", 0)
+                .append("parking_meter_id", "$_id.parking_meter_id")
+                .append("license_plate", "$_id.license_plate")
+                .append("day", "$_id.day")
+                .append("ticket_count", 1)));
+  }
+
+  @Override
+  protected Key keyOf(Ticket ticket) {
+    if (ticket.getParkingMeter() == null
+        || ticket.getVehicle() == null
+        || ticket.getVehicle().getLicensePlate() == null
+        || ticket.getStartTime() == null) {
+      return null;
+    }
+    return new Key(
+        ticket.getParkingMeter().getId(),
+        ticket.getVehicle().getLicensePlate(),
+        ticket.getStartTime().toLocalDate());
+  }
+
+  @Override
+  protected Query queryOf(Key key) {
+    return Query.query(
+        Criteria.where("parkingMeterId")
+            .is(key.parkingMeterId())
+            .and("licensePlate")
+            .is(key.licensePlate())
+            .and("day")
+            .is(key.day()));
+  }
+
+  record Key(String parkingMeterId, String licensePlate, LocalDate day) {}
+}
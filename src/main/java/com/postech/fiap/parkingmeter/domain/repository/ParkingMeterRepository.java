@@ -1,6 +1,7 @@
 package com.postech.fiap.parkingmeter.domain.repository;
 
 import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
@@ -12,6 +13,9 @@ public interface ParkingMeterRepository extends MongoRepository<ParkingMeter, St
 
   boolean existsByAddress_ZipCode(String zipCode);
 
+  @Query(value = "{ '_id': ?0 }", fields = "{ 'address': 1, 'available_spaces': 1 }")
+  Optional<ParkingMeter> findAddressAndSpacesById(String id);
+
   @Query(" { '$and': [ {'$or': [{'address.city': ?0},{'null': ?0} ] }, {'$or': [{'address.neighborhood': ?1}, {'null': ?1} ]} ] } ")
   Page<ParkingMeter> findAllByCityAndOrNeighborhood(
       String city, String neighborhood, Pageable pageable);
@@ -2,10 +2,10 @@ package com.postech.fiap.parkingmeter.domain.repository;
 
 import com.postech.fiap.parkingmeter.domain.model.Ticket;
 import com.postech.fiap.parkingmeter.domain.model.dto.BusyHoursDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterOccupancyDTO;
 import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
@@ -17,19 +17,47 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface TicketRepository extends MongoRepository<Ticket, String> {
 
-  @Query("{ 'payment_status': 'PENDING', 'vehicle._id': ?0 }")
-  Optional<Ticket> findPendingTicketByVehicleId(String vehicleId);
+  @Query(value = "{ 'payment_status': 'PENDING', 'vehicle._id': ?0 }", exists = true)
+  boolean existsPendingTicketByVehicleId(String vehicleId);
 
-  @Query("{ 'payment_status': 'PENDING', 'parkingMeter._id': ?0 }")
-  List<Ticket> findPendingTicketsByParkingMeterId(String parkingMeterId);
+  @Query(value = "{ 'payment_status': 'PENDING', 'parkingMeter._id': ?0 }", count = true)
+  long countPendingTicketsByParkingMeterId(String parkingMeterId);
 
-  List<Ticket> findByVehicleLicensePlate(String licensePlate);
+  @Query(
+      value =
+          "{ 'parkingMeter._id': ?0, 'payment_status': 'PENDING', "
+              + "'start_time': { '$gte': ?1, '$lt': ?2 } }",
+      count = true)
+  long countPendingTicketsByParkingMeterIdAndStartTimeBetween(
+      String parkingMeterId, LocalDateTime startDate, LocalDateTime endDate);
+
+  @Query(
+      value =
+          "{ 'parkingMeter._id': ?0, 'vehicle.license_plate': ?1, "
+              + "'start_time': { '$gte': ?2, '$lt': ?3 } }",
+      count = true)
+  long countByParkingMeterIdAndLicensePlateAndStartTimeBetween(
+      String parkingMeterId, String licensePlate, LocalDateTime startDate, LocalDateTime endDate);
+
+  @Aggregation(
+      pipeline = {
+        "{ '$match': { 'payment_status': 'PENDING' } }",
+        "{ '$group': { '_id': '$parkingMeter._id', 'occupied': { '$sum': 1 } } }"
+      })
+  List<ParkingMeterOccupancyDTO> countPendingTicketsGroupedByParkingMeter();
+
+  boolean existsByVehicleLicensePlate(String licensePlate);
 
   Page<Ticket> findByStartTimeBetween(
       LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
 
+  Slice<Ticket> findSliceByStartTimeBetween(
+      LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
+
   Page<Ticket> findByPaymentStatus(PaymentStatusEnum status, Pageable pageable);
 
+  Slice<Ticket> findSliceByPaymentStatus(PaymentStatusEnum status, Pageable pageable);
+
   @Aggregation(
       pipeline = {
         "{ '$match': { 'start_time': { '$gte': ?0, '$lt': ?1 } } }",
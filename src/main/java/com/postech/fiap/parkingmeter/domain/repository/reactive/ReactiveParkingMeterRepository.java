@@ -0,0 +1,15 @@
+package com.postech.fiap.parkingmeter.domain.repository.reactive;
+
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveParkingMeterRepository
+    extends ReactiveMongoRepository<ParkingMeter, String> {
+
+  @Query(value = "{ '_id': ?0 }", fields = "{ 'address': 1, 'available_spaces': 1 }")
+  Mono<ParkingMeter> findAddressAndSpacesById(String id);
+}
@@ -0,0 +1,31 @@
+package com.postech.fiap.parkingmeter.domain.repository.reactive;
+
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import java.time.LocalDateTime;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveTicketRepository extends ReactiveMongoRepository<Ticket, String> {
+
+  @Query(value = "{ 'payment_status': 'PENDING', 'vehicle._id': ?0 }", exists = true)
+  Mono<Boolean> existsPendingTicketByVehicleId(String vehicleId);
+
+  @Query(
+      value =
+          "{ 'parkingMeter._id': ?0, 'payment_status': 'PENDING', "
+              + "'start_time': { '$gte': ?1, '$lt': ?2 } }",
+      count = true)
+  Mono<Long> countPendingTicketsByParkingMeterIdAndStartTimeBetween(
+      String parkingMeterId, LocalDateTime startDate, LocalDateTime endDate);
+
+  @Query(
+      value =
+          "{ 'parkingMeter._id': ?0, 'vehicle.license_plate': ?1, "
+              + "'start_time': { '$gte': ?2, '$lt': ?3 } }",
+      count = true)
+  Mono<Long> countByParkingMeterIdAndLicensePlateAndStartTimeBetween(
+      String parkingMeterId, String licensePlate, LocalDateTime startDate, LocalDateTime endDate);
+}
@@ -0,0 +1,33 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterEarningsDTO;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+
+public interface EarningsRollupService {
+
+  void recordPayment(Ticket ticket);
+
+  Mono<Void> recordPaymentReactive(Ticket ticket);
+
+  void revertPayment(Ticket ticket);
+
+  Mono<Void> revertPaymentReactive(Ticket ticket);
+
+  void applyPayments(Collection<Ticket> paid, Collection<Ticket> reverted);
+
+  List<ParkingMeterEarningsDTO> getEarnings(
+      Collection<String> parkingMeterIds, LocalDateTime start, LocalDateTime end);
+
+  Mono<List<ParkingMeterEarningsDTO>> getEarningsReactive(
+      Collection<String> parkingMeterIds, LocalDateTime start, LocalDateTime end);
+
+  List<ParkingMeterEarningsDTO> getHighestEarnings(
+      LocalDateTime start, LocalDateTime end, Pageable pageable);
+
+  void rebuild();
+}
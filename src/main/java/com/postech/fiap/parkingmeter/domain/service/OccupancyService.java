@@ -0,0 +1,26 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import java.util.Map;
+import reactor.core.publisher.Mono;
+
+public interface OccupancyService {
+
+  boolean tryOccupy(String parkingMeterId);
+
+  /** Reserves up to {@code spaces} spaces at once and returns how many were reserved. */
+  int tryOccupy(String parkingMeterId, int spaces);
+
+  Mono<Boolean> tryOccupyReactive(String parkingMeterId);
+
+  void release(String parkingMeterId);
+
+  Mono<Void> releaseReactive(String parkingMeterId);
+
+  void adjust(Map<String, Integer> deltaByParkingMeter);
+
+  int getOccupied(String parkingMeterId);
+
+  void evict(String parkingMeterId);
+
+  void reconcile();
+}
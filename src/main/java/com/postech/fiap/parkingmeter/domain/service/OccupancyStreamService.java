@@ -0,0 +1,11 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.event.OccupancyChangedEvent;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface OccupancyStreamService {
+
+  SseEmitter subscribe(String parkingMeterId, String city, String neighborhood);
+
+  void onOccupancyChanged(OccupancyChangedEvent event);
+}
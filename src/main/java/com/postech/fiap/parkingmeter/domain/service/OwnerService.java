@@ -1,5 +1,6 @@
 package com.postech.fiap.parkingmeter.domain.service;
 
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.OwnerDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.TotalVehicleOwnerDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.OwnerForm;
@@ -10,6 +11,8 @@ public interface OwnerService {
 
   Page<OwnerDTO> findAll(Pageable pageable);
 
+  CursorPageDTO<OwnerDTO> scrollAll(String cursor, int size);
+
   OwnerDTO getById(String id);
 
   OwnerDTO create(OwnerForm owner);
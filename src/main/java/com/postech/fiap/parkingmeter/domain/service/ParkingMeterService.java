@@ -2,8 +2,10 @@ package com.postech.fiap.parkingmeter.domain.service;
 
 import com.postech.fiap.parkingmeter.domain.model.dto.*;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.parkingmeter.ParkingMeterForm;
+import com.postech.fiap.parkingmeter.domain.model.enums.ActivityIntervalEnum;
 import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
 import java.time.LocalDate;
+import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
@@ -12,6 +14,8 @@ public interface ParkingMeterService {
 
   Page<ParkingMeterDTO> findAll(Pageable pageable);
 
+  CursorPageDTO<ParkingMeterDTO> scrollAll(String cursor, int size);
+
   ParkingMeterDTO getById(String id);
 
   ParkingMeterDTO create(ParkingMeterForm parkingMeterForm) throws ParkingMeterException;
@@ -28,6 +32,16 @@ public interface ParkingMeterService {
   TimesParkedDTO getTimesParkedWithDateRange(
       String parkingMeterId, String licensePlate, LocalDate begin, LocalDate end);
 
+  List<ParkingMeterActivityDTO> getActivityWithDateRange(
+      String parkingMeterId, LocalDate begin, LocalDate end, ActivityIntervalEnum interval);
+
+  List<NearbyParkingMeterDTO> findNearestAvailable(
+      double latitude, double longitude, Double maxDistance, int limit);
+
+  OccupancyHeatmapDTO getOccupancyHeatmap(String parkingMeterId);
+
+  OccupancyHeatmapDTO getOccupancyHeatmapByLocality(String city, String neighborhood);
+
   Page<ParkingMeterDTO> findAllByCityOrNeighborhood(
       String city, String neighborhood, Pageable pageable);
 
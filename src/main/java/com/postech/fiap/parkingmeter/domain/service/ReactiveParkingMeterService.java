@@ -0,0 +1,18 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.AmountEarnedDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingSpaceDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TimesParkedDTO;
+import java.time.LocalDate;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveParkingMeterService {
+
+  Mono<ParkingSpaceDTO> getAvailableSpace(String id, LocalDate date);
+
+  Mono<TimesParkedDTO> getTimesParkedWithDateRange(
+      String parkingMeterId, String licensePlate, LocalDate begin, LocalDate end);
+
+  Mono<AmountEarnedDTO> getParkingMeterEarningsWithDateRange(
+      String parkingMeterId, LocalDate begin, LocalDate end);
+}
@@ -0,0 +1,14 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketForm;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveTicketService {
+
+  Mono<TicketDTO> create(TicketForm ticketForm);
+
+  Mono<TicketDTO> updatePayment(String id);
+
+  Mono<TicketDTO> cancelTicket(String id);
+}
@@ -0,0 +1,35 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import reactor.core.publisher.Mono;
+
+public interface TicketArchiveService {
+
+  String ARCHIVE_PREFIX = "ticket_archive_";
+
+  long archive();
+
+  /**
+   * The ticket collection, followed by the archives that may hold tickets started in range. Either
+   * bound may be {@code null} for a range open on that side.
+   */
+  List<String> getCollections(LocalDateTime startDate, LocalDateTime endDate);
+
+  Mono<List<String>> getCollectionsReactive(LocalDateTime startDate, LocalDateTime endDate);
+
+  /** The ticket collection, followed by every archive. */
+  List<String> getCollections();
+
+  /** Only the ticket collection for the statuses that are never archived. */
+  List<String> getCollections(PaymentStatusEnum status);
+
+  List<String> getArchiveCollections();
+
+  Optional<Ticket> findArchivedById(String id);
+
+  Optional<Ticket> removeArchivedById(String id);
+}
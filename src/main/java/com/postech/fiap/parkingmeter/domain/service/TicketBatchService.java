@@ -0,0 +1,10 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketEventResultDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketEventForm;
+import java.util.List;
+
+public interface TicketBatchService {
+
+  List<TicketEventResultDTO> ingest(List<TicketEventForm> events);
+}
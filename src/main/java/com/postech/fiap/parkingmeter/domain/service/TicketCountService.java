@@ -0,0 +1,13 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import java.time.LocalDateTime;
+
+public interface TicketCountService {
+
+  String TICKET_COUNT_ESTIMATES = "ticketCountEstimates";
+
+  long approximateCountByStatus(PaymentStatusEnum status);
+
+  long approximateCountByDateRange(LocalDateTime startDate, LocalDateTime endDate);
+}
@@ -0,0 +1,14 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketExportFormatEnum;
+import java.time.LocalDateTime;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public interface TicketExportService {
+
+  StreamingResponseBody export(
+      LocalDateTime startDate,
+      LocalDateTime endDate,
+      String after,
+      TicketExportFormatEnum format);
+}
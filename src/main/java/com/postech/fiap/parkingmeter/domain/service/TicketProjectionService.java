@@ -0,0 +1,33 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.model.OccupancyHistogram;
+import com.postech.fiap.parkingmeter.domain.model.dto.BusyHoursDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterActivityDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.ActivityIntervalEnum;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+public interface TicketProjectionService {
+
+  void start();
+
+  void stop();
+
+  void rebuild();
+
+  boolean isReady();
+
+  Slice<BusyHoursDTO> findBusiestHour(LocalDateTime start, LocalDateTime end, Pageable pageable);
+
+  List<ParkingMeterActivityDTO> findActivity(
+      String parkingMeterId, LocalDateTime start, LocalDateTime end, ActivityIntervalEnum interval);
+
+  List<OccupancyHistogram> findOccupancyHistograms(Collection<String> parkingMeterIds);
+
+  long countTimesParked(
+      String parkingMeterId, String licensePlate, LocalDate startDate, LocalDate endDate);
+}
@@ -1,9 +1,11 @@
 package com.postech.fiap.parkingmeter.domain.service;
 
 import com.postech.fiap.parkingmeter.domain.model.dto.BusyHoursDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.VehicleSpentDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketForm;
+import com.postech.fiap.parkingmeter.domain.model.enums.PageModeEnum;
 import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
 import com.postech.fiap.parkingmeter.infrastructure.exception.TicketException;
 import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
@@ -15,6 +17,8 @@ import org.springframework.data.domain.Slice;
 public interface TicketService {
   Page<TicketDTO> findAll(Pageable pageable);
 
+  CursorPageDTO<TicketDTO> scrollAll(String cursor, int size);
+
   TicketDTO getById(String id);
 
   TicketDTO create(TicketForm ticketForm);
@@ -27,10 +31,16 @@ public interface TicketService {
 
   VehicleSpentDTO getTotalSpentByVehicle(String licensePlate) throws VehicleException;
 
-  Page<TicketDTO> findTicketsByDateRange(
-      LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
+  Slice<TicketDTO> findTicketsByDateRange(
+      LocalDateTime startDate, LocalDateTime endDate, Pageable pageable, PageModeEnum mode);
+
+  CursorPageDTO<TicketDTO> scrollTicketsByDateRange(
+      LocalDateTime startDate, LocalDateTime endDate, String cursor, int size);
+
+  Slice<TicketDTO> findTicketsByStatus(
+      PaymentStatusEnum status, Pageable pageable, PageModeEnum mode);
 
-  Page<TicketDTO> findTicketsByStatus(PaymentStatusEnum status, Pageable pageable);
+  CursorPageDTO<TicketDTO> scrollTicketsByStatus(PaymentStatusEnum status, String cursor, int size);
 
   Slice<BusyHoursDTO> findBusiestHour(
       LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
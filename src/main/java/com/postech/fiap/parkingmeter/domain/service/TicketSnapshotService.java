@@ -0,0 +1,26 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
+import java.util.Collection;
+import java.util.Map;
+import reactor.core.publisher.Mono;
+
+public interface TicketSnapshotService {
+
+  String PARKING_METER_SNAPSHOTS = "parkingMeterSnapshots";
+  String VEHICLE_SNAPSHOTS = "vehicleSnapshots";
+
+  ParkingMeter getParkingMeter(String id);
+
+  Mono<ParkingMeter> getParkingMeterReactive(String id);
+
+  Map<String, ParkingMeter> getParkingMeters(Collection<String> ids);
+
+  Vehicle getVehicle(String id) throws VehicleException;
+
+  Mono<Vehicle> getVehicleReactive(String id);
+
+  Map<String, Vehicle> getVehicles(Collection<String> ids);
+}
@@ -1,5 +1,6 @@
 package com.postech.fiap.parkingmeter.domain.service;
 
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.VehicleDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.VehicleForm;
 import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
@@ -10,6 +11,8 @@ public interface VehicleService {
 
   Page<VehicleDTO> findAll(Pageable pageable);
 
+  CursorPageDTO<VehicleDTO> scrollAll(String cursor, int size);
+
   VehicleDTO getById(String id) throws VehicleException;
 
   VehicleDTO create(VehicleForm vehicleForm) throws VehicleException;
@@ -0,0 +1,24 @@
+package com.postech.fiap.parkingmeter.domain.service;
+
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSpendLedger;
+import java.util.Collection;
+import java.util.Optional;
+import reactor.core.publisher.Mono;
+
+public interface VehicleSpendLedgerService {
+
+  void recordPayment(Ticket ticket);
+
+  Mono<Void> recordPaymentReactive(Ticket ticket);
+
+  void revertPayment(Ticket ticket);
+
+  Mono<Void> revertPaymentReactive(Ticket ticket);
+
+  void applyPayments(Collection<Ticket> paid, Collection<Ticket> reverted);
+
+  Optional<VehicleSpendLedger> getLedger(String licensePlate);
+
+  void rebuild();
+}
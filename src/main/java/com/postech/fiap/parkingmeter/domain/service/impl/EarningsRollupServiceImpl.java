@@ -0,0 +1,238 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.postech.fiap.parkingmeter.domain.model.EarningsRollup;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterEarningsDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.util.MongoTimeZone;
+import com.postech.fiap.parkingmeter.domain.util.PaidTicketAggregates;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Maintains the {@code earnings_rollup} collection: one document per parking meter and hour of
+ * ticket start with the amount earned, the number of paid tickets and the minutes they occupied.
+ * The earnings endpoints read it instead of scanning the ticket history.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class EarningsRollupServiceImpl
+    implements EarningsRollupService, SmartInitializingSingleton {
+
+  private static final String EARNED = "earned";
+  private static final String TICKET_COUNT = "ticketCount";
+  private static final String MINUTES_OCCUPIED = "minutesOccupied";
+
+  private final MongoTemplate mongoTemplate;
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+  private final PaidTicketAggregates paidTicketAggregates;
+
+  @Value("${parkingmeter.rollup.backfill-on-startup:true}")
+  private boolean backfillOnStartup;
+
+  @Override
+  public void recordPayment(Ticket ticket) {
+    apply(ticket, 1);
+  }
+
+  @Override
+  public Mono<Void> recordPaymentReactive(Ticket ticket) {
+    return applyReactive(ticket, 1);
+  }
+
+  @Override
+  public void revertPayment(Ticket ticket) {
+    apply(ticket, -1);
+  }
+
+  @Override
+  public Mono<Void> revertPaymentReactive(Ticket ticket) {
+    return applyReactive(ticket, -1);
+  }
+
+  @Override
+  public void applyPayments(Collection<Ticket> paid, Collection<Ticket> reverted) {
+    if (paid.isEmpty() && reverted.isEmpty()) {
+      return;
+    }
+    BulkOperations bulkOperations =
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EarningsRollup.class);
+    paid.forEach(ticket -> bulkOperations.upsert(rollupQuery(ticket), rollupUpdate(ticket, 1)));
+    reverted.forEach(
+        ticket -> bulkOperations.upsert(rollupQuery(ticket), rollupUpdate(ticket, -1)));
+    bulkOperations.execute();
+  }
+
+  @Override
+  public List<ParkingMeterEarningsDTO> getEarnings(
+      Collection<String> parkingMeterIds, LocalDateTime start, LocalDateTime end) {
+    return mongoTemplate
+        .aggregate(
+            earningsAggregation(parkingMeterIds, start, end),
+            EarningsRollup.class,
+            ParkingMeterEarningsDTO.class)
+        .getMappedResults();
+  }
+
+  @Override
+  public Mono<List<ParkingMeterEarningsDTO>> getEarningsReactive(
+      Collection<String> parkingMeterIds, LocalDateTime start, LocalDateTime end) {
+    return reactiveMongoTemplate
+        .aggregate(
+            earningsAggregation(parkingMeterIds, start, end),
+            EarningsRollup.class,
+            ParkingMeterEarningsDTO.class)
+        .collectList();
+  }
+
+  @Override
+  public List<ParkingMeterEarningsDTO> getHighestEarnings(
+      LocalDateTime start, LocalDateTime end, Pageable pageable) {
+    Aggregation aggregation =
+        Aggregation.newAggregation(
+            EarningsRollup.class,
+            Aggregation.match(
+                Criteria.where("hour").gte(start.truncatedTo(ChronoUnit.HOURS)).lt(end)),
+            groupByParkingMeter(),
+            Aggregation.sort(Sort.by(Sort.Direction.DESC, EARNED).and(Sort.by("_id"))),
+            Aggregation.skip(pageable.getOffset()),
+            Aggregation.limit(pageable.getPageSize()));
+
+    return mongoTemplate
+        .aggregate(aggregation, EarningsRollup.class, ParkingMeterEarningsDTO.class)
+        .getMappedResults();
+  }
+
+  /**
+   * Recomputes the whole rollup from the paid tickets, bucketing them by the hour of start in the
+   * JVM time zone as {@link #recordPayment} does.
+   */
+  @Override
+  public void rebuild() {
+    var startTime = "$start_time";
+    paidTicketAggregates.rebuild(
+        EarningsRollup.class,
+        List.of(
+            new Document(
+                "$match", new Document("payment_status", PaymentStatusEnum.PAID.name())),
+            new Document(
+                "$group",
+                new Document(
+                        "_id",
+                        new Document(
+                                "parking_meter_id",
+                                new Document("$toString", "$parkingMeter._id"))
+                            .append(
+                                "hour",
+                                new Document(
+                                    "$dateTrunc",
+                                    new Document("date", startTime)
+                                        .append("unit", "hour")
+                                        .append("timezone", MongoTimeZone.id()))))
+                    .append("earned", new Document("$sum", "$total_amount_charged"))
+                    .append("ticket_count", new Document("$sum", 1))
+                    .append(
+                        "minutes_occupied",
+                        new Document(
+                            "$sum",
+                            new Document(
+                                "$floor",
+                                new Document(
+                                    "$divide",
+                                    List.of(
+                                        new Document(
+                                            "$subtract", List.of("$end_time", startTime)),
+                                        60_000)))))),
+            new Document(
+                "$project",
+                new Document("_id", 0)
+                    .append("parking_meter_id", "$_id.parking_meter_id")
+                    .append("hour", "$_id.hour")
+                    .append("earned", 1)
+                    .append("ticket_count", 1)
+                    .append("minutes_occupied", 1))));
+  }
+
+  /** Backfills an empty rollup before the application takes any payment. */
+  @Override
+  public void afterSingletonsInstantiated() {
+    backfill();
+  }
+
+  public void backfill() {
+    if (backfillOnStartup) {
+      paidTicketAggregates.backfill(EarningsRollup.class, this::rebuild);
+    }
+  }
+
+  private void apply(Ticket ticket, int sign) {
+    mongoTemplate.upsert(rollupQuery(ticket), rollupUpdate(ticket, sign), EarningsRollup.class);
+  }
+
+  private Mono<Void> applyReactive(Ticket ticket, int sign) {
+    return reactiveMongoTemplate
+        .upsert(rollupQuery(ticket), rollupUpdate(ticket, sign), EarningsRollup.class)
+        .then();
+  }
+
+  private static Query rollupQuery(Ticket ticket) {
+    return Query.query(
+        Criteria.where("parkingMeterId")
+            .is(ticket.getParkingMeter().getId())
+            .and("hour")
+            .is(ticket.getStartTime().truncatedTo(ChronoUnit.HOURS)));
+  }
+
+  private static Update rollupUpdate(Ticket ticket, int sign) {
+    long minutesOccupied = ChronoUnit.MINUTES.between(ticket.getStartTime(), ticket.getEndTime());
+    return new Update()
+        .inc(EARNED, sign * ticket.getTotalAmountCharged())
+        .inc(TICKET_COUNT, sign)
+        .inc(MINUTES_OCCUPIED, sign * minutesOccupied);
+  }
+
+  private static Aggregation earningsAggregation(
+      Collection<String> parkingMeterIds, LocalDateTime start, LocalDateTime end) {
+    return Aggregation.newAggregation(
+        EarningsRollup.class,
+        Aggregation.match(
+            Criteria.where("parkingMeterId")
+                .in(parkingMeterIds)
+                .and("hour")
+                .gte(start.truncatedTo(ChronoUnit.HOURS))
+                .lt(end)),
+        groupByParkingMeter());
+  }
+
+  private static GroupOperation groupByParkingMeter() {
+    return Aggregation.group("parkingMeterId")
+        .sum(EARNED)
+        .as(EARNED)
+        .sum(TICKET_COUNT)
+        .as(TICKET_COUNT)
+        .sum(MINUTES_OCCUPIED)
+        .as(MINUTES_OCCUPIED);
+  }
+}
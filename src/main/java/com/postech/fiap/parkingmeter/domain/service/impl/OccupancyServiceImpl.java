@@ -0,0 +1,306 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.postech.fiap.parkingmeter.domain.event.OccupancyChangedEvent;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterOccupancyDTO;
+import com.postech.fiap.parkingmeter.domain.repository.TicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.MongoExpression;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reserves parking spaces through the {@code occupied} counter of the parking meter document: a
+ * reservation is a single conditional {@code findAndModify}, so concurrent requests can never
+ * admit more tickets than the meter has spaces. The last counter value seen by this instance is
+ * kept in memory for reads, and {@link #reconcile()} checks the counters against the pending
+ * tickets. Every counter write publishes an {@link OccupancyChangedEvent} with the new value.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class OccupancyServiceImpl implements OccupancyService {
+
+  private static final String OCCUPIED = "occupied";
+  private static final String VERSION = "version";
+  private static final MongoExpression HAS_AVAILABLE_SPACE =
+      MongoExpression.create(
+          "{ '$lt': [ { '$ifNull': [ '$occupied', 0 ] }, '$available_spaces' ] }");
+  private static final String HAS_AVAILABLE_SPACES =
+      "{ '$lte': [ { '$add': [ { '$ifNull': [ '$occupied', 0 ] }, ?0 ] }, '$available_spaces' ] }";
+
+  private final TicketRepository ticketRepository;
+  private final MongoTemplate mongoTemplate;
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+
+  private final Map<String, Integer> occupiedByParkingMeter = new ConcurrentHashMap<>();
+  private final Map<String, Integer> suspectedDrift = new HashMap<>();
+
+  /** Not {@code synchronized}: a monitor held across MongoDB I/O pins a virtual thread. */
+  private final Lock reconcileLock = new ReentrantLock();
+
+  @Override
+  public boolean tryOccupy(String parkingMeterId) {
+    ParkingMeter parkingMeter =
+        mongoTemplate.findAndModify(
+            occupyQuery(parkingMeterId),
+            new Update().inc(OCCUPIED, 1).inc(VERSION, 1),
+            FindAndModifyOptions.options().returnNew(true),
+            ParkingMeter.class);
+
+    if (parkingMeter == null) {
+      return false;
+    }
+    occupancyChanged(parkingMeter);
+    return true;
+  }
+
+  /**
+   * Reserves as many of the requested spaces as are free, in a single conditional update. If the
+   * meter cannot take them all, the request is narrowed to the spaces it had free when it was read
+   * and tried again.
+   */
+  @Override
+  public int tryOccupy(String parkingMeterId, int spaces) {
+    int requested = spaces;
+    while (requested > 0) {
+      ParkingMeter parkingMeter =
+          mongoTemplate.findAndModify(
+              Query.query(
+                  Criteria.where("id")
+                      .is(parkingMeterId)
+                      .andOperator(
+                          Criteria.expr(MongoExpression.create(HAS_AVAILABLE_SPACES, requested)))),
+              new Update().inc(OCCUPIED, requested).inc(VERSION, 1),
+              FindAndModifyOptions.options().returnNew(true),
+              ParkingMeter.class);
+      if (parkingMeter != null) {
+        occupancyChanged(parkingMeter);
+        return requested;
+      }
+
+      Query query = Query.query(Criteria.where("id").is(parkingMeterId));
+      includeOccupancyFields(query);
+      ParkingMeter current = mongoTemplate.findOne(query, ParkingMeter.class);
+      if (current == null) {
+        return 0;
+      }
+      int occupied = current.getOccupied() != null ? current.getOccupied() : 0;
+      requested = Math.min(requested, current.getAvailableSpaces() - occupied);
+    }
+    return 0;
+  }
+
+  @Override
+  public Mono<Boolean> tryOccupyReactive(String parkingMeterId) {
+    return reactiveMongoTemplate
+        .findAndModify(
+            occupyQuery(parkingMeterId),
+            new Update().inc(OCCUPIED, 1).inc(VERSION, 1),
+            FindAndModifyOptions.options().returnNew(true),
+            ParkingMeter.class)
+        .doOnNext(this::occupancyChanged)
+        .hasElement();
+  }
+
+  @Override
+  public void release(String parkingMeterId) {
+    ParkingMeter parkingMeter =
+        mongoTemplate.findAndModify(
+            releaseQuery(parkingMeterId),
+            new Update().inc(OCCUPIED, -1).inc(VERSION, 1),
+            FindAndModifyOptions.options().returnNew(true),
+            ParkingMeter.class);
+
+    if (parkingMeter != null) {
+      occupancyChanged(parkingMeter);
+    }
+  }
+
+  @Override
+  public Mono<Void> releaseReactive(String parkingMeterId) {
+    return reactiveMongoTemplate
+        .findAndModify(
+            releaseQuery(parkingMeterId),
+            new Update().inc(OCCUPIED, -1).inc(VERSION, 1),
+            FindAndModifyOptions.options().returnNew(true),
+            ParkingMeter.class)
+        .doOnNext(this::occupancyChanged)
+        .then();
+  }
+
+  /**
+   * Applies the net change of a batch of tickets in one unordered bulk write. Unlike {@link
+   * #tryOccupy}, the change is not checked against the available spaces: the tickets it accounts
+   * for have already been issued, and their spaces reserved with {@link #tryOccupy(String, int)}.
+   * Any drift is left to {@link #reconcile()}.
+   */
+  @Override
+  public void adjust(Map<String, Integer> deltaByParkingMeter) {
+    BulkOperations bulkOperations =
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ParkingMeter.class);
+    deltaByParkingMeter.forEach(
+        (parkingMeterId, delta) -> {
+          if (delta != 0) {
+            bulkOperations.updateOne(
+                Query.query(Criteria.where("id").is(parkingMeterId)),
+                new Update().inc(OCCUPIED, delta).inc(VERSION, 1));
+          }
+        });
+    List<String> changed =
+        deltaByParkingMeter.entrySet().stream()
+            .filter(entry -> entry.getValue() != 0)
+            .map(Map.Entry::getKey)
+            .toList();
+    if (changed.isEmpty()) {
+      return;
+    }
+    bulkOperations.execute();
+
+    Query query = Query.query(Criteria.where("id").in(changed));
+    includeOccupancyFields(query);
+    mongoTemplate.find(query, ParkingMeter.class).forEach(this::occupancyChanged);
+  }
+
+  @Override
+  public int getOccupied(String parkingMeterId) {
+    Integer occupied = occupiedByParkingMeter.get(parkingMeterId);
+    if (occupied != null) {
+      return occupied;
+    }
+
+    Query query = Query.query(Criteria.where("id").is(parkingMeterId));
+    query.fields().include(OCCUPIED);
+    ParkingMeter parkingMeter = mongoTemplate.findOne(query, ParkingMeter.class);
+    occupied =
+        parkingMeter != null && parkingMeter.getOccupied() != null ? parkingMeter.getOccupied() : 0;
+    occupiedByParkingMeter.put(parkingMeterId, occupied);
+    return occupied;
+  }
+
+  @Override
+  public void evict(String parkingMeterId) {
+    occupiedByParkingMeter.remove(parkingMeterId);
+  }
+
+  /**
+   * Compares the counter of every parking meter with its pending tickets. Spaces are reserved
+   * before the ticket is inserted, so a drift is only corrected once it has been seen on two
+   * consecutive runs, and only if the counter did not move in between. Meters that were created
+   * before the counter existed are initialized on the first run.
+   */
+  @Override
+  @Scheduled(
+      initialDelayString = "${parkingmeter.occupancy.initial-delay:PT0S}",
+      fixedDelayString = "${parkingmeter.occupancy.reconcile-interval:PT1M}")
+  public void reconcile() {
+    reconcileLock.lock();
+    try {
+      Map<String, Integer> pendingTickets = new HashMap<>();
+      for (ParkingMeterOccupancyDTO occupancy :
+          ticketRepository.countPendingTicketsGroupedByParkingMeter()) {
+        pendingTickets.put(occupancy.getId(), (int) occupancy.getOccupied());
+      }
+
+      Query query = new Query();
+      includeOccupancyFields(query);
+      for (ParkingMeter parkingMeter : mongoTemplate.find(query, ParkingMeter.class)) {
+        reconcile(parkingMeter, pendingTickets.getOrDefault(parkingMeter.getId(), 0));
+      }
+    } catch (RuntimeException e) {
+      log.warn("Unable to reconcile parking meter occupancy: {}", e.getMessage());
+    } finally {
+      reconcileLock.unlock();
+    }
+  }
+
+  private void occupancyChanged(ParkingMeter parkingMeter) {
+    occupiedByParkingMeter.put(parkingMeter.getId(), parkingMeter.getOccupied());
+    eventPublisher.publishEvent(OccupancyChangedEvent.of(parkingMeter));
+  }
+
+  private static void includeOccupancyFields(Query query) {
+    query
+        .fields()
+        .include(OCCUPIED, VERSION, "availableSpaces", "address.city", "address.neighborhood");
+  }
+
+  private static void corrected(ParkingMeter parkingMeter, int occupied) {
+    parkingMeter.setOccupied(occupied);
+    if (parkingMeter.getVersion() != null) {
+      parkingMeter.setVersion(parkingMeter.getVersion() + 1);
+    }
+  }
+
+  private static Query occupyQuery(String parkingMeterId) {
+    return Query.query(
+        Criteria.where("id").is(parkingMeterId).andOperator(Criteria.expr(HAS_AVAILABLE_SPACE)));
+  }
+
+  private static Query releaseQuery(String parkingMeterId) {
+    return Query.query(Criteria.where("id").is(parkingMeterId).and(OCCUPIED).gt(0));
+  }
+
+  private void reconcile(ParkingMeter parkingMeter, int expected) {
+    String parkingMeterId = parkingMeter.getId();
+    Integer occupied = parkingMeter.getOccupied();
+
+    if (occupied == null) {
+      var result =
+          mongoTemplate.updateFirst(
+              Query.query(Criteria.where("id").is(parkingMeterId).and(OCCUPIED).exists(false)),
+              new Update().set(OCCUPIED, expected).inc(VERSION, 1),
+              ParkingMeter.class);
+      if (result.getModifiedCount() > 0) {
+        corrected(parkingMeter, expected);
+        occupancyChanged(parkingMeter);
+      } else {
+        occupiedByParkingMeter.remove(parkingMeterId);
+      }
+      return;
+    }
+
+    occupiedByParkingMeter.put(parkingMeterId, occupied);
+    int drift = occupied - expected;
+    if (drift == 0) {
+      suspectedDrift.remove(parkingMeterId);
+      return;
+    }
+
+    Integer lastDrift = suspectedDrift.put(parkingMeterId, drift);
+    if (lastDrift == null || lastDrift != drift) {
+      return;
+    }
+
+    var result =
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("id").is(parkingMeterId).and(OCCUPIED).is(occupied)),
+            new Update().set(OCCUPIED, expected).inc(VERSION, 1),
+            ParkingMeter.class);
+    if (result.getModifiedCount() > 0) {
+      log.warn("Occupancy drift of {} corrected for parking meter {}", drift, parkingMeterId);
+      corrected(parkingMeter, expected);
+      occupancyChanged(parkingMeter);
+      suspectedDrift.remove(parkingMeterId);
+    }
+  }
+}
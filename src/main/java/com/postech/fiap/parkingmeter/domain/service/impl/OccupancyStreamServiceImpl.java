@@ -0,0 +1,148 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.postech.fiap.parkingmeter.domain.event.OccupancyChangedEvent;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.dto.OccupancyUpdateDTO;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyStreamService;
+import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes the occupancy of parking meters to Server-Sent Events subscribers, either for a single
+ * meter or for every meter of a city or neighborhood. A subscriber first receives the current
+ * state of the meters it follows and then one event per counter change, so signs no longer poll
+ * the availability endpoint. Events are sent off the ticket request thread; every event carries
+ * the meter document version, which lets clients drop one that arrives after a newer one.
+ */
+@Slf4j
+@Service
+public class OccupancyStreamServiceImpl implements OccupancyStreamService {
+
+  private static final String OCCUPANCY_EVENT = "occupancy";
+
+  private final MongoTemplate mongoTemplate;
+  private final long timeoutMillis;
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+  public OccupancyStreamServiceImpl(
+      MongoTemplate mongoTemplate,
+      @Value("${parkingmeter.occupancy.stream-timeout:PT30M}") Duration timeout) {
+    this.mongoTemplate = mongoTemplate;
+    this.timeoutMillis = timeout.toMillis();
+  }
+
+  @Override
+  public SseEmitter subscribe(String parkingMeterId, String city, String neighborhood) {
+    if (parkingMeterId == null && city == null && neighborhood == null) {
+      throw new ParkingMeterException(
+          "Inform the parking meter id, the city or the neighborhood to follow",
+          HttpStatus.BAD_REQUEST);
+    }
+
+    Predicate<OccupancyChangedEvent> filter =
+        event ->
+            (parkingMeterId == null || parkingMeterId.equals(event.parkingMeterId()))
+                && (city == null || city.equals(event.city()))
+                && (neighborhood == null || neighborhood.equals(event.neighborhood()));
+
+    SseEmitter emitter = new SseEmitter(timeoutMillis);
+    Subscriber subscriber = new Subscriber(emitter, filter);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    log.info("Occupancy subscriber added, {} active", subscribers.size());
+
+    Query query = snapshotQuery(parkingMeterId, city, neighborhood);
+    for (ParkingMeter parkingMeter : mongoTemplate.find(query, ParkingMeter.class)) {
+      send(subscriber, OccupancyChangedEvent.of(parkingMeter));
+    }
+    return emitter;
+  }
+
+  @Async
+  @Override
+  @EventListener
+  public void onOccupancyChanged(OccupancyChangedEvent event) {
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.filter().test(event)) {
+        send(subscriber, event);
+      }
+    }
+  }
+
+  /** Keeps idle connections open through proxies and drops the clients that went away. */
+  @Scheduled(fixedDelayString = "${parkingmeter.occupancy.heartbeat-interval:PT15S}")
+  public void heartbeat() {
+    for (Subscriber subscriber : subscribers) {
+      try {
+        subscriber.emitter().send(SseEmitter.event().comment("heartbeat"));
+      } catch (IOException | IllegalStateException e) {
+        subscribers.remove(subscriber);
+      }
+    }
+  }
+
+  private void send(Subscriber subscriber, OccupancyChangedEvent event) {
+    String id = event.parkingMeterId() + ":" + Objects.requireNonNullElse(event.version(), 0L);
+    try {
+      subscriber
+          .emitter()
+          .send(SseEmitter.event().name(OCCUPANCY_EVENT).id(id).data(toDto(event)));
+    } catch (IOException | IllegalStateException e) {
+      subscribers.remove(subscriber);
+    }
+  }
+
+  private static Query snapshotQuery(String parkingMeterId, String city, String neighborhood) {
+    List<Criteria> criteriaList = new ArrayList<>();
+    if (parkingMeterId != null) {
+      criteriaList.add(Criteria.where("id").is(parkingMeterId));
+    }
+    if (city != null) {
+      criteriaList.add(Criteria.where("address.city").is(city));
+    }
+    if (neighborhood != null) {
+      criteriaList.add(Criteria.where("address.neighborhood").is(neighborhood));
+    }
+
+    Query query = Query.query(new Criteria().andOperator(criteriaList.toArray(new Criteria[0])));
+    query
+        .fields()
+        .include("address.city", "address.neighborhood", "availableSpaces", "occupied", "version");
+    return query;
+  }
+
+  private static OccupancyUpdateDTO toDto(OccupancyChangedEvent event) {
+    return OccupancyUpdateDTO.builder()
+        .parkingMeterId(event.parkingMeterId())
+        .city(event.city())
+        .neighborhood(event.neighborhood())
+        .spaces(event.spaces())
+        .occupied(event.occupied())
+        .available(Math.max(event.spaces() - event.occupied(), 0))
+        .version(event.version())
+        .date(LocalDateTime.now())
+        .build();
+  }
+
+  private record Subscriber(SseEmitter emitter, Predicate<OccupancyChangedEvent> filter) {}
+}
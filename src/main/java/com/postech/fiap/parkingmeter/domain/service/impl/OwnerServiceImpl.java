@@ -2,19 +2,25 @@ package com.postech.fiap.parkingmeter.domain.service.impl;
 
 import com.postech.fiap.parkingmeter.domain.model.Address;
 import com.postech.fiap.parkingmeter.domain.model.Owner;
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.OwnerDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.TotalVehicleOwnerDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.OwnerForm;
 import com.postech.fiap.parkingmeter.domain.repository.OwnerRepository;
 import com.postech.fiap.parkingmeter.domain.repository.VehicleRepository;
 import com.postech.fiap.parkingmeter.domain.service.OwnerService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
 import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.domain.util.KeysetPaginator;
 import com.postech.fiap.parkingmeter.infrastructure.exception.OwnerException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,6 +34,7 @@ public class OwnerServiceImpl implements OwnerService {
   private final VehicleRepository vehicleRepository;
   private final OwnerRepository ownerRepository;
   private final ConverterToDTO converterToDTO;
+  private final KeysetPaginator keysetPaginator;
 
   @Override
   @Transactional(readOnly = true)
@@ -35,6 +42,13 @@ public class OwnerServiceImpl implements OwnerService {
     return ownerRepository.findAll(pageable).map(converterToDTO::toDto);
   }
 
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPageDTO<OwnerDTO> scrollAll(String cursor, int size) {
+    return keysetPaginator.scroll(
+        new Query(), Sort.by("id"), cursor, size, Owner.class, converterToDTO::toDto);
+  }
+
   @Override
   @Transactional(readOnly = true)
   public OwnerDTO getById(String id) {
@@ -54,6 +68,7 @@ public class OwnerServiceImpl implements OwnerService {
   }
 
   @Override
+  @CacheEvict(value = TicketSnapshotService.VEHICLE_SNAPSHOTS, allEntries = true)
   public OwnerDTO updateById(String id, OwnerForm ownerForm) {
     try {
       Owner owner =
@@ -74,6 +89,7 @@ public class OwnerServiceImpl implements OwnerService {
   }
 
   @Override
+  @CacheEvict(value = TicketSnapshotService.VEHICLE_SNAPSHOTS, allEntries = true)
   public void deleteById(String id) {
     try {
       if (!ownerRepository.existsById(id)) {
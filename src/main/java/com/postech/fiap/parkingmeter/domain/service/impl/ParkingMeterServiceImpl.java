@@ -1,36 +1,63 @@
 package com.postech.fiap.parkingmeter.domain.service.impl;
 
+import com.mongodb.MongoServerException;
 import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.OccupancyHistogram;
 import com.postech.fiap.parkingmeter.domain.model.OperationHours;
 import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
 import com.postech.fiap.parkingmeter.domain.model.Rate;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.TicketEvent;
 import com.postech.fiap.parkingmeter.domain.model.dto.*;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.parkingmeter.OperatingHoursParkingForm;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.parkingmeter.ParkingMeterForm;
-import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.ActivityIntervalEnum;
 import com.postech.fiap.parkingmeter.domain.repository.ParkingMeterRepository;
+import com.postech.fiap.parkingmeter.domain.repository.TicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyService;
 import com.postech.fiap.parkingmeter.domain.service.ParkingMeterService;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketProjectionService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
 import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.domain.util.DateRangeNormalizer;
+import com.postech.fiap.parkingmeter.domain.util.KeysetPaginator;
+import com.postech.fiap.parkingmeter.domain.util.TicketEvents;
+import com.postech.fiap.parkingmeter.domain.util.TieredTicketQueries;
+import com.postech.fiap.parkingmeter.infrastructure.cache.TicketCacheInvalidator;
 import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.*;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.aggregation.*;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -42,12 +69,22 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class ParkingMeterServiceImpl implements ParkingMeterService {
 
+  private static final String DISTANCE = "distance";
+  private static final int MAX_NEARBY_PARKING_METERS = 100;
+  /** Error codes of a {@code $geoNear} without its index: IndexNotFound, NoQueryExecutionPlans. */
+  private static final Set<Integer> MISSING_GEO_INDEX = Set.of(27, 291);
+
   private final ParkingMeterRepository parkingMeterRepository;
+  private final TicketRepository ticketRepository;
   private final ConverterToDTO converterToDTO;
+  private final DateRangeNormalizer dateRangeNormalizer;
+  private final OccupancyService occupancyService;
+  private final EarningsRollupService earningsRollupService;
   private final MongoTemplate mongoTemplate;
-  private static final String PARKING_METER_ID = "parkingMeter._id";
-  private static final String TICKETS = "tickets";
-  private static final String INDEX = "index";
+  private final KeysetPaginator keysetPaginator;
+  private final TicketProjectionService ticketProjectionService;
+  private final TicketArchiveService ticketArchiveService;
+  private final TieredTicketQueries tieredTicketQueries;
 
   @Override
   @Transactional(readOnly = true)
@@ -56,6 +93,14 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
     return parkingMeterRepository.findAll(pageable).map(converterToDTO::toDto);
   }
 
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPageDTO<ParkingMeterDTO> scrollAll(String cursor, int size) {
+    log.info("Scroll all Parking Meters");
+    return keysetPaginator.scroll(
+        new Query(), Sort.by("id"), cursor, size, ParkingMeter.class, converterToDTO::toDto);
+  }
+
   @Override
   @Transactional(readOnly = true)
   public ParkingMeterDTO getById(String id) {
@@ -79,7 +124,7 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
             HttpStatus.CONFLICT);
       }
 
-      var parkingMeter = populateParkingMeter(null, parkingMeterForm);
+      var parkingMeter = populateParkingMeter(parkingMeterForm);
       return converterToDTO.toDto(parkingMeterRepository.save(parkingMeter));
     } catch (Exception e) {
       throw new ParkingMeterException(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -87,6 +132,16 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
   }
 
   @Override
+  @Caching(
+      evict = {
+        @CacheEvict(
+            value = {
+              TicketCacheInvalidator.RANKED_PARKING_METERS_BY_DATE,
+              TicketCacheInvalidator.BUSY_HOURS
+            },
+            allEntries = true),
+        @CacheEvict(value = TicketSnapshotService.PARKING_METER_SNAPSHOTS, key = "#id")
+      })
   public ParkingMeterDTO updateById(String id, ParkingMeterForm parkingMeterForm) {
     log.info("Update Parking Meter");
     var parkingMeter = this.getParkingMeter(id);
@@ -98,51 +153,82 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
                       + " already exists.",
               HttpStatus.CONFLICT);
     }
-    var updatedParkingMeter = populateParkingMeter(id, parkingMeterForm);
-    return this.converterToDTO.toDto(this.parkingMeterRepository.save(updatedParkingMeter));
+    var form = populateParkingMeter(parkingMeterForm);
+    Update update =
+        new Update()
+            .set("operatingHours", form.getOperatingHours())
+            .set("rate", form.getRate())
+            .set("availableSpaces", form.getAvailableSpaces())
+            .set("address", form.getAddress())
+            .inc("version", 1);
+    if (form.getLocation() != null) {
+      update.set("location", form.getLocation());
+    } else {
+      update.unset("location");
+    }
+
+    var updatedParkingMeter =
+        mongoTemplate.findAndModify(
+            Query.query(Criteria.where("id").is(id)),
+            update,
+            FindAndModifyOptions.options().returnNew(true),
+            ParkingMeter.class);
+    if (updatedParkingMeter == null) {
+      throw parkingMeterNotFound();
+    }
+    return this.converterToDTO.toDto(updatedParkingMeter);
   }
 
   @Override
+  @Caching(
+      evict = {
+        @CacheEvict(
+            value = {
+              TicketCacheInvalidator.RANKED_PARKING_METERS_BY_DATE,
+              TicketCacheInvalidator.BUSY_HOURS
+            },
+            allEntries = true),
+        @CacheEvict(value = TicketSnapshotService.PARKING_METER_SNAPSHOTS, key = "#id")
+      })
   public void deleteById(String id) {
     log.info("Delete Parking Meter");
     this.parkingMeterRepository.deleteById(id);
+    this.occupancyService.evict(id);
   }
 
   @Override
-  @Cacheable(value = "rankedParkingMetersByDate", key = "#startDate + '_' + #endDate")
+  @Cacheable(
+      value = TicketCacheInvalidator.RANKED_PARKING_METERS_BY_DATE,
+      key = "@cacheKeys.dateRange(#startDate, #endDate, #pageable)")
   @Transactional(readOnly = true)
   public Slice<ParkingMeterCollectionDTO> getHighestEarningParkingMeter(
       String startDate, String endDate, Pageable pageable) {
 
-    Instant startInstant = Instant.parse(startDate);
-    Instant endInstant = Instant.parse(endDate);
-
-    Aggregation aggregation =
-        Aggregation.newAggregation(
-            Aggregation.match(Criteria.where("start_time").gte(startInstant).lte(endInstant)),
-            Aggregation.group(PARKING_METER_ID)
-                .first("parkingMeter")
-                .as("parkingMeter")
-                .sum("total_collected_amount")
-                .as("totalCollected"),
-            Aggregation.sort(Sort.by(Sort.Direction.DESC, "totalCollected")),
-            Aggregation.skip(pageable.getOffset()),
-            Aggregation.limit(pageable.getPageSize()),
-                Aggregation.project()
-                        .and("_id").as(PARKING_METER_ID)
-                        .and("parkingMeter.operating_hours").as("parkingMeter.operatingHours")
-                        .and("parkingMeter.rate").as("parkingMeter.rate")
-                        .and("parkingMeter.available_spaces").as("parkingMeter.availableSpaces")
-                .and("parkingMeter.address").as("parkingMeter.address")
-                .and("parkingMeter.version").as("parkingMeter.version")
-                .and("totalCollected").as("totalCollected")
-        );
-
-    AggregationResults<ParkingMeterCollectionDTO> results =
-        mongoTemplate.aggregate(aggregation, "ticket", ParkingMeterCollectionDTO.class);
+    Instant startInstant = dateRangeNormalizer.floor(Instant.parse(startDate));
+    Instant endInstant = dateRangeNormalizer.ceil(Instant.parse(endDate));
+
+    ZoneId zone = ZoneId.systemDefault();
+    List<ParkingMeterEarningsDTO> earnings =
+        earningsRollupService.getHighestEarnings(
+            LocalDateTime.ofInstant(startInstant, zone),
+            LocalDateTime.ofInstant(endInstant, zone),
+            pageable);
+
+    Map<String, ParkingMeter> parkingMeters =
+        findParkingMetersById(earnings.stream().map(ParkingMeterEarningsDTO::getId).toList());
 
     List<ParkingMeterCollectionDTO> resultList =
-        results.getMappedResults().stream().filter(Objects::nonNull).collect(Collectors.toList());
+        earnings.stream()
+            .map(
+                earned ->
+                    ParkingMeterCollectionDTO.builder()
+                        .parkingMeter(
+                            parkingMeters.containsKey(earned.getId())
+                                ? converterToDTO.toDto(parkingMeters.get(earned.getId()))
+                                : ParkingMeterDTO.builder().id(earned.getId()).build())
+                        .totalCollected(earned.getEarned())
+                        .build())
+            .toList();
 
     boolean hasNext = resultList.size() == pageable.getPageSize();
 
@@ -154,67 +240,17 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
   public ParkingSpaceDTO getAvailableSpace(String id, LocalDate date) {
     log.info("Get Available Spaces");
 
-    ParkingMeter parkingMeter = getParkingMeter(id);
-
-    MatchOperation matchParkingMeter = Aggregation.match(Criteria.where("_id").is(id));
-
-    LookupOperation lookupOperation =
-        Aggregation.lookup("ticket", "_id", PARKING_METER_ID, TICKETS);
-
-    UnwindOperation unwindTickets = Aggregation.unwind(TICKETS, INDEX, Boolean.TRUE);
-
-    MatchOperation matchPendingTickets =
-        Aggregation.match(
-            new Criteria()
-                .orOperator(
-                    Criteria.where(INDEX).is(null),
-                    new Criteria()
-                        .andOperator(
-                            Criteria.where("tickets.payment_status").is(PaymentStatusEnum.PENDING),
-                            Criteria.where("tickets.start_time")
-                                .gte(date.atStartOfDay())
-                                .lte(date.plusDays(1).atStartOfDay()))));
-
-    GroupOperation groupTickets =
-        Aggregation.group("tickets.parkingMeter._id")
-            .first("available_spaces")
-            .as("spaces")
-            .first("address")
-            .as("address")
-            .first(INDEX)
-            .as("idx")
-            .count()
-            .as("occupied");
-
-    ProjectionOperation projectFields =
-        Aggregation.project("_id", "address", "spaces", "idx")
-            .and(AggregationSpELExpression.expressionOf("cond(idx==null, spaces, spaces-occupied)"))
-            .as("available");
-
-    TypedAggregation<ParkingMeter> aggregation =
-        Aggregation.newAggregation(
-            ParkingMeter.class,
-            matchParkingMeter,
-            lookupOperation,
-            unwindTickets,
-            matchPendingTickets,
-            groupTickets,
-            projectFields);
-
-    AggregationResults<ParkingSpaceDTO> results =
-        mongoTemplate.aggregate(aggregation, "parkingmeter", ParkingSpaceDTO.class);
-    var listResult = results.getMappedResults();
+    ParkingMeter parkingMeter = getAddressAndSpaces(id);
+
+    long occupied =
+        ticketRepository.countPendingTicketsByParkingMeterIdAndStartTimeBetween(
+            id, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
 
     ParkingSpaceDTO parkingSpaceDTO = new ParkingSpaceDTO();
-    if (listResult.isEmpty()) {
-      parkingSpaceDTO.setDate(LocalDateTime.now());
-      parkingSpaceDTO.setAddress(converterToDTO.toDto(parkingMeter.getAddress()));
-      parkingSpaceDTO.setSpaces(parkingMeter.getAvailableSpaces());
-      parkingSpaceDTO.setAvailable(0);
-    } else {
-      parkingSpaceDTO = listResult.get(0);
-      parkingSpaceDTO.setDate(LocalDateTime.now());
-    }
+    parkingSpaceDTO.setDate(LocalDateTime.now());
+    parkingSpaceDTO.setAddress(converterToDTO.toDto(parkingMeter.getAddress()));
+    parkingSpaceDTO.setSpaces(parkingMeter.getAvailableSpaces());
+    parkingSpaceDTO.setAvailable(Math.max(parkingMeter.getAvailableSpaces() - (int) occupied, 0));
 
     return parkingSpaceDTO;
   }
@@ -224,7 +260,7 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
   public TimesParkedDTO getTimesParkedWithDateRange(
       String parkingMeterId, String licensePlate, LocalDate startDate, LocalDate endDate) {
 
-    getParkingMeter(parkingMeterId);
+    requireParkingMeter(parkingMeterId);
 
     if (endDate == null) {
       endDate = LocalDate.now();
@@ -235,52 +271,259 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
               "Start date is greater than end date", HttpStatus.BAD_REQUEST);
     }
 
-    MatchOperation matchParkingMeter = Aggregation.match(Criteria.where("_id").is(parkingMeterId));
+    long timesParked =
+        ticketProjectionService.isReady()
+            ? ticketProjectionService.countTimesParked(
+                parkingMeterId, licensePlate, startDate, endDate)
+            : countTimesParked(
+                parkingMeterId,
+                licensePlate,
+                startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay());
 
-    LookupOperation lookupOperation =
-        Aggregation.lookup("ticket", "_id", PARKING_METER_ID, TICKETS);
+    TimesParkedDTO timesParkedDTO = new TimesParkedDTO();
+    timesParkedDTO.setTimesParked((int) timesParked);
 
-    UnwindOperation unwindTickets = Aggregation.unwind(TICKETS, INDEX, Boolean.TRUE);
+    return timesParkedDTO;
+  }
 
-    MatchOperation matchPendingTickets =
-        Aggregation.match(
-            new Criteria()
-                .orOperator(
-                    Criteria.where(INDEX).is(null),
-                    Criteria.where("tickets.vehicle.license_plate").is(licensePlate),
-                    Criteria.where("tickets.start_time").gte(startDate.atStartOfDay()).lte(endDate.plusDays(1).atStartOfDay())));
+  @Override
+  @Transactional(readOnly = true)
+  public List<ParkingMeterActivityDTO> getActivityWithDateRange(
+      String parkingMeterId,
+      LocalDate startDate,
+      LocalDate endDate,
+      ActivityIntervalEnum interval) {
 
-    GroupOperation groupTickets =
-        Aggregation.group("tickets.vehicle._id").first(INDEX).as("idx").count().as("times_parked");
+    requireParkingMeter(parkingMeterId);
 
-    ProjectionOperation projectFields =
-        Aggregation.project("_id", "idx", "times_parked")
-            .and(AggregationSpELExpression.expressionOf("cond(idx==null, 0, times_parked)"))
-            .as("timesParked");
+    if (endDate == null) {
+      endDate = LocalDate.now();
+    }
 
-    TypedAggregation<ParkingMeter> aggregation =
-        Aggregation.newAggregation(
-            ParkingMeter.class,
-            matchParkingMeter,
-            lookupOperation,
-            unwindTickets,
-            matchPendingTickets,
-            groupTickets,
-            projectFields);
+    if (startDate.isAfter(endDate)) {
+      throw new ParkingMeterException(
+          "Start date is greater than end date", HttpStatus.BAD_REQUEST);
+    }
 
-    AggregationResults<TimesParkedDTO> results =
-        mongoTemplate.aggregate(aggregation, "parkingmeter", TimesParkedDTO.class);
+    if (interval == null) {
+      interval = ActivityIntervalEnum.HOUR;
+    }
 
-    List<TimesParkedDTO> listResult = results.getMappedResults();
+    LocalDateTime start = startDate.atStartOfDay();
+    LocalDateTime end = endDate.plusDays(1).atStartOfDay();
+    return ticketProjectionService.isReady()
+        ? ticketProjectionService.findActivity(parkingMeterId, start, end, interval)
+        : findActivity(parkingMeterId, start, end, interval);
+  }
 
-    TimesParkedDTO timesParkedDTO = new TimesParkedDTO();
-    if (listResult.isEmpty()) {
-      timesParkedDTO.setTimesParked(0);
-    } else {
-      timesParkedDTO = listResult.get(0);
+  /**
+   * Derives the events from the tickets while the event stream is behind. A ticket paid or
+   * cancelled in range may have started before it, so every ticket started before the end is read.
+   */
+  private List<ParkingMeterActivityDTO> findActivity(
+      String parkingMeterId,
+      LocalDateTime start,
+      LocalDateTime end,
+      ActivityIntervalEnum interval) {
+    Query query =
+        Query.query(
+                Criteria.where("parkingMeter.id")
+                    .is(parkingMeterId)
+                    .and("startTime")
+                    .lt(end)
+                    .orOperator(
+                        Criteria.where("startTime").gte(start),
+                        Criteria.where("endTime").gte(start)))
+            .with(Sort.by("startTime"));
+
+    try (Stream<Ticket> tickets =
+        tieredTicketQueries.stream(
+            query,
+            ticketArchiveService.getCollections(null, end),
+            Comparator.comparing(Ticket::getStartTime))) {
+      List<TicketEvent> events =
+          tickets
+              .flatMap(ticket -> TicketEvents.of(ticket).stream())
+              .filter(
+                  event ->
+                      !event.getTimestamp().isBefore(start) && event.getTimestamp().isBefore(end))
+              .toList();
+      return TicketEvents.activity(events, interval);
     }
+  }
 
-    return timesParkedDTO;
+  /**
+   * Walks the parking meters outwards from the point through the 2dsphere index and stops at the
+   * first {@code limit} with a free space, read from the same {@code occupied} counter the
+   * admission updates. A single aggregation, so it needs no transaction. The index is built in
+   * the background at startup, or by an operator, so until it exists the search is unavailable.
+   */
+  @Override
+  public List<NearbyParkingMeterDTO> findNearestAvailable(
+      double latitude, double longitude, Double maxDistance, int limit) {
+    if (limit < 1 || limit > MAX_NEARBY_PARKING_METERS) {
+      throw new ParkingMeterException(
+          "The limit must be between 1 and " + MAX_NEARBY_PARKING_METERS, HttpStatus.BAD_REQUEST);
+    }
+
+    Document geoNear =
+        new Document(
+                "near",
+                new Document("type", "Point").append("coordinates", List.of(longitude, latitude)))
+            .append("key", "location")
+            .append("distanceField", DISTANCE)
+            .append("spherical", true);
+    if (maxDistance != null) {
+      geoNear.append("maxDistance", maxDistance);
+    }
+    List<Document> pipeline =
+        List.of(
+            new Document("$geoNear", geoNear),
+            new Document(
+                "$match",
+                new Document(
+                    "$expr",
+                    new Document(
+                        "$lt",
+                        List.of(
+                            new Document("$ifNull", List.of("$occupied", 0)),
+                            "$available_spaces")))),
+            new Document("$limit", limit));
+
+    List<Document> nearest;
+    try {
+      nearest =
+          mongoTemplate
+              .getCollection(mongoTemplate.getCollectionName(ParkingMeter.class))
+              .aggregate(pipeline)
+              .into(new ArrayList<>());
+    } catch (MongoServerException e) {
+      if (!MISSING_GEO_INDEX.contains(e.getCode())) {
+        throw e;
+      }
+      throw new ParkingMeterException(
+          "The parking meter locations are being indexed, try again later",
+          HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    return nearest.stream()
+        .map(
+            document -> {
+              ParkingMeter parkingMeter =
+                  mongoTemplate.getConverter().read(ParkingMeter.class, document);
+              int occupied = parkingMeter.getOccupied() != null ? parkingMeter.getOccupied() : 0;
+              return NearbyParkingMeterDTO.builder()
+                  .parkingMeter(converterToDTO.toDto(parkingMeter))
+                  .distance(document.get(DISTANCE, Number.class).doubleValue())
+                  .available(parkingMeter.getAvailableSpaces() - occupied)
+                  .build();
+            })
+        .toList();
+  }
+
+  /**
+   * Reads the maintained histogram, which covers the whole history of the parking meter.
+   * Recomputing it from the tickets would read all of them, so while the projections are disabled,
+   * rebuilding or behind, the heatmap is unavailable rather than read from missing or partial
+   * histograms.
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public OccupancyHeatmapDTO getOccupancyHeatmap(String parkingMeterId) {
+    requireParkingMeter(parkingMeterId);
+    requireOccupancyHistograms();
+
+    // A parking meter gets its histogram with its first ticket: without one, every slot is zero.
+    OccupancyHeatmapDTO heatmap =
+        heatmap(ticketProjectionService.findOccupancyHistograms(List.of(parkingMeterId)));
+    heatmap.setParkingMeterId(parkingMeterId);
+    heatmap.setParkingMeters(1);
+    return heatmap;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public OccupancyHeatmapDTO getOccupancyHeatmapByLocality(String city, String neighborhood) {
+    if (ObjectUtils.isEmpty(city) && ObjectUtils.isEmpty(neighborhood)) {
+      throw new ParkingMeterException(
+          "At least one filter parameter city or neighborhood must be entered", HttpStatus.BAD_REQUEST);
+    }
+    requireOccupancyHistograms();
+
+    Query query = Query.query(localityCriteria(city, neighborhood));
+    query.fields().include("id");
+    List<String> parkingMeterIds =
+        mongoTemplate.find(query, ParkingMeter.class).stream().map(ParkingMeter::getId).toList();
+
+    OccupancyHeatmapDTO heatmap =
+        heatmap(ticketProjectionService.findOccupancyHistograms(parkingMeterIds));
+    heatmap.setCity(city);
+    heatmap.setNeighborhood(neighborhood);
+    heatmap.setParkingMeters(parkingMeterIds.size());
+    return heatmap;
+  }
+
+  private void requireOccupancyHistograms() {
+    if (!ticketProjectionService.isReady()) {
+      throw new ParkingMeterException(
+          "Occupancy histograms are being rebuilt, try again later",
+          HttpStatus.SERVICE_UNAVAILABLE);
+    }
+  }
+
+  private static OccupancyHeatmapDTO heatmap(List<OccupancyHistogram> histograms) {
+    long[][] arrivals = new long[7][24];
+    long[][] occupiedHours = new long[7][24];
+    for (OccupancyHistogram histogram : histograms) {
+      addSlots(arrivals, histogram.getArrivals());
+      addSlots(occupiedHours, histogram.getOccupiedHours());
+    }
+    return OccupancyHeatmapDTO.builder()
+        .arrivals(arrivals)
+        .occupiedHours(occupiedHours)
+        .build();
+  }
+
+  private static void addSlots(long[][] heatmap, long[] slots) {
+    if (slots == null) {
+      return;
+    }
+    for (int slot = 0; slot < slots.length; slot++) {
+      heatmap[slot / 24][slot % 24] += slots[slot];
+    }
+  }
+
+  private static Criteria localityCriteria(String city, String neighborhood) {
+    List<Criteria> criteriaList = new ArrayList<>();
+    if (!ObjectUtils.isEmpty(city)) {
+      criteriaList.add(Criteria.where("address.city").is(city));
+    }
+
+    if (!ObjectUtils.isEmpty(neighborhood)) {
+      criteriaList.add(Criteria.where("address.neighborhood").is(neighborhood));
+    }
+
+    return new Criteria().andOperator(criteriaList.toArray(new Criteria[0]));
+  }
+
+  private long countTimesParked(
+      String parkingMeterId, String licensePlate, LocalDateTime start, LocalDateTime end) {
+    List<String> collections = ticketArchiveService.getCollections(start, end);
+    if (collections.size() > 1) {
+      return tieredTicketQueries.count(
+          Query.query(
+              Criteria.where("parkingMeter.id")
+                  .is(parkingMeterId)
+                  .and("vehicle.licensePlate")
+                  .is(licensePlate)
+                  .and("startTime")
+                  .gte(start)
+                  .lt(end)),
+          collections);
+    }
+    return ticketRepository.countByParkingMeterIdAndLicensePlateAndStartTimeBetween(
+        parkingMeterId, licensePlate, start, end);
   }
 
   @Override
@@ -301,7 +544,7 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
   @Transactional(readOnly = true)
   public AmountEarnedDTO getParkingMeterEarningsWithDateRange(
       String parkingMeterId, LocalDate startDate, LocalDate endDate) {
-    var parkingMeter = getParkingMeter(parkingMeterId);
+    var parkingMeter = getAddressAndSpaces(parkingMeterId);
 
     if (endDate == null) {
       endDate = LocalDate.now();
@@ -312,40 +555,9 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
           "Start date is greater than end date", HttpStatus.BAD_REQUEST);
     }
 
-    MatchOperation matchParkingMeter = Aggregation.match(Criteria.where("_id").is(parkingMeterId));
-
-    LookupOperation lookupOperation =
-        Aggregation.lookup("ticket", "_id", PARKING_METER_ID, TICKETS);
-
-    UnwindOperation unwindTickets = Aggregation.unwind(TICKETS, INDEX, Boolean.TRUE);
-
-    MatchOperation matchPendingTickets =
-        Aggregation.match(
-            new Criteria()
-                .andOperator(
-                    Criteria.where("tickets.payment_status").is(PaymentStatusEnum.PAID),
-                    Criteria.where("tickets.start_time")
-                        .gte(startDate.atStartOfDay())
-                        .lt(endDate.plusDays(1))));
-
-    GroupOperation groupTickets =
-        Aggregation.group("_id").sum("tickets.total_amount_charged").as("earned");
-
-    ProjectionOperation projectFields = Aggregation.project("_id", "earned");
-
-    TypedAggregation<ParkingMeter> aggregation =
-        Aggregation.newAggregation(
-            ParkingMeter.class,
-            matchParkingMeter,
-            lookupOperation,
-            unwindTickets,
-            matchPendingTickets,
-            groupTickets,
-            projectFields);
-
-    AggregationResults<AmountEarnedDTO> results =
-        mongoTemplate.aggregate(aggregation, "parkingmeter", AmountEarnedDTO.class);
-    var listResult = results.getMappedResults();
+    List<ParkingMeterEarningsDTO> earnings =
+        earningsRollupService.getEarnings(
+            List.of(parkingMeterId), startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
 
     AmountEarnedDTO amountEarnedDTO =
         AmountEarnedDTO.builder()
@@ -354,8 +566,8 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
             .date(LocalDateTime.now())
             .earned(0.0)
             .build();
-    if (!listResult.isEmpty()) {
-      amountEarnedDTO.setEarned(listResult.get(0).getEarned());
+    if (!earnings.isEmpty()) {
+      amountEarnedDTO.setEarned(earnings.get(0).getEarned());
     }
     return amountEarnedDTO;
   }
@@ -378,56 +590,29 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
           "Start date is greater than end date", HttpStatus.BAD_REQUEST);
     }
 
-    List<Criteria> criteriaList = new ArrayList<>();
-    if (!ObjectUtils.isEmpty(city)) {
-      criteriaList.add(Criteria.where("address.city").is(city));
-    }
-
-    if (!ObjectUtils.isEmpty(neighborhood)) {
-      criteriaList.add(Criteria.where("address.neighborhood").is(neighborhood));
-    }
-
-    MatchOperation matchParkingMeter =
-        Aggregation.match(new Criteria().andOperator(criteriaList.toArray(new Criteria[0])));
-
-    LookupOperation lookupOperation =
-        Aggregation.lookup("ticket", "_id", PARKING_METER_ID, TICKETS);
-
-    UnwindOperation unwindTickets = Aggregation.unwind(TICKETS, INDEX, Boolean.TRUE);
-
-    MatchOperation matchPendingTickets =
-        Aggregation.match(
-            new Criteria()
-                .andOperator(
-                    Criteria.where("tickets.payment_status").is(PaymentStatusEnum.PAID),
-                    Criteria.where("tickets.start_time")
-                        .gte(startDate.atStartOfDay())
-                        .lt(endDate.plusDays(1))));
-
-    GroupOperation groupTickets =
-        Aggregation.group("_id")
-            .first("address")
-            .as("address")
-            .sum("tickets.total_amount_charged")
-            .as("earned");
-
-    ProjectionOperation projectFields =
-        Aggregation.project("address", "earned").and("_id").as("id");
-
-    TypedAggregation<ParkingMeter> aggregation =
-        Aggregation.newAggregation(
-            ParkingMeter.class,
-            matchParkingMeter,
-            lookupOperation,
-            unwindTickets,
-            matchPendingTickets,
-            groupTickets,
-            projectFields);
-
-    AggregationResults<AmountEarnedByLocalityDTO> results =
-        mongoTemplate.aggregate(aggregation, "parkingmeter", AmountEarnedByLocalityDTO.class);
-
-    var listResult = results.getMappedResults();
+    Query query = Query.query(localityCriteria(city, neighborhood));
+    query.fields().include("address");
+    Map<String, ParkingMeter> parkingMeters =
+        mongoTemplate.find(query, ParkingMeter.class).stream()
+            .collect(Collectors.toMap(ParkingMeter::getId, Function.identity()));
+
+    List<AmountEarnedByLocalityDTO> listResult =
+        earningsRollupService
+            .getEarnings(
+                parkingMeters.keySet(),
+                startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay())
+            .stream()
+            .sorted(Comparator.comparing(ParkingMeterEarningsDTO::getId))
+            .map(
+                earned ->
+                    AmountEarnedByLocalityDTO.builder()
+                        .id(earned.getId())
+                        .address(
+                            converterToDTO.toDto(parkingMeters.get(earned.getId()).getAddress()))
+                        .earned(earned.getEarned())
+                        .build())
+            .toList();
 
     Page<AmountEarnedByLocalityDTO> pageAmountEarnedByLocalityDTO = null;
 
@@ -444,11 +629,15 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
     return pageAmountEarnedByLocalityDTO;
   }
 
-  private ParkingMeter populateParkingMeter(String id, ParkingMeterForm parkingMeterForm) {
+  /**
+   * Builds a new parking meter from the form. Updates only {@code $set} the fields built here, so
+   * they never overwrite the {@code occupied} counter that ticket admission moves concurrently.
+   */
+  private ParkingMeter populateParkingMeter(ParkingMeterForm parkingMeterForm) {
     log.info("Building object Parking Meter");
     validateOperatingHours(parkingMeterForm.operatingHours());
     return new ParkingMeter(
-        id,
+        null,
         OperationHours.builder()
             .start(parkingMeterForm.operatingHours().start())
             .end(parkingMeterForm.operatingHours().end())
@@ -467,7 +656,12 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
             .zipCode(parkingMeterForm.address().zipCode())
             .number(parkingMeterForm.address().number())
             .build(),
-        id != null ? this.getParkingMeter(id).getVersion() : null);
+        parkingMeterForm.location() != null
+            ? new GeoJsonPoint(
+                parkingMeterForm.location().longitude(), parkingMeterForm.location().latitude())
+            : null,
+        0,
+        null);
   }
 
   private void validateOperatingHours(OperatingHoursParkingForm operatingHours) {
@@ -493,12 +687,32 @@ public class ParkingMeterServiceImpl implements ParkingMeterService {
     }
   }
 
+  private Map<String, ParkingMeter> findParkingMetersById(List<String> ids) {
+    Map<String, ParkingMeter> parkingMeters = new HashMap<>();
+    parkingMeterRepository
+        .findAllById(ids)
+        .forEach(parkingMeter -> parkingMeters.put(parkingMeter.getId(), parkingMeter));
+    return parkingMeters;
+  }
+
   private ParkingMeter getParkingMeter(String id) {
+    return this.parkingMeterRepository.findById(id).orElseThrow(this::parkingMeterNotFound);
+  }
+
+  /** Reads only the address and the number of spaces, all the analytics responses show. */
+  private ParkingMeter getAddressAndSpaces(String id) {
     return this.parkingMeterRepository
-        .findById(id)
-        .orElseThrow(
-            () ->
-                new ParkingMeterException(
-                    "Parking Meter code does not exist", HttpStatus.NOT_FOUND));
+        .findAddressAndSpacesById(id)
+        .orElseThrow(this::parkingMeterNotFound);
+  }
+
+  private void requireParkingMeter(String id) {
+    if (!this.parkingMeterRepository.existsById(id)) {
+      throw parkingMeterNotFound();
+    }
+  }
+
+  private ParkingMeterException parkingMeterNotFound() {
+    return new ParkingMeterException("Parking Meter code does not exist", HttpStatus.NOT_FOUND);
   }
 }
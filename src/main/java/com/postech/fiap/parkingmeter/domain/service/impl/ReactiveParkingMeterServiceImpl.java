@@ -0,0 +1,157 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.dto.AmountEarnedDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterEarningsDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingSpaceDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TimesParkedDTO;
+import com.postech.fiap.parkingmeter.domain.repository.reactive.ReactiveParkingMeterRepository;
+import com.postech.fiap.parkingmeter.domain.repository.reactive.ReactiveTicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.ReactiveParkingMeterService;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Non-blocking counterpart of the {@link ParkingMeterServiceImpl} analytics endpoints. */
+@Slf4j
+@Service
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class ReactiveParkingMeterServiceImpl implements ReactiveParkingMeterService {
+
+  private final ReactiveParkingMeterRepository reactiveParkingMeterRepository;
+  private final ReactiveTicketRepository reactiveTicketRepository;
+  private final EarningsRollupService earningsRollupService;
+  private final ConverterToDTO converterToDTO;
+  private final TicketArchiveService ticketArchiveService;
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+  @Override
+  public Mono<ParkingSpaceDTO> getAvailableSpace(String id, LocalDate date) {
+    return getAddressAndSpaces(id)
+        .zipWith(
+            reactiveTicketRepository.countPendingTicketsByParkingMeterIdAndStartTimeBetween(
+                id, date.atStartOfDay(), date.plusDays(1).atStartOfDay()))
+        .map(
+            tuple -> {
+              ParkingMeter parkingMeter = tuple.getT1();
+              long occupied = tuple.getT2();
+
+              ParkingSpaceDTO parkingSpaceDTO = new ParkingSpaceDTO();
+              parkingSpaceDTO.setDate(LocalDateTime.now());
+              parkingSpaceDTO.setAddress(converterToDTO.toDto(parkingMeter.getAddress()));
+              parkingSpaceDTO.setSpaces(parkingMeter.getAvailableSpaces());
+              parkingSpaceDTO.setAvailable(
+                  Math.max(parkingMeter.getAvailableSpaces() - (int) occupied, 0));
+              return parkingSpaceDTO;
+            });
+  }
+
+  @Override
+  public Mono<TimesParkedDTO> getTimesParkedWithDateRange(
+      String parkingMeterId, String licensePlate, LocalDate startDate, LocalDate endDate) {
+    LocalDate end = endDate != null ? endDate : LocalDate.now();
+    if (startDate.isAfter(end)) {
+      return Mono.error(
+          new ParkingMeterException("Start date is greater than end date", HttpStatus.BAD_REQUEST));
+    }
+
+    return requireParkingMeter(parkingMeterId)
+        .then(
+            countTimesParked(
+                parkingMeterId,
+                licensePlate,
+                startDate.atStartOfDay(),
+                end.plusDays(1).atStartOfDay()))
+        .map(
+            timesParked -> {
+              TimesParkedDTO timesParkedDTO = new TimesParkedDTO();
+              timesParkedDTO.setTimesParked(timesParked.intValue());
+              return timesParkedDTO;
+            });
+  }
+
+  private Mono<Long> countTimesParked(
+      String parkingMeterId, String licensePlate, LocalDateTime start, LocalDateTime end) {
+    return ticketArchiveService
+        .getCollectionsReactive(start, end)
+        .flatMap(
+            collections -> {
+              if (collections.size() == 1) {
+                return reactiveTicketRepository
+                    .countByParkingMeterIdAndLicensePlateAndStartTimeBetween(
+                        parkingMeterId, licensePlate, start, end);
+              }
+              Query query =
+                  Query.query(
+                      Criteria.where("parkingMeter.id")
+                          .is(parkingMeterId)
+                          .and("vehicle.licensePlate")
+                          .is(licensePlate)
+                          .and("startTime")
+                          .gte(start)
+                          .lt(end));
+              return Flux.fromIterable(collections)
+                  .flatMap(
+                      collection -> reactiveMongoTemplate.count(query, Ticket.class, collection))
+                  .reduce(0L, Long::sum);
+            });
+  }
+
+  @Override
+  public Mono<AmountEarnedDTO> getParkingMeterEarningsWithDateRange(
+      String parkingMeterId, LocalDate startDate, LocalDate endDate) {
+    LocalDate end = endDate != null ? endDate : LocalDate.now();
+    if (startDate.isAfter(end)) {
+      return Mono.error(
+          new ParkingMeterException("Start date is greater than end date", HttpStatus.BAD_REQUEST));
+    }
+
+    return getAddressAndSpaces(parkingMeterId)
+        .zipWith(
+            earningsRollupService.getEarningsReactive(
+                List.of(parkingMeterId),
+                startDate.atStartOfDay(),
+                end.plusDays(1).atStartOfDay()))
+        .map(
+            tuple -> {
+              List<ParkingMeterEarningsDTO> earnings = tuple.getT2();
+              return AmountEarnedDTO.builder()
+                  .id(tuple.getT1().getId())
+                  .address(converterToDTO.toDto(tuple.getT1().getAddress()))
+                  .date(LocalDateTime.now())
+                  .earned(earnings.isEmpty() ? 0.0 : earnings.get(0).getEarned())
+                  .build();
+            });
+  }
+
+  private Mono<ParkingMeter> getAddressAndSpaces(String id) {
+    return reactiveParkingMeterRepository
+        .findAddressAndSpacesById(id)
+        .switchIfEmpty(Mono.error(ReactiveParkingMeterServiceImpl::parkingMeterNotFound));
+  }
+
+  private Mono<Void> requireParkingMeter(String id) {
+    return reactiveParkingMeterRepository
+        .existsById(id)
+        .flatMap(exists -> exists ? Mono.<Void>empty() : Mono.error(parkingMeterNotFound()));
+  }
+
+  private static ParkingMeterException parkingMeterNotFound() {
+    return new ParkingMeterException("Parking Meter code does not exist", HttpStatus.NOT_FOUND);
+  }
+}
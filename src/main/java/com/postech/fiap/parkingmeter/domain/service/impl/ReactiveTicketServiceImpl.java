@@ -0,0 +1,229 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketForm;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.repository.reactive.ReactiveTicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyService;
+import com.postech.fiap.parkingmeter.domain.service.ReactiveTicketService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.domain.service.VehicleSpendLedgerService;
+import com.postech.fiap.parkingmeter.domain.util.TicketChargeCalculator;
+import com.postech.fiap.parkingmeter.domain.util.TicketDtoAssembler;
+import com.postech.fiap.parkingmeter.infrastructure.cache.TicketCacheInvalidator;
+import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
+import com.postech.fiap.parkingmeter.infrastructure.exception.TicketException;
+import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link TicketServiceImpl} for issuance, payment and cancellation.
+ * The rules are the same; the ticket write and the earnings rollup update share a reactive
+ * transaction, and the space is released and the caches evicted once it has committed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class ReactiveTicketServiceImpl implements ReactiveTicketService {
+
+  private static final int TIME_LIMIT_MINUTES = 5;
+
+  private final TicketSnapshotService ticketSnapshotService;
+  private final OccupancyService occupancyService;
+  private final EarningsRollupService earningsRollupService;
+  private final VehicleSpendLedgerService vehicleSpendLedgerService;
+  private final ReactiveTicketRepository reactiveTicketRepository;
+  private final TicketDtoAssembler ticketDtoAssembler;
+  private final TicketCacheInvalidator ticketCacheInvalidator;
+  private final TransactionalOperator reactiveTransactionalOperator;
+
+  @Override
+  public Mono<TicketDTO> create(TicketForm ticketForm) {
+    return Mono.zip(
+            ticketSnapshotService.getVehicleReactive(ticketForm.vehicleId()),
+            ticketSnapshotService.getParkingMeterReactive(ticketForm.parkingMeterId()))
+        .flatMap(snapshots -> issue(snapshots.getT1(), snapshots.getT2()))
+        .doOnNext(
+            ticket ->
+                ticketCacheInvalidator.ticketChanged(
+                    ticket.getStartTime(), null, PaymentStatusEnum.PENDING))
+        .flatMap(ticketDtoAssembler::toDtoReactive)
+        .onErrorMap(
+            e ->
+                e instanceof TicketException
+                    || e instanceof ParkingMeterException
+                    || e instanceof VehicleException,
+            e -> new TicketException(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR));
+  }
+
+  @Override
+  public Mono<TicketDTO> updatePayment(String id) {
+    return findTicket(id)
+        .flatMap(
+            ticket -> {
+              var hasCanceled = ticket.getPaymentStatus() == PaymentStatusEnum.CANCELLED;
+              var hasCharged = ticket.getPaymentStatus() == PaymentStatusEnum.PAID;
+              if (hasCanceled || hasCharged) {
+                return Mono.error(
+                    new TicketException("Unable to update this ticket", HttpStatus.BAD_REQUEST));
+              }
+
+              var hourNow = LocalDateTime.now();
+              ticket.setTotalAmountCharged(
+                  TicketChargeCalculator.getTotalAmountCharged(
+                      ticket.getStartTime(),
+                      hourNow,
+                      ticket.getParkingMeter().getRate().getFirstHour(),
+                      ticket.getParkingMeter().getRate().getAdditionalHours()));
+              ticket.setEndTime(hourNow);
+              ticket.setPaymentStatus(PaymentStatusEnum.PAID);
+
+              return reactiveTicketRepository
+                  .save(ticket)
+                  .flatMap(
+                      updatedTicket ->
+                          earningsRollupService
+                              .recordPaymentReactive(updatedTicket)
+                              .then(vehicleSpendLedgerService.recordPaymentReactive(updatedTicket))
+                              .thenReturn(updatedTicket));
+            })
+        .as(reactiveTransactionalOperator::transactional)
+        .flatMap(
+            ticket ->
+                occupancyService
+                    .releaseReactive(ticket.getParkingMeter().getId())
+                    .thenReturn(ticket))
+        .doOnNext(
+            ticket ->
+                ticketCacheInvalidator.ticketChanged(
+                    ticket.getStartTime(),
+                    ticket.getVehicle().getLicensePlate(),
+                    PaymentStatusEnum.PENDING,
+                    PaymentStatusEnum.PAID))
+        .flatMap(ticketDtoAssembler::toDtoReactive);
+  }
+
+  @Override
+  public Mono<TicketDTO> cancelTicket(String id) {
+    return findTicket(id)
+        .flatMap(
+            ticket -> {
+              if (ticket.getPaymentStatus() == PaymentStatusEnum.CANCELLED) {
+                return Mono.error(
+                    new TicketException(
+                        "The ticket has already been canceled", HttpStatus.BAD_REQUEST));
+              }
+
+              long minutesDiff =
+                  ChronoUnit.MINUTES.between(ticket.getStartTime(), LocalDateTime.now());
+              if (minutesDiff >= TIME_LIMIT_MINUTES) {
+                return Mono.error(
+                    new TicketException(
+                        "Ticket cannot be cancelled, grace period reached",
+                        HttpStatus.BAD_REQUEST));
+              }
+
+              var previousStatus = ticket.getPaymentStatus();
+              ticket.setPaymentStatus(PaymentStatusEnum.CANCELLED);
+
+              return reactiveTicketRepository
+                  .save(ticket)
+                  .flatMap(
+                      updatedTicket ->
+                          previousStatus == PaymentStatusEnum.PAID
+                              ? earningsRollupService
+                                  .revertPaymentReactive(updatedTicket)
+                                  .then(
+                                      vehicleSpendLedgerService.revertPaymentReactive(
+                                          updatedTicket))
+                                  .thenReturn(updatedTicket)
+                              : Mono.just(updatedTicket))
+                  .map(updatedTicket -> new CancelledTicket(updatedTicket, previousStatus));
+            })
+        .as(reactiveTransactionalOperator::transactional)
+        .flatMap(
+            cancelled ->
+                (cancelled.previousStatus() == PaymentStatusEnum.PENDING
+                        ? occupancyService.releaseReactive(
+                            cancelled.ticket().getParkingMeter().getId())
+                        : Mono.<Void>empty())
+                    .thenReturn(cancelled))
+        .doOnNext(
+            cancelled ->
+                ticketCacheInvalidator.ticketChanged(
+                    cancelled.ticket().getStartTime(),
+                    cancelled.ticket().getVehicle().getLicensePlate(),
+                    cancelled.previousStatus(),
+                    PaymentStatusEnum.CANCELLED))
+        .flatMap(cancelled -> ticketDtoAssembler.toDtoReactive(cancelled.ticket()));
+  }
+
+  private Mono<Ticket> issue(Vehicle vehicle, ParkingMeter parkingMeter) {
+    var operatingHours = parkingMeter.getOperatingHours();
+    if (LocalTime.now().isAfter(LocalTime.parse(operatingHours.getEnd()))) {
+      return Mono.error(
+          new TicketException(
+              "Parking meter closed, opening hours from %s to %s"
+                  .formatted(operatingHours.getStart(), operatingHours.getEnd()),
+              HttpStatus.BAD_REQUEST));
+    }
+
+    return reactiveTicketRepository
+        .existsPendingTicketByVehicleId(vehicle.getId())
+        .flatMap(
+            parked ->
+                parked
+                    ? Mono.error(
+                        new TicketException(
+                            "The vehicle is already parked at a parking meter",
+                            HttpStatus.BAD_REQUEST))
+                    : occupancyService.tryOccupyReactive(parkingMeter.getId()))
+        .flatMap(
+            occupied ->
+                occupied
+                    ? insert(vehicle, parkingMeter)
+                    : Mono.error(
+                        new TicketException(
+                            "This parking meter has no available spaces",
+                            HttpStatus.BAD_REQUEST)));
+  }
+
+  private Mono<Ticket> insert(Vehicle vehicle, ParkingMeter parkingMeter) {
+    return reactiveTicketRepository
+        .insert(
+            Ticket.builder()
+                .totalAmountCharged(0.00)
+                .startTime(LocalDateTime.now())
+                .endTime(null)
+                .paymentStatus(PaymentStatusEnum.PENDING)
+                .parkingMeter(ParkingMeterSnapshot.of(parkingMeter))
+                .vehicle(VehicleSnapshot.of(vehicle))
+                .build())
+        .onErrorResume(
+            e -> occupancyService.releaseReactive(parkingMeter.getId()).then(Mono.error(e)));
+  }
+
+  private Mono<Ticket> findTicket(String id) {
+    return reactiveTicketRepository
+        .findById(id)
+        .switchIfEmpty(
+            Mono.error(() -> new TicketException("Ticket not found", HttpStatus.NOT_FOUND)));
+  }
+
+  private record CancelledTicket(Ticket ticket, PaymentStatusEnum previousStatus) {}
+}
@@ -0,0 +1,264 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.mongodb.client.model.ChangeStreamPreAndPostImagesOptions;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.TicketArchiveState;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.infrastructure.index.IndexBootstrapper;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the {@code ticket} collection down to the tickets the admission checks and the recent
+ * queries need, by moving paid and cancelled tickets older than {@code closed-ticket-age} into one
+ * archive collection per month of start time. Each batch is copied and deleted in a single
+ * transaction, so a ticket is always in exactly one collection.
+ *
+ * <p>The archive state records the start time everything before which may be archived, and is
+ * raised before any ticket is moved. Queries whose range starts after it only read the ticket
+ * collection; the others also read the archives of the months they cover.
+ */
+@Slf4j
+@Service
+public class TicketArchiveServiceImpl implements TicketArchiveService {
+
+  private static final String STATE_ID = "ticket";
+  private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+  private static final List<String> CLOSED =
+      List.of(PaymentStatusEnum.PAID.name(), PaymentStatusEnum.CANCELLED.name());
+
+  private final MongoTemplate mongoTemplate;
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final IndexBootstrapper indexBootstrapper;
+  private final boolean enabled;
+  private final Duration closedTicketAge;
+  private final int batchSize;
+  private final ReentrantLock archiveLock = new ReentrantLock();
+
+  public TicketArchiveServiceImpl(
+      MongoTemplate mongoTemplate,
+      ReactiveMongoTemplate reactiveMongoTemplate,
+      MongoTransactionManager transactionManager,
+      IndexBootstrapper indexBootstrapper,
+      @Value("${parkingmeter.archive.enabled:true}") boolean enabled,
+      @Value("${parkingmeter.archive.closed-ticket-age:P30D}") Duration closedTicketAge,
+      @Value("${parkingmeter.archive.batch-size:1000}") int batchSize) {
+    this.mongoTemplate = mongoTemplate;
+    this.reactiveMongoTemplate = reactiveMongoTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.indexBootstrapper = indexBootstrapper;
+    this.enabled = enabled;
+    this.closedTicketAge = closedTicketAge;
+    this.batchSize = batchSize;
+  }
+
+  @Scheduled(
+      initialDelayString = "${parkingmeter.archive.interval:PT1H}",
+      fixedDelayString = "${parkingmeter.archive.interval:PT1H}")
+  public void archiveOnSchedule() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      archive();
+    } catch (RuntimeException e) {
+      log.warn("Unable to archive closed tickets: {}", e.getMessage());
+    }
+  }
+
+  @Override
+  public long archive() {
+    archiveLock.lock();
+    try {
+      LocalDateTime archivedBefore = LocalDateTime.now().minus(closedTicketAge);
+      mongoTemplate.upsert(
+          Query.query(Criteria.where("id").is(STATE_ID)),
+          new Update().max("archivedBefore", archivedBefore),
+          TicketArchiveState.class);
+
+      Query closedTickets =
+          Query.query(
+                  Criteria.where("payment_status")
+                      .in(CLOSED)
+                      .and("start_time")
+                      .lt(toDate(archivedBefore)))
+              .limit(batchSize);
+      String ticketCollection = mongoTemplate.getCollectionName(Ticket.class);
+
+      long archived = 0;
+      List<Document> batch;
+      while (!(batch = mongoTemplate.find(closedTickets, Document.class, ticketCollection))
+          .isEmpty()) {
+        Map<String, List<Document>> byArchive = new LinkedHashMap<>();
+        for (Document ticket : batch) {
+          String archive = archiveCollection(ticket.getDate("start_time"));
+          byArchive.computeIfAbsent(archive, key -> new ArrayList<>()).add(ticket);
+        }
+        createArchives(byArchive.keySet());
+
+        List<Object> ids = batch.stream().map(ticket -> ticket.get("_id")).toList();
+        transactionTemplate.executeWithoutResult(
+            status -> {
+              byArchive.forEach(
+                  (archive, tickets) -> mongoTemplate.insert(tickets, archive));
+              mongoTemplate.remove(
+                  Query.query(Criteria.where("_id").in(ids)), ticketCollection);
+            });
+        archived += batch.size();
+      }
+
+      log.info("Archived {} tickets closed before {}", archived, archivedBefore);
+      return archived;
+    } finally {
+      archiveLock.unlock();
+    }
+  }
+
+  @Override
+  public List<String> getCollections(LocalDateTime startDate, LocalDateTime endDate) {
+    return collections(state(), startDate, endDate);
+  }
+
+  @Override
+  public Mono<List<String>> getCollectionsReactive(
+      LocalDateTime startDate, LocalDateTime endDate) {
+    return reactiveMongoTemplate
+        .findById(STATE_ID, TicketArchiveState.class)
+        .map(Optional::of)
+        .defaultIfEmpty(Optional.empty())
+        .map(state -> collections(state, startDate, endDate));
+  }
+
+  @Override
+  public List<String> getCollections() {
+    return collections(state(), null, null);
+  }
+
+  @Override
+  public List<String> getCollections(PaymentStatusEnum status) {
+    return CLOSED.contains(status.name())
+        ? getCollections()
+        : List.of(mongoTemplate.getCollectionName(Ticket.class));
+  }
+
+  @Override
+  public List<String> getArchiveCollections() {
+    List<String> collections = getCollections();
+    return collections.subList(1, collections.size());
+  }
+
+  @Override
+  public Optional<Ticket> findArchivedById(String id) {
+    return getArchiveCollections().stream()
+        .map(archive -> mongoTemplate.findById(id, Ticket.class, archive))
+        .filter(Objects::nonNull)
+        .findFirst();
+  }
+
+  @Override
+  public Optional<Ticket> removeArchivedById(String id) {
+    return getArchiveCollections().stream()
+        .map(
+            archive ->
+                mongoTemplate.findAndRemove(
+                    Query.query(Criteria.where("id").is(id)), Ticket.class, archive))
+        .filter(Objects::nonNull)
+        .findFirst();
+  }
+
+  private Optional<TicketArchiveState> state() {
+    return Optional.ofNullable(mongoTemplate.findById(STATE_ID, TicketArchiveState.class));
+  }
+
+  /** Newest archive first, since recent tickets are the ones most often looked up. */
+  private List<String> collections(
+      Optional<TicketArchiveState> state, LocalDateTime startDate, LocalDateTime endDate) {
+    String ticketCollection = mongoTemplate.getCollectionName(Ticket.class);
+    if (state.isEmpty()
+        || state.get().getCollections() == null
+        || (startDate != null && !startDate.isBefore(state.get().getArchivedBefore()))) {
+      return List.of(ticketCollection);
+    }
+
+    String first = startDate != null ? archiveCollection(startDate) : null;
+    String last = endDate != null ? archiveCollection(endDate) : null;
+    return Stream.concat(
+            Stream.of(ticketCollection),
+            state.get().getCollections().stream()
+                .filter(archive -> first == null || archive.compareTo(first) >= 0)
+                .filter(archive -> last == null || archive.compareTo(last) <= 0)
+                .sorted(Comparator.reverseOrder()))
+        .toList();
+  }
+
+  /**
+   * Creates the archives a batch goes to, with the ticket indexes and the pre and post images the
+   * projections read, before they are listed in the state.
+   */
+  private void createArchives(Collection<String> archives) {
+    List<String> known =
+        state().map(TicketArchiveState::getCollections).orElse(List.of());
+    for (String archive : archives) {
+      if (known != null && known.contains(archive)) {
+        continue;
+      }
+      if (!mongoTemplate.collectionExists(archive)) {
+        mongoTemplate
+            .getDb()
+            .createCollection(
+                archive,
+                new CreateCollectionOptions()
+                    .changeStreamPreAndPostImagesOptions(
+                        new ChangeStreamPreAndPostImagesOptions(true)));
+      }
+      indexBootstrapper.ensureTicketIndexes(archive);
+      mongoTemplate.updateFirst(
+          Query.query(Criteria.where("id").is(STATE_ID)),
+          new Update().addToSet("collections", archive),
+          TicketArchiveState.class);
+    }
+  }
+
+  private static String archiveCollection(Date startTime) {
+    return archiveCollection(
+        LocalDateTime.ofInstant(startTime.toInstant(), ZoneId.systemDefault()));
+  }
+
+  private static String archiveCollection(LocalDateTime startTime) {
+    return ARCHIVE_PREFIX + YearMonth.from(startTime).format(MONTH);
+  }
+
+  private static Date toDate(LocalDateTime localDateTime) {
+    return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
+  }
+}
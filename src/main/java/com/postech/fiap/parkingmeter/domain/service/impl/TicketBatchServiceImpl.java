@@ -0,0 +1,527 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketEventResultDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketEventForm;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketEventTypeEnum;
+import com.postech.fiap.parkingmeter.domain.repository.TicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyService;
+import com.postech.fiap.parkingmeter.domain.service.TicketBatchService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.domain.service.VehicleSpendLedgerService;
+import com.postech.fiap.parkingmeter.domain.util.TicketChargeCalculator;
+import com.postech.fiap.parkingmeter.infrastructure.cache.TicketCacheInvalidator;
+import com.postech.fiap.parkingmeter.infrastructure.exception.TicketException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Applies a batch of ticket events uploaded by a terminal. Everything the events are checked
+ * against is read up front: the vehicle and parking meter snapshots, the tickets being paid or
+ * cancelled and the vehicles that are already parked. The spaces the CREATE events ask for are
+ * then reserved with one conditional update per parking meter. The events are folded per ticket
+ * in memory, with the same rules as {@link TicketServiceImpl} but evaluated at the time each
+ * event occurred, and every ticket is written once in unordered bulk writes. A write that fails
+ * only rejects the events folded into it.
+ *
+ * <p>A CREATE event is rejected once its parking meter has no reserved space left, unless a
+ * payment or cancellation earlier in the batch freed one at that meter.
+ *
+ * <p>The tickets are written in chunks, each in a transaction with the payments its tickets record
+ * or revert in the earnings rollup and the spend ledger, as a single ticket is. A chunk that cannot
+ * be committed rejects its events and the ones of the chunks after it. The occupancy counters are
+ * adjusted in bulk once the tickets are written, which also returns the reserved spaces no ticket
+ * took. If that fails, the occupancy reconciliation corrects them.
+ */
+@Slf4j
+@Service
+public class TicketBatchServiceImpl implements TicketBatchService {
+
+  private static final int TIME_LIMIT_MINUTES = 5;
+  private static final int DUPLICATE_KEY = 11000;
+  private static final int TRANSACTION_SIZE = 500;
+
+  private final TicketSnapshotService ticketSnapshotService;
+  private final OccupancyService occupancyService;
+  private final EarningsRollupService earningsRollupService;
+  private final VehicleSpendLedgerService vehicleSpendLedgerService;
+  private final TicketRepository ticketRepository;
+  private final MongoTemplate mongoTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final TicketCacheInvalidator ticketCacheInvalidator;
+
+  public TicketBatchServiceImpl(
+      TicketSnapshotService ticketSnapshotService,
+      OccupancyService occupancyService,
+      EarningsRollupService earningsRollupService,
+      VehicleSpendLedgerService vehicleSpendLedgerService,
+      TicketRepository ticketRepository,
+      MongoTemplate mongoTemplate,
+      MongoTransactionManager transactionManager,
+      TicketCacheInvalidator ticketCacheInvalidator) {
+    this.ticketSnapshotService = ticketSnapshotService;
+    this.occupancyService = occupancyService;
+    this.earningsRollupService = earningsRollupService;
+    this.vehicleSpendLedgerService = vehicleSpendLedgerService;
+    this.ticketRepository = ticketRepository;
+    this.mongoTemplate = mongoTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.ticketCacheInvalidator = ticketCacheInvalidator;
+  }
+
+  @Override
+  public List<TicketEventResultDTO> ingest(List<TicketEventForm> events) {
+    log.info("Ingest batch of {} ticket events", events.size());
+    LocalDateTime now = LocalDateTime.now();
+    Snapshots snapshots = load(events);
+    Map<String, Integer> reserved = reserve(events, snapshots);
+    Map<String, TicketWrite> writes = new LinkedHashMap<>();
+    TicketEventResultDTO[] results = new TicketEventResultDTO[events.size()];
+    Map<TicketWrite, String> failures;
+    try {
+      fold(events, now, snapshots, writes, results);
+      failures = write(new ArrayList<>(writes.values()));
+    } catch (RuntimeException e) {
+      unreserve(reserved);
+      throw e;
+    }
+
+    failures.forEach(
+        (write, message) ->
+            write.eventIndexes.forEach(
+                index -> results[index] = result(index, write.ticket.getId(), false, message)));
+
+    afterWrite(
+        writes.values().stream().filter(write -> !failures.containsKey(write)).toList(), reserved);
+    return Arrays.asList(results);
+  }
+
+  private void fold(
+      List<TicketEventForm> events,
+      LocalDateTime now,
+      Snapshots snapshots,
+      Map<String, TicketWrite> writes,
+      TicketEventResultDTO[] results) {
+    for (int index = 0; index < events.size(); index++) {
+      TicketEventForm event = events.get(index);
+      LocalDateTime occurredAt = event.occurredAt() != null ? event.occurredAt() : now;
+      try {
+        if (occurredAt.isAfter(now)) {
+          throw rejection("The event occurred in the future");
+        }
+        TicketWrite write =
+            switch (event.type()) {
+              case CREATE -> create(event, occurredAt, snapshots, writes);
+              case PAY -> pay(event, occurredAt, snapshots, writes);
+              case CANCEL -> cancel(event, occurredAt, snapshots, writes);
+            };
+        write.eventIndexes.add(index);
+        results[index] = result(index, write.ticket.getId(), true, null);
+      } catch (TicketException e) {
+        results[index] = result(index, event.ticketId(), false, e.getMessage());
+      }
+    }
+  }
+
+  private TicketWrite create(
+      TicketEventForm event,
+      LocalDateTime occurredAt,
+      Snapshots snapshots,
+      Map<String, TicketWrite> writes) {
+    if (event.vehicleId() == null || event.parkingMeterId() == null) {
+      throw rejection("vehicleId and parkingMeterId are required");
+    }
+
+    String ticketId = event.ticketId();
+    if (ticketId == null) {
+      ticketId = new ObjectId().toHexString();
+    } else if (!ObjectId.isValid(ticketId)) {
+      throw rejection("Invalid ticket id " + ticketId);
+    } else if (writes.containsKey(ticketId) || snapshots.tickets.containsKey(ticketId)) {
+      throw rejection("Ticket already exists");
+    }
+
+    Vehicle vehicle = snapshots.vehicles.get(event.vehicleId());
+    if (vehicle == null) {
+      throw rejection("Not found Vehicle");
+    }
+    ParkingMeter parkingMeter = snapshots.parkingMeters.get(event.parkingMeterId());
+    if (parkingMeter == null) {
+      throw rejection("Parking Meter code does not exist");
+    }
+
+    var operatingHours = parkingMeter.getOperatingHours();
+    if (occurredAt.toLocalTime().isAfter(LocalTime.parse(operatingHours.getEnd()))) {
+      throw rejection(
+          "Parking meter closed, opening hours from %s to %s"
+              .formatted(operatingHours.getStart(), operatingHours.getEnd()));
+    }
+
+    if (snapshots.freeSpaces.getOrDefault(parkingMeter.getId(), 0) <= 0) {
+      throw rejection("This parking meter has no available spaces");
+    }
+    if (!snapshots.parkedVehicles.add(vehicle.getId())) {
+      throw rejection("The vehicle is already parked at a parking meter");
+    }
+    snapshots.freeSpaces.merge(parkingMeter.getId(), -1, Integer::sum);
+
+    TicketWrite write =
+        new TicketWrite(
+            Ticket.builder()
+                .id(ticketId)
+                .totalAmountCharged(0.00)
+                .startTime(occurredAt)
+                .endTime(null)
+                .paymentStatus(PaymentStatusEnum.PENDING)
+                .parkingMeter(ParkingMeterSnapshot.of(parkingMeter))
+                .vehicle(VehicleSnapshot.of(vehicle))
+                .build(),
+            null);
+    writes.put(ticketId, write);
+    return write;
+  }
+
+  private TicketWrite pay(
+      TicketEventForm event,
+      LocalDateTime occurredAt,
+      Snapshots snapshots,
+      Map<String, TicketWrite> writes) {
+    TicketWrite write = writeFor(event, snapshots, writes);
+    Ticket ticket = write.ticket;
+
+    if (ticket.getPaymentStatus() != PaymentStatusEnum.PENDING) {
+      throw rejection("Unable to update this ticket");
+    }
+    if (occurredAt.isBefore(ticket.getStartTime())) {
+      throw rejection("The payment occurred before the ticket started");
+    }
+
+    ticket.setTotalAmountCharged(
+        TicketChargeCalculator.getTotalAmountCharged(
+            ticket.getStartTime(),
+            occurredAt,
+            ticket.getParkingMeter().getRate().getFirstHour(),
+            ticket.getParkingMeter().getRate().getAdditionalHours()));
+    ticket.setEndTime(occurredAt);
+    ticket.setPaymentStatus(PaymentStatusEnum.PAID);
+    snapshots.left(ticket);
+
+    writes.putIfAbsent(ticket.getId(), write);
+    return write;
+  }
+
+  private TicketWrite cancel(
+      TicketEventForm event,
+      LocalDateTime occurredAt,
+      Snapshots snapshots,
+      Map<String, TicketWrite> writes) {
+    TicketWrite write = writeFor(event, snapshots, writes);
+    Ticket ticket = write.ticket;
+
+    if (ticket.getPaymentStatus() == PaymentStatusEnum.CANCELLED) {
+      throw rejection("The ticket has already been canceled");
+    }
+    if (ChronoUnit.MINUTES.between(ticket.getStartTime(), occurredAt) >= TIME_LIMIT_MINUTES) {
+      throw rejection("Ticket cannot be cancelled, grace period reached");
+    }
+
+    if (ticket.getPaymentStatus() == PaymentStatusEnum.PENDING) {
+      snapshots.left(ticket);
+    }
+    ticket.setPaymentStatus(PaymentStatusEnum.CANCELLED);
+
+    writes.putIfAbsent(ticket.getId(), write);
+    return write;
+  }
+
+  private TicketWrite writeFor(
+      TicketEventForm event, Snapshots snapshots, Map<String, TicketWrite> writes) {
+    if (event.ticketId() == null) {
+      throw rejection("ticketId is required");
+    }
+    TicketWrite write = writes.get(event.ticketId());
+    if (write != null) {
+      return write;
+    }
+    Ticket ticket = snapshots.tickets.get(event.ticketId());
+    if (ticket == null) {
+      throw new TicketException("Ticket not found", HttpStatus.NOT_FOUND);
+    }
+    return new TicketWrite(ticket, ticket.getPaymentStatus());
+  }
+
+  private Snapshots load(List<TicketEventForm> events) {
+    Set<String> vehicleIds = new HashSet<>();
+    Set<String> parkingMeterIds = new HashSet<>();
+    Set<String> ticketIds = new HashSet<>();
+    for (TicketEventForm event : events) {
+      if (event.type() == TicketEventTypeEnum.CREATE) {
+        if (event.vehicleId() != null) {
+          vehicleIds.add(event.vehicleId());
+        }
+        if (event.parkingMeterId() != null) {
+          parkingMeterIds.add(event.parkingMeterId());
+        }
+      }
+      if (event.ticketId() != null && ObjectId.isValid(event.ticketId())) {
+        ticketIds.add(event.ticketId());
+      }
+    }
+
+    Map<String, Ticket> tickets = new HashMap<>();
+    ticketRepository.findAllById(ticketIds).forEach(ticket -> tickets.put(ticket.getId(), ticket));
+
+    Set<String> parkedVehicles = new HashSet<>();
+    if (!vehicleIds.isEmpty()) {
+      Query query =
+          Query.query(
+              Criteria.where("paymentStatus")
+                  .is(PaymentStatusEnum.PENDING)
+                  .and("vehicle.id")
+                  .in(vehicleIds));
+      query.fields().include("vehicle.id");
+      mongoTemplate
+          .find(query, Ticket.class)
+          .forEach(ticket -> parkedVehicles.add(ticket.getVehicle().getId()));
+    }
+
+    return new Snapshots(
+        ticketSnapshotService.getVehicles(vehicleIds),
+        ticketSnapshotService.getParkingMeters(parkingMeterIds),
+        tickets,
+        parkedVehicles,
+        new HashMap<>());
+  }
+
+  /**
+   * Reserves a space for every CREATE event of an existing parking meter, or as many as the meter
+   * has free, and returns the spaces reserved per meter. They become the free spaces the CREATE
+   * events are admitted against.
+   */
+  private Map<String, Integer> reserve(List<TicketEventForm> events, Snapshots snapshots) {
+    Map<String, Integer> requested = new HashMap<>();
+    for (TicketEventForm event : events) {
+      if (event.type() == TicketEventTypeEnum.CREATE
+          && snapshots.parkingMeters.containsKey(event.parkingMeterId())) {
+        requested.merge(event.parkingMeterId(), 1, Integer::sum);
+      }
+    }
+
+    Map<String, Integer> reserved = new HashMap<>();
+    requested.forEach(
+        (parkingMeterId, spaces) -> {
+          int occupied = occupancyService.tryOccupy(parkingMeterId, spaces);
+          if (occupied > 0) {
+            reserved.put(parkingMeterId, occupied);
+          }
+        });
+    snapshots.freeSpaces.putAll(reserved);
+    return reserved;
+  }
+
+  /**
+   * Writes every ticket once and returns the writes that failed, with the reason. A write error
+   * aborts the transaction of its chunk, so the chunk is retried without the writes that failed.
+   */
+  private Map<TicketWrite, String> write(List<TicketWrite> writes) {
+    Map<TicketWrite, String> failures = new HashMap<>();
+    for (int from = 0; from < writes.size(); from += TRANSACTION_SIZE) {
+      List<TicketWrite> chunk =
+          writes.subList(from, Math.min(from + TRANSACTION_SIZE, writes.size()));
+      try {
+        while (!chunk.isEmpty()) {
+          try {
+            List<TicketWrite> attempt = chunk;
+            failures.putAll(transactionTemplate.execute(status -> writeChunk(attempt)));
+            break;
+          } catch (BulkOperationException e) {
+            if (e.getErrors().isEmpty()) {
+              throw e;
+            }
+            for (BulkWriteError error : e.getErrors()) {
+              failures.put(chunk.get(error.getIndex()), message(error));
+            }
+            chunk = chunk.stream().filter(write -> !failures.containsKey(write)).toList();
+          }
+        }
+      } catch (RuntimeException e) {
+        log.warn("Unable to write a ticket batch: {}", e.getMessage());
+        writes.subList(from, writes.size()).forEach(write -> failures.put(write, e.getMessage()));
+        break;
+      }
+    }
+    return failures;
+  }
+
+  /**
+   * Writes the tickets of a chunk and applies the payments they record or revert, and returns the
+   * updates that found their ticket changed by another request.
+   */
+  private Map<TicketWrite, String> writeChunk(List<TicketWrite> writes) {
+    BulkOperations bulkOperations =
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Ticket.class);
+    for (TicketWrite write : writes) {
+      Ticket ticket = write.ticket;
+      if (write.storedStatus == null) {
+        bulkOperations.insert(ticket);
+      } else {
+        bulkOperations.updateOne(
+            Query.query(
+                Criteria.where("id").is(ticket.getId()).and("paymentStatus").is(write.storedStatus)),
+            new Update()
+                .set("totalAmountCharged", ticket.getTotalAmountCharged())
+                .set("endTime", ticket.getEndTime())
+                .set("paymentStatus", ticket.getPaymentStatus()));
+      }
+    }
+    BulkWriteResult result = bulkOperations.execute();
+
+    Map<TicketWrite, String> conflicts = new HashMap<>();
+    List<TicketWrite> updates =
+        writes.stream().filter(write -> write.storedStatus != null).toList();
+    if (result.getMatchedCount() < updates.size()) {
+      Map<String, PaymentStatusEnum> stored = new HashMap<>();
+      ticketRepository
+          .findAllById(updates.stream().map(write -> write.ticket.getId()).toList())
+          .forEach(ticket -> stored.put(ticket.getId(), ticket.getPaymentStatus()));
+      for (TicketWrite update : updates) {
+        if (stored.get(update.ticket.getId()) != update.ticket.getPaymentStatus()) {
+          conflicts.put(update, "The ticket was changed by another request");
+        }
+      }
+    }
+
+    List<Ticket> paid = new ArrayList<>();
+    List<Ticket> reverted = new ArrayList<>();
+    for (TicketWrite write : writes) {
+      if (conflicts.containsKey(write)) {
+        continue;
+      }
+      PaymentStatusEnum status = write.ticket.getPaymentStatus();
+      if (status == PaymentStatusEnum.PAID && write.storedStatus != PaymentStatusEnum.PAID) {
+        paid.add(write.ticket);
+      } else if (write.storedStatus == PaymentStatusEnum.PAID && status != PaymentStatusEnum.PAID) {
+        reverted.add(write.ticket);
+      }
+    }
+    earningsRollupService.applyPayments(paid, reverted);
+    vehicleSpendLedgerService.applyPayments(paid, reverted);
+    return conflicts;
+  }
+
+  private static String message(BulkWriteError error) {
+    return error.getCode() == DUPLICATE_KEY ? "Ticket already exists" : error.getMessage();
+  }
+
+  private void unreserve(Map<String, Integer> reserved) {
+    Map<String, Integer> unreserved = new HashMap<>();
+    reserved.forEach((parkingMeterId, spaces) -> unreserved.put(parkingMeterId, -spaces));
+    try {
+      occupancyService.adjust(unreserved);
+    } catch (RuntimeException e) {
+      log.warn("Unable to release the spaces reserved for a ticket batch: {}", e.getMessage());
+    }
+  }
+
+  private void afterWrite(Collection<TicketWrite> written, Map<String, Integer> reserved) {
+    Map<String, Integer> occupancy = new HashMap<>();
+
+    for (TicketWrite write : written) {
+      Ticket ticket = write.ticket;
+      PaymentStatusEnum status = ticket.getPaymentStatus();
+      int delta =
+          (status == PaymentStatusEnum.PENDING ? 1 : 0)
+              - (write.storedStatus == PaymentStatusEnum.PENDING ? 1 : 0);
+      occupancy.merge(ticket.getParkingMeter().getId(), delta, Integer::sum);
+    }
+    reserved.forEach(
+        (parkingMeterId, spaces) -> occupancy.merge(parkingMeterId, -spaces, Integer::sum));
+
+    try {
+      occupancyService.adjust(occupancy);
+    } catch (RuntimeException e) {
+      log.warn("Unable to apply ticket batch to occupancy: {}", e.getMessage());
+    }
+
+    for (TicketWrite write : written) {
+      Ticket ticket = write.ticket;
+      PaymentStatusEnum[] statuses =
+          write.storedStatus == null
+              ? new PaymentStatusEnum[] {ticket.getPaymentStatus()}
+              : new PaymentStatusEnum[] {write.storedStatus, ticket.getPaymentStatus()};
+      ticketCacheInvalidator.ticketChanged(
+          ticket.getStartTime(), ticket.getVehicle().getLicensePlate(), statuses);
+    }
+  }
+
+  private static TicketException rejection(String message) {
+    return new TicketException(message, HttpStatus.BAD_REQUEST);
+  }
+
+  private static TicketEventResultDTO result(
+      int index, String ticketId, boolean applied, String message) {
+    return TicketEventResultDTO.builder()
+        .index(index)
+        .ticketId(ticketId)
+        .applied(applied)
+        .message(message)
+        .build();
+  }
+
+  private record Snapshots(
+      Map<String, Vehicle> vehicles,
+      Map<String, ParkingMeter> parkingMeters,
+      Map<String, Ticket> tickets,
+      Set<String> parkedVehicles,
+      Map<String, Integer> freeSpaces) {
+
+    /** A pending ticket was paid or cancelled: its vehicle and its space are free again. */
+    private void left(Ticket ticket) {
+      parkedVehicles.remove(ticket.getVehicle().getId());
+      freeSpaces.merge(ticket.getParkingMeter().getId(), 1, Integer::sum);
+    }
+  }
+
+  /** The final state of one ticket, and the status it must still have in the database. */
+  private static final class TicketWrite {
+
+    private final Ticket ticket;
+    private final PaymentStatusEnum storedStatus;
+    private final List<Integer> eventIndexes = new ArrayList<>();
+
+    private TicketWrite(Ticket ticket, PaymentStatusEnum storedStatus) {
+      this.ticket = ticket;
+      this.storedStatus = storedStatus;
+    }
+  }
+}
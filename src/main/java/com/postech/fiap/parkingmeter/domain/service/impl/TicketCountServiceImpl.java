@@ -0,0 +1,47 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketCountService;
+import com.postech.fiap.parkingmeter.domain.util.TieredTicketQueries;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+/**
+ * Totals for the count-free ticket queries. Each count runs once and is then served from a cache
+ * that ticket changes do not evict, so it lags behind by up to the cache expiry.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class TicketCountServiceImpl implements TicketCountService {
+
+  private final TicketArchiveService ticketArchiveService;
+  private final TieredTicketQueries tieredTicketQueries;
+
+  @Override
+  @Cacheable(value = TICKET_COUNT_ESTIMATES, key = "#status")
+  public long approximateCountByStatus(PaymentStatusEnum status) {
+    log.info("Count tickets with status {}", status);
+    return tieredTicketQueries.count(
+        Query.query(Criteria.where("paymentStatus").is(status)),
+        ticketArchiveService.getCollections(status));
+  }
+
+  @Override
+  @Cacheable(
+      value = TICKET_COUNT_ESTIMATES,
+      key = "@cacheKeys.dateRange(#startDate, #endDate, null)")
+  public long approximateCountByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+    log.info("Count tickets from {} to {}", startDate, endDate);
+    return tieredTicketQueries.count(
+        Query.query(Criteria.where("startTime").gt(startDate).lt(endDate)),
+        ticketArchiveService.getCollections(startDate, endDate));
+  }
+}
@@ -0,0 +1,173 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketExportFormatEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketExportService;
+import com.postech.fiap.parkingmeter.domain.util.TicketDtoAssembler;
+import com.postech.fiap.parkingmeter.domain.util.TieredTicketQueries;
+import com.postech.fiap.parkingmeter.infrastructure.exception.TicketException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Streams the tickets started within a date range straight from a MongoDB cursor to the response,
+ * one line per ticket, without holding more than a cursor batch in memory. Tickets are sorted by
+ * start time and id, which the {@code start_time_id} index serves without a blocking sort, so an
+ * interrupted export can be resumed by passing the id of the last ticket received as {@code
+ * after}. Ranges that reach the archives read one cursor per collection, merged in that order.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class TicketExportServiceImpl implements TicketExportService {
+
+  private static final int CURSOR_BATCH_SIZE = 1000;
+  private static final String CSV_HEADER =
+      "id,start_time,end_time,payment_status,total_amount_charged,parking_meter_id,city,"
+          + "neighborhood,vehicle_id,license_plate";
+
+  private static final Comparator<Ticket> EXPORT_ORDER =
+      Comparator.comparing(Ticket::getStartTime).thenComparing(Ticket::getId);
+
+  private final MongoTemplate mongoTemplate;
+  private final TicketDtoAssembler ticketDtoAssembler;
+  private final TicketArchiveService ticketArchiveService;
+  private final TieredTicketQueries tieredTicketQueries;
+  private final ObjectMapper objectMapper;
+
+  @Override
+  public StreamingResponseBody export(
+      LocalDateTime startDate,
+      LocalDateTime endDate,
+      String after,
+      TicketExportFormatEnum format) {
+    if (startDate.isAfter(endDate)) {
+      throw new TicketException("Start date is greater than end date", HttpStatus.BAD_REQUEST);
+    }
+    List<String> collections = ticketArchiveService.getCollections(startDate, endDate);
+    Query query = exportQuery(startDate, endDate, after, collections);
+    log.info("Export tickets from {} to {} after {} as {}", startDate, endDate, after, format);
+
+    return outputStream -> {
+      try (Stream<Ticket> tickets = tieredTicketQueries.stream(query, collections, EXPORT_ORDER)) {
+        write(tickets.iterator(), format, outputStream);
+      }
+    };
+  }
+
+  private Query exportQuery(
+      LocalDateTime startDate, LocalDateTime endDate, String after, List<String> collections) {
+    Criteria criteria = Criteria.where("startTime").gte(startDate).lt(endDate);
+
+    if (after != null) {
+      if (!ObjectId.isValid(after)) {
+        throw new TicketException("Invalid ticket id " + after, HttpStatus.BAD_REQUEST);
+      }
+      Query lastTicket = Query.query(Criteria.where("id").is(after));
+      lastTicket.fields().include("startTime");
+      Ticket last =
+          collections.stream()
+              .map(collection -> mongoTemplate.findOne(lastTicket, Ticket.class, collection))
+              .filter(Objects::nonNull)
+              .findFirst()
+              .orElseThrow(() -> new TicketException("Ticket not found", HttpStatus.NOT_FOUND));
+      criteria.orOperator(
+          Criteria.where("startTime").gt(last.getStartTime()),
+          Criteria.where("startTime").is(last.getStartTime()).and("id").gt(new ObjectId(after)));
+    }
+
+    return Query.query(criteria)
+        .with(Sort.by("startTime", "id"))
+        .cursorBatchSize(CURSOR_BATCH_SIZE);
+  }
+
+  private void write(Iterator<Ticket> tickets, TicketExportFormatEnum format, OutputStream out)
+      throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    if (format == TicketExportFormatEnum.CSV) {
+      writer.write(CSV_HEADER);
+      writer.write('\n');
+    }
+
+    List<Ticket> batch = new ArrayList<>(CURSOR_BATCH_SIZE);
+    while (tickets.hasNext()) {
+      Ticket ticket = tickets.next();
+      if (format == TicketExportFormatEnum.CSV) {
+        writer.write(csvLine(ticket));
+        writer.write('\n');
+      } else {
+        batch.add(ticket);
+        if (batch.size() == CURSOR_BATCH_SIZE || !tickets.hasNext()) {
+          writeJson(batch, writer);
+          batch.clear();
+        }
+      }
+    }
+    writer.flush();
+  }
+
+  /** Converts a cursor batch at once, so its parking meters and vehicles are read together. */
+  private void writeJson(List<Ticket> batch, Writer writer) throws IOException {
+    for (TicketDTO ticketDTO : ticketDtoAssembler.toDtos(batch)) {
+      writer.write(objectMapper.writeValueAsString(ticketDTO));
+      writer.write('\n');
+    }
+  }
+
+  static String csvLine(Ticket ticket) {
+    Address address =
+        ticket.getParkingMeter() != null ? ticket.getParkingMeter().getAddress() : null;
+    return String.join(
+        ",",
+        csv(ticket.getId()),
+        csv(ticket.getStartTime()),
+        csv(ticket.getEndTime()),
+        csv(ticket.getPaymentStatus()),
+        csv(ticket.getTotalAmountCharged()),
+        csv(ticket.getParkingMeter() != null ? ticket.getParkingMeter().getId() : null),
+        csv(address != null ? address.getCity() : null),
+        csv(address != null ? address.getNeighborhood() : null),
+        csv(ticket.getVehicle() != null ? ticket.getVehicle().getId() : null),
+        csv(ticket.getVehicle() != null ? ticket.getVehicle().getLicensePlate() : null));
+  }
+
+  private static String csv(Object value) {
+    if (value == null) {
+      return "";
+    }
+    String text = value.toString();
+    if (text.indexOf(',') < 0
+        && text.indexOf('"') < 0
+        && text.indexOf('\n') < 0
+        && text.indexOf('\r') < 0) {
+      return text;
+    }
+    return '"' + text.replace("\"", "\"\"") + '"';
+  }
+}
@@ -0,0 +1,714 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.result.UpdateResult;
+import com.postech.fiap.parkingmeter.domain.model.BusyHourProjection;
+import com.postech.fiap.parkingmeter.domain.model.OccupancyHistogram;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ProjectionCheckpoint;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.TicketEvent;
+import com.postech.fiap.parkingmeter.domain.model.VehicleVisitProjection;
+import com.postech.fiap.parkingmeter.domain.model.dto.BusyHoursDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterActivityDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.ActivityIntervalEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketEventTypeEnum;
+import com.postech.fiap.parkingmeter.domain.projection.BusyHourWriter;
+import com.postech.fiap.parkingmeter.domain.projection.OccupancyHistogramWriter;
+import com.postech.fiap.parkingmeter.domain.projection.TicketEventWriter;
+import com.postech.fiap.parkingmeter.domain.projection.TicketProjectionWriter;
+import com.postech.fiap.parkingmeter.domain.projection.VehicleVisitWriter;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketProjectionService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.domain.util.MongoTimeZone;
+import com.postech.fiap.parkingmeter.domain.util.TicketEvents;
+import com.postech.fiap.parkingmeter.infrastructure.cache.TicketCacheInvalidator;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the analytics read models from the {@code ticket} change stream: tickets per parking
+ * meter and hour for the busy hours, tickets per vehicle, parking meter and day for the times
+ * parked, and the hour of the week histograms of each parking meter. Earnings per parking meter
+ * and the amount spent per vehicle are recorded with the payment, in the earnings rollup and the
+ * spend ledger.
+ *
+ * <p>Every batch of events is applied as the difference between each ticket after and before the
+ * change, through the writer of each read model, in the same transaction that stores the resume
+ * token of the batch, so a restart resumes after the last committed batch and never counts an
+ * event twice. A rebuild reads the tickets in a snapshot and starts the stream right after the
+ * snapshot time. The endpoints only read the projections while the checkpoint is recent;
+ * otherwise they keep querying the tickets. The projector remembers when it last committed the
+ * checkpoint, so that only an instance which is not projecting reads it, at most once per
+ * checkpoint interval.
+ *
+ * <p>The stream follows the ticket archives too, so archiving a ticket adds it to the archive and
+ * removes it from the ticket collection without changing the projections.
+ *
+ * <p>Tickets being issued, paid and cancelled are also appended to the {@code ticket_event}
+ * time-series collection. Time-series collections cannot be written in a transaction, so a batch
+ * inserts its events before committing its checkpoint and then records the resume token of the
+ * last change they came from. A replayed batch skips the changes up to that token instead of
+ * deleting from the time-series collection, which needs MongoDB 7.0 and rewrites its buckets. A
+ * crash between the insert and the record can still duplicate the events of one batch. A rebuild
+ * recreates the events from the tickets left, dating cancellations by the end or start time of
+ * the ticket.
+ */
+@Slf4j
+@Service
+public class TicketProjectionServiceImpl implements TicketProjectionService {
+
+  private static final String CHECKPOINT_ID = "ticket";
+  private static final String TICKET_COUNT = "ticketCount";
+  private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(1);
+  private static final int INSERT_BATCH_SIZE = 1000;
+
+  private static final Set<OperationType> COLLECTION_REMOVED =
+      Set.of(
+          OperationType.INVALIDATE,
+          OperationType.DROP,
+          OperationType.RENAME,
+          OperationType.DROP_DATABASE);
+
+  /** CappedPositionLost, ChangeStreamFatalError and ChangeStreamHistoryLost. */
+  private static final Set<Integer> HISTORY_LOST = Set.of(136, 280, 286);
+
+  private final MongoTemplate mongoTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final TicketCacheInvalidator ticketCacheInvalidator;
+  private final TicketSnapshotService ticketSnapshotService;
+  private final ConverterToDTO converterToDTO;
+  private final TicketArchiveService ticketArchiveService;
+  private final BusyHourWriter busyHourWriter;
+  private final VehicleVisitWriter vehicleVisitWriter;
+  private final OccupancyHistogramWriter occupancyHistogramWriter;
+  private final TicketEventWriter ticketEventWriter;
+  private final boolean enabled;
+  private final int batchSize;
+  private final Duration checkpointInterval;
+  private final Duration maxLag;
+  private final Duration retryBackoff;
+
+  private volatile boolean running;
+  private volatile boolean rebuildRequested;
+  private Thread worker;
+
+  /** When the checkpoint was last known to be committed; {@code null} during a rebuild. */
+  private volatile LocalDateTime committedAt;
+
+  private final AtomicLong nextReadinessCheck = new AtomicLong(System.nanoTime());
+
+  public TicketProjectionServiceImpl(
+      MongoTemplate mongoTemplate,
+      MongoTransactionManager transactionManager,
+      TicketCacheInvalidator ticketCacheInvalidator,
+      TicketSnapshotService ticketSnapshotService,
+      ConverterToDTO converterToDTO,
+      TicketArchiveService ticketArchiveService,
+      BusyHourWriter busyHourWriter,
+      VehicleVisitWriter vehicleVisitWriter,
+      OccupancyHistogramWriter occupancyHistogramWriter,
+      TicketEventWriter ticketEventWriter,
+      @Value("${parkingmeter.projections.enabled:true}") boolean enabled,
+      @Value("${parkingmeter.projections.batch-size:500}") int batchSize,
+      @Value("${parkingmeter.projections.checkpoint-interval:PT10S}") Duration checkpointInterval,
+      @Value("${parkingmeter.projections.max-lag:PT1M}") Duration maxLag,
+      @Value("${parkingmeter.projections.retry-backoff:PT1S}") Duration retryBackoff) {
+    this.mongoTemplate = mongoTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.ticketCacheInvalidator = ticketCacheInvalidator;
+    this.ticketSnapshotService = ticketSnapshotService;
+    this.converterToDTO = converterToDTO;
+    this.ticketArchiveService = ticketArchiveService;
+    this.busyHourWriter = busyHourWriter;
+    this.vehicleVisitWriter = vehicleVisitWriter;
+    this.occupancyHistogramWriter = occupancyHistogramWriter;
+    this.ticketEventWriter = ticketEventWriter;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.checkpointInterval = checkpointInterval;
+    this.maxLag = maxLag;
+    this.retryBackoff = retryBackoff;
+  }
+
+  @Override
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() {
+    if (!enabled || running) {
+      return;
+    }
+    running = true;
+    worker = Thread.ofPlatform().daemon().name("ticket-projections").start(this::run);
+  }
+
+  @Override
+  @PreDestroy
+  public synchronized void stop() {
+    running = false;
+    if (worker == null) {
+      return;
+    }
+    LockSupport.unpark(worker);
+    try {
+      worker.join(Duration.ofSeconds(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    worker = null;
+  }
+
+  /**
+   * Recomputes the projections from the tickets. When the projector is running the rebuild is
+   * handed over to it, so that it never races with the events being applied.
+   */
+  @Override
+  public void rebuild() {
+    if (running) {
+      rebuildRequested = true;
+      return;
+    }
+    bootstrap();
+  }
+
+  /**
+   * Whether the checkpoint was committed within the maximum lag. A projector that is following
+   * the stream commits it at least once per checkpoint interval; otherwise, as when another
+   * instance projects, the stored checkpoint is read at most once per checkpoint interval.
+   */
+  @Override
+  public boolean isReady() {
+    if (!recent(committedAt) && readinessCheckDue()) {
+      ProjectionCheckpoint checkpoint =
+          mongoTemplate.findById(CHECKPOINT_ID, ProjectionCheckpoint.class);
+      committedAt =
+          checkpoint != null && checkpoint.getBootstrappedAt() != null
+              ? checkpoint.getUpdatedAt()
+              : null;
+    }
+    return recent(committedAt);
+  }
+
+  private boolean recent(LocalDateTime updatedAt) {
+    return updatedAt != null && !updatedAt.isBefore(LocalDateTime.now().minus(maxLag));
+  }
+
+  private boolean readinessCheckDue() {
+    long now = System.nanoTime();
+    long next = nextReadinessCheck.get();
+    return now - next >= 0
+        && nextReadinessCheck.compareAndSet(next, now + checkpointInterval.toNanos());
+  }
+
+  @Override
+  public Slice<BusyHoursDTO> findBusiestHour(
+      LocalDateTime start, LocalDateTime end, Pageable pageable) {
+    List<Document> pipeline = new ArrayList<>();
+    pipeline.add(
+        new Document(
+            "$match",
+            new Document(
+                    "hour",
+                    new Document("$gte", toDate(start.truncatedTo(ChronoUnit.HOURS)))
+                        .append("$lt", toDate(end)))
+                .append("ticket_count", new Document("$gt", 0))));
+    pipeline.add(
+        new Document(
+            "$group",
+            new Document(
+                    "_id",
+                    new Document("parking_meter_id", "$parking_meter_id")
+                        .append("hour", new Document("$hour", "$hour")))
+                .append("total_tickets", new Document("$sum", "$ticket_count"))));
+    pipeline.add(new Document("$sort", new Document("total_tickets", -1).append("_id.hour", 1)));
+    pipeline.add(
+        new Document(
+            "$group",
+            new Document("_id", "$_id.parking_meter_id")
+                .append("operated_time", new Document("$first", "$_id.hour"))
+                .append("total_tickets", new Document("$first", "$total_tickets"))));
+    pipeline.add(new Document("$sort", new Document("_id", 1)));
+    if (pageable.isPaged()) {
+      pipeline.add(new Document("$skip", pageable.getOffset()));
+      pipeline.add(new Document("$limit", pageable.getPageSize() + 1));
+    }
+
+    List<Document> busiestHours =
+        mongoTemplate
+            .getCollection(mongoTemplate.getCollectionName(BusyHourProjection.class))
+            .aggregate(pipeline)
+            .into(new ArrayList<>());
+
+    boolean hasNext = pageable.isPaged() && busiestHours.size() > pageable.getPageSize();
+    if (hasNext) {
+      busiestHours = busiestHours.subList(0, pageable.getPageSize());
+    }
+
+    Map<String, ParkingMeter> parkingMeters =
+        ticketSnapshotService.getParkingMeters(
+            busiestHours.stream().map(busiestHour -> busiestHour.getString("_id")).toList());
+
+    List<BusyHoursDTO> content =
+        busiestHours.stream()
+            .map(
+                busiestHour -> {
+                  String parkingMeterId = busiestHour.getString("_id");
+                  return BusyHoursDTO.builder()
+                      .parkingMeter(
+                          parkingMeters.containsKey(parkingMeterId)
+                              ? converterToDTO.toDto(parkingMeters.get(parkingMeterId))
+                              : ParkingMeterDTO.builder().id(parkingMeterId).build())
+                      .operatedTime(busiestHour.getInteger("operated_time"))
+                      .totalTickets(((Number) busiestHour.get("total_tickets")).longValue())
+                      .build();
+                })
+            .toList();
+
+    return new SliceImpl<>(content, pageable, hasNext);
+  }
+
+  @Override
+  public List<ParkingMeterActivityDTO> findActivity(
+      String parkingMeterId,
+      LocalDateTime start,
+      LocalDateTime end,
+      ActivityIntervalEnum interval) {
+    List<Document> pipeline =
+        List.of(
+            new Document(
+                "$match",
+                new Document("parking_meter_id", parkingMeterId)
+                    .append(
+                        "timestamp",
+                        new Document("$gte", toDate(start)).append("$lt", toDate(end)))),
+            new Document(
+                "$group",
+                new Document(
+                        "_id",
+                        new Document(
+                            "$dateTrunc",
+                            new Document("date", "$timestamp")
+                                .append("unit", interval.name().toLowerCase(Locale.ROOT))
+                                .append("timezone", MongoTimeZone.id())))
+                    .append("issued", countOf(TicketEventTypeEnum.CREATE))
+                    .append("paid", countOf(TicketEventTypeEnum.PAY))
+                    .append("cancelled", countOf(TicketEventTypeEnum.CANCEL))
+                    .append("earned", new Document("$sum", "$amount"))),
+            new Document("$sort", new Document("_id", 1)));
+
+    return mongoTemplate
+        .getCollection(mongoTemplate.getCollectionName(TicketEvent.class))
+        .aggregate(pipeline)
+        .map(
+            bucket ->
+                ParkingMeterActivityDTO.builder()
+                    .start(toLocalDateTime(bucket.getDate("_id")))
+                    .ticketsIssued(((Number) bucket.get("issued")).longValue())
+                    .ticketsPaid(((Number) bucket.get("paid")).longValue())
+                    .ticketsCancelled(((Number) bucket.get("cancelled")).longValue())
+                    .earned(((Number) bucket.get("earned")).doubleValue())
+                    .build())
+        .into(new ArrayList<>());
+  }
+
+  @Override
+  public List<OccupancyHistogram> findOccupancyHistograms(Collection<String> parkingMeterIds) {
+    return mongoTemplate.find(
+        Query.query(Criteria.where("parkingMeterId").in(parkingMeterIds)),
+        OccupancyHistogram.class);
+  }
+
+  @Override
+  public long countTimesParked(
+      String parkingMeterId, String licensePlate, LocalDate startDate, LocalDate endDate) {
+    Query query =
+        Query.query(
+            Criteria.where("parkingMeterId")
+                .is(parkingMeterId)
+                .and("licensePlate")
+                .is(licensePlate)
+                .and("day")
+                .gte(startDate)
+                .lte(endDate));
+    query.fields().include(TICKET_COUNT);
+
+    return mongoTemplate.find(query, VehicleVisitProjection.class).stream()
+        .mapToLong(VehicleVisitProjection::getTicketCount)
+        .sum();
+  }
+
+  private void run() {
+    Duration backoff = retryBackoff;
+    while (running) {
+      try {
+        ProjectionCheckpoint checkpoint =
+            mongoTemplate.findById(CHECKPOINT_ID, ProjectionCheckpoint.class);
+        if (rebuildRequested || checkpoint == null || checkpoint.getBootstrappedAt() == null) {
+          checkpoint = bootstrap();
+        }
+        follow(checkpoint);
+        backoff = retryBackoff;
+      } catch (StaleCheckpointException e) {
+        committedAt = null;
+        log.info("Ticket projection checkpoint moved, resuming from the stored position");
+      } catch (MongoException e) {
+        if (HISTORY_LOST.contains(e.getCode())) {
+          log.warn("Ticket change stream can no longer be resumed, rebuilding projections");
+          rebuildRequested = true;
+          continue;
+        }
+        backoff = pause(backoff, e);
+      } catch (RuntimeException e) {
+        backoff = pause(backoff, e);
+      }
+    }
+  }
+
+  private Duration pause(Duration backoff, RuntimeException cause) {
+    log.warn("Ticket projections interrupted: {}, retrying in {}", cause.getMessage(), backoff);
+    LockSupport.parkNanos(backoff.toNanos());
+    Duration next = backoff.multipliedBy(2);
+    return next.compareTo(MAX_RETRY_BACKOFF) > 0 ? MAX_RETRY_BACKOFF : next;
+  }
+
+  private void follow(ProjectionCheckpoint checkpoint) {
+    ChangeStreamIterable<Document> changeStream =
+        mongoTemplate
+            .getDb()
+            .watch(List.of(new Document("$match", ticketNamespaces())))
+            .fullDocument(FullDocument.WHEN_AVAILABLE)
+            .fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE)
+            .batchSize(batchSize)
+            .maxAwaitTime(1, TimeUnit.SECONDS);
+    changeStream =
+        checkpoint.getResumeToken() != null
+            ? changeStream.resumeAfter(
+                new BsonDocument("_data", new BsonString(checkpoint.getResumeToken())))
+            : changeStream.startAtOperationTime(
+                new BsonTimestamp(checkpoint.getStartAtOperationTime()));
+
+    try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changeStream.cursor()) {
+      while (running && !rebuildRequested) {
+        List<ChangeStreamDocument<Document>> events = new ArrayList<>();
+        ChangeStreamDocument<Document> event;
+        while (events.size() < batchSize && (event = cursor.tryNext()) != null) {
+          if (COLLECTION_REMOVED.contains(event.getOperationType())) {
+            log.warn("Ticket collection dropped or renamed, rebuilding projections");
+            rebuildRequested = true;
+            break;
+          }
+          events.add(event);
+        }
+
+        BsonDocument resumeToken =
+            events.isEmpty() ? cursor.getResumeToken() : events.getLast().getResumeToken();
+        boolean checkpointDue =
+            checkpoint
+                .getUpdatedAt()
+                .plus(checkpointInterval)
+                .isBefore(LocalDateTime.now());
+        if (!events.isEmpty() || checkpointDue) {
+          checkpoint = apply(checkpoint, events, resumeToken);
+        }
+      }
+    }
+  }
+
+  private ProjectionCheckpoint apply(
+      ProjectionCheckpoint checkpoint,
+      List<ChangeStreamDocument<Document>> events,
+      BsonDocument resumeToken) {
+    String ticketCollection = mongoTemplate.getCollectionName(Ticket.class);
+    ProjectionDelta delta = newDelta();
+    List<TicketEvent> ticketEvents = new ArrayList<>();
+    String eventsWrittenThrough = checkpoint.getEventsWrittenThrough();
+    for (ChangeStreamDocument<Document> event : events) {
+      Ticket before = read(event.getFullDocumentBeforeChange());
+      Ticket after = read(event.getFullDocument());
+      switch (event.getOperationType()) {
+        case INSERT -> delta.add(after, 1);
+        case UPDATE, REPLACE -> {
+          delta.add(before, -1);
+          delta.add(after, 1);
+        }
+        case DELETE -> delta.add(before, -1);
+        default -> {}
+      }
+      boolean archiveMove =
+          event.getNamespace() == null
+              || !ticketCollection.equals(event.getNamespace().getCollectionName());
+      String token = token(event.getResumeToken());
+      boolean eventsWritten =
+          checkpoint.getEventsWrittenThrough() != null
+              && token.compareTo(checkpoint.getEventsWrittenThrough()) <= 0;
+      if (!archiveMove && !eventsWritten && event.getOperationType() != OperationType.DELETE) {
+        ticketEvents.addAll(TicketEvents.between(before, after, occurredAt(event)));
+        eventsWrittenThrough = token;
+      }
+    }
+
+    if (delta.incomplete) {
+      log.warn("Ticket change without its pre or post image, rebuilding projections");
+      rebuildRequested = true;
+      return checkpoint;
+    }
+
+    String previousToken = checkpoint.getResumeToken();
+    String nextToken = resumeToken != null ? token(resumeToken) : previousToken;
+    if (!ticketEvents.isEmpty()) {
+      ticketEventWriter.insert(ticketEvents);
+      updateCheckpoint(
+          checkpoint, new Update().set("eventsWrittenThrough", eventsWrittenThrough));
+      checkpoint.setEventsWrittenThrough(eventsWrittenThrough);
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          delta.write();
+          updateCheckpoint(
+              checkpoint, new Update().set("resumeToken", nextToken).set("updatedAt", now));
+        });
+
+    delta.changed.stream()
+        .filter(ticket -> ticket.getStartTime() != null)
+        .forEach(
+            ticket ->
+                ticketCacheInvalidator.ticketChanged(
+                    ticket.getStartTime(),
+                    ticket.getVehicle() != null ? ticket.getVehicle().getLicensePlate() : null));
+
+    checkpoint.setResumeToken(nextToken);
+    checkpoint.setUpdatedAt(now);
+    committedAt = now;
+    return checkpoint;
+  }
+
+  /** Updates the checkpoint unless another projector moved or reset it since it was read. */
+  private void updateCheckpoint(ProjectionCheckpoint checkpoint, Update update) {
+    UpdateResult result =
+        mongoTemplate.updateFirst(
+            Query.query(
+                Criteria.where("id")
+                    .is(CHECKPOINT_ID)
+                    .and("resumeToken")
+                    .is(checkpoint.getResumeToken())
+                    .and("startAtOperationTime")
+                    .is(checkpoint.getStartAtOperationTime())),
+            update,
+            ProjectionCheckpoint.class);
+    if (result.getMatchedCount() == 0) {
+      throw new StaleCheckpointException();
+    }
+  }
+
+  /**
+   * The hex encoded position of a resume token. Positions of the same stream sort as the changes
+   * they point at.
+   */
+  private static String token(BsonDocument resumeToken) {
+    return resumeToken.getString("_data").getValue();
+  }
+
+  /**
+   * The ticket collection and its archives. Moving a ticket to an archive inserts it there and
+   * deletes it from the ticket collection, which cancel each other out.
+   */
+  private Document ticketNamespaces() {
+    return new Document(
+        "$or",
+        List.of(
+            new Document("ns.coll", mongoTemplate.getCollectionName(Ticket.class)),
+            new Document(
+                "ns.coll",
+                new Document("$regex", "^" + TicketArchiveService.ARCHIVE_PREFIX))));
+  }
+
+  private static LocalDateTime occurredAt(ChangeStreamDocument<Document> event) {
+    return event.getWallTime() != null
+        ? LocalDateTime.ofInstant(
+            Instant.ofEpochMilli(event.getWallTime().getValue()), ZoneId.systemDefault())
+        : LocalDateTime.now();
+  }
+
+  private static Document countOf(TicketEventTypeEnum type) {
+    Document isType = new Document("$eq", List.of("$type", type.name()));
+    return new Document("$sum", new Document("$cond", List.of(isType, 1, 0)));
+  }
+
+  private Ticket read(Document document) {
+    return document != null ? mongoTemplate.getConverter().read(Ticket.class, document) : null;
+  }
+
+  /**
+   * Recomputes every projection from a snapshot of the tickets and points the checkpoint right
+   * after the snapshot time. Pre and post images are enabled on the ticket collection first, so
+   * that every change from the snapshot on can be applied as a difference.
+   */
+  private ProjectionCheckpoint bootstrap() {
+    log.info("Rebuilding ticket projections");
+    rebuildRequested = false;
+    committedAt = null;
+    mongoTemplate.remove(
+        Query.query(Criteria.where("id").is(CHECKPOINT_ID)), ProjectionCheckpoint.class);
+
+    String ticketCollection = mongoTemplate.getCollectionName(Ticket.class);
+    if (!mongoTemplate.collectionExists(ticketCollection)) {
+      mongoTemplate.createCollection(ticketCollection);
+    }
+    List<String> collections = ticketArchiveService.getCollections();
+    for (String collection : collections) {
+      if (mongoTemplate.collectionExists(collection)) {
+        mongoTemplate.executeCommand(
+            new Document("collMod", collection)
+                .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+      }
+    }
+
+    busyHourWriter.reset();
+    vehicleVisitWriter.reset();
+    occupancyHistogramWriter.reset();
+    ticketEventWriter.reset();
+
+    BsonTimestamp snapshotTime;
+    try (ClientSession session =
+        mongoTemplate
+            .getMongoDatabaseFactory()
+            .getSession(ClientSessionOptions.builder().snapshot(true).build())) {
+      busyHourWriter.copy(session, collections);
+      snapshotTime = session.getSnapshotTimestamp();
+      vehicleVisitWriter.copy(session, collections);
+      copyEventsAndHistograms(session, collections);
+    }
+    if (snapshotTime == null) {
+      throw new IllegalStateException("Snapshot read did not report its cluster time");
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    ProjectionCheckpoint checkpoint =
+        mongoTemplate.save(
+            ProjectionCheckpoint.builder()
+                .id(CHECKPOINT_ID)
+                .startAtOperationTime(
+                    new BsonTimestamp(snapshotTime.getTime(), snapshotTime.getInc() + 1)
+                        .getValue())
+                .bootstrappedAt(now)
+                .updatedAt(now)
+                .build());
+    committedAt = now;
+    log.info("Ticket projections rebuilt");
+    return checkpoint;
+  }
+
+  /**
+   * Reads every ticket of the snapshot once, for the events and the histograms, which are computed
+   * in memory: they take a fixed amount of space per parking meter.
+   */
+  private void copyEventsAndHistograms(ClientSession session, List<String> collections) {
+    List<TicketEvent> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+    TicketProjectionWriter.Delta histograms = occupancyHistogramWriter.newDelta();
+    for (String collection : collections) {
+      for (Document document : mongoTemplate.getCollection(collection).find(session)) {
+        Ticket ticket = read(document);
+        histograms.add(ticket, 1);
+        batch.addAll(TicketEvents.of(ticket));
+        if (batch.size() >= INSERT_BATCH_SIZE) {
+          ticketEventWriter.insert(batch);
+          batch.clear();
+        }
+      }
+    }
+    if (!batch.isEmpty()) {
+      ticketEventWriter.insert(batch);
+    }
+    histograms.write();
+  }
+
+  private static Date toDate(LocalDateTime dateTime) {
+    return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+  private static LocalDateTime toLocalDateTime(Date date) {
+    return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+  }
+
+  private ProjectionDelta newDelta() {
+    return new ProjectionDelta(
+        Stream.of(busyHourWriter, vehicleVisitWriter, occupancyHistogramWriter)
+            .map(TicketProjectionWriter::newDelta)
+            .toList());
+  }
+
+  /** Net effect of a batch of ticket changes on each read model. */
+  private static final class ProjectionDelta {
+
+    private final List<TicketProjectionWriter.Delta> deltas;
+    private final List<Ticket> changed = new ArrayList<>();
+    private boolean incomplete;
+
+    ProjectionDelta(List<TicketProjectionWriter.Delta> deltas) {
+      this.deltas = deltas;
+    }
+
+    void add(Ticket ticket, long sign) {
+      if (ticket == null) {
+        incomplete = true;
+        return;
+      }
+      changed.add(ticket);
+      deltas.forEach(delta -> delta.add(ticket, sign));
+    }
+
+    void write() {
+      deltas.forEach(TicketProjectionWriter.Delta::write);
+    }
+  }
+
+  /** Another projector advanced or reset the checkpoint; the batch is rolled back. */
+  private static final class StaleCheckpointException extends RuntimeException {}
+}
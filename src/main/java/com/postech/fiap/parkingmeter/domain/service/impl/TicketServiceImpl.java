@@ -3,31 +3,60 @@ package com.postech.fiap.parkingmeter.domain.service.impl;
 import com.postech.fiap.parkingmeter.domain.model.*;
 import com.postech.fiap.parkingmeter.domain.model.dto.*;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketForm;
+import com.postech.fiap.parkingmeter.domain.model.enums.PageModeEnum;
 import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
 import com.postech.fiap.parkingmeter.domain.repository.TicketRepository;
-import com.postech.fiap.parkingmeter.domain.service.ParkingMeterService;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyService;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketCountService;
+import com.postech.fiap.parkingmeter.domain.service.TicketProjectionService;
 import com.postech.fiap.parkingmeter.domain.service.TicketService;
-import com.postech.fiap.parkingmeter.domain.service.VehicleService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.domain.service.VehicleSpendLedgerService;
 import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.domain.util.DateRangeNormalizer;
+import com.postech.fiap.parkingmeter.domain.util.KeysetPaginator;
+import com.postech.fiap.parkingmeter.domain.util.TicketChargeCalculator;
+import com.postech.fiap.parkingmeter.domain.util.TicketDtoAssembler;
+import com.postech.fiap.parkingmeter.domain.util.TieredTicketQueries;
+import com.postech.fiap.parkingmeter.infrastructure.cache.TicketCacheInvalidator;
+import com.postech.fiap.parkingmeter.infrastructure.config.PaginationProperties;
 import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
 import com.postech.fiap.parkingmeter.infrastructure.exception.TicketException;
 import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
 import java.time.*;
 import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @Slf4j
@@ -36,16 +65,39 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class TicketServiceImpl implements TicketService {
 
-  private final ParkingMeterService parkingMeterService;
+  private final TicketSnapshotService ticketSnapshotService;
+  private final OccupancyService occupancyService;
+  private final EarningsRollupService earningsRollupService;
   private final TicketRepository ticketRepository;
-  private final VehicleService vehicleService;
   private final ConverterToDTO converterToDTO;
+  private final TicketDtoAssembler ticketDtoAssembler;
+  private final DateRangeNormalizer dateRangeNormalizer;
+  private final TicketCacheInvalidator ticketCacheInvalidator;
+  private final KeysetPaginator keysetPaginator;
+  private final TicketCountService ticketCountService;
+  private final PaginationProperties paginationProperties;
+  private final TicketProjectionService ticketProjectionService;
+  private final VehicleSpendLedgerService vehicleSpendLedgerService;
+  private final TicketArchiveService ticketArchiveService;
+  private final TieredTicketQueries tieredTicketQueries;
 
   @Override
   @Transactional(readOnly = true)
   public Page<TicketDTO> findAll(Pageable pageable) {
     log.info("Find all tickets");
-    return this.ticketRepository.findAll(pageable).map(this.converterToDTO::toDto);
+    List<String> collections = ticketArchiveService.getCollections();
+    if (collections.size() > 1) {
+      return ticketDtoAssembler.toDtos(
+          tieredTicketQueries.findPage(new Query(), pageable, collections));
+    }
+    return ticketDtoAssembler.toDtos(this.ticketRepository.findAll(pageable));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPageDTO<TicketDTO> scrollAll(String cursor, int size) {
+    log.info("Scroll all tickets");
+    return scroll(new Query(), Sort.by("id"), cursor, size, ticketArchiveService.getCollections());
   }
 
   @Override
@@ -53,24 +105,20 @@ public class TicketServiceImpl implements TicketService {
   public TicketDTO getById(String id) {
     log.info("Find one ticket");
     var ticket =
-        this.ticketRepository
-            .findById(id)
+        findTicket(id)
             .orElseThrow(
                 () -> new TicketException("Ticket code does not exist", HttpStatus.NOT_FOUND));
-    return converterToDTO.toDto(ticket);
+    return ticketDtoAssembler.toDto(ticket);
   }
 
   @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public TicketDTO create(TicketForm ticketForm) {
     try {
-      VehicleDTO vehicleDTO = this.vehicleService.getById(ticketForm.vehicleId());
-
-      Vehicle vehicle = buildVehicle(vehicleDTO);
+      Vehicle vehicle = this.ticketSnapshotService.getVehicle(ticketForm.vehicleId());
 
-      ParkingMeterDTO parkingMeterDTO =
-          this.parkingMeterService.getById(ticketForm.parkingMeterId());
-
-      ParkingMeter parkingMeter = buildParkingMeter(parkingMeterDTO);
+      ParkingMeter parkingMeter =
+          this.ticketSnapshotService.getParkingMeter(ticketForm.parkingMeterId());
 
       var operatingHours = parkingMeter.getOperatingHours();
       LocalTime lt = LocalTime.parse(operatingHours.getEnd());
@@ -80,25 +128,27 @@ public class TicketServiceImpl implements TicketService {
         throw new TicketException("Parking meter closed, opening hours from %s to %s".formatted(operatingHours.getStart(), operatingHours.getEnd()), HttpStatus.BAD_REQUEST);
       }
 
-      Optional<Ticket> pendingTicketByVehicleId =
-          this.ticketRepository.findPendingTicketByVehicleId(ticketForm.vehicleId());
-
-      if (pendingTicketByVehicleId != null && pendingTicketByVehicleId.isPresent()) {
+      if (this.ticketRepository.existsPendingTicketByVehicleId(ticketForm.vehicleId())) {
         throw new TicketException(
             "The vehicle is already parked at a parking meter", HttpStatus.BAD_REQUEST);
       }
 
-      List<Ticket> pendingTicketsByParkingMeterId =
-          this.ticketRepository.findPendingTicketsByParkingMeterId(ticketForm.parkingMeterId());
-
-      long pendingTicketCount = pendingTicketsByParkingMeterId.size();
-
-      if (pendingTicketCount >= parkingMeter.getAvailableSpaces()) {
+      if (!this.occupancyService.tryOccupy(parkingMeter.getId())) {
         throw new TicketException(
             "This parking meter has no available spaces", HttpStatus.BAD_REQUEST);
       }
 
-      return converterToDTO.toDto(ticketRepository.save(buildTicket(vehicle, parkingMeter)));
+      Ticket ticket;
+      try {
+        ticket = ticketRepository.insert(buildTicket(vehicle, parkingMeter));
+      } catch (RuntimeException e) {
+        this.occupancyService.release(parkingMeter.getId());
+        throw e;
+      }
+
+      this.ticketCacheInvalidator.ticketChanged(
+          ticket.getStartTime(), null, PaymentStatusEnum.PENDING);
+      return converterToDTO.toDto(ticket, parkingMeter, vehicle);
     } catch (TicketException | ParkingMeterException | VehicleException e) {
       throw new TicketException(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
@@ -107,8 +157,7 @@ public class TicketServiceImpl implements TicketService {
   @Override
   public TicketDTO updatePayment(String id) throws TicketException {
     Ticket ticket =
-        this.ticketRepository
-            .findById(id)
+        findTicket(id)
             .orElseThrow(() -> new TicketException("Ticket not found", HttpStatus.NOT_FOUND));
 
     var hasCanceled = ticket.getPaymentStatus() == PaymentStatusEnum.CANCELLED;
@@ -119,7 +168,7 @@ public class TicketServiceImpl implements TicketService {
 
     var hourNow = LocalDateTime.now();
     var totalAmountCharged =
-        getTotalAmountCharged(
+        TicketChargeCalculator.getTotalAmountCharged(
             ticket.getStartTime(),
             hourNow,
             ticket.getParkingMeter().getRate().getFirstHour(),
@@ -130,15 +179,25 @@ public class TicketServiceImpl implements TicketService {
     ticket.setPaymentStatus(PaymentStatusEnum.PAID);
 
     Ticket updatedTicket = this.ticketRepository.save(ticket);
-
-    return converterToDTO.toDto(updatedTicket);
+    this.earningsRollupService.recordPayment(updatedTicket);
+    this.vehicleSpendLedgerService.recordPayment(updatedTicket);
+    runAfterCommit(
+        () -> {
+          this.occupancyService.release(ticket.getParkingMeter().getId());
+          this.ticketCacheInvalidator.ticketChanged(
+              ticket.getStartTime(),
+              ticket.getVehicle().getLicensePlate(),
+              PaymentStatusEnum.PENDING,
+              PaymentStatusEnum.PAID);
+        });
+
+    return ticketDtoAssembler.toDto(updatedTicket);
   }
 
   @Override
   public TicketDTO cancelTicket(String id) throws TicketException {
     Ticket ticket =
-        this.ticketRepository
-            .findById(id)
+        findTicket(id)
             .orElseThrow(() -> new TicketException("Ticket not found", HttpStatus.NOT_FOUND));
 
     if (ticket.getPaymentStatus() == PaymentStatusEnum.CANCELLED) {
@@ -155,26 +214,69 @@ public class TicketServiceImpl implements TicketService {
           "Ticket cannot be cancelled, grace period reached", HttpStatus.BAD_REQUEST);
     }
 
+    var previousStatus = ticket.getPaymentStatus();
     ticket.setPaymentStatus(PaymentStatusEnum.CANCELLED);
 
     Ticket updatedTicket = this.ticketRepository.save(ticket);
-
-    return converterToDTO.toDto(updatedTicket);
+    if (previousStatus == PaymentStatusEnum.PAID) {
+      this.earningsRollupService.revertPayment(updatedTicket);
+      this.vehicleSpendLedgerService.revertPayment(updatedTicket);
+    }
+    runAfterCommit(
+        () -> {
+          if (previousStatus == PaymentStatusEnum.PENDING) {
+            this.occupancyService.release(ticket.getParkingMeter().getId());
+          }
+          this.ticketCacheInvalidator.ticketChanged(
+              ticket.getStartTime(),
+              ticket.getVehicle().getLicensePlate(),
+              previousStatus,
+              PaymentStatusEnum.CANCELLED);
+        });
+
+    return ticketDtoAssembler.toDto(updatedTicket);
   }
 
   @Override
   public void deleteById(String id) {
     log.info("Delete ticket by id: {}", id);
-    this.ticketRepository.deleteById(id);
+    Optional<Ticket> storedTicket = this.ticketRepository.findById(id);
+    if (storedTicket.isPresent()) {
+      this.ticketRepository.deleteById(id);
+    } else {
+      storedTicket = this.ticketArchiveService.removeArchivedById(id);
+    }
+
+    storedTicket.ifPresent(
+        ticket -> {
+          if (ticket.getPaymentStatus() == PaymentStatusEnum.PAID) {
+            this.earningsRollupService.revertPayment(ticket);
+            this.vehicleSpendLedgerService.revertPayment(ticket);
+          }
+          runAfterCommit(
+              () -> {
+                if (ticket.getPaymentStatus() == PaymentStatusEnum.PENDING) {
+                  this.occupancyService.release(ticket.getParkingMeter().getId());
+                }
+                this.ticketCacheInvalidator.ticketChanged(
+                    ticket.getStartTime(),
+                    ticket.getVehicle().getLicensePlate(),
+                    ticket.getPaymentStatus());
+              });
+        });
   }
 
   @Override
-  @Cacheable(value = "totalGastoVeiculo", key = "#licensePlate")
+  @Cacheable(value = TicketCacheInvalidator.TOTAL_SPENT_BY_VEHICLE, key = "#licensePlate")
   @Transactional(readOnly = true)
   public VehicleSpentDTO getTotalSpentByVehicle(String licensePlate) throws VehicleException {
-    List<Ticket> tickets = ticketRepository.findByVehicleLicensePlate(licensePlate);
+    Optional<VehicleSpendLedger> ledger = vehicleSpendLedgerService.getLedger(licensePlate);
 
-    if (tickets.isEmpty()) {
+    if (ledger.isEmpty()
+        && !ticketRepository.existsByVehicleLicensePlate(licensePlate)
+        && !tieredTicketQueries.exists(
+            Query.query(Criteria.where("vehicle.licensePlate").is(licensePlate)),
+            ticketArchiveService.getArchiveCollections())) {
       throw new VehicleException(
           "No ticket found for vehicle with license plate: " + licensePlate,
           HttpStatus.NOT_FOUND);
@@ -182,117 +284,242 @@ public class TicketServiceImpl implements TicketService {
 
     return VehicleSpentDTO.builder()
         .licensePlate(licensePlate)
-        .totalSpent(tickets.stream().mapToDouble(Ticket::getTotalAmountCharged).sum())
+        .totalSpent(ledger.map(VehicleSpendLedger::getTotalSpent).orElse(0.0))
+        .monthlySpent(ledger.map(VehicleSpendLedger::getMonthlySpent).orElse(null))
         .build();
   }
 
   @Override
   @Cacheable(
-      value = "ticketsPorIntervaloDeData",
-      key = "#startDate + '-' + #endDate + '-' + #pageable.pageNumber + '-' + #pageable.pageSize")
+      value = TicketCacheInvalidator.TICKETS_BY_DATE_RANGE,
+      key = "@cacheKeys.dateRange(#startDate, #endDate, #pageable, #mode)")
   @Transactional(readOnly = true)
-  public Page<TicketDTO> findTicketsByDateRange(
-      LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+  public Slice<TicketDTO> findTicketsByDateRange(
+      LocalDateTime startDate, LocalDateTime endDate, Pageable pageable, PageModeEnum mode) {
 
     if (startDate.isAfter(endDate)) {
       throw new TicketException("Start date is greater than end date", HttpStatus.BAD_REQUEST);
     }
-    return ticketRepository
-        .findByStartTimeBetween(startDate, endDate, pageable)
-        .map(converterToDTO::toDto);
+    LocalDateTime start = dateRangeNormalizer.floor(startDate);
+    LocalDateTime end = dateRangeNormalizer.ceil(endDate);
+    List<String> collections = ticketArchiveService.getCollections(start, end);
+    if (collections.size() > 1) {
+      Query query = startTimeBetween(start, end);
+      return switch (resolve(mode)) {
+        case PAGE -> ticketDtoAssembler.toDtos(
+            tieredTicketQueries.findPage(query, pageable, collections));
+        case SLICE -> ticketDtoAssembler.toDtos(
+            tieredTicketQueries.findSlice(query, pageable, collections));
+        case APPROXIMATE -> withApproximateTotal(
+            tieredTicketQueries.findSlice(query, pageable, collections),
+            () -> ticketCountService.approximateCountByDateRange(start, end));
+      };
+    }
+    return switch (resolve(mode)) {
+      case PAGE -> ticketDtoAssembler.toDtos(
+          ticketRepository.findByStartTimeBetween(start, end, pageable));
+      case SLICE -> ticketDtoAssembler.toDtos(
+          ticketRepository.findSliceByStartTimeBetween(start, end, pageable));
+      case APPROXIMATE -> withApproximateTotal(
+          ticketRepository.findSliceByStartTimeBetween(start, end, pageable),
+          () -> ticketCountService.approximateCountByDateRange(start, end));
+    };
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPageDTO<TicketDTO> scrollTicketsByDateRange(
+      LocalDateTime startDate, LocalDateTime endDate, String cursor, int size) {
+
+    if (startDate.isAfter(endDate)) {
+      throw new TicketException("Start date is greater than end date", HttpStatus.BAD_REQUEST);
+    }
+    LocalDateTime start = dateRangeNormalizer.floor(startDate);
+    LocalDateTime end = dateRangeNormalizer.ceil(endDate);
+    return scroll(
+        startTimeBetween(start, end),
+        Sort.by("startTime", "id"),
+        cursor,
+        size,
+        ticketArchiveService.getCollections(start, end));
   }
 
   @Override
   @Cacheable(
-      value = "ticketsPorStatus",
-      key = "#status + '-' + #pageable.pageNumber + '-' + #pageable.pageSize")
+      value = TicketCacheInvalidator.TICKETS_BY_STATUS,
+      key = "@cacheKeys.status(#status, #pageable, #mode)")
+  @Transactional(readOnly = true)
+  public Slice<TicketDTO> findTicketsByStatus(
+      PaymentStatusEnum status, Pageable pageable, PageModeEnum mode) {
+    List<String> collections = ticketArchiveService.getCollections(status);
+    if (collections.size() > 1) {
+      Query query = paymentStatus(status);
+      return switch (resolve(mode)) {
+        case PAGE -> ticketDtoAssembler.toDtos(
+            tieredTicketQueries.findPage(query, pageable, collections));
+        case SLICE -> ticketDtoAssembler.toDtos(
+            tieredTicketQueries.findSlice(query, pageable, collections));
+        case APPROXIMATE -> withApproximateTotal(
+            tieredTicketQueries.findSlice(query, pageable, collections),
+            () -> ticketCountService.approximateCountByStatus(status));
+      };
+    }
+    return switch (resolve(mode)) {
+      case PAGE -> ticketDtoAssembler.toDtos(
+          ticketRepository.findByPaymentStatus(status, pageable));
+      case SLICE -> ticketDtoAssembler.toDtos(
+          ticketRepository.findSliceByPaymentStatus(status, pageable));
+      case APPROXIMATE -> withApproximateTotal(
+          ticketRepository.findSliceByPaymentStatus(status, pageable),
+          () -> ticketCountService.approximateCountByStatus(status));
+    };
+  }
+
+  @Override
   @Transactional(readOnly = true)
-  public Page<TicketDTO> findTicketsByStatus(PaymentStatusEnum status, Pageable pageable) {
-    return ticketRepository.findByPaymentStatus(status, pageable).map(converterToDTO::toDto);
+  public CursorPageDTO<TicketDTO> scrollTicketsByStatus(
+      PaymentStatusEnum status, String cursor, int size) {
+    return scroll(
+        paymentStatus(status),
+        Sort.by("id"),
+        cursor,
+        size,
+        ticketArchiveService.getCollections(status));
   }
 
   @Override
-  @Cacheable(value = "busyHours", key = "#startDate + '_' + #endDate")
+  @Cacheable(
+      value = TicketCacheInvalidator.BUSY_HOURS,
+      key = "@cacheKeys.dateRange(#startDate, #endDate, #pageable)")
   @Transactional(readOnly = true)
   public Slice<BusyHoursDTO> findBusiestHour(
       LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
-    return ticketRepository.findBusiestHour(startDate, endDate, pageable);
+    LocalDateTime start = dateRangeNormalizer.floor(startDate);
+    LocalDateTime end = dateRangeNormalizer.ceil(endDate);
+    if (ticketProjectionService.isReady()) {
+      return ticketProjectionService.findBusiestHour(start, end, pageable);
+    }
+    List<String> collections = ticketArchiveService.getCollections(start, end);
+    if (collections.size() > 1) {
+      return findBusiestHour(start, end, pageable, collections);
+    }
+    return ticketRepository.findBusiestHour(start, end, pageable);
   }
 
-  private double getTotalAmountCharged(
-      LocalDateTime startHour,
-      LocalDateTime endHour,
-      double valueFirstHour,
-      double valueOtherHours) {
-    long totalHours = ChronoUnit.MINUTES.between(startHour, endHour);
-    double roundedHours = Math.ceil(totalHours / 60.0);
+  /**
+   * Same result as {@link TicketRepository#findBusiestHour}, over the archives as well: tickets
+   * per parking meter and hour are counted in each collection, then added up here.
+   */
+  private Slice<BusyHoursDTO> findBusiestHour(
+      LocalDateTime start, LocalDateTime end, Pageable pageable, List<String> collections) {
+    List<Document> stages =
+        List.of(
+            new Document(
+                "$group",
+                new Document(
+                        "_id",
+                        new Document("parkingMeterId", "$parkingMeter._id")
+                            .append("hour", new Document("$hour", "$start_time")))
+                    .append("totalTickets", new Document("$sum", 1))
+                    .append("parkingMeter", new Document("$first", "$parkingMeter"))),
+            new Document(
+                "$project",
+                new Document("_id", 0)
+                    .append("parkingMeter", 1)
+                    .append("operatedTime", "$_id.hour")
+                    .append("totalTickets", 1)));
+    Query query = Query.query(Criteria.where("startTime").gte(start).lt(end));
+
+    Map<List<Object>, BusyHoursDTO> byHour = new LinkedHashMap<>();
+    for (BusyHoursDTO hour :
+        tieredTicketQueries.aggregate(query, stages, BusyHoursDTO.class, collections)) {
+      byHour.merge(
+          List.of(hour.getParkingMeter().getId(), hour.getOperatedTime()),
+          hour,
+          (total, more) -> {
+            total.setTotalTickets(total.getTotalTickets() + more.getTotalTickets());
+            return total;
+          });
+    }
+    Comparator<BusyHoursDTO> byTickets = Comparator.comparingLong(BusyHoursDTO::getTotalTickets);
+    List<BusyHoursDTO> busiest =
+        byHour.values().stream()
+            .collect(
+                Collectors.toMap(
+                    hour -> hour.getParkingMeter().getId(),
+                    Function.identity(),
+                    BinaryOperator.maxBy(byTickets),
+                    LinkedHashMap::new))
+            .values()
+            .stream()
+            .sorted(byTickets.reversed())
+            .toList();
+
+    if (pageable.isUnpaged()) {
+      return new SliceImpl<>(busiest, pageable, false);
+    }
+    int from = (int) Math.min(pageable.getOffset(), busiest.size());
+    int to = Math.min(from + pageable.getPageSize(), busiest.size());
+    return new SliceImpl<>(busiest.subList(from, to), pageable, to < busiest.size());
+  }
+
+  /** Archived tickets are only looked up once the ticket collection misses. */
+  private Optional<Ticket> findTicket(String id) {
+    return this.ticketRepository
+        .findById(id)
+        .or(() -> this.ticketArchiveService.findArchivedById(id));
+  }
 
-    if (roundedHours <= 1) {
-      return valueFirstHour;
+  private CursorPageDTO<TicketDTO> scroll(
+      Query query, Sort sort, String cursor, int size, List<String> collections) {
+    if (collections.size() > 1) {
+      return keysetPaginator.scrollAndMap(
+          query, sort, cursor, size, Ticket.class, collections, ticketDtoAssembler::toDtos);
     }
+    return keysetPaginator.scrollAndMap(
+        query, sort, cursor, size, Ticket.class, ticketDtoAssembler::toDtos);
+  }
 
-    double otherHoursCharge = (roundedHours - 1) * valueOtherHours;
+  private static Query startTimeBetween(LocalDateTime start, LocalDateTime end) {
+    return Query.query(Criteria.where("startTime").gt(start).lt(end));
+  }
 
-    return valueFirstHour + otherHoursCharge;
+  private static Query paymentStatus(PaymentStatusEnum status) {
+    return Query.query(Criteria.where("paymentStatus").is(status));
   }
 
-  private Vehicle buildVehicle(VehicleDTO vehicleDTO) {
-    Address address =
-        Address.builder()
-            .city(vehicleDTO.getOwner().getAddress().getCity())
-            .street(vehicleDTO.getOwner().getAddress().getStreet())
-            .neighborhood(vehicleDTO.getOwner().getAddress().getNeighborhood())
-            .state(vehicleDTO.getOwner().getAddress().getState())
-            .zipCode(vehicleDTO.getOwner().getAddress().getZipCode())
-            .number(vehicleDTO.getOwner().getAddress().getNumber())
-            .complement(vehicleDTO.getOwner().getAddress().getComplement())
-            .build();
-
-    Owner owner =
-        Owner.builder()
-                .id(vehicleDTO.getOwner().getId())
-            .cpf(vehicleDTO.getOwner().getCpf())
-            .address(address)
-            .email(vehicleDTO.getOwner().getEmail())
-            .name(vehicleDTO.getOwner().getName())
-            .phone(vehicleDTO.getOwner().getPhone())
-            .build();
-
-    return Vehicle.builder()
-        .id(vehicleDTO.getId())
-        .color(vehicleDTO.getColor())
-        .licensePlate(vehicleDTO.getLicensePlate())
-        .model(vehicleDTO.getModel())
-        .owner(owner)
-        .build();
+  private PageModeEnum resolve(PageModeEnum mode) {
+    return mode != null ? mode : paginationProperties.getTicketMode();
   }
 
-  private ParkingMeter buildParkingMeter(ParkingMeterDTO parkingMeterDTO) {
-    return ParkingMeter.builder()
-        .id(parkingMeterDTO.getId())
-        .operatingHours(
-            OperationHours.builder()
-                .end(parkingMeterDTO.getOperatingHours().getEnd())
-                .start(parkingMeterDTO.getOperatingHours().getStart())
-                .build())
-        .rate(
-            Rate.builder()
-                .additionalHours(parkingMeterDTO.getRate().getAdditionalHours())
-                .firstHour(parkingMeterDTO.getRate().getFirstHour())
-                .build())
-        .availableSpaces(parkingMeterDTO.getAvailableSpaces())
-        .address(
-            Address.builder()
-                .state(parkingMeterDTO.getAddress().getState())
-                .street(parkingMeterDTO.getAddress().getStreet())
-                .neighborhood(parkingMeterDTO.getAddress().getNeighborhood())
-                .city(parkingMeterDTO.getAddress().getCity())
-                .zipCode(parkingMeterDTO.getAddress().getZipCode())
-                .number(parkingMeterDTO.getAddress().getNumber())
-                .complement(parkingMeterDTO.getAddress().getComplement())
-                .build())
-        .version(parkingMeterDTO.getVersion())
-        .build();
+  /**
+   * Turns a slice into a page whose total is the approximate count, raised when needed so that it
+   * never contradicts the slice itself (a stale count could otherwise hide the next page).
+   */
+  private Page<TicketDTO> withApproximateTotal(Slice<Ticket> slice, LongSupplier approximateTotal) {
+    long seen =
+        slice.getPageable().isPaged()
+            ? slice.getPageable().getOffset() + slice.getNumberOfElements()
+            : slice.getNumberOfElements();
+    long total = Math.max(approximateTotal.getAsLong(), slice.hasNext() ? seen + 1 : seen);
+    return new PageImpl<>(
+        ticketDtoAssembler.toDtos(slice.getContent()),
+        slice.getPageable(),
+        total);
+  }
+
+  private void runAfterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
   }
 
   private Ticket buildTicket(Vehicle vehicle, ParkingMeter parkingMeter) {
@@ -301,8 +528,8 @@ public class TicketServiceImpl implements TicketService {
         .startTime(LocalDateTime.now())
         .endTime(null)
         .paymentStatus(PaymentStatusEnum.PENDING)
-        .parkingMeter(parkingMeter)
-        .vehicle(vehicle)
+        .parkingMeter(ParkingMeterSnapshot.of(parkingMeter))
+        .vehicle(VehicleSnapshot.of(vehicle))
         .build();
   }
 }
@@ -0,0 +1,222 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.Owner;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.repository.VehicleRepository;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
+import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Loads the parking meter and vehicle copied into a new ticket straight as entities, and keeps
+ * them for a short time so that repeated issuance at the same meter or for the same vehicle does
+ * not read them again. Updates and deletes evict the snapshot on this instance; the cache expiry
+ * bounds how long other instances may keep issuing tickets with the previous copy. The reactive
+ * lookups share the same caches. Every lookup returns its own copy of the cached snapshot, so a
+ * caller changing it cannot alter what the next ticket embeds.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class TicketSnapshotServiceImpl implements TicketSnapshotService {
+
+  private final MongoTemplate mongoTemplate;
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+  private final VehicleRepository vehicleRepository;
+  private final CacheManager cacheManager;
+
+  @Override
+  public ParkingMeter getParkingMeter(String id) {
+    ParkingMeter parkingMeter =
+        cached(
+            PARKING_METER_SNAPSHOTS,
+            id,
+            ParkingMeter.class,
+            () -> mongoTemplate.findOne(parkingMeterQuery(id), ParkingMeter.class));
+    if (parkingMeter == null) {
+      throw parkingMeterNotFound();
+    }
+    return copyOf(parkingMeter);
+  }
+
+  @Override
+  public Mono<ParkingMeter> getParkingMeterReactive(String id) {
+    return cached(
+            PARKING_METER_SNAPSHOTS,
+            id,
+            ParkingMeter.class,
+            reactiveMongoTemplate
+                .findOne(parkingMeterQuery(id), ParkingMeter.class)
+                .switchIfEmpty(Mono.error(this::parkingMeterNotFound)))
+        .map(TicketSnapshotServiceImpl::copyOf);
+  }
+
+  @Override
+  public Map<String, ParkingMeter> getParkingMeters(Collection<String> ids) {
+    Map<String, ParkingMeter> parkingMeters =
+        cached(
+            PARKING_METER_SNAPSHOTS,
+            ids,
+            ParkingMeter.class,
+            ParkingMeter::getId,
+            missing -> {
+              Query query = Query.query(Criteria.where("id").in(missing));
+              query.fields().exclude("occupied");
+              return mongoTemplate.find(query, ParkingMeter.class);
+            });
+    parkingMeters.replaceAll((id, parkingMeter) -> copyOf(parkingMeter));
+    return parkingMeters;
+  }
+
+  @Override
+  public Vehicle getVehicle(String id) throws VehicleException {
+    Vehicle vehicle =
+        cached(
+            VEHICLE_SNAPSHOTS,
+            id,
+            Vehicle.class,
+            () -> vehicleRepository.findById(id).orElse(null));
+    if (vehicle == null) {
+      throw vehicleNotFound();
+    }
+    return copyOf(vehicle);
+  }
+
+  @Override
+  public Mono<Vehicle> getVehicleReactive(String id) {
+    return cached(
+            VEHICLE_SNAPSHOTS,
+            id,
+            Vehicle.class,
+            reactiveMongoTemplate
+                .findById(id, Vehicle.class)
+                .switchIfEmpty(Mono.error(this::vehicleNotFound)))
+        .map(TicketSnapshotServiceImpl::copyOf);
+  }
+
+  @Override
+  public Map<String, Vehicle> getVehicles(Collection<String> ids) {
+    Map<String, Vehicle> vehicles =
+        cached(
+            VEHICLE_SNAPSHOTS,
+            ids,
+            Vehicle.class,
+            Vehicle::getId,
+            missing ->
+                mongoTemplate.find(Query.query(Criteria.where("id").in(missing)), Vehicle.class));
+    vehicles.replaceAll((id, vehicle) -> copyOf(vehicle));
+    return vehicles;
+  }
+
+  /** Returns the cached snapshot, or loads and caches it; {@code null} if it does not exist. */
+  private <T> T cached(String cacheName, String id, Class<T> type, Supplier<T> loader) {
+    Cache cache = cacheManager.getCache(cacheName);
+    T snapshot = cache != null ? cache.get(id, type) : null;
+    if (snapshot == null) {
+      snapshot = loader.get();
+      if (snapshot != null && cache != null) {
+        cache.put(id, snapshot);
+      }
+    }
+    return snapshot;
+  }
+
+  /** Returns the snapshots found in the cache and loads all the others with a single query. */
+  private <T> Map<String, T> cached(
+      String cacheName,
+      Collection<String> ids,
+      Class<T> type,
+      Function<T, String> idOf,
+      Function<Set<String>, List<T>> loader) {
+    Cache cache = cacheManager.getCache(cacheName);
+    Map<String, T> snapshots = new HashMap<>();
+    Set<String> missing = new HashSet<>();
+    for (String id : ids) {
+      T snapshot = cache != null ? cache.get(id, type) : null;
+      if (snapshot != null) {
+        snapshots.put(id, snapshot);
+      } else {
+        missing.add(id);
+      }
+    }
+
+    if (!missing.isEmpty()) {
+      for (T loaded : loader.apply(missing)) {
+        snapshots.put(idOf.apply(loaded), loaded);
+        if (cache != null) {
+          cache.put(idOf.apply(loaded), loaded);
+        }
+      }
+    }
+    return snapshots;
+  }
+
+  private <T> Mono<T> cached(String cacheName, String id, Class<T> type, Mono<T> loader) {
+    return Mono.defer(
+        () -> {
+          Cache cache = cacheManager.getCache(cacheName);
+          T snapshot = cache != null ? cache.get(id, type) : null;
+          if (snapshot != null) {
+            return Mono.just(snapshot);
+          }
+          return cache != null ? loader.doOnNext(loaded -> cache.put(id, loaded)) : loader;
+        });
+  }
+
+  private static ParkingMeter copyOf(ParkingMeter parkingMeter) {
+    return parkingMeter.toBuilder()
+        .operatingHours(
+            parkingMeter.getOperatingHours() == null
+                ? null
+                : parkingMeter.getOperatingHours().toBuilder().build())
+        .rate(parkingMeter.getRate() == null ? null : parkingMeter.getRate().toBuilder().build())
+        .address(copyOf(parkingMeter.getAddress()))
+        .build();
+  }
+
+  private static Vehicle copyOf(Vehicle vehicle) {
+    Owner owner = vehicle.getOwner();
+    return vehicle.toBuilder()
+        .owner(
+            owner == null ? null : owner.toBuilder().address(copyOf(owner.getAddress())).build())
+        .build();
+  }
+
+  private static Address copyOf(Address address) {
+    return address == null ? null : address.toBuilder().build();
+  }
+
+  private static Query parkingMeterQuery(String id) {
+    Query query = Query.query(Criteria.where("id").is(id));
+    query.fields().exclude("occupied");
+    return query;
+  }
+
+  private ParkingMeterException parkingMeterNotFound() {
+    return new ParkingMeterException("Parking Meter code does not exist", HttpStatus.NOT_FOUND);
+  }
+
+  private VehicleException vehicleNotFound() {
+    return new VehicleException("Not found Vehicle", HttpStatus.NOT_FOUND);
+  }
+}
@@ -2,12 +2,15 @@ package com.postech.fiap.parkingmeter.domain.service.impl;
 
 import com.postech.fiap.parkingmeter.domain.model.Owner;
 import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.VehicleDTO;
 import com.postech.fiap.parkingmeter.domain.model.dto.forms.VehicleForm;
 import com.postech.fiap.parkingmeter.domain.repository.OwnerRepository;
 import com.postech.fiap.parkingmeter.domain.repository.VehicleRepository;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
 import com.postech.fiap.parkingmeter.domain.service.VehicleService;
 import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.domain.util.KeysetPaginator;
 import com.postech.fiap.parkingmeter.infrastructure.exception.OwnerException;
 import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
 import lombok.RequiredArgsConstructor;
@@ -15,8 +18,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,6 +37,7 @@ public class VehicleServiceImpl implements VehicleService {
   private final VehicleRepository vehicleRepository;
   private final ConverterToDTO converterToDTO;
   private final OwnerRepository ownerRepository;
+  private final KeysetPaginator keysetPaginator;
 
   @Override
   @Transactional(readOnly = true)
@@ -39,6 +46,14 @@ public class VehicleServiceImpl implements VehicleService {
     return vehicleRepository.findAll(pageable).map(converterToDTO::toDto);
   }
 
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPageDTO<VehicleDTO> scrollAll(String cursor, int size) {
+    log.info("Scroll all vehicles");
+    return keysetPaginator.scroll(
+        new Query(), Sort.by("id"), cursor, size, Vehicle.class, converterToDTO::toDto);
+  }
+
   @Override
   @Transactional(readOnly = true)
   public VehicleDTO getById(String id) throws VehicleException {
@@ -69,6 +84,7 @@ public class VehicleServiceImpl implements VehicleService {
   }
 
   @Override
+  @CacheEvict(value = TicketSnapshotService.VEHICLE_SNAPSHOTS, key = "#id")
   public VehicleDTO updateById(String id, VehicleForm vehicleForm) throws VehicleException {
     log.info("Update vehicle");
     Vehicle vehicle =
@@ -88,6 +104,7 @@ public class VehicleServiceImpl implements VehicleService {
   }
 
   @Override
+  @CacheEvict(value = TicketSnapshotService.VEHICLE_SNAPSHOTS, key = "#id")
   public void deleteById(String id) {
     log.info("Delete vehicle");
     vehicleRepository.deleteById(id);
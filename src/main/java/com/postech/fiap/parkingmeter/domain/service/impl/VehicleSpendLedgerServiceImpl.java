@@ -0,0 +1,173 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSpendLedger;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.VehicleSpendLedgerService;
+import com.postech.fiap.parkingmeter.domain.util.MongoTimeZone;
+import com.postech.fiap.parkingmeter.domain.util.PaidTicketAggregates;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Maintains the {@code vehicle_spend_ledger} collection: one document per license plate with the
+ * amount paid, the number of paid tickets and, optionally, the amount paid per month of ticket
+ * start. Payments are recorded in the transaction that pays or reverts the ticket, so the total
+ * spent by a vehicle is a single document read.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class VehicleSpendLedgerServiceImpl
+    implements VehicleSpendLedgerService, SmartInitializingSingleton {
+
+  private static final String TOTAL_SPENT = "totalSpent";
+  private static final String PAID_TICKETS = "paidTickets";
+  private static final String MONTHLY_SPENT = "monthlySpent";
+
+  private final MongoTemplate mongoTemplate;
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+  private final PaidTicketAggregates paidTicketAggregates;
+
+  @Value("${parkingmeter.spend-ledger.monthly-buckets:true}")
+  private boolean monthlyBuckets;
+
+  @Value("${parkingmeter.spend-ledger.backfill-on-startup:true}")
+  private boolean backfillOnStartup;
+
+  @Override
+  public void recordPayment(Ticket ticket) {
+    apply(ticket, 1);
+  }
+
+  @Override
+  public Mono<Void> recordPaymentReactive(Ticket ticket) {
+    return applyReactive(ticket, 1);
+  }
+
+  @Override
+  public void revertPayment(Ticket ticket) {
+    apply(ticket, -1);
+  }
+
+  @Override
+  public Mono<Void> revertPaymentReactive(Ticket ticket) {
+    return applyReactive(ticket, -1);
+  }
+
+  @Override
+  public void applyPayments(Collection<Ticket> paid, Collection<Ticket> reverted) {
+    if (paid.isEmpty() && reverted.isEmpty()) {
+      return;
+    }
+    BulkOperations bulkOperations =
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VehicleSpendLedger.class);
+    paid.forEach(ticket -> bulkOperations.upsert(ledgerQuery(ticket), ledgerUpdate(ticket, 1)));
+    reverted.forEach(
+        ticket -> bulkOperations.upsert(ledgerQuery(ticket), ledgerUpdate(ticket, -1)));
+    bulkOperations.execute();
+  }
+
+  @Override
+  public Optional<VehicleSpendLedger> getLedger(String licensePlate) {
+    return Optional.ofNullable(mongoTemplate.findById(licensePlate, VehicleSpendLedger.class));
+  }
+
+  /**
+   * Recomputes the whole ledger from the paid tickets, with the months taken in the JVM time zone
+   * as {@link #recordPayment} does.
+   */
+  @Override
+  public void rebuild() {
+    List<Document> pipeline = new ArrayList<>();
+    pipeline.add(
+        new Document(
+            "$match",
+            new Document("payment_status", PaymentStatusEnum.PAID.name())
+                .append("vehicle.license_plate", new Document("$ne", null))));
+    pipeline.add(
+        new Document(
+            "$group",
+            new Document(
+                    "_id",
+                    new Document("license_plate", "$vehicle.license_plate")
+                        .append(
+                            "month",
+                            new Document(
+                                "$dateToString",
+                                new Document("format", "%Y-%m")
+                                    .append("date", "$start_time")
+                                    .append("timezone", MongoTimeZone.id()))))
+                .append("spent", new Document("$sum", "$total_amount_charged"))
+                .append("tickets", new Document("$sum", 1))));
+    pipeline.add(
+        new Document(
+            "$group",
+            new Document("_id", "$_id.license_plate")
+                .append("total_spent", new Document("$sum", "$spent"))
+                .append("paid_tickets", new Document("$sum", "$tickets"))
+                .append(
+                    "months",
+                    new Document("$push", new Document("k", "$_id.month").append("v", "$spent")))));
+    pipeline.add(
+        new Document(
+            "$project",
+            new Document("total_spent", 1)
+                .append("paid_tickets", 1)
+                .append(
+                    "monthly_spent",
+                    monthlyBuckets ? new Document("$arrayToObject", "$months") : "$$REMOVE")));
+    paidTicketAggregates.rebuild(VehicleSpendLedger.class, pipeline);
+  }
+
+  /** Backfills an empty ledger before the application takes any payment. */
+  @Override
+  public void afterSingletonsInstantiated() {
+    backfill();
+  }
+
+  public void backfill() {
+    if (backfillOnStartup) {
+      paidTicketAggregates.backfill(VehicleSpendLedger.class, this::rebuild);
+    }
+  }
+
+  private void apply(Ticket ticket, int sign) {
+    mongoTemplate.upsert(ledgerQuery(ticket), ledgerUpdate(ticket, sign), VehicleSpendLedger.class);
+  }
+
+  private Mono<Void> applyReactive(Ticket ticket, int sign) {
+    return reactiveMongoTemplate
+        .upsert(ledgerQuery(ticket), ledgerUpdate(ticket, sign), VehicleSpendLedger.class)
+        .then();
+  }
+
+  private static Query ledgerQuery(Ticket ticket) {
+    return Query.query(
+        Criteria.where("licensePlate").is(ticket.getVehicle().getLicensePlate()));
+  }
+
+  private Update ledgerUpdate(Ticket ticket, int sign) {
+    double amount = sign * ticket.getTotalAmountCharged();
+    Update update = new Update().inc(TOTAL_SPENT, amount).inc(PAID_TICKETS, sign);
+    if (monthlyBuckets) {
+      update.inc(MONTHLY_SPENT + "." + YearMonth.from(ticket.getStartTime()), amount);
+    }
+    return update;
+  }
+}
@@ -2,33 +2,137 @@ package com.postech.fiap.parkingmeter.domain.util;
 
 import com.postech.fiap.parkingmeter.domain.model.*;
 import com.postech.fiap.parkingmeter.domain.model.dto.*;
-import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.stereotype.Component;
 
 @Component
-@RequiredArgsConstructor
 public class ConverterToDTO {
 
-  private final ModelMapper modelMapper;
-
   public OwnerDTO toDto(final Owner model) {
-    return modelMapper.map(model, OwnerDTO.class);
+    if (model == null) {
+      return null;
+    }
+    return OwnerDTO.builder()
+        .id(model.getId())
+        .name(model.getName())
+        .cpf(model.getCpf())
+        .phone(model.getPhone())
+        .email(model.getEmail())
+        .address(toDto(model.getAddress()))
+        .build();
   }
 
   public ParkingMeterDTO toDto(final ParkingMeter model) {
-    return modelMapper.map(model, ParkingMeterDTO.class);
+    if (model == null) {
+      return null;
+    }
+    return ParkingMeterDTO.builder()
+        .id(model.getId())
+        .operatingHours(toDto(model.getOperatingHours()))
+        .rate(toDto(model.getRate()))
+        .availableSpaces(model.getAvailableSpaces())
+        .address(toDto(model.getAddress()))
+        .location(toDto(model.getLocation()))
+        .version(model.getVersion() != null ? model.getVersion() : 0L)
+        .build();
+  }
+
+  public LocationDTO toDto(final GeoJsonPoint model) {
+    if (model == null) {
+      return null;
+    }
+    return LocationDTO.builder().latitude(model.getY()).longitude(model.getX()).build();
   }
 
   public TicketDTO toDto(final Ticket model) {
-    return modelMapper.map(model, TicketDTO.class);
+    return toDto(model, null, null);
+  }
+
+  /**
+   * Maps a ticket along with its current parking meter and vehicle, which supply the fields the
+   * ticket does not keep. The rate, address and license plate always come from the ticket; either
+   * entity is null when it no longer exists.
+   */
+  public TicketDTO toDto(
+      final Ticket model, final ParkingMeter parkingMeter, final Vehicle vehicle) {
+    if (model == null) {
+      return null;
+    }
+    return TicketDTO.builder()
+        .id(model.getId())
+        .totalAmountCharged(model.getTotalAmountCharged())
+        .startTime(model.getStartTime())
+        .endTime(model.getEndTime())
+        .paymentStatus(model.getPaymentStatus() != null ? model.getPaymentStatus().name() : null)
+        .parkingMeter(toDto(model.getParkingMeter(), parkingMeter))
+        .vehicle(toDto(model.getVehicle(), vehicle))
+        .build();
   }
 
   public VehicleDTO toDto(final Vehicle model) {
-    return modelMapper.map(model, VehicleDTO.class);
+    if (model == null) {
+      return null;
+    }
+    return VehicleDTO.builder()
+        .id(model.getId())
+        .licensePlate(model.getLicensePlate())
+        .model(model.getModel())
+        .color(model.getColor())
+        .owner(toDto(model.getOwner()))
+        .build();
   }
 
   public AddressDTO toDto(final Address model) {
-    return modelMapper.map(model, AddressDTO.class);
+    if (model == null) {
+      return null;
+    }
+    return AddressDTO.builder()
+        .street(model.getStreet())
+        .neighborhood(model.getNeighborhood())
+        .city(model.getCity())
+        .state(model.getState())
+        .zipCode(model.getZipCode())
+        .number(model.getNumber())
+        .complement(model.getComplement())
+        .build();
+  }
+
+  private ParkingMeterDTO toDto(final ParkingMeterSnapshot model, final ParkingMeter parkingMeter) {
+    if (model == null) {
+      return null;
+    }
+    ParkingMeterDTO parkingMeterDTO =
+        parkingMeter != null ? toDto(parkingMeter) : ParkingMeterDTO.builder().build();
+    parkingMeterDTO.setId(model.getId());
+    parkingMeterDTO.setRate(toDto(model.getRate()));
+    parkingMeterDTO.setAddress(toDto(model.getAddress()));
+    return parkingMeterDTO;
+  }
+
+  private VehicleDTO toDto(final VehicleSnapshot model, final Vehicle vehicle) {
+    if (model == null) {
+      return null;
+    }
+    VehicleDTO vehicleDTO = vehicle != null ? toDto(vehicle) : VehicleDTO.builder().build();
+    vehicleDTO.setId(model.getId());
+    vehicleDTO.setLicensePlate(model.getLicensePlate());
+    return vehicleDTO;
+  }
+
+  private OperatingHoursParkingDTO toDto(final OperationHours model) {
+    if (model == null) {
+      return null;
+    }
+    return OperatingHoursParkingDTO.builder().start(model.getStart()).end(model.getEnd()).build();
+  }
+
+  private RateDTO toDto(final Rate model) {
+    if (model == null) {
+      return null;
+    }
+    return RateDTO.builder()
+        .firstHour(model.getFirstHour())
+        .additionalHours(model.getAdditionalHours())
+        .build();
   }
 }
@@ -0,0 +1,44 @@
+package com.postech.fiap.parkingmeter.domain.util;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Widens date ranges to the configured bucket, so that dashboard requests issued a few seconds
+ * apart query (and cache) exactly the same range. A zero bucket leaves the dates untouched.
+ */
+@Component
+public class DateRangeNormalizer {
+
+  private final long bucketMillis;
+
+  public DateRangeNormalizer(@Value("${parkingmeter.cache.date-bucket:PT1M}") Duration bucket) {
+    this.bucketMillis = bucket.toMillis();
+  }
+
+  public Instant floor(Instant instant) {
+    if (bucketMillis <= 0) {
+      return instant;
+    }
+    return Instant.ofEpochMilli(Math.floorDiv(instant.toEpochMilli(), bucketMillis) * bucketMillis);
+  }
+
+  public Instant ceil(Instant instant) {
+    Instant floor = floor(instant);
+    return floor.equals(instant) ? instant : floor.plusMillis(bucketMillis);
+  }
+
+  public LocalDateTime floor(LocalDateTime dateTime) {
+    ZoneId zone = ZoneId.systemDefault();
+    return LocalDateTime.ofInstant(floor(dateTime.atZone(zone).toInstant()), zone);
+  }
+
+  public LocalDateTime ceil(LocalDateTime dateTime) {
+    ZoneId zone = ZoneId.systemDefault();
+    return LocalDateTime.ofInstant(ceil(dateTime.atZone(zone).toInstant()), zone);
+  }
+}
@@ -0,0 +1,160 @@
+package com.postech.fiap.parkingmeter.domain.util;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
+import com.postech.fiap.parkingmeter.infrastructure.exception.CursorException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+import org.bson.BSONException;
+import org.bson.Document;
+import org.bson.json.JsonParseException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pages through a collection by keyset instead of offset: each page continues from the sort key
+ * and {@code _id} of the last document of the previous one, so deep pages cost the same as the
+ * first and no total count is run. The position travels to the client as an opaque cursor, the
+ * Base64 of the keys in extended JSON; values go through the mapping converter so dates compare
+ * exactly as they were stored.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class KeysetPaginator {
+
+  public static final int MAX_SIZE = 500;
+
+  private final MongoTemplate mongoTemplate;
+
+  public <T, D> CursorPageDTO<D> scroll(
+      Query query, Sort sort, String cursor, int size, Class<T> type, Function<T, D> mapper) {
+    return scrollAndMap(
+        query, sort, cursor, size, type, content -> content.stream().map(mapper).toList());
+  }
+
+  /** Same as {@link #scroll}, but maps the whole window at once. */
+  public <T, D> CursorPageDTO<D> scrollAndMap(
+      Query query,
+      Sort sort,
+      String cursor,
+      int size,
+      Class<T> type,
+      Function<List<T>, List<D>> contentMapper) {
+    if (size < 1 || size > MAX_SIZE) {
+      throw new CursorException(
+          "Page size must be between 1 and " + MAX_SIZE, HttpStatus.BAD_REQUEST);
+    }
+
+    Window<T> window =
+        mongoTemplate.scroll(query.with(sort).with(decode(cursor)).limit(size), type);
+
+    return CursorPageDTO.<D>builder()
+        .content(contentMapper.apply(window.getContent()))
+        .size(window.size())
+        .hasNext(window.hasNext())
+        .nextCursor(
+            window.hasNext()
+                ? encode((KeysetScrollPosition) window.positionAt(window.size() - 1))
+                : null)
+        .build();
+  }
+
+  /**
+   * Same as {@link #scrollAndMap}, over several collections holding documents of the same type.
+   * Each collection is scrolled from the cursor, and the windows are merged on their sort keys.
+   */
+  public <T, D> CursorPageDTO<D> scrollAndMap(
+      Query query,
+      Sort sort,
+      String cursor,
+      int size,
+      Class<T> type,
+      List<String> collections,
+      Function<List<T>, List<D>> contentMapper) {
+    if (size < 1 || size > MAX_SIZE) {
+      throw new CursorException(
+          "Page size must be between 1 and " + MAX_SIZE, HttpStatus.BAD_REQUEST);
+    }
+
+    KeysetScrollPosition position = decode(cursor);
+    List<Keyed<T>> merged = new ArrayList<>();
+    boolean hasMore = false;
+    for (String collection : collections) {
+      Window<T> window =
+          mongoTemplate.scroll(
+              Query.of(query).with(sort).with(position).limit(size), type, collection);
+      hasMore |= window.hasNext();
+      for (int i = 0; i < window.size(); i++) {
+        merged.add(
+            new Keyed<>(
+                window.getContent().get(i), (KeysetScrollPosition) window.positionAt(i)));
+      }
+    }
+    merged.sort((a, b) -> compareKeys(a.position(), b.position(), sort));
+
+    boolean hasNext = hasMore || merged.size() > size;
+    List<Keyed<T>> page = merged.subList(0, Math.min(size, merged.size()));
+    return CursorPageDTO.<D>builder()
+        .content(contentMapper.apply(page.stream().map(Keyed::value).toList()))
+        .size(page.size())
+        .hasNext(hasNext)
+        .nextCursor(hasNext ? encode(page.get(page.size() - 1).position()) : null)
+        .build();
+  }
+
+  String encode(KeysetScrollPosition position) {
+    Document keys = new Document();
+    position
+        .getKeys()
+        .forEach(
+            (key, value) ->
+                keys.put(key, mongoTemplate.getConverter().convertToMongoType(value)));
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(keys.toJson().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareKeys(KeysetScrollPosition a, KeysetScrollPosition b, Sort sort) {
+    for (Map.Entry<String, Object> key : a.getKeys().entrySet()) {
+      Object left = key.getValue();
+      Object right = b.getKeys().get(key.getKey());
+      if (!(left instanceof Comparable) || right == null || left.equals(right)) {
+        continue;
+      }
+      Sort.Order order = sort.getOrderFor(key.getKey());
+      int comparison = ((Comparable) left).compareTo(right);
+      return order != null && order.isDescending() ? -comparison : comparison;
+    }
+    return 0;
+  }
+
+  KeysetScrollPosition decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return ScrollPosition.keyset();
+    }
+    try {
+      Document keys =
+          Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+      if (keys.isEmpty()) {
+        throw new CursorException("Invalid cursor", HttpStatus.BAD_REQUEST);
+      }
+      return ScrollPosition.forward(keys);
+    } catch (IllegalArgumentException | BSONException | JsonParseException e) {
+      throw new CursorException("Invalid cursor", HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  private record Keyed<T>(T value, KeysetScrollPosition position) {}
+}
@@ -0,0 +1,21 @@
+package com.postech.fiap.parkingmeter.domain.util;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Name of the JVM time zone as the aggregation date operators expect it, so that buckets computed
+ * by the server match the ones computed from {@code LocalDateTime} values in Java.
+ */
+public final class MongoTimeZone {
+
+  private MongoTimeZone() {}
+
+  public static String id() {
+    ZoneId zone = ZoneId.systemDefault().normalized();
+    if (zone instanceof ZoneOffset offset) {
+      return offset.equals(ZoneOffset.UTC) ? "UTC" : offset.getId();
+    }
+    return zone.getId();
+  }
+}
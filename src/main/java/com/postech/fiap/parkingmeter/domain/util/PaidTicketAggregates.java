@@ -0,0 +1,70 @@
+package com.postech.fiap.parkingmeter.domain.util;
+
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the collections aggregated from the paid tickets, such as the earnings rollup and the
+ * vehicle spend ledger. A rebuild runs its pipeline over the ticket collection and every archive
+ * and replaces the collection with {@code $out}, so a payment recorded into the old collection
+ * after the pipeline read its ticket is lost. The startup backfill is therefore run before the web
+ * server accepts requests and before the scheduled tasks start; a rebuild requested later must be
+ * run while no payments are taken.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class PaidTicketAggregates {
+
+  private final MongoTemplate mongoTemplate;
+  private final TicketArchiveService ticketArchiveService;
+  private final TieredTicketQueries tieredTicketQueries;
+
+  /**
+   * Runs {@code pipeline}, which starts with a {@code $match} on the tickets, over every ticket
+   * collection and replaces the collection of {@code target} with its output.
+   */
+  public void rebuild(Class<?> target, List<Document> pipeline) {
+    String collectionName = mongoTemplate.getCollectionName(target);
+    log.info("Rebuilding {}", collectionName);
+    List<Document> stages = new ArrayList<>(pipeline);
+    stages.add(new Document("$out", collectionName));
+
+    List<String> collections = ticketArchiveService.getCollections();
+    mongoTemplate
+        .getCollection(collections.get(0))
+        .aggregate(TieredTicketQueries.acrossCollections(stages, collections))
+        .allowDiskUse(true)
+        .toCollection();
+    log.info("Rebuilt {}", collectionName);
+  }
+
+  /**
+   * Calls {@code rebuild} when the collection of {@code target} is empty while there are paid
+   * tickets, which is the case the first time the application starts with it. A failure is logged
+   * and leaves the collection as it was.
+   */
+  public void backfill(Class<?> target, Runnable rebuild) {
+    try {
+      if (mongoTemplate.estimatedCount(target) == 0
+          && tieredTicketQueries.exists(
+              Query.query(Criteria.where("paymentStatus").is(PaymentStatusEnum.PAID)),
+              ticketArchiveService.getCollections())) {
+        rebuild.run();
+      }
+    } catch (RuntimeException e) {
+      log.warn(
+          "Unable to backfill {}: {}", mongoTemplate.getCollectionName(target), e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.postech.fiap.parkingmeter.domain.util;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public final class TicketChargeCalculator {
+
+  private TicketChargeCalculator() {}
+
+  public static double getTotalAmountCharged(
+      LocalDateTime startHour,
+      LocalDateTime endHour,
+      double valueFirstHour,
+      double valueOtherHours) {
+    long totalHours = ChronoUnit.MINUTES.between(startHour, endHour);
+    double roundedHours = Math.ceil(totalHours / 60.0);
+
+    if (roundedHours <= 1) {
+      return valueFirstHour;
+    }
+
+    double otherHoursCharge = (roundedHours - 1) * valueOtherHours;
+
+    return valueFirstHour + otherHoursCharge;
+  }
+}
@@ -0,0 +1,94 @@
+package com.postech.fiap.parkingmeter.domain.util;
+
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
+import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Builds the {@link TicketDTO} of tickets, which only keep the parking meter and vehicle fields
+ * frozen at issuance. The other fields come from the current parking meters and vehicles, read
+ * through the snapshot caches with a single query for all the tickets of a page.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class TicketDtoAssembler {
+
+  private final TicketSnapshotService ticketSnapshotService;
+  private final ConverterToDTO converterToDTO;
+
+  public TicketDTO toDto(Ticket ticket) {
+    return mapper(List.of(ticket)).apply(ticket);
+  }
+
+  public List<TicketDTO> toDtos(List<Ticket> tickets) {
+    return tickets.stream().map(mapper(tickets)).toList();
+  }
+
+  public Page<TicketDTO> toDtos(Page<Ticket> page) {
+    return page.map(mapper(page.getContent()));
+  }
+
+  public Slice<TicketDTO> toDtos(Slice<Ticket> slice) {
+    return slice.map(mapper(slice.getContent()));
+  }
+
+  public Mono<TicketDTO> toDtoReactive(Ticket ticket) {
+    Mono<Optional<ParkingMeter>> parkingMeter =
+        parkingMeterId(ticket) == null
+            ? Mono.just(Optional.empty())
+            : ticketSnapshotService
+                .getParkingMeterReactive(parkingMeterId(ticket))
+                .map(Optional::of)
+                .onErrorReturn(ParkingMeterException.class, Optional.empty());
+    Mono<Optional<Vehicle>> vehicle =
+        vehicleId(ticket) == null
+            ? Mono.just(Optional.empty())
+            : ticketSnapshotService.getVehicleReactive(vehicleId(ticket)).map(Optional::of)
+                .onErrorReturn(VehicleException.class, Optional.empty());
+    return Mono.zip(parkingMeter, vehicle)
+        .map(
+            current ->
+                converterToDTO.toDto(
+                    ticket, current.getT1().orElse(null), current.getT2().orElse(null)));
+  }
+
+  private Function<Ticket, TicketDTO> mapper(Collection<Ticket> tickets) {
+    Map<String, ParkingMeter> parkingMeters =
+        ticketSnapshotService.getParkingMeters(ids(tickets, TicketDtoAssembler::parkingMeterId));
+    Map<String, Vehicle> vehicles =
+        ticketSnapshotService.getVehicles(ids(tickets, TicketDtoAssembler::vehicleId));
+    return ticket ->
+        converterToDTO.toDto(
+            ticket, parkingMeters.get(parkingMeterId(ticket)), vehicles.get(vehicleId(ticket)));
+  }
+
+  private static Set<String> ids(Collection<Ticket> tickets, Function<Ticket, String> id) {
+    return tickets.stream().map(id).filter(Objects::nonNull).collect(Collectors.toSet());
+  }
+
+  private static String parkingMeterId(Ticket ticket) {
+    return ticket.getParkingMeter() != null ? ticket.getParkingMeter().getId() : null;
+  }
+
+  private static String vehicleId(Ticket ticket) {
+    return ticket.getVehicle() != null ? ticket.getVehicle().getId() : null;
+  }
+}
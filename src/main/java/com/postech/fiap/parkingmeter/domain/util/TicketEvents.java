@@ -0,0 +1,95 @@
+package com.postech.fiap.parkingmeter.domain.util;
+
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.TicketEvent;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterActivityDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.ActivityIntervalEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketEventTypeEnum;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Derives the events of the ticket event stream from the versions of a ticket, for the change
+ * stream, the rebuilds and the queries that read the tickets while the stream is behind.
+ */
+public final class TicketEvents {
+
+  private TicketEvents() {}
+
+  /**
+   * The events a ticket went through from {@code before}, which is {@code null} for a new ticket,
+   * to {@code after}. A payment is dated by the end time of the ticket; a cancellation, which does
+   * not record its time on the ticket, by {@code occurredAt}.
+   */
+  public static List<TicketEvent> between(Ticket before, Ticket after, LocalDateTime occurredAt) {
+    if (after == null || after.getParkingMeter() == null || after.getStartTime() == null) {
+      return List.of();
+    }
+
+    List<TicketEvent> events = new ArrayList<>();
+    if (before == null) {
+      events.add(event(after, TicketEventTypeEnum.CREATE, after.getStartTime(), 0));
+    }
+
+    PaymentStatusEnum previous =
+        before != null ? before.getPaymentStatus() : PaymentStatusEnum.PENDING;
+    PaymentStatusEnum current = after.getPaymentStatus();
+    if (current == PaymentStatusEnum.PAID && previous != PaymentStatusEnum.PAID) {
+      events.add(
+          event(
+              after,
+              TicketEventTypeEnum.PAY,
+              after.getEndTime() != null ? after.getEndTime() : occurredAt,
+              after.getTotalAmountCharged()));
+    }
+    if (current == PaymentStatusEnum.CANCELLED && previous != PaymentStatusEnum.CANCELLED) {
+      events.add(
+          event(
+              after,
+              TicketEventTypeEnum.CANCEL,
+              occurredAt,
+              previous == PaymentStatusEnum.PAID ? -before.getTotalAmountCharged() : 0));
+    }
+    return events;
+  }
+
+  /** The events of a ticket as it is stored now, dating a cancellation by its end or start time. */
+  public static List<TicketEvent> of(Ticket ticket) {
+    return between(
+        null, ticket, ticket.getEndTime() != null ? ticket.getEndTime() : ticket.getStartTime());
+  }
+
+  /** Sums events into one entry per interval, in time order. */
+  public static List<ParkingMeterActivityDTO> activity(
+      Iterable<TicketEvent> events, ActivityIntervalEnum interval) {
+    Map<LocalDateTime, ParkingMeterActivityDTO> activity = new TreeMap<>();
+    for (TicketEvent event : events) {
+      ParkingMeterActivityDTO bucket =
+          activity.computeIfAbsent(
+              event.getTimestamp().truncatedTo(interval.getUnit()),
+              start -> ParkingMeterActivityDTO.builder().start(start).build());
+      switch (event.getType()) {
+        case CREATE -> bucket.setTicketsIssued(bucket.getTicketsIssued() + 1);
+        case PAY -> bucket.setTicketsPaid(bucket.getTicketsPaid() + 1);
+        case CANCEL -> bucket.setTicketsCancelled(bucket.getTicketsCancelled() + 1);
+      }
+      bucket.setEarned(bucket.getEarned() + event.getAmount());
+    }
+    return new ArrayList<>(activity.values());
+  }
+
+  private static TicketEvent event(
+      Ticket ticket, TicketEventTypeEnum type, LocalDateTime timestamp, double amount) {
+    return TicketEvent.builder()
+        .timestamp(timestamp)
+        .parkingMeterId(ticket.getParkingMeter().getId())
+        .ticketId(ticket.getId())
+        .type(type)
+        .amount(amount)
+        .build();
+  }
+}
@@ -0,0 +1,241 @@
+package com.postech.fiap.parkingmeter.domain.util;
+
+import com.mongodb.client.FindIterable;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a ticket query over the ticket collection and the archives it needs, as if they were one
+ * collection. A page reads each collection sorted and cut to the end of the page, and merges them
+ * on the sort keys; totals are the sum of one count per collection. The queries run inside the
+ * read-only service transactions, which do not allow {@code $unionWith}, so that stage is only
+ * used by the rebuilds.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class TieredTicketQueries {
+
+  private final MongoTemplate mongoTemplate;
+
+  public Page<Ticket> findPage(Query query, Pageable pageable, List<String> collections) {
+    List<Ticket> content = find(query, pageable, 0, collections);
+    return PageableExecutionUtils.getPage(content, pageable, () -> count(query, collections));
+  }
+
+  public Slice<Ticket> findSlice(Query query, Pageable pageable, List<String> collections) {
+    List<Ticket> content = find(query, pageable, 1, collections);
+    boolean hasNext = pageable.isPaged() && content.size() > pageable.getPageSize();
+    return new SliceImpl<>(
+        hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+  }
+
+  public long count(Query query, List<String> collections) {
+    return collections.stream()
+        .mapToLong(collection -> mongoTemplate.count(query, Ticket.class, collection))
+        .sum();
+  }
+
+  public boolean exists(Query query, List<String> collections) {
+    return collections.stream()
+        .anyMatch(collection -> mongoTemplate.exists(query, Ticket.class, collection));
+  }
+
+  /**
+   * Streams the tickets of every collection merged in {@code order}, which must be the order the
+   * query sorts by. Closing the stream closes the cursor of every collection.
+   */
+  public Stream<Ticket> stream(Query query, List<String> collections, Comparator<Ticket> order) {
+    if (collections.size() == 1) {
+      return mongoTemplate.stream(query, Ticket.class, collections.get(0));
+    }
+    List<Stream<Ticket>> streams =
+        collections.stream()
+            .map(collection -> mongoTemplate.stream(query, Ticket.class, collection))
+            .toList();
+    Iterator<Ticket> merged =
+        new MergingIterator<>(streams.stream().map(Stream::iterator).toList(), order);
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+        .onClose(() -> streams.forEach(Stream::close));
+  }
+
+  /**
+   * Aggregates the tickets matching {@code query} in each collection with the given stages, which
+   * use the field names as stored, and returns the results of every collection one after another.
+   */
+  public <T> List<T> aggregate(
+      Query query, List<Document> stages, Class<T> type, List<String> collections) {
+    List<Document> pipeline = new ArrayList<>();
+    pipeline.add(new Document("$match", mappedQuery(query)));
+    pipeline.addAll(stages);
+
+    List<T> results = new ArrayList<>();
+    for (String collection : collections) {
+      mongoTemplate
+          .getCollection(collection)
+          .aggregate(pipeline)
+          .allowDiskUse(true)
+          .map(document -> mongoTemplate.getConverter().read(type, document))
+          .into(results);
+    }
+    return results;
+  }
+
+  /**
+   * Runs {@code pipeline}, which starts with a {@code $match} and is meant for the first of the
+   * collections, over all of them: the documents each other collection matches are added with
+   * {@code $unionWith} right after the first stage.
+   */
+  public static List<Document> acrossCollections(
+      List<Document> pipeline, List<String> collections) {
+    List<Document> across = new ArrayList<>(union(pipeline.subList(0, 1), collections));
+    across.addAll(pipeline.subList(1, pipeline.size()));
+    return across;
+  }
+
+  private List<Ticket> find(Query query, Pageable pageable, int extra, List<String> collections) {
+    Document filter = mappedQuery(query);
+    Document sort =
+        queryMapper()
+            .getMappedSort(new Query().with(pageable.getSort()).getSortObject(), entity());
+
+    List<Document> merged = new ArrayList<>();
+    for (String collection : collections) {
+      FindIterable<Document> tickets =
+          mongoTemplate.getCollection(collection).find(filter).sort(sort);
+      if (pageable.isPaged()) {
+        tickets.limit(Math.toIntExact(pageable.getOffset() + pageable.getPageSize() + extra));
+      }
+      tickets.into(merged);
+    }
+    merged.sort(comparator(sort));
+
+    Stream<Document> page = merged.stream();
+    if (pageable.isPaged()) {
+      page = page.skip(pageable.getOffset()).limit(pageable.getPageSize() + extra);
+    }
+    return page.map(document -> mongoTemplate.getConverter().read(Ticket.class, document)).toList();
+  }
+
+  private static List<Document> union(List<Document> branch, List<String> collections) {
+    List<Document> pipeline = new ArrayList<>(branch);
+    collections.stream()
+        .skip(1)
+        .forEach(
+            collection ->
+                pipeline.add(
+                    new Document(
+                        "$unionWith",
+                        new Document("coll", collection).append("pipeline", branch))));
+    return pipeline;
+  }
+
+  /** Orders documents as the server sorts them, for the values a ticket field can hold. */
+  private static Comparator<Document> comparator(Document sort) {
+    Comparator<Document> comparator = (a, b) -> 0;
+    for (Map.Entry<String, Object> key : sort.entrySet()) {
+      List<String> path = List.of(key.getKey().split("\\."));
+      Comparator<Document> byKey =
+          (a, b) -> compareValues(value(a, path), value(b, path));
+      comparator =
+          comparator.thenComparing(
+              ((Number) key.getValue()).intValue() < 0 ? byKey.reversed() : byKey);
+    }
+    return comparator;
+  }
+
+  private static Object value(Document document, List<String> path) {
+    Object value = document;
+    for (String key : path) {
+      if (!(value instanceof Document embedded)) {
+        return null;
+      }
+      value = embedded.get(key);
+    }
+    return value;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareValues(Object a, Object b) {
+    if (a == null || b == null) {
+      return a == null ? (b == null ? 0 : -1) : 1;
+    }
+    if (a instanceof Comparable comparable && a.getClass() == b.getClass()) {
+      return comparable.compareTo(b);
+    }
+    return 0;
+  }
+
+  private Document mappedQuery(Query query) {
+    return queryMapper().getMappedObject(query.getQueryObject(), entity());
+  }
+
+  private QueryMapper queryMapper() {
+    return new QueryMapper(mongoTemplate.getConverter());
+  }
+
+  private MongoPersistentEntity<?> entity() {
+    return mongoTemplate
+        .getConverter()
+        .getMappingContext()
+        .getRequiredPersistentEntity(Ticket.class);
+  }
+
+  /** Merges iterators that are each already in {@code order}. */
+  private static final class MergingIterator<T> implements Iterator<T> {
+
+    private final PriorityQueue<Head<T>> heads;
+
+    MergingIterator(List<Iterator<T>> iterators, Comparator<T> order) {
+      this.heads = new PriorityQueue<>((a, b) -> order.compare(a.value, b.value));
+      iterators.stream().filter(Iterator::hasNext).forEach(it -> heads.add(new Head<>(it)));
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+      Head<T> head = heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      T value = head.value;
+      if (head.iterator.hasNext()) {
+        heads.add(new Head<>(head.iterator));
+      }
+      return value;
+    }
+
+    private record Head<T>(Iterator<T> iterator, T value) {
+      Head(Iterator<T> iterator) {
+        this(iterator, iterator.next());
+      }
+    }
+  }
+}
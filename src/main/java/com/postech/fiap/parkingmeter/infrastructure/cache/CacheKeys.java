@@ -0,0 +1,73 @@
+package com.postech.fiap.parkingmeter.infrastructure.cache;
+
+import com.postech.fiap.parkingmeter.domain.model.enums.PageModeEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.util.DateRangeNormalizer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the keys of the cached ticket queries. Referenced from the {@code @Cacheable} annotations
+ * as {@code @cacheKeys}; {@link TicketCacheInvalidator} relies on the same key types to find the
+ * entries affected by a ticket change.
+ */
+@Component("cacheKeys")
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class CacheKeys {
+
+  private final DateRangeNormalizer dateRangeNormalizer;
+
+  public DateRangeKey dateRange(LocalDateTime start, LocalDateTime end, Pageable pageable) {
+    return dateRange(start, end, pageable, PageModeEnum.PAGE);
+  }
+
+  public DateRangeKey dateRange(
+      LocalDateTime start, LocalDateTime end, Pageable pageable, PageModeEnum mode) {
+    return dateRange(toInstant(start), toInstant(end), PageKey.of(pageable, mode));
+  }
+
+  public DateRangeKey dateRange(String start, String end, Pageable pageable) {
+    return dateRange(Instant.parse(start), Instant.parse(end), PageKey.of(pageable));
+  }
+
+  public StatusKey status(PaymentStatusEnum status, Pageable pageable, PageModeEnum mode) {
+    return new StatusKey(status, PageKey.of(pageable, mode));
+  }
+
+  public static Instant toInstant(LocalDateTime dateTime) {
+    return dateTime.atZone(ZoneId.systemDefault()).toInstant();
+  }
+
+  private DateRangeKey dateRange(Instant start, Instant end, PageKey page) {
+    return new DateRangeKey(dateRangeNormalizer.floor(start), dateRangeNormalizer.ceil(end), page);
+  }
+
+  public record DateRangeKey(Instant start, Instant end, PageKey page) {
+
+    public boolean covers(Instant instant) {
+      return !instant.isBefore(start) && !instant.isAfter(end);
+    }
+  }
+
+  public record StatusKey(PaymentStatusEnum status, PageKey page) {}
+
+  public record PageKey(int number, int size, String sort, PageModeEnum mode) {
+
+    static PageKey of(Pageable pageable) {
+      return of(pageable, PageModeEnum.PAGE);
+    }
+
+    static PageKey of(Pageable pageable, PageModeEnum mode) {
+      if (pageable == null || pageable.isUnpaged()) {
+        return new PageKey(-1, -1, "", mode);
+      }
+      return new PageKey(
+          pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString(), mode);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.postech.fiap.parkingmeter.infrastructure.cache;
+
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.infrastructure.cache.CacheKeys.DateRangeKey;
+import com.postech.fiap.parkingmeter.infrastructure.cache.CacheKeys.StatusKey;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts only the cached query results that a ticket change can affect: date range entries whose
+ * range contains the ticket start time, status entries for the statuses the ticket moved between
+ * and the total spent by the ticket vehicle.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class TicketCacheInvalidator {
+
+  public static final String RANKED_PARKING_METERS_BY_DATE = "rankedParkingMetersByDate";
+  public static final String TOTAL_SPENT_BY_VEHICLE = "totalGastoVeiculo";
+  public static final String TICKETS_BY_DATE_RANGE = "ticketsPorIntervaloDeData";
+  public static final String TICKETS_BY_STATUS = "ticketsPorStatus";
+  public static final String BUSY_HOURS = "busyHours";
+
+  private final CacheManager cacheManager;
+
+  public void ticketChanged(
+      LocalDateTime startTime, String licensePlate, PaymentStatusEnum... statuses) {
+    Instant start = CacheKeys.toInstant(startTime);
+    Predicate<Object> coversStart = key -> key instanceof DateRangeKey range && range.covers(start);
+
+    evictIf(TICKETS_BY_DATE_RANGE, coversStart);
+    evictIf(BUSY_HOURS, coversStart);
+    evictIf(RANKED_PARKING_METERS_BY_DATE, coversStart);
+
+    Set<PaymentStatusEnum> changedStatuses = EnumSet.noneOf(PaymentStatusEnum.class);
+    Collections.addAll(changedStatuses, statuses);
+    evictIf(
+        TICKETS_BY_STATUS,
+        key -> key instanceof StatusKey status && changedStatuses.contains(status.status()));
+
+    if (licensePlate != null) {
+      Cache cache = cacheManager.getCache(TOTAL_SPENT_BY_VEHICLE);
+      if (cache != null) {
+        cache.evict(licensePlate);
+      }
+    }
+  }
+
+  private void evictIf(String cacheName, Predicate<Object> predicate) {
+    Cache cache = cacheManager.getCache(cacheName);
+    if (cache instanceof TransactionAwareCacheDecorator decorator) {
+      cache = decorator.getTargetCache();
+    }
+
+    if (cache instanceof CaffeineCache caffeineCache) {
+      caffeineCache.getNativeCache().asMap().keySet().removeIf(predicate);
+    } else if (cache != null) {
+      cache.clear();
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.postech.fiap.parkingmeter.infrastructure.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheSpecProperties.class)
+public class CacheConfig {
+
+  @Bean
+  public CacheManager cacheManager(CacheSpecProperties cacheSpecProperties) {
+    CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    cacheManager.setCacheSpecification(cacheSpecProperties.getDefaultSpec());
+    cacheManager.setAllowNullValues(false);
+
+    cacheSpecProperties
+        .getSpecs()
+        .forEach(
+            (name, spec) -> cacheManager.registerCustomCache(name, Caffeine.from(spec).build()));
+
+    return new TransactionAwareCacheManagerProxy(cacheManager);
+  }
+}
@@ -0,0 +1,15 @@
+package com.postech.fiap.parkingmeter.infrastructure.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "parkingmeter.cache")
+public class CacheSpecProperties {
+
+  private String defaultSpec = "maximumSize=100,expireAfterWrite=1m,recordStats";
+
+  private Map<String, String> specs = new LinkedHashMap<>();
+}
@@ -5,7 +5,10 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.reactive.TransactionalOperator;
 
 @Configuration
 @EnableTransactionManagement
@@ -16,4 +19,15 @@ public class MongoTransactionConfig {
   public MongoTransactionManager transactionManager(MongoDatabaseFactory dbFactory) {
     return new MongoTransactionManager(dbFactory);
   }
+
+  /**
+   * The reactive transaction manager is deliberately not a bean: a second transaction manager
+   * would make every {@code @Transactional} service ambiguous. The reactive services demarcate
+   * their transactions with this operator instead.
+   */
+  @Bean
+  public TransactionalOperator reactiveTransactionalOperator(
+      ReactiveMongoDatabaseFactory reactiveDbFactory) {
+    return TransactionalOperator.create(new ReactiveMongoTransactionManager(reactiveDbFactory));
+  }
 }
@@ -0,0 +1,12 @@
+package com.postech.fiap.parkingmeter.infrastructure.config;
+
+import com.postech.fiap.parkingmeter.domain.model.enums.PageModeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "parkingmeter.pagination")
+public class PaginationProperties {
+
+  private PageModeEnum ticketMode = PageModeEnum.PAGE;
+}
@@ -0,0 +1,10 @@
+package com.postech.fiap.parkingmeter.infrastructure.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableAsync(proxyTargetClass = true)
+@EnableScheduling
+public class SchedulingConfig {}
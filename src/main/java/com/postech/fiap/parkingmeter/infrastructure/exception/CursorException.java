@@ -0,0 +1,15 @@
+package com.postech.fiap.parkingmeter.infrastructure.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class CursorException extends RuntimeException {
+
+  private final HttpStatus status;
+
+  public CursorException(String message, HttpStatus status) {
+    super(message);
+    this.status = status;
+  }
+}
@@ -75,6 +75,11 @@ public class RestExceptionHandler {
     return ResponseEntity.status(ex.getStatus()).body(ex.getMessage());
   }
 
+  @ExceptionHandler(CursorException.class)
+  public ResponseEntity<String> cursorException(CursorException ex) {
+    return ResponseEntity.status(ex.getStatus()).body(ex.getMessage());
+  }
+
   @ExceptionHandler(MissingServletRequestParameterException.class)
   public ResponseEntity<String> missingServletRequestParameterException(
       MissingServletRequestParameterException ex) {
@@ -0,0 +1,195 @@
+package com.postech.fiap.parkingmeter.infrastructure.index;
+
+import com.postech.fiap.parkingmeter.domain.model.BusyHourProjection;
+import com.postech.fiap.parkingmeter.domain.model.EarningsRollup;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.VehicleVisitProjection;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Declares the indexes the repository queries rely on and builds them in the background once the
+ * application is ready. The indexes the old {@code @Indexed} annotations built on the ticket
+ * collection are dropped first: they only slow down ticket writes. Any other index that is not
+ * declared here is left in place and logged, since it may have been created by an operator.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class IndexBootstrapper {
+
+  private static final List<Index> TICKET_INDEXES =
+      List.of(
+          new Index()
+              .on("parkingMeter._id", Direction.ASC)
+              .on("payment_status", Direction.ASC)
+              .on("start_time", Direction.ASC)
+              .named("parking_meter_status_start_time")
+              .background(),
+          new Index()
+              .on("payment_status", Direction.ASC)
+              .on("vehicle._id", Direction.ASC)
+              .named("status_vehicle")
+              .background(),
+          new Index()
+              .on("payment_status", Direction.ASC)
+              .on("parkingMeter._id", Direction.ASC)
+              .named("status_parking_meter")
+              .background(),
+          new Index()
+              .on("payment_status", Direction.ASC)
+              .on("_id", Direction.ASC)
+              .named("status_id")
+              .background(),
+          new Index()
+              .on("start_time", Direction.ASC)
+              .on("parkingMeter._id", Direction.ASC)
+              .named("start_time_parking_meter")
+              .background(),
+          new Index()
+              .on("start_time", Direction.ASC)
+              .on("_id", Direction.ASC)
+              .named("start_time_id")
+              .background(),
+          new Index()
+              .on("vehicle.license_plate", Direction.ASC)
+              .named("vehicle_license_plate")
+              .background());
+
+  private static final List<GeospatialIndex> PARKING_METER_INDEXES =
+      List.of(
+          new GeospatialIndex("location")
+              .typed(GeoSpatialIndexType.GEO_2DSPHERE)
+              .named("location_2dsphere"));
+
+  private static final List<Index> EARNINGS_ROLLUP_INDEXES =
+      List.of(
+          new Index()
+              .on("parking_meter_id", Direction.ASC)
+              .on("hour", Direction.ASC)
+              .named("parking_meter_hour")
+              .unique()
+              .background());
+
+  private static final List<Index> BUSY_HOUR_PROJECTION_INDEXES =
+      List.of(
+          new Index()
+              .on("hour", Direction.ASC)
+              .on("parking_meter_id", Direction.ASC)
+              .named("hour_parking_meter")
+              .unique()
+              .background());
+
+  private static final List<Index> VEHICLE_VISIT_PROJECTION_INDEXES =
+      List.of(
+          new Index()
+              .on("parking_meter_id", Direction.ASC)
+              .on("license_plate", Direction.ASC)
+              .on("day", Direction.ASC)
+              .named("parking_meter_license_plate_day")
+              .unique()
+              .background());
+
+  /** Names of the indexes the old annotations on the ticket and its embedded documents built. */
+  private static final Set<String> LEGACY_TICKET_INDEXES =
+      Set.of(
+          "start_time",
+          "end_time",
+          "payment_status",
+          "parkingMeter",
+          "parkingMeter.operating_hours",
+          "parkingMeter.available_spaces",
+          "parkingMeter.address",
+          "parkingMeter.address.zipCode",
+          "vehicle",
+          "vehicle.license_plate",
+          "vehicle.owner",
+          "vehicle.owner.cpf",
+          "vehicle.owner.email");
+  private static final String ID_INDEX = "_id_";
+
+  private final MongoTemplate mongoTemplate;
+  private final IndexUsageEndpoint indexUsageEndpoint;
+
+  @Value("${parkingmeter.indexes.create-on-startup:true}")
+  private boolean createOnStartup;
+
+  @Async
+  @EventListener(ApplicationReadyEvent.class)
+  public void createOnStartup() {
+    if (!createOnStartup) {
+      return;
+    }
+    try {
+      ensureIndexes();
+      indexUsageEndpoint.indexUsage().forEach(usage -> log.info("{}", usage));
+    } catch (RuntimeException e) {
+      log.warn("Unable to create indexes: {}", e.getMessage());
+    }
+  }
+
+  public void ensureIndexes() {
+    ensureTicketIndexes(mongoTemplate.getCollectionName(Ticket.class));
+    mongoTemplate.getCollectionNames().stream()
+        .filter(name -> name.startsWith(TicketArchiveService.ARCHIVE_PREFIX))
+        .forEach(this::ensureTicketIndexes);
+    ensureIndexes(ParkingMeter.class, PARKING_METER_INDEXES);
+    ensureIndexes(EarningsRollup.class, EARNINGS_ROLLUP_INDEXES);
+    ensureIndexes(BusyHourProjection.class, BUSY_HOUR_PROJECTION_INDEXES);
+    ensureIndexes(VehicleVisitProjection.class, VEHICLE_VISIT_PROJECTION_INDEXES);
+  }
+
+  /** The ticket archives are queried like the ticket collection, so they get the same indexes. */
+  public void ensureTicketIndexes(String collectionName) {
+    ensureIndexes(collectionName, TICKET_INDEXES, LEGACY_TICKET_INDEXES);
+  }
+
+  private void ensureIndexes(Class<?> entityClass, List<? extends IndexDefinition> indexes) {
+    ensureIndexes(mongoTemplate.getCollectionName(entityClass), indexes, Set.of());
+  }
+
+  private void ensureIndexes(
+      String collectionName, List<? extends IndexDefinition> indexes, Set<String> legacy) {
+    IndexOperations indexOperations = mongoTemplate.indexOps(collectionName);
+    Set<String> declared =
+        indexes.stream()
+            .map(index -> (String) index.getIndexOptions().get("name"))
+            .collect(Collectors.toSet());
+
+    for (IndexInfo indexInfo : indexOperations.getIndexInfo()) {
+      String name = indexInfo.getName();
+      if (declared.contains(name) || ID_INDEX.equals(name)) {
+        continue;
+      }
+      if (legacy.contains(name)) {
+        log.info("Dropping legacy index {} on {}", name, collectionName);
+        indexOperations.dropIndex(name);
+      } else {
+        log.info("Keeping undeclared index {} on {}", name, collectionName);
+      }
+    }
+
+    for (IndexDefinition index : indexes) {
+      indexOperations.ensureIndex(index);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.postech.fiap.parkingmeter.infrastructure.index;
+
+import com.mongodb.client.MongoCollection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/** Exposes the size and usage counters of every index in the database as {@code /indexes}. */
+@Slf4j
+@Component
+@Endpoint(id = "indexes")
+@RequiredArgsConstructor(onConstructor_ = {@Autowired})
+public class IndexUsageEndpoint {
+
+  private final MongoTemplate mongoTemplate;
+
+  @ReadOperation
+  public List<IndexUsage> indexUsage() {
+    List<IndexUsage> indexUsage = new ArrayList<>();
+    for (String collectionName : mongoTemplate.getCollectionNames()) {
+      if (!collectionName.startsWith("system.")) {
+        try {
+          indexUsage.addAll(indexUsage(collectionName));
+        } catch (RuntimeException e) {
+          log.debug("Unable to read index stats of {}: {}", collectionName, e.getMessage());
+        }
+      }
+    }
+    indexUsage.sort(
+        Comparator.comparing(IndexUsage::collection).thenComparing(IndexUsage::name));
+    return indexUsage;
+  }
+
+  private List<IndexUsage> indexUsage(String collectionName) {
+    MongoCollection<Document> collection = mongoTemplate.getCollection(collectionName);
+
+    Document collStats =
+        collection
+            .aggregate(
+                List.of(
+                    new Document("$collStats", new Document("storageStats", new Document()))))
+            .first();
+    Document indexSizes =
+        collStats == null
+            ? new Document()
+            : collStats.get("storageStats", Document.class).get("indexSizes", Document.class);
+
+    List<IndexUsage> indexUsage = new ArrayList<>();
+    for (Document indexStats :
+        collection.aggregate(List.of(new Document("$indexStats", new Document())))) {
+      String name = indexStats.getString("name");
+      Document accesses = indexStats.get("accesses", Document.class);
+      indexUsage.add(
+          new IndexUsage(
+              collectionName,
+              name,
+              indexStats.get("key", Document.class),
+              ((Number) indexSizes.getOrDefault(name, 0)).longValue(),
+              ((Number) accesses.get("ops")).longValue(),
+              accesses.get("since", Date.class).toInstant()));
+    }
+    return indexUsage;
+  }
+
+  public record IndexUsage(
+      String collection,
+      String name,
+      Map<String, Object> key,
+      long sizeBytes,
+      long accesses,
+      Instant since) {}
+}
@@ -0,0 +1,138 @@
+package com.postech.fiap.parkingmeter.infrastructure.migration;
+
+import com.mongodb.client.MongoCollection;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Strips the tickets written before the compact format of the parking meter and vehicle fields
+ * they no longer keep, leaving the ids, rate, address and license plate. The ticket collection and
+ * every archive are walked in {@code _id} order in batches, so the migration can run next to the
+ * application and be resumed at any point. The fields it removes cannot be restored, so it only
+ * runs at startup when {@code parkingmeter.tickets.migrate-on-startup} is set, and the
+ * {@code ticketsnapshots} endpoint is only exposed over JMX, once {@code spring.jmx.enabled} is
+ * set: a read reports how many tickets are left, a write migrates them.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "ticketsnapshots")
+public class TicketSnapshotMigration {
+
+  static final List<String> LEGACY_FIELDS =
+      List.of(
+          "parkingMeter.operating_hours",
+          "parkingMeter.available_spaces",
+          "parkingMeter.occupied",
+          "parkingMeter.version",
+          "vehicle.model",
+          "vehicle.color",
+          "vehicle.owner");
+
+  private final MongoTemplate mongoTemplate;
+  private final TicketArchiveService ticketArchiveService;
+  private final int batchSize;
+  private final boolean runOnStartup;
+
+  public TicketSnapshotMigration(
+      MongoTemplate mongoTemplate,
+      TicketArchiveService ticketArchiveService,
+      @Value("${parkingmeter.tickets.migration-batch-size:1000}") int batchSize,
+      @Value("${parkingmeter.tickets.migrate-on-startup:false}") boolean runOnStartup) {
+    this.mongoTemplate = mongoTemplate;
+    this.ticketArchiveService = ticketArchiveService;
+    this.batchSize = batchSize;
+    this.runOnStartup = runOnStartup;
+  }
+
+  @ReadOperation
+  public MigrationStatus status() {
+    return new MigrationStatus(legacyTickets(), 0);
+  }
+
+  @WriteOperation
+  public MigrationStatus migrate() {
+    long migrated = 0;
+    for (String collection : ticketArchiveService.getCollections()) {
+      migrated += migrate(mongoTemplate.getCollection(collection));
+    }
+
+    log.info("Migrated {} tickets to the compact format", migrated);
+    return new MigrationStatus(legacyTickets(), migrated);
+  }
+
+  @Async
+  @EventListener(ApplicationReadyEvent.class)
+  public void migrateOnStartup() {
+    if (!runOnStartup) {
+      return;
+    }
+    try {
+      migrate();
+    } catch (RuntimeException e) {
+      log.warn("Unable to migrate tickets to the compact format: {}", e.getMessage());
+    }
+  }
+
+  private long migrate(MongoCollection<Document> tickets) {
+    Document unset = new Document();
+    LEGACY_FIELDS.forEach(field -> unset.append(field, ""));
+    Document update = new Document("$unset", unset);
+
+    long migrated = 0;
+    Object lastId = null;
+    while (true) {
+      Document filter = legacyFilter();
+      if (lastId != null) {
+        filter.append("_id", new Document("$gt", lastId));
+      }
+      List<Object> ids =
+          tickets
+              .find(filter)
+              .projection(new Document("_id", 1))
+              .sort(new Document("_id", 1))
+              .limit(batchSize)
+              .map(ticket -> ticket.get("_id"))
+              .into(new ArrayList<>());
+      if (ids.isEmpty()) {
+        break;
+      }
+      migrated +=
+          tickets
+              .updateMany(new Document("_id", new Document("$in", ids)), update)
+              .getModifiedCount();
+      lastId = ids.get(ids.size() - 1);
+      log.debug(
+          "Migrated {} tickets of {} to the compact format", migrated, tickets.getNamespace());
+    }
+    return migrated;
+  }
+
+  private long legacyTickets() {
+    return ticketArchiveService.getCollections().stream()
+        .mapToLong(
+            collection -> mongoTemplate.getCollection(collection).countDocuments(legacyFilter()))
+        .sum();
+  }
+
+  private static Document legacyFilter() {
+    return new Document(
+        "$or",
+        LEGACY_FIELDS.stream()
+            .map(field -> new Document(field, new Document("$exists", true)))
+            .toList());
+  }
+
+  public record MigrationStatus(long legacyTickets, long migrated) {}
+}
@@ -0,0 +1,330 @@
+package com.postech.fiap.parkingmeter.benchmark;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import com.postech.fiap.parkingmeter.ParkingMeterApplication;
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.OperationHours;
+import com.postech.fiap.parkingmeter.domain.model.Owner;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.Rate;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.VehicleSpendLedgerService;
+import com.postech.fiap.parkingmeter.domain.util.TicketChargeCalculator;
+import com.postech.fiap.parkingmeter.infrastructure.index.IndexBootstrapper;
+import com.postech.fiap.parkingmeter.infrastructure.migration.TicketSnapshotMigration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+
+/**
+ * Starts the application against a database holding a given number of tickets, seeding it on
+ * first use. Set {@code -Dbenchmark.mongo.uri} to run against a local replica set; otherwise a
+ * Testcontainers MongoDB is started, and reused between forks when Testcontainers reuse is
+ * enabled. Each dataset size has its own database, so a seeded dataset is only built once.
+ */
+final class BenchmarkEnvironment implements AutoCloseable {
+
+  static final LocalDate LAST_DAY = LocalDate.of(2024, 10, 31);
+  static final int DAYS = 90;
+  static final int PARKING_METERS = 200;
+  static final int VEHICLES = 10_000;
+  static final int LIFECYCLE_VEHICLES = 4096;
+
+  private static final String DATASET = "benchmark_dataset";
+  private static final String[] CITIES = {"São Paulo", "Campinas", "Santos", "Sorocaba"};
+  private static final int NEIGHBORHOODS = 10;
+  private static final int BATCH_SIZE = 10_000;
+
+  private final ConfigurableApplicationContext context;
+  private final MongoTemplate mongoTemplate;
+  private final List<String> parkingMeterIds;
+  private final List<String> lifecycleVehicleIds;
+
+  private BenchmarkEnvironment(
+      ConfigurableApplicationContext context, int tickets, boolean compactTickets) {
+    this.context = context;
+    this.mongoTemplate = context.getBean(MongoTemplate.class);
+
+    Document dataset = mongoTemplate.getCollection(DATASET).find().first();
+    if (dataset == null
+        || dataset.getInteger("tickets") != tickets
+        || dataset.getInteger("lifecycleVehicles", 0) != LIFECYCLE_VEHICLES
+        || dataset.getBoolean("compactTickets", false) != compactTickets) {
+      seed(tickets, compactTickets);
+    }
+
+    this.parkingMeterIds = ids(ParkingMeter.class);
+    this.lifecycleVehicleIds = ids(Vehicle.class);
+  }
+
+  static BenchmarkEnvironment start(int tickets) {
+    return start(tickets, false, WebApplicationType.NONE);
+  }
+
+  /**
+   * Same dataset, in its own database, with the tickets migrated to the compact parking meter and
+   * vehicle snapshots. The default dataset keeps them fully embedded, as they used to be written.
+   */
+  static BenchmarkEnvironment startCompact(int tickets) {
+    return start(tickets, true, WebApplicationType.NONE);
+  }
+
+  /**
+   * Also starts the embedded server on a random port, see {@link #getBaseUrl()}. The extra
+   * arguments are passed to the application as command line properties.
+   */
+  static BenchmarkEnvironment startServer(int tickets, String... args) {
+    return start(tickets, false, WebApplicationType.SERVLET, args);
+  }
+
+  private static BenchmarkEnvironment start(
+      int tickets,
+      boolean compactTickets,
+      WebApplicationType webApplicationType,
+      String... args) {
+    String uri = System.getProperty("benchmark.mongo.uri");
+    if (uri == null) {
+      MongoDBContainer mongo = new MongoDBContainer("mongo:7.0").withReuse(true);
+      mongo.start();
+      uri = mongo.getReplicaSetUrl();
+    }
+
+    ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(ParkingMeterApplication.class)
+            .web(webApplicationType)
+            .run(
+                Stream.concat(
+                        Stream.of(
+                            "--server.port=0",
+                            "--spring.data.mongodb.uri=" + uri,
+                            "--spring.data.mongodb.database=parkingmeter_benchmark_"
+                                + tickets
+                                + (compactTickets ? "_compact" : ""),
+                            "--parkingmeter.rollup.backfill-on-startup=false",
+                            "--parkingmeter.spend-ledger.backfill-on-startup=false",
+                            "--parkingmeter.indexes.create-on-startup=false",
+                            "--parkingmeter.tickets.migrate-on-startup=false",
+                            "--parkingmeter.projections.enabled=false",
+                            "--parkingmeter.archive.enabled=false",
+                            "--parkingmeter.occupancy.initial-delay=PT1H",
+                            "--logging.level.root=WARN",
+                            "--logging.level.org.mongodb.driver=WARN",
+                            "--logging.level.org.springframework.data.mongodb.core.MongoTemplate=WARN"),
+                        Stream.of(args))
+                    .toArray(String[]::new));
+    return new BenchmarkEnvironment(context, tickets, compactTickets);
+  }
+
+  <T> T getBean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  String getBaseUrl() {
+    return "http://localhost:%s%s"
+        .formatted(
+            context.getEnvironment().getProperty("local.server.port"),
+            context.getEnvironment().getProperty("server.servlet.context-path", ""));
+  }
+
+  List<String> getParkingMeterIds() {
+    return parkingMeterIds;
+  }
+
+  List<String> getLifecycleVehicleIds() {
+    return lifecycleVehicleIds;
+  }
+
+  static String licensePlate(int vehicle) {
+    return "BEN%04d".formatted(vehicle);
+  }
+
+  static String city(int parkingMeter) {
+    return CITIES[parkingMeter % CITIES.length];
+  }
+
+  static String neighborhood(int parkingMeter) {
+    return "Bairro " + parkingMeter % NEIGHBORHOODS;
+  }
+
+  @Override
+  public void close() {
+    context.close();
+  }
+
+  /** Total BSON size of the stored tickets, in bytes. */
+  long getTicketStorageSize() {
+    Document size =
+        mongoTemplate
+            .getCollection(mongoTemplate.getCollectionName(Ticket.class))
+            .aggregate(
+                List.of(
+                    new Document(
+                        "$group",
+                        new Document("_id", null)
+                            .append(
+                                "bytes",
+                                new Document("$sum", new Document("$bsonSize", "$$ROOT"))))))
+            .first();
+    return size != null ? size.get("bytes", Number.class).longValue() : 0;
+  }
+
+  private void seed(int tickets, boolean compactTickets) {
+    mongoTemplate.getDb().drop();
+
+    List<ParkingMeter> parkingMeters =
+        new ArrayList<>(
+            mongoTemplate.insertAll(
+                IntStream.range(0, PARKING_METERS)
+                    .mapToObj(BenchmarkEnvironment::parkingMeter)
+                    .toList()));
+    mongoTemplate.insertAll(
+        IntStream.range(0, LIFECYCLE_VEHICLES)
+            .mapToObj(i -> vehicle("LIF%04d".formatted(i), owner(i)))
+            .toList());
+
+    List<Document> parkingMeterDocuments = parkingMeters.stream().map(this::embedded).toList();
+    List<Document> vehicleDocuments =
+        IntStream.range(0, VEHICLES)
+            .mapToObj(i -> embedded(vehicle(licensePlate(i), null)))
+            .toList();
+
+    MongoCollection<Document> ticketCollection =
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Ticket.class));
+    Random random = new Random(42);
+    LocalDateTime firstStart = LAST_DAY.minusDays(DAYS - 1L).atStartOfDay();
+    List<Document> batch = new ArrayList<>(BATCH_SIZE);
+
+    for (int i = 0; i < tickets; i++) {
+      int parkingMeter = random.nextInt(PARKING_METERS);
+      LocalDateTime startTime = firstStart.plusSeconds(random.nextInt(DAYS * 86_400));
+      LocalDateTime endTime = startTime.plusMinutes(15 + random.nextInt(240));
+      PaymentStatusEnum paymentStatus = paymentStatus(i);
+      Rate rate = parkingMeters.get(parkingMeter).getRate();
+
+      batch.add(
+          new Document("_id", new ObjectId())
+              .append(
+                  "total_amount_charged",
+                  paymentStatus == PaymentStatusEnum.PAID
+                      ? TicketChargeCalculator.getTotalAmountCharged(
+                          startTime, endTime, rate.getFirstHour(), rate.getAdditionalHours())
+                      : 0.0)
+              .append("start_time", toDate(startTime))
+              .append(
+                  "end_time",
+                  paymentStatus == PaymentStatusEnum.PENDING ? null : toDate(endTime))
+              .append("payment_status", paymentStatus.name())
+              .append("parkingMeter", parkingMeterDocuments.get(parkingMeter))
+              .append("vehicle", vehicleDocuments.get(random.nextInt(VEHICLES)))
+              .append("_class", Ticket.class.getName()));
+
+      if (batch.size() == BATCH_SIZE) {
+        ticketCollection.insertMany(batch, new InsertManyOptions().ordered(false));
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      ticketCollection.insertMany(batch, new InsertManyOptions().ordered(false));
+    }
+
+    if (compactTickets) {
+      getBean(TicketSnapshotMigration.class).migrate();
+    }
+    getBean(IndexBootstrapper.class).ensureIndexes();
+    getBean(EarningsRollupService.class).rebuild();
+    getBean(VehicleSpendLedgerService.class).rebuild();
+    mongoTemplate
+        .getCollection(DATASET)
+        .insertOne(
+            new Document("tickets", tickets)
+                .append("lifecycleVehicles", LIFECYCLE_VEHICLES)
+                .append("compactTickets", compactTickets));
+  }
+
+  private static PaymentStatusEnum paymentStatus(int ticket) {
+    return switch (ticket % 20) {
+      case 0 -> PaymentStatusEnum.PENDING;
+      case 1 -> PaymentStatusEnum.CANCELLED;
+      default -> PaymentStatusEnum.PAID;
+    };
+  }
+
+  private List<String> ids(Class<?> type) {
+    return mongoTemplate
+        .getCollection(mongoTemplate.getCollectionName(type))
+        .find()
+        .projection(new Document("_id", 1))
+        .map(document -> document.getObjectId("_id").toHexString())
+        .into(new ArrayList<>());
+  }
+
+  private Document embedded(Object entity) {
+    Document document = new Document();
+    mongoTemplate.getConverter().write(entity, document);
+    document.remove("_class");
+    return document;
+  }
+
+  private static Date toDate(LocalDateTime localDateTime) {
+    return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+  private static ParkingMeter parkingMeter(int i) {
+    return ParkingMeter.builder()
+        .operatingHours(OperationHours.builder().start("00:00").end("23:59").build())
+        .rate(Rate.builder().firstHour(5.0).additionalHours(3.0).build())
+        .availableSpaces(1_000_000)
+        .occupied(0)
+        .address(address(i, city(i), neighborhood(i)))
+        .build();
+  }
+
+  private static Vehicle vehicle(String licensePlate, Owner owner) {
+    return Vehicle.builder()
+        .id(new ObjectId().toHexString())
+        .licensePlate(licensePlate)
+        .model("Onix")
+        .color("Prata")
+        .owner(owner)
+        .build();
+  }
+
+  private static Owner owner(int i) {
+    return Owner.builder()
+        .id(new ObjectId().toHexString())
+        .name("Owner " + i)
+        .cpf("%011d".formatted(i))
+        .email("owner%d@parkingmeter.test".formatted(i))
+        .phone("11999990000")
+        .address(address(i, city(i), neighborhood(i)))
+        .build();
+  }
+
+  private static Address address(int i, String city, String neighborhood) {
+    return Address.builder()
+        .street("Rua " + i)
+        .number(String.valueOf(i))
+        .neighborhood(neighborhood)
+        .city(city)
+        .state("SP")
+        .zipCode("%08d".formatted(i))
+        .build();
+  }
+}
@@ -0,0 +1,120 @@
+package com.postech.fiap.parkingmeter.benchmark;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.OperationHours;
+import com.postech.fiap.parkingmeter.domain.model.Owner;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Rate;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.VehicleDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Compares the hand-written mappers with the ModelMapper mapping they replaced. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterToDTOBenchmark {
+
+  private final ConverterToDTO converterToDTO = new ConverterToDTO();
+  private final ModelMapper modelMapper = new ModelMapper();
+
+  private final Address address =
+      Address.builder()
+          .street("Avenida Paulista")
+          .number("1000")
+          .neighborhood("Bela Vista")
+          .city("São Paulo")
+          .state("SP")
+          .zipCode("01310100")
+          .build();
+
+  private final ParkingMeter parkingMeter =
+      ParkingMeter.builder()
+          .id("66f1c0a1e4b0a1b2c3d4e5f6")
+          .operatingHours(OperationHours.builder().start("08:00").end("20:00").build())
+          .rate(Rate.builder().firstHour(5.0).additionalHours(3.0).build())
+          .availableSpaces(20)
+          .address(address)
+          .occupied(4)
+          .version(7L)
+          .build();
+
+  private final Vehicle vehicle =
+      Vehicle.builder()
+          .id("66f1c0a1e4b0a1b2c3d4e5f7")
+          .licensePlate("ABC1D23")
+          .model("Onix")
+          .color("Prata")
+          .owner(
+              Owner.builder()
+                  .id("66f1c0a1e4b0a1b2c3d4e5f8")
+                  .name("Maria Silva")
+                  .cpf("12345678909")
+                  .email("maria@parkingmeter.test")
+                  .phone("11999990000")
+                  .address(address)
+                  .build())
+          .build();
+
+  private final Ticket ticket =
+      Ticket.builder()
+          .id("66f1c0a1e4b0a1b2c3d4e5f9")
+          .totalAmountCharged(11.0)
+          .startTime(LocalDateTime.of(2024, 10, 1, 9, 15))
+          .endTime(LocalDateTime.of(2024, 10, 1, 12, 5))
+          .paymentStatus(PaymentStatusEnum.PAID)
+          .parkingMeter(ParkingMeterSnapshot.of(parkingMeter))
+          .vehicle(VehicleSnapshot.of(vehicle))
+          .build();
+
+  @Benchmark
+  public TicketDTO ticket() {
+    return converterToDTO.toDto(ticket, parkingMeter, vehicle);
+  }
+
+  @Benchmark
+  public ParkingMeterDTO parkingMeter() {
+    return converterToDTO.toDto(parkingMeter);
+  }
+
+  @Benchmark
+  public VehicleDTO vehicle() {
+    return converterToDTO.toDto(vehicle);
+  }
+
+  @Benchmark
+  public TicketDTO ticketWithModelMapper() {
+    return modelMapper.map(ticket, TicketDTO.class);
+  }
+
+  @Benchmark
+  public ParkingMeterDTO parkingMeterWithModelMapper() {
+    return modelMapper.map(parkingMeter, ParkingMeterDTO.class);
+  }
+
+  @Benchmark
+  public VehicleDTO vehicleWithModelMapper() {
+    return modelMapper.map(vehicle, VehicleDTO.class);
+  }
+}
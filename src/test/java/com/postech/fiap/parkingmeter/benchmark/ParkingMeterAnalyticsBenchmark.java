@@ -0,0 +1,108 @@
+package com.postech.fiap.parkingmeter.benchmark;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.AmountEarnedByLocalityDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.AmountEarnedDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterCollectionDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingSpaceDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TimesParkedDTO;
+import com.postech.fiap.parkingmeter.domain.service.ParkingMeterService;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+/** Runs each {@link ParkingMeterService} analytics query over the last week of tickets. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParkingMeterAnalyticsBenchmark {
+
+  private static final LocalDate START_DATE = BenchmarkEnvironment.LAST_DAY.minusDays(6);
+  private static final LocalDate END_DATE = BenchmarkEnvironment.LAST_DAY;
+
+  @Param({"10000", "1000000", "10000000"})
+  private int tickets;
+
+  private BenchmarkEnvironment environment;
+  private ParkingMeterService parkingMeterService;
+  private CacheManager cacheManager;
+  private String parkingMeterId;
+
+  @Setup(Level.Trial)
+  public void start() {
+    environment = BenchmarkEnvironment.start(tickets);
+    parkingMeterService = environment.getBean(ParkingMeterService.class);
+    cacheManager = environment.getBean(CacheManager.class);
+    parkingMeterId = environment.getParkingMeterIds().get(0);
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    environment.close();
+  }
+
+  /** Keeps the cached ranking from turning the benchmark into a cache lookup. */
+  @State(Scope.Thread)
+  public static class ColdCache {
+
+    @Setup(Level.Invocation)
+    public void clear(ParkingMeterAnalyticsBenchmark benchmark) {
+      CacheManager cacheManager = benchmark.cacheManager;
+      cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+  }
+
+  @Benchmark
+  public Slice<ParkingMeterCollectionDTO> highestEarningParkingMeter(ColdCache coldCache) {
+    return parkingMeterService.getHighestEarningParkingMeter(
+        START_DATE.atStartOfDay().toInstant(ZoneOffset.UTC).toString(),
+        END_DATE.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC).toString(),
+        PageRequest.of(0, 10));
+  }
+
+  @Benchmark
+  public ParkingSpaceDTO availableSpace() {
+    return parkingMeterService.getAvailableSpace(parkingMeterId, END_DATE);
+  }
+
+  @Benchmark
+  public TimesParkedDTO timesParked() {
+    return parkingMeterService.getTimesParkedWithDateRange(
+        parkingMeterId, BenchmarkEnvironment.licensePlate(0), START_DATE, END_DATE);
+  }
+
+  @Benchmark
+  public AmountEarnedDTO earningsWithDateRange() {
+    return parkingMeterService.getParkingMeterEarningsWithDateRange(
+        parkingMeterId, START_DATE, END_DATE);
+  }
+
+  @Benchmark
+  public Page<AmountEarnedByLocalityDTO> earningsByLocality() {
+    return parkingMeterService.getParkingMeterEarningsWithDateRangeByLocality(
+        BenchmarkEnvironment.city(0),
+        BenchmarkEnvironment.neighborhood(0),
+        START_DATE,
+        END_DATE,
+        PageRequest.of(0, 10));
+  }
+}
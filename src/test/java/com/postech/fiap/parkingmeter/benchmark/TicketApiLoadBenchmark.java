@@ -0,0 +1,164 @@
+package com.postech.fiap.parkingmeter.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drives the blocking ({@code /ticket}, {@code /parking-meter}) and the reactive ({@code
+ * /reactive/...}) HTTP endpoints with far more concurrent terminals than Tomcat has platform
+ * request threads (200 by default), with requests handled either on that pool or on virtual
+ * threads. Every benchmark thread is one terminal with its own vehicle, so it never collides with
+ * another thread's pending ticket. Run with {@code -t} to change the number of terminals, up to
+ * {@link BenchmarkEnvironment#LIFECYCLE_VEHICLES}.
+ *
+ * <p>No results have been recorded for it yet: it needs the application running against a MongoDB
+ * replica set, and the reactive stack is only claimed to hold up better under this load until a
+ * run says otherwise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Threads(2048)
+@Fork(1)
+public class TicketApiLoadBenchmark {
+
+  private static final String DATE = BenchmarkEnvironment.LAST_DAY.toString();
+
+  @Param({"10000"})
+  private int tickets;
+
+  @Param({"blocking", "reactive"})
+  private String api;
+
+  @Param({"platform", "virtual"})
+  private String requestThreads;
+
+  private BenchmarkEnvironment environment;
+  private HttpClient httpClient;
+  private ObjectMapper objectMapper;
+  private String baseUrl;
+  private List<String> parkingMeterIds;
+  private List<String> vehicleIds;
+  private final AtomicInteger nextTerminal = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void start() {
+    environment =
+        BenchmarkEnvironment.startServer(
+            tickets, "--spring.threads.virtual.enabled=" + "virtual".equals(requestThreads));
+    httpClient =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    objectMapper = new ObjectMapper();
+    baseUrl = environment.getBaseUrl() + ("reactive".equals(api) ? "/reactive" : "");
+    parkingMeterIds = environment.getParkingMeterIds();
+    vehicleIds = environment.getLifecycleVehicleIds();
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    environment.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Terminal {
+
+    private String vehicleId;
+    private String parkingMeterId;
+
+    @Setup(Level.Trial)
+    public void assign(TicketApiLoadBenchmark benchmark) {
+      int terminal = benchmark.nextTerminal.getAndIncrement();
+      if (terminal >= benchmark.vehicleIds.size()) {
+        throw new IllegalStateException(
+            "More terminals than lifecycle vehicles: " + benchmark.vehicleIds.size());
+      }
+      vehicleId = benchmark.vehicleIds.get(terminal);
+      parkingMeterId = benchmark.parkingMeterIds.get(terminal % benchmark.parkingMeterIds.size());
+    }
+  }
+
+  @Benchmark
+  public String issueAndPay(Terminal terminal) throws IOException, InterruptedException {
+    String ticket =
+        send(
+            HttpRequest.newBuilder(URI.create(baseUrl + "/ticket"))
+                .header("Content-Type", "application/json")
+                .POST(
+                    HttpRequest.BodyPublishers.ofString(
+                        "{\"vehicleId\":\"%s\",\"parkingMeterId\":\"%s\"}"
+                            .formatted(terminal.vehicleId, terminal.parkingMeterId))));
+    String ticketId = objectMapper.readTree(ticket).get("id").asText();
+
+    return send(
+        HttpRequest.newBuilder(URI.create(baseUrl + "/ticket/" + ticketId + "/payment"))
+            .method("PATCH", HttpRequest.BodyPublishers.noBody()));
+  }
+
+  @Benchmark
+  public String availableSpace(Terminal terminal) throws IOException, InterruptedException {
+    return send(
+        HttpRequest.newBuilder(
+                URI.create(
+                    baseUrl
+                        + "/parking-meter/available?id=%s&date=%s"
+                            .formatted(terminal.parkingMeterId, DATE)))
+            .GET());
+  }
+
+  @Benchmark
+  public String earned(Terminal terminal) throws IOException, InterruptedException {
+    return send(
+        HttpRequest.newBuilder(
+                URI.create(
+                    baseUrl
+                        + "/parking-meter/earned?parkingMeterId=%s&begin=%s&end=%s"
+                            .formatted(
+                                terminal.parkingMeterId,
+                                BenchmarkEnvironment.LAST_DAY.minusDays(6),
+                                DATE)))
+            .GET());
+  }
+
+  private String send(HttpRequest.Builder request) throws IOException, InterruptedException {
+    HttpResponse<String> response =
+        httpClient.send(
+            request.timeout(Duration.ofSeconds(60)).build(), HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException(
+          "%s %s -> %d %s"
+              .formatted(
+                  response.request().method(),
+                  response.request().uri(),
+                  response.statusCode(),
+                  response.body()));
+    }
+    return response.body();
+  }
+}
@@ -0,0 +1,116 @@
+package com.postech.fiap.parkingmeter.benchmark;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketEventResultDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketEventForm;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketForm;
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketEventTypeEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketBatchService;
+import com.postech.fiap.parkingmeter.domain.service.TicketService;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Uploads the sessions of {@value #SESSIONS} vehicles, each a create and a payment event, one
+ * request per event through {@link TicketService} and as a single batch through {@link
+ * TicketBatchService}. Scores are events per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TicketBatchIngestBenchmark {
+
+  private static final int SESSIONS = 500;
+  private static final int EVENTS = SESSIONS * 2;
+
+  @Param({"10000"})
+  private int tickets;
+
+  private BenchmarkEnvironment environment;
+  private TicketService ticketService;
+  private TicketBatchService ticketBatchService;
+  private List<String> parkingMeterIds;
+  private List<String> vehicleIds;
+  private int nextVehicle;
+
+  @Setup(Level.Trial)
+  public void start() {
+    environment = BenchmarkEnvironment.start(tickets);
+    ticketService = environment.getBean(TicketService.class);
+    ticketBatchService = environment.getBean(TicketBatchService.class);
+    parkingMeterIds = environment.getParkingMeterIds();
+    vehicleIds = environment.getLifecycleVehicleIds();
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    environment.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void singleRequests(Blackhole blackhole) {
+    for (int session = 0; session < SESSIONS; session++) {
+      int vehicle = nextVehicle();
+      String ticketId =
+          ticketService
+              .create(
+                  new TicketForm(
+                      vehicleIds.get(vehicle), parkingMeterIds.get(vehicle % parkingMeterIds.size())))
+              .getId();
+      blackhole.consume(ticketService.updatePayment(ticketId));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public List<TicketEventResultDTO> batch() {
+    LocalDateTime now = LocalDateTime.now();
+    List<TicketEventForm> events = new ArrayList<>(EVENTS);
+    for (int session = 0; session < SESSIONS; session++) {
+      int vehicle = nextVehicle();
+      String ticketId = new ObjectId().toHexString();
+      events.add(
+          new TicketEventForm(
+              TicketEventTypeEnum.CREATE,
+              ticketId,
+              vehicleIds.get(vehicle),
+              parkingMeterIds.get(vehicle % parkingMeterIds.size()),
+              now.minusMinutes(30)));
+      events.add(
+          new TicketEventForm(TicketEventTypeEnum.PAY, ticketId, null, null, now.minusMinutes(5)));
+    }
+
+    List<TicketEventResultDTO> results = ticketBatchService.ingest(events);
+    if (!results.stream().allMatch(TicketEventResultDTO::isApplied)) {
+      throw new IllegalStateException("Rejected events: " + results);
+    }
+    return results;
+  }
+
+  private int nextVehicle() {
+    int vehicle = nextVehicle;
+    nextVehicle = (nextVehicle + 1) % vehicleIds.size();
+    return vehicle;
+  }
+}
@@ -0,0 +1,42 @@
+package com.postech.fiap.parkingmeter.benchmark;
+
+import com.postech.fiap.parkingmeter.domain.util.TicketChargeCalculator;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TicketChargeCalculatorBenchmark {
+
+  @Param({"30", "95", "600"})
+  private int minutesParked;
+
+  private LocalDateTime startTime;
+  private LocalDateTime endTime;
+
+  @Setup
+  public void setUp() {
+    startTime = LocalDateTime.of(2024, 10, 1, 9, 15);
+    endTime = startTime.plusMinutes(minutesParked);
+  }
+
+  @Benchmark
+  public double getTotalAmountCharged() {
+    return TicketChargeCalculator.getTotalAmountCharged(startTime, endTime, 5.0, 3.0);
+  }
+}
@@ -0,0 +1,105 @@
+package com.postech.fiap.parkingmeter.benchmark;
+
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.VehicleDTO;
+import com.postech.fiap.parkingmeter.domain.service.ParkingMeterService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.domain.service.VehicleService;
+import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Compares how ticket issuance loads the parking meter and vehicle: through the public services
+ * and their DTOs, through the snapshot lookup with an empty cache, and with a warm cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TicketIssuanceLookupBenchmark {
+
+  @Param({"10000"})
+  private int tickets;
+
+  private BenchmarkEnvironment environment;
+  private ParkingMeterService parkingMeterService;
+  private VehicleService vehicleService;
+  private TicketSnapshotService ticketSnapshotService;
+  private CacheManager cacheManager;
+  private String parkingMeterId;
+  private String vehicleId;
+
+  @Setup(Level.Trial)
+  public void start() {
+    environment = BenchmarkEnvironment.start(tickets);
+    parkingMeterService = environment.getBean(ParkingMeterService.class);
+    vehicleService = environment.getBean(VehicleService.class);
+    ticketSnapshotService = environment.getBean(TicketSnapshotService.class);
+    cacheManager = environment.getBean(CacheManager.class);
+
+    List<String> vehicleIds = environment.getLifecycleVehicleIds();
+    parkingMeterId = environment.getParkingMeterIds().get(0);
+    vehicleId = vehicleIds.get(0);
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    environment.close();
+  }
+
+  @State(Scope.Thread)
+  public static class ColdSnapshots {
+
+    @Setup(Level.Invocation)
+    public void clear(TicketIssuanceLookupBenchmark benchmark) {
+      benchmark.cacheManager.getCache(TicketSnapshotService.PARKING_METER_SNAPSHOTS).clear();
+      benchmark.cacheManager.getCache(TicketSnapshotService.VEHICLE_SNAPSHOTS).clear();
+    }
+  }
+
+  @Benchmark
+  public void serviceDtos(Blackhole blackhole) throws VehicleException {
+    VehicleDTO vehicle = vehicleService.getById(vehicleId);
+    ParkingMeterDTO parkingMeter = parkingMeterService.getById(parkingMeterId);
+    blackhole.consume(vehicle);
+    blackhole.consume(parkingMeter);
+  }
+
+  @Benchmark
+  public void coldSnapshots(ColdSnapshots coldSnapshots, Blackhole blackhole)
+      throws VehicleException {
+    lookup(blackhole);
+  }
+
+  @Benchmark
+  public void warmSnapshots(Blackhole blackhole) throws VehicleException {
+    lookup(blackhole);
+  }
+
+  private void lookup(Blackhole blackhole) throws VehicleException {
+    Vehicle vehicle = ticketSnapshotService.getVehicle(vehicleId);
+    ParkingMeter parkingMeter = ticketSnapshotService.getParkingMeter(parkingMeterId);
+    blackhole.consume(vehicle);
+    blackhole.consume(parkingMeter);
+  }
+}
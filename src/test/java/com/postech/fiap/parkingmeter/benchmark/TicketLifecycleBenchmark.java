@@ -0,0 +1,102 @@
+package com.postech.fiap.parkingmeter.benchmark;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketForm;
+import com.postech.fiap.parkingmeter.domain.service.TicketService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creates, pays and cancels tickets through {@link TicketService}. Each benchmark only measures
+ * its own step: the ticket to pay or cancel is created before the invocation, and the ticket
+ * created by {@link #create} is cancelled after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TicketLifecycleBenchmark {
+
+  @Param({"10000", "1000000", "10000000"})
+  private int tickets;
+
+  private BenchmarkEnvironment environment;
+  private TicketService ticketService;
+  private List<String> parkingMeterIds;
+  private List<String> vehicleIds;
+  private final AtomicInteger nextTicket = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void start() {
+    environment = BenchmarkEnvironment.start(tickets);
+    ticketService = environment.getBean(TicketService.class);
+    parkingMeterIds = environment.getParkingMeterIds();
+    vehicleIds = environment.getLifecycleVehicleIds();
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    environment.close();
+  }
+
+  TicketForm nextTicketForm() {
+    int ticket = nextTicket.getAndIncrement();
+    return new TicketForm(
+        vehicleIds.get(ticket % vehicleIds.size()),
+        parkingMeterIds.get(ticket % parkingMeterIds.size()));
+  }
+
+  @State(Scope.Thread)
+  public static class PendingTicket {
+
+    private String id;
+
+    @Setup(Level.Invocation)
+    public void create(TicketLifecycleBenchmark benchmark) {
+      id = benchmark.ticketService.create(benchmark.nextTicketForm()).getId();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class CreatedTicket {
+
+    private TicketDTO ticket;
+
+    @TearDown(Level.Invocation)
+    public void cancel(TicketLifecycleBenchmark benchmark) {
+      benchmark.ticketService.cancelTicket(ticket.getId());
+    }
+  }
+
+  @Benchmark
+  public TicketDTO create(CreatedTicket createdTicket) {
+    createdTicket.ticket = ticketService.create(nextTicketForm());
+    return createdTicket.ticket;
+  }
+
+  @Benchmark
+  public TicketDTO updatePayment(PendingTicket pendingTicket) {
+    return ticketService.updatePayment(pendingTicket.id);
+  }
+
+  @Benchmark
+  public TicketDTO cancelTicket(PendingTicket pendingTicket) {
+    return ticketService.cancelTicket(pendingTicket.id);
+  }
+}
@@ -0,0 +1,78 @@
+package com.postech.fiap.parkingmeter.benchmark;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.service.TicketService;
+import com.postech.fiap.parkingmeter.domain.util.KeysetPaginator;
+import com.postech.fiap.parkingmeter.infrastructure.index.IndexBootstrapper;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Fetches the same page of the ticket listing by offset, which skips every earlier ticket and
+ * counts the collection, and by keyset cursor, which seeks straight past the previous page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TicketPaginationBenchmark {
+
+  private static final int PAGE_SIZE = 15;
+
+  @Param({"1000000"})
+  private int tickets;
+
+  @Param({"1", "100", "1000", "10000"})
+  private int pageDepth;
+
+  private BenchmarkEnvironment environment;
+  private TicketService ticketService;
+  private String cursor;
+
+  @Setup(Level.Trial)
+  public void start() {
+    environment = BenchmarkEnvironment.start(tickets);
+    environment.getBean(IndexBootstrapper.class).ensureIndexes();
+    ticketService = environment.getBean(TicketService.class);
+
+    int remaining = pageDepth * PAGE_SIZE;
+    while (remaining > 0) {
+      int size = Math.min(remaining, KeysetPaginator.MAX_SIZE);
+      cursor = ticketService.scrollAll(cursor, size).getNextCursor();
+      remaining -= size;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    environment.close();
+  }
+
+  @Benchmark
+  public Page<TicketDTO> offsetPage() {
+    return ticketService.findAll(PageRequest.of(pageDepth, PAGE_SIZE, Sort.by("id")));
+  }
+
+  @Benchmark
+  public CursorPageDTO<TicketDTO> keysetPage() {
+    return ticketService.scrollAll(cursor, PAGE_SIZE);
+  }
+}
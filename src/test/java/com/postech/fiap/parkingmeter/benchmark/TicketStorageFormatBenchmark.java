@@ -0,0 +1,78 @@
+package com.postech.fiap.parkingmeter.benchmark;
+
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.PageModeEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Reads the same tickets stored with the whole parking meter and vehicle embedded, as they used to
+ * be written, and with the compact snapshots. The stored size of each format is logged at setup.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TicketStorageFormatBenchmark {
+
+  private static final int PAGE_SIZE = 100;
+
+  @Param({"1000000"})
+  private int tickets;
+
+  @Param({"embedded", "compact"})
+  private String format;
+
+  private BenchmarkEnvironment environment;
+  private TicketService ticketService;
+
+  @Setup(Level.Trial)
+  public void start() {
+    environment =
+        "compact".equals(format)
+            ? BenchmarkEnvironment.startCompact(tickets)
+            : BenchmarkEnvironment.start(tickets);
+    ticketService = environment.getBean(TicketService.class);
+    log.info("{} tickets: {} bytes stored", format, environment.getTicketStorageSize());
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    environment.close();
+  }
+
+  @Benchmark
+  public CursorPageDTO<TicketDTO> scrollAll() {
+    return ticketService.scrollAll(null, PAGE_SIZE);
+  }
+
+  @Benchmark
+  public Slice<TicketDTO> ticketsByStatus() {
+    return ticketService.findTicketsByStatus(
+        PaymentStatusEnum.PAID,
+        PageRequest.of(0, PAGE_SIZE, Sort.by("id")),
+        PageModeEnum.SLICE);
+  }
+}
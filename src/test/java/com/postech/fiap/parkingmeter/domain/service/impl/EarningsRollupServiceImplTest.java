@@ -0,0 +1,257 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.EarningsRollup;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterEarningsDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Builds the earnings rollup by recording payments, by rebuilding it and by the startup backfill,
+ * and checks each against the earnings recomputed from the raw tickets.
+ */
+@SpringBootTest(
+    properties = {
+      "parkingmeter.rollup.backfill-on-startup=false",
+      "parkingmeter.spend-ledger.backfill-on-startup=false",
+      "parkingmeter.indexes.create-on-startup=false",
+      "parkingmeter.tickets.migrate-on-startup=false",
+      "parkingmeter.projections.enabled=false",
+      "parkingmeter.archive.enabled=false",
+      "parkingmeter.occupancy.initial-delay=PT1H"
+    })
+@Testcontainers(disabledWithoutDocker = true)
+class EarningsRollupServiceImplTest {
+
+  private static final LocalDateTime FIRST_START = LocalDateTime.of(2024, 8, 1, 8, 0);
+  private static final int TICKETS = 120;
+
+  @Container static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+  @DynamicPropertySource
+  static void mongoProperties(DynamicPropertyRegistry registry) {
+    registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+  }
+
+  @Autowired private EarningsRollupService earningsRollupService;
+  @Autowired private MongoTemplate mongoTemplate;
+
+  private List<Ticket> tickets;
+  private List<String> parkingMeterIds;
+
+  @BeforeEach
+  void seed() {
+    mongoTemplate.getCollectionNames().stream()
+        .filter(name -> name.startsWith(TicketArchiveService.ARCHIVE_PREFIX))
+        .forEach(mongoTemplate::dropCollection);
+    mongoTemplate.dropCollection(Ticket.class);
+    mongoTemplate.dropCollection(EarningsRollup.class);
+    mongoTemplate.dropCollection(ParkingMeter.class);
+    mongoTemplate.dropCollection(Vehicle.class);
+
+    List<ParkingMeter> parkingMeters =
+        List.of(
+            mongoTemplate.insert(parkingMeter("100")), mongoTemplate.insert(parkingMeter("200")));
+    parkingMeterIds = parkingMeters.stream().map(ParkingMeter::getId).toList();
+    Vehicle vehicle =
+        mongoTemplate.insert(Vehicle.builder().licensePlate("ABC1D23").model("Onix").build());
+    tickets =
+        IntStream.range(0, TICKETS)
+            .mapToObj(
+                i -> {
+                  LocalDateTime start = FIRST_START.plusMinutes(47L * i);
+                  return mongoTemplate.insert(
+                      Ticket.builder()
+                          .startTime(start)
+                          .endTime(start.plusMinutes(7L * i % 180).plusSeconds(30))
+                          .totalAmountCharged(5.0 + 2.5 * (i % 4))
+                          .paymentStatus(
+                              PaymentStatusEnum.values()[i % PaymentStatusEnum.values().length])
+                          .parkingMeter(ParkingMeterSnapshot.of(parkingMeters.get(i % 2)))
+                          .vehicle(VehicleSnapshot.of(vehicle))
+                          .build());
+                })
+            .toList();
+  }
+
+  @Test
+  void rebuildMatchesTheTickets() {
+    earningsRollupService.rebuild();
+
+    assertMatchesTheTickets();
+  }
+
+  @Test
+  void recordedPaymentsMatchARebuild() {
+    List<Ticket> paid = paidTickets();
+    List<Ticket> recorded = paid.subList(0, paid.size() / 2);
+    List<Ticket> applied = paid.subList(paid.size() / 2, paid.size());
+    recorded.forEach(earningsRollupService::recordPayment);
+    earningsRollupService.recordPayment(paid.get(0));
+    earningsRollupService.applyPayments(applied, List.of(paid.get(0)));
+
+    assertMatchesTheTickets();
+    List<EarningsRollup> recordedRollup = storedRollup();
+    earningsRollupService.rebuild();
+    assertThat(storedRollup()).isEqualTo(recordedRollup);
+  }
+
+  @Test
+  void backfillRebuildsAnEmptyRollup() {
+    EarningsRollupServiceImpl target = AopTestUtils.getTargetObject(earningsRollupService);
+    ReflectionTestUtils.setField(target, "backfillOnStartup", true);
+    try {
+      target.backfill();
+      assertMatchesTheTickets();
+
+      earningsRollupService.revertPayment(paidTickets().get(0));
+      target.backfill();
+      assertThat(earningsRollupService.getEarnings(parkingMeterIds, FIRST_START, lastHour()))
+          .isNotEqualTo(earningsFromTickets(FIRST_START, lastHour()));
+    } finally {
+      ReflectionTestUtils.setField(target, "backfillOnStartup", false);
+    }
+  }
+
+  @Test
+  void rangesExcludeTheHourTheyEndAt() {
+    earningsRollupService.rebuild();
+    LocalDateTime end = paidTickets().get(3).getStartTime().truncatedTo(ChronoUnit.HOURS);
+
+    List<ParkingMeterEarningsDTO> expected = earningsFromTickets(FIRST_START, end);
+    assertThat(earningsRollupService.getEarnings(parkingMeterIds, FIRST_START, end))
+        .containsExactlyInAnyOrderElementsOf(expected);
+    assertThat(earningsRollupService.getHighestEarnings(FIRST_START, end, PageRequest.of(0, 10)))
+        .isEqualTo(highestFirst(expected));
+  }
+
+  @Test
+  void rebuildBucketsByTheHourOfTheJvmZone() {
+    TimeZone defaultZone = TimeZone.getDefault();
+    TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+    try {
+      mongoTemplate
+          .find(
+              Query.query(Criteria.where("paymentStatus").is(PaymentStatusEnum.PAID)),
+              Ticket.class)
+          .forEach(earningsRollupService::recordPayment);
+      List<EarningsRollup> recordedRollup = storedRollup();
+
+      earningsRollupService.rebuild();
+
+      assertThat(storedRollup()).isEqualTo(recordedRollup);
+    } finally {
+      TimeZone.setDefault(defaultZone);
+    }
+  }
+
+  private void assertMatchesTheTickets() {
+    LocalDateTime middle = FIRST_START.plusDays(2);
+    for (LocalDateTime[] range :
+        List.of(
+            new LocalDateTime[] {FIRST_START, lastHour()},
+            new LocalDateTime[] {FIRST_START, middle},
+            new LocalDateTime[] {middle, lastHour()})) {
+      List<ParkingMeterEarningsDTO> expected = earningsFromTickets(range[0], range[1]);
+      assertThat(earningsRollupService.getEarnings(parkingMeterIds, range[0], range[1]))
+          .containsExactlyInAnyOrderElementsOf(expected);
+      assertThat(
+              earningsRollupService.getHighestEarnings(range[0], range[1], PageRequest.of(0, 10)))
+          .isEqualTo(highestFirst(expected));
+    }
+  }
+
+  private List<ParkingMeterEarningsDTO> earningsFromTickets(
+      LocalDateTime start, LocalDateTime end) {
+    Map<String, List<Ticket>> byParkingMeter =
+        paidTickets().stream()
+            .filter(t -> !t.getStartTime().isBefore(start) && t.getStartTime().isBefore(end))
+            .collect(Collectors.groupingBy(t -> t.getParkingMeter().getId()));
+    return byParkingMeter.entrySet().stream()
+        .map(
+            entry ->
+                ParkingMeterEarningsDTO.builder()
+                    .id(entry.getKey())
+                    .earned(
+                        entry.getValue().stream().mapToDouble(Ticket::getTotalAmountCharged).sum())
+                    .ticketCount(entry.getValue().size())
+                    .minutesOccupied(
+                        entry.getValue().stream()
+                            .mapToLong(
+                                t -> ChronoUnit.MINUTES.between(t.getStartTime(), t.getEndTime()))
+                            .sum())
+                    .build())
+        .toList();
+  }
+
+  private static List<ParkingMeterEarningsDTO> highestFirst(
+      List<ParkingMeterEarningsDTO> earnings) {
+    return earnings.stream()
+        .sorted(
+            Comparator.comparingDouble(ParkingMeterEarningsDTO::getEarned)
+                .reversed()
+                .thenComparing(ParkingMeterEarningsDTO::getId))
+        .toList();
+  }
+
+  private List<Ticket> paidTickets() {
+    return tickets.stream().filter(t -> t.getPaymentStatus() == PaymentStatusEnum.PAID).toList();
+  }
+
+  private List<EarningsRollup> storedRollup() {
+    Query query = new Query().with(Sort.by("parkingMeterId", "hour"));
+    query.fields().exclude("id");
+    return mongoTemplate.find(query, EarningsRollup.class);
+  }
+
+  private LocalDateTime lastHour() {
+    return tickets.get(TICKETS - 1).getStartTime().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+  }
+
+  private static ParkingMeter parkingMeter(String number) {
+    return ParkingMeter.builder()
+        .availableSpaces(20)
+        .occupied(0)
+        .address(
+            Address.builder()
+                .street("Avenida Paulista")
+                .number(number)
+                .city("São Paulo")
+                .state("SP")
+                .zipCode("01310100")
+                .build())
+        .build();
+  }
+}
@@ -0,0 +1,130 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyService;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/** Reserves and releases spaces concurrently against a replica set. */
+@SpringBootTest(
+    properties = {
+      "parkingmeter.rollup.backfill-on-startup=false",
+      "parkingmeter.spend-ledger.backfill-on-startup=false",
+      "parkingmeter.indexes.create-on-startup=false",
+      "parkingmeter.tickets.migrate-on-startup=false",
+      "parkingmeter.projections.enabled=false",
+      "parkingmeter.archive.enabled=false",
+      "parkingmeter.occupancy.initial-delay=PT1H"
+    })
+@Testcontainers(disabledWithoutDocker = true)
+class OccupancyServiceImplAdmissionTest {
+
+  private static final int SPACES = 5;
+  private static final int REQUESTS = 40;
+
+  @Container static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+  @DynamicPropertySource
+  static void mongoProperties(DynamicPropertyRegistry registry) {
+    registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+  }
+
+  @Autowired private OccupancyService occupancyService;
+  @Autowired private MongoTemplate mongoTemplate;
+
+  private ParkingMeter parkingMeter;
+
+  @BeforeEach
+  void seed() {
+    mongoTemplate.dropCollection(ParkingMeter.class);
+    parkingMeter = mongoTemplate.insert(parkingMeter());
+  }
+
+  @Test
+  void concurrentReservationsNeverExceedTheSpaces() throws Exception {
+    Callable<Boolean> reserve = () -> occupancyService.tryOccupy(parkingMeter.getId());
+    List<Future<Boolean>> results;
+    try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+      results = executor.invokeAll(IntStream.range(0, REQUESTS).mapToObj(i -> reserve).toList());
+    }
+
+    long admitted = 0;
+    for (Future<Boolean> result : results) {
+      admitted += result.get() ? 1 : 0;
+    }
+    assertThat(admitted).isEqualTo(SPACES);
+    assertThat(storedOccupied()).isEqualTo(SPACES);
+    assertThat(occupancyService.tryOccupy(parkingMeter.getId())).isFalse();
+  }
+
+  @Test
+  void batchReservationsTakeOnlyTheFreeSpaces() {
+    occupancyService.tryOccupy(parkingMeter.getId());
+
+    assertThat(occupancyService.tryOccupy(parkingMeter.getId(), 3)).isEqualTo(3);
+    assertThat(occupancyService.tryOccupy(parkingMeter.getId(), 3)).isEqualTo(1);
+    assertThat(occupancyService.tryOccupy(parkingMeter.getId(), 3)).isZero();
+    assertThat(storedOccupied()).isEqualTo(SPACES);
+  }
+
+  @Test
+  void releaseNeverGoesBelowZero() {
+    occupancyService.tryOccupy(parkingMeter.getId());
+
+    occupancyService.release(parkingMeter.getId());
+    occupancyService.release(parkingMeter.getId());
+
+    assertThat(storedOccupied()).isZero();
+    assertThat(occupancyService.tryOccupy(parkingMeter.getId())).isTrue();
+  }
+
+  @Test
+  void metersWithoutTheCounterAreAdmittedFromZero() {
+    mongoTemplate.updateFirst(
+        Query.query(Criteria.where("id").is(parkingMeter.getId())),
+        new Update().unset("occupied"),
+        ParkingMeter.class);
+
+    assertThat(occupancyService.tryOccupy(parkingMeter.getId())).isTrue();
+    assertThat(storedOccupied()).isEqualTo(1);
+  }
+
+  private int storedOccupied() {
+    return mongoTemplate.findById(parkingMeter.getId(), ParkingMeter.class).getOccupied();
+  }
+
+  private static ParkingMeter parkingMeter() {
+    return ParkingMeter.builder()
+        .availableSpaces(SPACES)
+        .occupied(0)
+        .address(
+            Address.builder()
+                .street("Rua Augusta")
+                .number("100")
+                .city("São Paulo")
+                .state("SP")
+                .zipCode("01310100")
+                .build())
+        .build();
+  }
+}
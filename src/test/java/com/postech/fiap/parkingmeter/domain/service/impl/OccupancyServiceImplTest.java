@@ -0,0 +1,203 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.mongodb.client.result.UpdateResult;
+import com.postech.fiap.parkingmeter.domain.event.OccupancyChangedEvent;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterOccupancyDTO;
+import com.postech.fiap.parkingmeter.domain.repository.TicketRepository;
+import java.util.List;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.MongoExpression;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Checks the filters the occupancy counter is moved with, and that reconciliation only corrects a
+ * drift it has seen twice in a row. The admission itself is run against MongoDB by {@link
+ * OccupancyServiceImplAdmissionTest}.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OccupancyServiceImplTest {
+
+  private static final String PARKING_METER_ID = new ObjectId().toHexString();
+
+  @Mock private TicketRepository ticketRepository;
+  @Mock private MongoTemplate mongoTemplate;
+  @Mock private ReactiveMongoTemplate reactiveMongoTemplate;
+  @Mock private ApplicationEventPublisher eventPublisher;
+
+  private OccupancyServiceImpl occupancyService;
+  private int storedOccupied;
+
+  @BeforeEach
+  void setUp() {
+    occupancyService =
+        new OccupancyServiceImpl(
+            ticketRepository, mongoTemplate, reactiveMongoTemplate, eventPublisher);
+    when(ticketRepository.countPendingTicketsGroupedByParkingMeter())
+        .thenReturn(List.of(new ParkingMeterOccupancyDTO(PARKING_METER_ID, 3)));
+    when(mongoTemplate.find(any(Query.class), eq(ParkingMeter.class)))
+        .thenAnswer(
+            invocation ->
+                List.of(
+                    ParkingMeter.builder()
+                        .id(PARKING_METER_ID)
+                        .availableSpaces(10)
+                        .occupied(storedOccupied)
+                        .version(1L)
+                        .build()));
+    when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ParkingMeter.class)))
+        .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+  }
+
+  @Test
+  void admissionOnlyMatchesMetersWithAFreeSpace() {
+    boolean admitted = occupancyService.tryOccupy(PARKING_METER_ID);
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate)
+        .findAndModify(
+            query.capture(),
+            update.capture(),
+            any(FindAndModifyOptions.class),
+            eq(ParkingMeter.class));
+    assertThat(admitted).isFalse();
+    Document condition = query.getValue().getQueryObject().getList("$and", Document.class).get(0);
+    assertThat(((MongoExpression) condition.get("$expr")).toDocument())
+        .isEqualTo(
+            Document.parse(
+                "{ '$lt': [ { '$ifNull': [ '$occupied', 0 ] }, '$available_spaces' ] }"));
+    assertThat(update.getValue().getUpdateObject().get("$inc", Document.class))
+        .containsEntry("occupied", 1);
+    verify(eventPublisher, never()).publishEvent(any(Object.class));
+  }
+
+  @Test
+  void batchReservationsAreNarrowedToTheFreeSpaces() {
+    when(mongoTemplate.findOne(any(Query.class), eq(ParkingMeter.class)))
+        .thenReturn(
+            ParkingMeter.builder().id(PARKING_METER_ID).availableSpaces(10).occupied(8).build());
+    when(mongoTemplate.findAndModify(
+            any(Query.class),
+            any(Update.class),
+            any(FindAndModifyOptions.class),
+            eq(ParkingMeter.class)))
+        .thenReturn(null)
+        .thenReturn(
+            ParkingMeter.builder().id(PARKING_METER_ID).availableSpaces(10).occupied(10).build());
+
+    int reserved = occupancyService.tryOccupy(PARKING_METER_ID, 5);
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate, times(2))
+        .findAndModify(
+            query.capture(),
+            update.capture(),
+            any(FindAndModifyOptions.class),
+            eq(ParkingMeter.class));
+    assertThat(reserved).isEqualTo(2);
+    Document condition =
+        query.getAllValues().get(1).getQueryObject().getList("$and", Document.class).get(0);
+    assertThat(((MongoExpression) condition.get("$expr")).toDocument())
+        .isEqualTo(
+            Document.parse(
+                "{ '$lte': [ { '$add': [ { '$ifNull': [ '$occupied', 0 ] }, 2 ] },"
+                    + " '$available_spaces' ] }"));
+    assertThat(update.getAllValues().get(1).getUpdateObject().get("$inc", Document.class))
+        .containsEntry("occupied", 2);
+    assertThat(occupancyService.getOccupied(PARKING_METER_ID)).isEqualTo(10);
+  }
+
+  @Test
+  void batchReservationsAtAFullMeterReserveNothing() {
+    when(mongoTemplate.findOne(any(Query.class), eq(ParkingMeter.class)))
+        .thenReturn(
+            ParkingMeter.builder().id(PARKING_METER_ID).availableSpaces(10).occupied(10).build());
+
+    assertThat(occupancyService.tryOccupy(PARKING_METER_ID, 3)).isZero();
+    verify(mongoTemplate)
+        .findAndModify(
+            any(Query.class),
+            any(Update.class),
+            any(FindAndModifyOptions.class),
+            eq(ParkingMeter.class));
+  }
+
+  @Test
+  void releaseOnlyMatchesMetersWithAnOccupiedSpace() {
+    occupancyService.release(PARKING_METER_ID);
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate)
+        .findAndModify(
+            query.capture(),
+            any(Update.class),
+            any(FindAndModifyOptions.class),
+            eq(ParkingMeter.class));
+    assertThat(query.getValue().getQueryObject().get("occupied", Document.class))
+        .containsEntry("$gt", 0);
+    verify(eventPublisher, never()).publishEvent(any(Object.class));
+  }
+
+  @Test
+  void driftIsCorrectedAfterTwoIdenticalObservations() {
+    storedOccupied = 5;
+
+    occupancyService.reconcile();
+    verify(mongoTemplate, never())
+        .updateFirst(any(Query.class), any(Update.class), eq(ParkingMeter.class));
+
+    occupancyService.reconcile();
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(ParkingMeter.class));
+    assertThat(query.getValue().getQueryObject()).containsEntry("occupied", 5);
+    assertThat(update.getValue().getUpdateObject().get("$set", Document.class))
+        .containsEntry("occupied", 3);
+
+    ArgumentCaptor<OccupancyChangedEvent> event =
+        ArgumentCaptor.forClass(OccupancyChangedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertThat(event.getValue().occupied()).isEqualTo(3);
+    assertThat(occupancyService.getOccupied(PARKING_METER_ID)).isEqualTo(3);
+  }
+
+  @Test
+  void driftThatKeepsChangingIsLeftAlone() {
+    storedOccupied = 5;
+    occupancyService.reconcile();
+    storedOccupied = 6;
+    occupancyService.reconcile();
+    storedOccupied = 3;
+    occupancyService.reconcile();
+    storedOccupied = 5;
+    occupancyService.reconcile();
+
+    verify(mongoTemplate, never())
+        .updateFirst(any(Query.class), any(Update.class), eq(ParkingMeter.class));
+  }
+}
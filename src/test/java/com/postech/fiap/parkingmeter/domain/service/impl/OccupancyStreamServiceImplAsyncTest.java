@@ -0,0 +1,72 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static com.postech.fiap.parkingmeter.domain.service.impl.OccupancyStreamServiceImplTest.event;
+import static com.postech.fiap.parkingmeter.domain.service.impl.OccupancyStreamServiceImplTest.updates;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.when;
+
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.dto.OccupancyUpdateDTO;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyStreamService;
+import com.postech.fiap.parkingmeter.infrastructure.config.SchedulingConfig;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedConstruction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+/** Publishes occupancy changes through the context, as the occupancy service does. */
+@SpringJUnitConfig(OccupancyStreamServiceImplAsyncTest.Config.class)
+class OccupancyStreamServiceImplAsyncTest {
+
+  @Autowired private OccupancyStreamService occupancyStreamService;
+  @Autowired private ApplicationEventPublisher eventPublisher;
+
+  @MockBean private MongoTemplate mongoTemplate;
+
+  @Test
+  void changesAreSentOffThePublishingThread() throws Exception {
+    when(mongoTemplate.find(any(Query.class), eq(ParkingMeter.class))).thenReturn(List.of());
+    SseEmitter emitter;
+    try (MockedConstruction<SseEmitter> emitters = mockConstruction(SseEmitter.class)) {
+      emitter = occupancyStreamService.subscribe("meter-1", null, null);
+    }
+    CompletableFuture<Thread> sender = new CompletableFuture<>();
+    doAnswer(invocation -> sender.complete(Thread.currentThread()))
+        .when(emitter)
+        .send(any(SseEventBuilder.class));
+
+    eventPublisher.publishEvent(event("meter-1", "São Paulo", "Centro"));
+
+    assertThat(sender.get(5, TimeUnit.SECONDS)).isNotSameAs(Thread.currentThread());
+    assertThat(updates(emitter))
+        .extracting(OccupancyUpdateDTO::getParkingMeterId)
+        .containsExactly("meter-1");
+  }
+
+  @Configuration
+  @Import(SchedulingConfig.class)
+  static class Config {
+
+    @Bean
+    OccupancyStreamServiceImpl occupancyStreamService(MongoTemplate mongoTemplate) {
+      return new OccupancyStreamServiceImpl(mongoTemplate, Duration.ofMinutes(30));
+    }
+  }
+}
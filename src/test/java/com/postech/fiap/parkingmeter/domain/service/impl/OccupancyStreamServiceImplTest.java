@@ -0,0 +1,170 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.postech.fiap.parkingmeter.domain.event.OccupancyChangedEvent;
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.dto.OccupancyUpdateDTO;
+import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockedConstruction;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OccupancyStreamServiceImplTest {
+
+  @Mock private MongoTemplate mongoTemplate;
+
+  private OccupancyStreamServiceImpl occupancyStreamService;
+  private MockedConstruction<SseEmitter> emitters;
+
+  @BeforeEach
+  void setUp() {
+    occupancyStreamService = new OccupancyStreamServiceImpl(mongoTemplate, Duration.ofMinutes(30));
+    emitters = mockConstruction(SseEmitter.class);
+    when(mongoTemplate.find(any(Query.class), eq(ParkingMeter.class))).thenReturn(List.of());
+  }
+
+  @AfterEach
+  void tearDown() {
+    emitters.close();
+  }
+
+  @Test
+  void subscribingRequiresAParkingMeterCityOrNeighborhood() {
+    assertThatThrownBy(() -> occupancyStreamService.subscribe(null, null, null))
+        .isInstanceOf(ParkingMeterException.class)
+        .extracting(e -> ((ParkingMeterException) e).getStatus())
+        .isEqualTo(HttpStatus.BAD_REQUEST);
+    assertThat(emitters.constructed()).isEmpty();
+  }
+
+  @Test
+  void newSubscribersFirstReceiveTheMetersTheyFollow() {
+    when(mongoTemplate.find(any(Query.class), eq(ParkingMeter.class)))
+        .thenReturn(
+            List.of(
+                parkingMeter("meter-1", "São Paulo", "Bela Vista", 3),
+                parkingMeter("meter-2", "São Paulo", "Centro", 12)));
+
+    SseEmitter emitter = occupancyStreamService.subscribe(null, "São Paulo", null);
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).find(query.capture(), eq(ParkingMeter.class));
+    assertThat(query.getValue().getQueryObject().getList("$and", Document.class))
+        .containsExactly(new Document("address.city", "São Paulo"));
+    assertThat(updates(emitter))
+        .extracting(
+            OccupancyUpdateDTO::getParkingMeterId,
+            OccupancyUpdateDTO::getAvailable,
+            OccupancyUpdateDTO::getVersion)
+        .containsExactly(tuple("meter-1", 7, 4L), tuple("meter-2", 0, 4L));
+  }
+
+  @Test
+  void changesReachOnlyTheSubscribersWhoseFilterMatches() {
+    SseEmitter byParkingMeter = occupancyStreamService.subscribe("meter-1", null, null);
+    SseEmitter byCity = occupancyStreamService.subscribe(null, "São Paulo", null);
+    SseEmitter byNeighborhood = occupancyStreamService.subscribe(null, null, "Bela Vista");
+    SseEmitter byOtherCity = occupancyStreamService.subscribe(null, "Campinas", "Bela Vista");
+
+    occupancyStreamService.onOccupancyChanged(event("meter-2", "São Paulo", "Bela Vista"));
+    occupancyStreamService.onOccupancyChanged(event("meter-1", "São Paulo", "Centro"));
+
+    assertThat(updates(byParkingMeter))
+        .extracting(OccupancyUpdateDTO::getParkingMeterId)
+        .containsExactly("meter-1");
+    assertThat(updates(byCity))
+        .extracting(OccupancyUpdateDTO::getParkingMeterId)
+        .containsExactly("meter-2", "meter-1");
+    assertThat(updates(byNeighborhood))
+        .extracting(OccupancyUpdateDTO::getParkingMeterId)
+        .containsExactly("meter-2");
+    assertThat(updates(byOtherCity)).isEmpty();
+  }
+
+  @Test
+  void subscribersThatFailToReceiveAreDropped() throws IOException {
+    SseEmitter failing = occupancyStreamService.subscribe(null, "São Paulo", null);
+    SseEmitter healthy = occupancyStreamService.subscribe(null, "São Paulo", null);
+    doThrow(new IOException("Broken pipe")).when(failing).send(any(SseEventBuilder.class));
+
+    occupancyStreamService.onOccupancyChanged(event("meter-1", "São Paulo", "Centro"));
+    occupancyStreamService.onOccupancyChanged(event("meter-2", "São Paulo", "Centro"));
+    occupancyStreamService.heartbeat();
+
+    verify(failing, times(1)).send(any(SseEventBuilder.class));
+    assertThat(updates(healthy))
+        .extracting(OccupancyUpdateDTO::getParkingMeterId)
+        .containsExactly("meter-1", "meter-2");
+    verify(healthy, times(3)).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  void completedSubscribersAreDroppedOnTheNextHeartbeat() throws IOException {
+    SseEmitter completed = occupancyStreamService.subscribe("meter-1", null, null);
+    doThrow(new IllegalStateException("ResponseBodyEmitter has already completed"))
+        .when(completed)
+        .send(any(SseEventBuilder.class));
+
+    occupancyStreamService.heartbeat();
+    occupancyStreamService.onOccupancyChanged(event("meter-1", "São Paulo", "Centro"));
+
+    verify(completed, times(1)).send(any(SseEventBuilder.class));
+  }
+
+  /** Returns the occupancy updates sent to a subscriber, leaving out the heartbeats. */
+  static List<OccupancyUpdateDTO> updates(SseEmitter emitter) {
+    return mockingDetails(emitter).getInvocations().stream()
+        .filter(invocation -> invocation.getMethod().getName().equals("send"))
+        .flatMap(invocation -> invocation.<SseEventBuilder>getArgument(0).build().stream())
+        .map(DataWithMediaType::getData)
+        .filter(OccupancyUpdateDTO.class::isInstance)
+        .map(OccupancyUpdateDTO.class::cast)
+        .toList();
+  }
+
+  static OccupancyChangedEvent event(String parkingMeterId, String city, String neighborhood) {
+    return new OccupancyChangedEvent(parkingMeterId, city, neighborhood, 10, 4, 7L);
+  }
+
+  private static ParkingMeter parkingMeter(
+      String id, String city, String neighborhood, int occupied) {
+    return ParkingMeter.builder()
+        .id(id)
+        .availableSpaces(10)
+        .occupied(occupied)
+        .version(4L)
+        .address(Address.builder().city(city).neighborhood(neighborhood).build())
+        .build();
+  }
+}
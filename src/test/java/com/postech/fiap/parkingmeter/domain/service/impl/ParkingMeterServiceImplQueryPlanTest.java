@@ -0,0 +1,333 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.dto.NearbyParkingMeterDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingSpaceDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TimesParkedDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.repository.ParkingMeterRepository;
+import com.postech.fiap.parkingmeter.domain.repository.TicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.ParkingMeterService;
+import com.postech.fiap.parkingmeter.infrastructure.index.IndexBootstrapper;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the parking meter ticket queries against a seeded replica set and explains every command
+ * they send to the {@code ticket} collection. Every fourth parking meter, starting with the second,
+ * is full. The bytes the server replies with are recorded too, to compare the trimmed reads with
+ * the whole documents they replaced.
+ */
+@SpringBootTest(
+    properties = {
+      "parkingmeter.rollup.backfill-on-startup=false",
+      "parkingmeter.spend-ledger.backfill-on-startup=false",
+      "parkingmeter.indexes.create-on-startup=false",
+      "parkingmeter.tickets.migrate-on-startup=false",
+      "parkingmeter.projections.enabled=false",
+      "parkingmeter.archive.enabled=false",
+      "parkingmeter.occupancy.initial-delay=PT1H"
+    })
+@Testcontainers(disabledWithoutDocker = true)
+class ParkingMeterServiceImplQueryPlanTest {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 10, 1);
+  private static final int SPACES = 500;
+  private static final int PARKING_METERS = 20;
+  private static final int TICKETS = 20_000;
+  private static final double LATITUDE = -23.5614;
+  private static final double LONGITUDE = -46.6559;
+
+  @Container static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+  @DynamicPropertySource
+  static void mongoProperties(DynamicPropertyRegistry registry) {
+    registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+  }
+
+  @Autowired private ParkingMeterService parkingMeterService;
+  @Autowired private MongoTemplate mongoTemplate;
+  @Autowired private IndexBootstrapper indexBootstrapper;
+  @Autowired private RecordedCommands recordedCommands;
+  @Autowired private ParkingMeterRepository parkingMeterRepository;
+  @Autowired private TicketRepository ticketRepository;
+
+  private ParkingMeter parkingMeter;
+  private List<Ticket> tickets;
+
+  @BeforeEach
+  void seed() {
+    mongoTemplate.dropCollection(Ticket.class);
+    mongoTemplate.dropCollection(ParkingMeter.class);
+
+    indexBootstrapper.ensureIndexes();
+
+    List<ParkingMeter> parkingMeters =
+        IntStream.range(0, PARKING_METERS)
+            .mapToObj(i -> mongoTemplate.insert(parkingMeter(i)))
+            .toList();
+    parkingMeter = parkingMeters.get(0);
+
+    tickets = new ArrayList<>();
+    for (int i = 0; i < TICKETS; i++) {
+      tickets.add(
+          ticket(
+              parkingMeters.get(i % PARKING_METERS),
+              "ABC-" + (i % 100),
+              DAY.minusDays(15).atStartOfDay().plusHours(i % 720),
+              i % 3 == 0 ? PaymentStatusEnum.PENDING : PaymentStatusEnum.PAID));
+    }
+    mongoTemplate.insert(tickets, Ticket.class);
+
+    recordedCommands.clear();
+  }
+
+  @Test
+  void availableSpaceIsCountedThroughTheTicketIndex() {
+    ParkingSpaceDTO parkingSpace = parkingMeterService.getAvailableSpace(parkingMeter.getId(), DAY);
+
+    long pending =
+        tickets.stream()
+            .filter(ticket -> ticket.getParkingMeter().getId().equals(parkingMeter.getId()))
+            .filter(ticket -> ticket.getPaymentStatus() == PaymentStatusEnum.PENDING)
+            .filter(ticket -> ticket.getStartTime().toLocalDate().equals(DAY))
+            .count();
+    assertThat(pending).isPositive();
+    assertThat(parkingSpace.getSpaces()).isEqualTo(SPACES);
+    assertThat(parkingSpace.getAvailable()).isEqualTo((int) (SPACES - pending));
+    assertTicketQueriesUseIndex();
+  }
+
+  @Test
+  void timesParkedIsCountedThroughTheTicketIndex() {
+    String licensePlate = "ABC-20";
+    TimesParkedDTO timesParked =
+        parkingMeterService.getTimesParkedWithDateRange(
+            parkingMeter.getId(), licensePlate, DAY.minusDays(3), DAY);
+
+    long expected =
+        tickets.stream()
+            .filter(ticket -> ticket.getParkingMeter().getId().equals(parkingMeter.getId()))
+            .filter(ticket -> ticket.getVehicle().getLicensePlate().equals(licensePlate))
+            .filter(ticket -> !ticket.getStartTime().toLocalDate().isBefore(DAY.minusDays(3)))
+            .filter(ticket -> !ticket.getStartTime().toLocalDate().isAfter(DAY))
+            .count();
+    assertThat(expected).isPositive();
+    assertThat(timesParked.getTimesParked()).isEqualTo((int) expected);
+    assertTicketQueriesUseIndex();
+  }
+
+  @Test
+  void nearestAvailableSkipsFullParkingMetersInOneAggregation() {
+    List<NearbyParkingMeterDTO> nearest =
+        parkingMeterService.findNearestAvailable(LATITUDE, LONGITUDE, null, 5);
+
+    assertThat(nearest)
+        .extracting(nearby -> nearby.getParkingMeter().getAddress().getNumber())
+        .containsExactly("0", "2", "3", "4", "6");
+    assertThat(nearest).allMatch(nearby -> nearby.getAvailable() == SPACES);
+    assertThat(nearest)
+        .extracting(NearbyParkingMeterDTO::getDistance)
+        .isSortedAccordingTo(Double::compare);
+    assertThat(parkingMeterService.findNearestAvailable(LATITUDE, LONGITUDE, 250.0, 5))
+        .extracting(nearby -> nearby.getParkingMeter().getAddress().getNumber())
+        .containsExactly("0", "2");
+
+    List<Document> commands = recordedCommands.on("parkingmeter");
+    assertThat(commands).hasSize(2).allMatch(command -> command.containsKey("aggregate"));
+    assertThat(explain(commands.get(0)).toJson()).contains("GEO_NEAR_2DSPHERE");
+  }
+
+  @Test
+  void checksReadFewerBytesThanTheDocumentsTheyUsedToLoad() {
+    String parkingMeterId = parkingMeter.getId();
+    String vehicleId =
+        tickets.stream()
+            .filter(ticket -> ticket.getPaymentStatus() == PaymentStatusEnum.PENDING)
+            .findFirst()
+            .orElseThrow()
+            .getVehicle()
+            .getId();
+
+    assertThat(parkingMeterRepository.findById(parkingMeterId)).isPresent();
+    long wholeParkingMeter = recordedCommands.bytesRead("parkingmeter");
+    assertThat(
+            mongoTemplate.findOne(
+                Query.query(
+                    Criteria.where("paymentStatus")
+                        .is(PaymentStatusEnum.PENDING)
+                        .and("vehicle.id")
+                        .is(vehicleId)),
+                Ticket.class))
+        .isNotNull();
+    long wholePendingTicket = recordedCommands.bytesRead("ticket");
+    recordedCommands.clear();
+
+    parkingMeterService.getAvailableSpace(parkingMeterId, DAY);
+    long availableSpace = recordedCommands.bytesRead("parkingmeter");
+    recordedCommands.clear();
+    parkingMeterService.getTimesParkedWithDateRange(
+        parkingMeterId, "ABC-20", DAY.minusDays(3), DAY);
+    long timesParked = recordedCommands.bytesRead("parkingmeter");
+    recordedCommands.clear();
+    assertThat(ticketRepository.existsPendingTicketByVehicleId(vehicleId)).isTrue();
+    long pendingTicketExists = recordedCommands.bytesRead("ticket");
+
+    assertThat(availableSpace).isPositive().isLessThan(wholeParkingMeter);
+    assertThat(timesParked).isPositive().isLessThan(availableSpace);
+    assertThat(pendingTicketExists).isPositive().isLessThan(wholePendingTicket);
+  }
+
+  private void assertTicketQueriesUseIndex() {
+    List<Document> ticketCommands = recordedCommands.on("ticket");
+    assertThat(ticketCommands).isNotEmpty();
+    assertThat(recordedCommands.on("parkingmeter")).noneMatch(c -> c.containsKey("aggregate"));
+
+    for (Document command : ticketCommands) {
+      assertThat(command.toJson()).doesNotContain("$lookup");
+      assertThat(explain(command).toJson()).contains("IXSCAN").doesNotContain("COLLSCAN");
+    }
+  }
+
+  private Document explain(Document command) {
+    Document explainable = new Document(command);
+    List.of(
+            "lsid",
+            "txnNumber",
+            "startTransaction",
+            "autocommit",
+            "readConcern",
+            "$db",
+            "$clusterTime",
+            "$readPreference")
+        .forEach(explainable::remove);
+    return mongoTemplate
+        .getDb()
+        .runCommand(new Document("explain", explainable).append("verbosity", "queryPlanner"));
+  }
+
+  private static ParkingMeter parkingMeter(int i) {
+    return ParkingMeter.builder()
+        .availableSpaces(SPACES)
+        .occupied(i % 4 == 1 ? SPACES : 0)
+        .location(new GeoJsonPoint(LONGITUDE + i * 0.001, LATITUDE))
+        .address(
+            Address.builder()
+                .street("Rua " + i)
+                .neighborhood("Centro")
+                .city("São Paulo")
+                .state("SP")
+                .zipCode(String.format("01%06d", i))
+                .number(String.valueOf(i))
+                .build())
+        .build();
+  }
+
+  private static Ticket ticket(
+      ParkingMeter parkingMeter,
+      String licensePlate,
+      LocalDateTime startTime,
+      PaymentStatusEnum paymentStatus) {
+    return Ticket.builder()
+        .parkingMeter(ParkingMeterSnapshot.of(parkingMeter))
+        .vehicle(new VehicleSnapshot(new ObjectId().toHexString(), licensePlate))
+        .startTime(startTime)
+        .endTime(startTime.plusHours(1))
+        .paymentStatus(paymentStatus)
+        .totalAmountCharged(paymentStatus == PaymentStatusEnum.PAID ? 10.0 : 0.0)
+        .build();
+  }
+
+  static class RecordedCommands implements CommandListener {
+
+    private final List<Document> commands = new CopyOnWriteArrayList<>();
+    private final Map<Integer, String> collections = new ConcurrentHashMap<>();
+    private final Map<String, Long> bytesRead = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+      Document command = Document.parse(event.getCommand().toJson());
+      commands.add(command);
+      if (command.get(event.getCommandName()) instanceof String collection) {
+        collections.put(event.getRequestId(), collection);
+      }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+      String collection = collections.remove(event.getRequestId());
+      if (collection != null) {
+        long bytes =
+            new RawBsonDocument(event.getResponse(), new BsonDocumentCodec())
+                .getByteBuffer()
+                .remaining();
+        bytesRead.merge(collection, bytes, Long::sum);
+      }
+    }
+
+    /** Size of the replies to the commands sent to {@code collection}. */
+    long bytesRead(String collection) {
+      return bytesRead.getOrDefault(collection, 0L);
+    }
+
+    List<Document> on(String collection) {
+      return commands.stream()
+          .filter(command -> collection.equals(command.get(command.keySet().iterator().next())))
+          .toList();
+    }
+
+    void clear() {
+      commands.clear();
+      bytesRead.clear();
+    }
+  }
+
+  @TestConfiguration
+  static class Config {
+
+    @Bean
+    RecordedCommands recordedCommands() {
+      return new RecordedCommands();
+    }
+
+    @Bean
+    MongoClientSettingsBuilderCustomizer recordCommands(RecordedCommands recordedCommands) {
+      return builder -> builder.addCommandListener(recordedCommands);
+    }
+  }
+}
@@ -0,0 +1,391 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.OccupancyHistogram;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.dto.AmountEarnedDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.NearbyParkingMeterDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.OccupancyHeatmapDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterActivityDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterEarningsDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingSpaceDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TimesParkedDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.parkingmeter.AddressParkingForm;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.parkingmeter.OperatingHoursParkingForm;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.parkingmeter.ParkingMeterForm;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.parkingmeter.RateParkingForm;
+import com.postech.fiap.parkingmeter.domain.model.enums.ActivityIntervalEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.repository.ParkingMeterRepository;
+import com.postech.fiap.parkingmeter.domain.repository.TicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyService;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketProjectionService;
+import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.domain.util.DateRangeNormalizer;
+import com.postech.fiap.parkingmeter.domain.util.KeysetPaginator;
+import com.postech.fiap.parkingmeter.domain.util.TieredTicketQueries;
+import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Checks that the analytics endpoints only read the parking meter fields they show, or just its
+ * existence, instead of loading the whole document, and that updates leave the occupancy counter
+ * to ticket admission.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ParkingMeterServiceImplTest {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 10, 1);
+
+  @Mock private ParkingMeterRepository parkingMeterRepository;
+  @Mock private TicketRepository ticketRepository;
+  @Mock private OccupancyService occupancyService;
+  @Mock private EarningsRollupService earningsRollupService;
+  @Mock private MongoTemplate mongoTemplate;
+  @Mock private KeysetPaginator keysetPaginator;
+  @Mock private TicketProjectionService ticketProjectionService;
+  @Mock private TicketArchiveService ticketArchiveService;
+  @Mock private TieredTicketQueries tieredTicketQueries;
+  @Mock private MongoCollection<Document> parkingMeters;
+  @Mock private AggregateIterable<Document> aggregateIterable;
+  @Mock private MongoConverter mongoConverter;
+
+  private ParkingMeterServiceImpl parkingMeterService;
+  private final ParkingMeter parkingMeter =
+      ParkingMeter.builder()
+          .id(new ObjectId().toHexString())
+          .availableSpaces(10)
+          .address(
+              Address.builder()
+                  .street("Rua Augusta")
+                  .city("São Paulo")
+                  .zipCode("01310100")
+                  .build())
+          .build();
+
+  @BeforeEach
+  void setUp() {
+    parkingMeterService =
+        new ParkingMeterServiceImpl(
+            parkingMeterRepository,
+            ticketRepository,
+            new ConverterToDTO(),
+            new DateRangeNormalizer(Duration.ofMinutes(1)),
+            occupancyService,
+            earningsRollupService,
+            mongoTemplate,
+            keysetPaginator,
+            ticketProjectionService,
+            ticketArchiveService,
+            tieredTicketQueries);
+    when(ticketArchiveService.getCollections(any(), any())).thenReturn(List.of("ticket"));
+    when(parkingMeterRepository.findAddressAndSpacesById(parkingMeter.getId()))
+        .thenReturn(Optional.of(parkingMeter));
+    when(parkingMeterRepository.existsById(parkingMeter.getId())).thenReturn(true);
+  }
+
+  @Test
+  void availableSpaceReadsOnlyTheAddressAndSpaces() {
+    when(ticketRepository.countPendingTicketsByParkingMeterIdAndStartTimeBetween(
+            eq(parkingMeter.getId()), any(), any()))
+        .thenReturn(3L);
+
+    ParkingSpaceDTO space = parkingMeterService.getAvailableSpace(parkingMeter.getId(), DAY);
+
+    assertThat(space.getSpaces()).isEqualTo(10);
+    assertThat(space.getAvailable()).isEqualTo(7);
+    assertThat(space.getAddress().getStreet()).isEqualTo("Rua Augusta");
+    verify(parkingMeterRepository, never()).findById(any());
+  }
+
+  @Test
+  void earningsReadOnlyTheAddressAndSpaces() {
+    when(earningsRollupService.getEarnings(anyList(), any(), any()))
+        .thenReturn(
+            List.of(
+                ParkingMeterEarningsDTO.builder().id(parkingMeter.getId()).earned(42.5).build()));
+
+    AmountEarnedDTO earned =
+        parkingMeterService.getParkingMeterEarningsWithDateRange(parkingMeter.getId(), DAY, DAY);
+
+    assertThat(earned.getEarned()).isEqualTo(42.5);
+    assertThat(earned.getAddress().getCity()).isEqualTo("São Paulo");
+    verify(parkingMeterRepository, never()).findById(any());
+  }
+
+  @Test
+  void unknownParkingMeterIsNotFound() {
+    when(parkingMeterRepository.findAddressAndSpacesById("missing")).thenReturn(Optional.empty());
+
+    assertThatThrownBy(() -> parkingMeterService.getAvailableSpace("missing", DAY))
+        .isInstanceOf(ParkingMeterException.class)
+        .extracting("status")
+        .isEqualTo(HttpStatus.NOT_FOUND);
+  }
+
+  @Test
+  void updateSetsOnlyTheFormFieldsAndLeavesTheOccupiedCounterAlone() {
+    when(parkingMeterRepository.findById(parkingMeter.getId()))
+        .thenReturn(Optional.of(parkingMeter));
+    when(mongoTemplate.findAndModify(
+            any(Query.class),
+            any(Update.class),
+            any(FindAndModifyOptions.class),
+            eq(ParkingMeter.class)))
+        .thenReturn(parkingMeter);
+
+    parkingMeterService.updateById(
+        parkingMeter.getId(),
+        new ParkingMeterForm(
+            new OperatingHoursParkingForm("08:00", "20:00"),
+            new RateParkingForm(5.0, 3.0),
+            20,
+            new AddressParkingForm(
+                "Rua Augusta", "Consolação", "São Paulo", "SP", "01310100", "100", ""),
+            null));
+
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate)
+        .findAndModify(any(Query.class), update.capture(), any(), eq(ParkingMeter.class));
+    Document updateObject = update.getValue().getUpdateObject();
+    assertThat(updateObject.get("$set", Document.class))
+        .containsOnlyKeys("operatingHours", "rate", "availableSpaces", "address");
+    assertThat(updateObject.get("$unset", Document.class)).containsOnlyKeys("location");
+    assertThat(updateObject.get("$inc", Document.class)).containsOnlyKeys("version");
+    verify(parkingMeterRepository, never()).save(any());
+  }
+
+  @Test
+  void timesParkedOnlyChecksThatTheParkingMeterExists() {
+    when(ticketRepository.countByParkingMeterIdAndLicensePlateAndStartTimeBetween(
+            eq(parkingMeter.getId()), eq("ABC1D23"), any(), any()))
+        .thenReturn(4L);
+
+    TimesParkedDTO timesParked =
+        parkingMeterService.getTimesParkedWithDateRange(parkingMeter.getId(), "ABC1D23", DAY, DAY);
+
+    assertThat(timesParked.getTimesParked()).isEqualTo(4);
+    verify(parkingMeterRepository).existsById(parkingMeter.getId());
+    verify(parkingMeterRepository, never()).findById(any());
+    verify(parkingMeterRepository, never()).findAddressAndSpacesById(any());
+  }
+
+  @Test
+  void timesParkedAtAnUnknownParkingMeterIsNotFound() {
+    assertThatThrownBy(
+            () -> parkingMeterService.getTimesParkedWithDateRange("missing", "ABC1D23", DAY, DAY))
+        .isInstanceOf(ParkingMeterException.class)
+        .extracting("status")
+        .isEqualTo(HttpStatus.NOT_FOUND);
+    verify(ticketRepository, never())
+        .countByParkingMeterIdAndLicensePlateAndStartTimeBetween(any(), any(), any(), any());
+  }
+
+  @Test
+  void activityIsDerivedFromTheTicketsWhileTheEventStreamIsBehind() {
+    when(ticketProjectionService.isReady()).thenReturn(false);
+    when(tieredTicketQueries.stream(any(), anyList(), any()))
+        .thenReturn(
+            Stream.of(
+                ticket(DAY.minusDays(1).atTime(23, 0), DAY.atTime(0, 30), 3.0),
+                ticket(DAY.atTime(8, 10), DAY.atTime(9, 30), 5.0),
+                ticket(DAY.atTime(8, 40), null, 0)));
+
+    List<ParkingMeterActivityDTO> activity =
+        parkingMeterService.getActivityWithDateRange(
+            parkingMeter.getId(), DAY, DAY, ActivityIntervalEnum.HOUR);
+
+    assertThat(activity)
+        .containsExactly(
+            new ParkingMeterActivityDTO(DAY.atTime(0, 0), 0, 1, 0, 3.0),
+            new ParkingMeterActivityDTO(DAY.atTime(8, 0), 2, 0, 0, 0),
+            new ParkingMeterActivityDTO(DAY.atTime(9, 0), 0, 1, 0, 5.0));
+    verify(ticketProjectionService, never()).findActivity(any(), any(), any(), any());
+  }
+
+  @Test
+  void heatmapsAreUnavailableWhileTheHistogramsAreNotReady() {
+    when(ticketProjectionService.isReady()).thenReturn(false);
+
+    assertThatThrownBy(() -> parkingMeterService.getOccupancyHeatmap(parkingMeter.getId()))
+        .isInstanceOf(ParkingMeterException.class)
+        .extracting("status")
+        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    assertThatThrownBy(
+            () -> parkingMeterService.getOccupancyHeatmapByLocality("São Paulo", null))
+        .isInstanceOf(ParkingMeterException.class)
+        .extracting("status")
+        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    verify(ticketProjectionService, never()).findOccupancyHistograms(any());
+  }
+
+  @Test
+  void aParkingMeterWithoutAHistogramHasAnEmptyHeatmap() {
+    when(ticketProjectionService.isReady()).thenReturn(true);
+    when(ticketProjectionService.findOccupancyHistograms(List.of(parkingMeter.getId())))
+        .thenReturn(List.of());
+
+    OccupancyHeatmapDTO heatmap = parkingMeterService.getOccupancyHeatmap(parkingMeter.getId());
+
+    assertThat(heatmap.getParkingMeterId()).isEqualTo(parkingMeter.getId());
+    assertThat(heatmap.getParkingMeters()).isEqualTo(1);
+    assertThat(heatmap.getArrivals()).hasDimensions(7, 24);
+    assertThat(Arrays.stream(heatmap.getArrivals()).flatMapToLong(Arrays::stream).sum())
+        .isZero();
+    assertThat(Arrays.stream(heatmap.getOccupiedHours()).flatMapToLong(Arrays::stream).sum())
+        .isZero();
+  }
+
+  @Test
+  void localityHeatmapSumsTheHistogramsOfItsParkingMeters() {
+    when(ticketProjectionService.isReady()).thenReturn(true);
+    ParkingMeter other = ParkingMeter.builder().id(new ObjectId().toHexString()).build();
+    when(mongoTemplate.find(any(Query.class), eq(ParkingMeter.class)))
+        .thenReturn(List.of(parkingMeter, other));
+    when(ticketProjectionService.findOccupancyHistograms(
+            List.of(parkingMeter.getId(), other.getId())))
+        .thenReturn(
+            List.of(
+                histogram(parkingMeter, DAY.atTime(8, 15)), histogram(other, DAY.atTime(8, 0))));
+
+    OccupancyHeatmapDTO heatmap =
+        parkingMeterService.getOccupancyHeatmapByLocality("São Paulo", null);
+
+    int day = DAY.getDayOfWeek().getValue() - 1;
+    assertThat(heatmap.getParkingMeters()).isEqualTo(2);
+    assertThat(heatmap.getArrivals()[day][8]).isEqualTo(2);
+    assertThat(Arrays.stream(heatmap.getArrivals()).flatMapToLong(Arrays::stream).sum())
+        .isEqualTo(2);
+    assertThat(heatmap.getOccupiedHours()[day][8]).isEqualTo(2);
+  }
+
+  @Test
+  void nearestAvailableSubtractsTheOccupiedSpacesAndKeepsTheDistance() {
+    ParkingMeter nearest =
+        ParkingMeter.builder().id("nearest").availableSpaces(10).occupied(4).build();
+    ParkingMeter neverOccupied = ParkingMeter.builder().id("far").availableSpaces(3).build();
+    List<Document> documents =
+        List.of(
+            new Document("_id", "nearest").append("distance", 120.5),
+            new Document("_id", "far").append("distance", 300));
+    aggregateParkingMeters();
+    when(aggregateIterable.into(any()))
+        .thenAnswer(
+            invocation -> {
+              List<Document> target = invocation.getArgument(0);
+              target.addAll(documents);
+              return target;
+            });
+    when(mongoConverter.read(eq(ParkingMeter.class), any(Document.class)))
+        .thenAnswer(
+            invocation ->
+                "nearest".equals(invocation.<Document>getArgument(1).get("_id"))
+                    ? nearest
+                    : neverOccupied);
+
+    List<NearbyParkingMeterDTO> nearby =
+        parkingMeterService.findNearestAvailable(-23.55, -46.63, null, 2);
+
+    assertThat(nearby)
+        .extracting(dto -> dto.getParkingMeter().getId(), NearbyParkingMeterDTO::getDistance)
+        .containsExactly(tuple("nearest", 120.5), tuple("far", 300.0));
+    assertThat(nearby).extracting(NearbyParkingMeterDTO::getAvailable).containsExactly(6, 3);
+  }
+
+  @Test
+  void nearestAvailableRejectsALimitOutOfRange() {
+    for (int limit : new int[] {0, 101}) {
+      assertThatThrownBy(
+              () -> parkingMeterService.findNearestAvailable(-23.55, -46.63, null, limit))
+          .isInstanceOf(ParkingMeterException.class)
+          .extracting("status")
+          .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+    verify(mongoTemplate, never()).getCollection(any());
+  }
+
+  @Test
+  void nearestAvailableIsUnavailableUntilTheLocationsAreIndexed() {
+    aggregateParkingMeters();
+    when(aggregateIterable.into(any()))
+        .thenThrow(
+            new MongoCommandException(
+                new BsonDocument("ok", new BsonInt32(0))
+                    .append("code", new BsonInt32(291))
+                    .append("errmsg", new BsonString("unable to find index for $geoNear query")),
+                new ServerAddress()));
+
+    assertThatThrownBy(() -> parkingMeterService.findNearestAvailable(-23.55, -46.63, null, 5))
+        .isInstanceOf(ParkingMeterException.class)
+        .extracting("status")
+        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  private void aggregateParkingMeters() {
+    when(mongoTemplate.getCollectionName(ParkingMeter.class)).thenReturn("parking_meter");
+    when(mongoTemplate.getCollection("parking_meter")).thenReturn(parkingMeters);
+    when(mongoTemplate.getConverter()).thenReturn(mongoConverter);
+    when(parkingMeters.aggregate(anyList())).thenReturn(aggregateIterable);
+  }
+
+  private static OccupancyHistogram histogram(ParkingMeter parkingMeter, LocalDateTime time) {
+    long[] slots = new long[OccupancyHistogram.SLOTS];
+    slots[OccupancyHistogram.slot(time)] = 1;
+    return new OccupancyHistogram(parkingMeter.getId(), slots, slots.clone());
+  }
+
+  private Ticket ticket(LocalDateTime startTime, LocalDateTime endTime, double amount) {
+    return Ticket.builder()
+        .id(new ObjectId().toHexString())
+        .parkingMeter(ParkingMeterSnapshot.of(parkingMeter))
+        .startTime(startTime)
+        .endTime(endTime)
+        .totalAmountCharged(amount)
+        .paymentStatus(endTime != null ? PaymentStatusEnum.PAID : PaymentStatusEnum.PENDING)
+        .build();
+  }
+}
@@ -0,0 +1,127 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.repository.reactive.ReactiveParkingMeterRepository;
+import com.postech.fiap.parkingmeter.domain.repository.reactive.ReactiveTicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.infrastructure.exception.ParkingMeterException;
+import java.time.LocalDate;
+import java.util.List;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReactiveParkingMeterServiceImplTest {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 10, 1);
+
+  @Mock private ReactiveParkingMeterRepository reactiveParkingMeterRepository;
+  @Mock private ReactiveTicketRepository reactiveTicketRepository;
+  @Mock private EarningsRollupService earningsRollupService;
+  @Mock private TicketArchiveService ticketArchiveService;
+  @Mock private ReactiveMongoTemplate reactiveMongoTemplate;
+
+  private ReactiveParkingMeterServiceImpl reactiveParkingMeterService;
+  private final ParkingMeter parkingMeter =
+      ParkingMeter.builder()
+          .id(new ObjectId().toHexString())
+          .availableSpaces(10)
+          .address(Address.builder().street("Rua Augusta").build())
+          .build();
+
+  @BeforeEach
+  void setUp() {
+    reactiveParkingMeterService =
+        new ReactiveParkingMeterServiceImpl(
+            reactiveParkingMeterRepository,
+            reactiveTicketRepository,
+            earningsRollupService,
+            new ConverterToDTO(),
+            ticketArchiveService,
+            reactiveMongoTemplate);
+    when(ticketArchiveService.getCollectionsReactive(any(), any()))
+        .thenReturn(Mono.just(List.of("ticket")));
+    when(reactiveParkingMeterRepository.findAddressAndSpacesById(any())).thenReturn(Mono.empty());
+    when(reactiveParkingMeterRepository.findAddressAndSpacesById(parkingMeter.getId()))
+        .thenReturn(Mono.just(parkingMeter));
+    when(reactiveParkingMeterRepository.existsById(any(String.class)))
+        .thenReturn(Mono.just(false));
+    when(reactiveParkingMeterRepository.existsById(parkingMeter.getId()))
+        .thenReturn(Mono.just(true));
+    when(reactiveTicketRepository.countPendingTicketsByParkingMeterIdAndStartTimeBetween(
+            any(), any(), any()))
+        .thenReturn(Mono.just(0L));
+    when(reactiveTicketRepository.countByParkingMeterIdAndLicensePlateAndStartTimeBetween(
+            any(), any(), any(), any()))
+        .thenReturn(Mono.just(0L));
+    when(reactiveTicketRepository.countPendingTicketsByParkingMeterIdAndStartTimeBetween(
+            eq(parkingMeter.getId()), any(), any()))
+        .thenReturn(Mono.just(3L));
+    when(reactiveTicketRepository.countByParkingMeterIdAndLicensePlateAndStartTimeBetween(
+            eq(parkingMeter.getId()), eq("ABC1D23"), any(), any()))
+        .thenReturn(Mono.just(4L));
+  }
+
+  @Test
+  void availableSpaceReadsOnlyTheAddressAndSpaces() {
+    StepVerifier.create(reactiveParkingMeterService.getAvailableSpace(parkingMeter.getId(), DAY))
+        .expectNextMatches(
+            space ->
+                space.getAvailable() == 7
+                    && "Rua Augusta".equals(space.getAddress().getStreet()))
+        .verifyComplete();
+    verify(reactiveParkingMeterRepository, never()).findById(any(String.class));
+  }
+
+  @Test
+  void availableSpaceAtAnUnknownParkingMeterIsNotFound() {
+    StepVerifier.create(reactiveParkingMeterService.getAvailableSpace("missing", DAY))
+        .expectErrorMatches(ReactiveParkingMeterServiceImplTest::isNotFound)
+        .verify();
+  }
+
+  @Test
+  void timesParkedOnlyChecksThatTheParkingMeterExists() {
+    StepVerifier.create(
+            reactiveParkingMeterService.getTimesParkedWithDateRange(
+                parkingMeter.getId(), "ABC1D23", DAY, DAY))
+        .expectNextMatches(timesParked -> timesParked.getTimesParked() == 4)
+        .verifyComplete();
+    verify(reactiveParkingMeterRepository, never()).findById(any(String.class));
+    verify(reactiveParkingMeterRepository, never()).findAddressAndSpacesById(any());
+  }
+
+  @Test
+  void timesParkedAtAnUnknownParkingMeterIsNotFound() {
+    StepVerifier.create(
+            reactiveParkingMeterService.getTimesParkedWithDateRange(
+                "missing", "ABC1D23", DAY, DAY))
+        .expectErrorMatches(ReactiveParkingMeterServiceImplTest::isNotFound)
+        .verify();
+  }
+
+  private static boolean isNotFound(Throwable error) {
+    return error instanceof ParkingMeterException parkingMeterException
+        && parkingMeterException.getStatus() == HttpStatus.NOT_FOUND;
+  }
+}
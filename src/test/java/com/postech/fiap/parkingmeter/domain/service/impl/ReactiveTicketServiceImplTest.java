@@ -0,0 +1,143 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.OperationHours;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.Rate;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketForm;
+import com.postech.fiap.parkingmeter.domain.repository.reactive.ReactiveTicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.domain.service.VehicleSpendLedgerService;
+import com.postech.fiap.parkingmeter.domain.util.TicketDtoAssembler;
+import com.postech.fiap.parkingmeter.infrastructure.cache.TicketCacheInvalidator;
+import com.postech.fiap.parkingmeter.infrastructure.exception.TicketException;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReactiveTicketServiceImplTest {
+
+  @Mock private TicketSnapshotService ticketSnapshotService;
+  @Mock private OccupancyService occupancyService;
+  @Mock private EarningsRollupService earningsRollupService;
+  @Mock private VehicleSpendLedgerService vehicleSpendLedgerService;
+  @Mock private ReactiveTicketRepository reactiveTicketRepository;
+  @Mock private TicketDtoAssembler ticketDtoAssembler;
+  @Mock private TicketCacheInvalidator ticketCacheInvalidator;
+  @Mock private TransactionalOperator reactiveTransactionalOperator;
+
+  private ReactiveTicketServiceImpl reactiveTicketService;
+  private final Vehicle vehicle =
+      Vehicle.builder().id(new ObjectId().toHexString()).licensePlate("ABC1D23").build();
+  private final ParkingMeter parkingMeter =
+      ParkingMeter.builder()
+          .id(new ObjectId().toHexString())
+          .operatingHours(
+              OperationHours.builder().start("00:00").end("23:59:59.999999999").build())
+          .rate(Rate.builder().firstHour(5.0).additionalHours(3.0).build())
+          .availableSpaces(1)
+          .address(Address.builder().street("Rua Augusta").build())
+          .build();
+  private final TicketForm ticketForm = new TicketForm(vehicle.getId(), parkingMeter.getId());
+
+  @BeforeEach
+  void setUp() {
+    reactiveTicketService =
+        new ReactiveTicketServiceImpl(
+            ticketSnapshotService,
+            occupancyService,
+            earningsRollupService,
+            vehicleSpendLedgerService,
+            reactiveTicketRepository,
+            ticketDtoAssembler,
+            ticketCacheInvalidator,
+            reactiveTransactionalOperator);
+    when(ticketSnapshotService.getVehicleReactive(vehicle.getId())).thenReturn(Mono.just(vehicle));
+    when(ticketSnapshotService.getParkingMeterReactive(parkingMeter.getId()))
+        .thenReturn(Mono.just(parkingMeter));
+    when(reactiveTicketRepository.existsPendingTicketByVehicleId(vehicle.getId()))
+        .thenReturn(Mono.just(false));
+    when(occupancyService.tryOccupyReactive(parkingMeter.getId())).thenReturn(Mono.just(true));
+    when(occupancyService.releaseReactive(anyString())).thenReturn(Mono.empty());
+    when(reactiveTicketRepository.insert(any(Ticket.class)))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    when(ticketDtoAssembler.toDtoReactive(any(Ticket.class)))
+        .thenAnswer(invocation -> Mono.just(TicketDTO.builder().build()));
+  }
+
+  @Test
+  void issuesATicketOnceASpaceIsReserved() {
+    StepVerifier.create(reactiveTicketService.create(ticketForm))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    verify(reactiveTicketRepository).insert(any(Ticket.class));
+    verify(occupancyService, never()).releaseReactive(anyString());
+  }
+
+  @Test
+  void refusesWhenTheParkingMeterIsFull() {
+    when(occupancyService.tryOccupyReactive(parkingMeter.getId())).thenReturn(Mono.just(false));
+
+    StepVerifier.create(reactiveTicketService.create(ticketForm))
+        .expectErrorSatisfies(
+            e ->
+                assertThat(e)
+                    .isInstanceOf(TicketException.class)
+                    .hasMessage("This parking meter has no available spaces"))
+        .verify();
+
+    verify(reactiveTicketRepository, never()).insert(any(Ticket.class));
+    verify(occupancyService, never()).releaseReactive(anyString());
+    verifyNoInteractions(ticketCacheInvalidator);
+  }
+
+  @Test
+  void parkedVehiclesAreRefusedWithoutReservingASpace() {
+    when(reactiveTicketRepository.existsPendingTicketByVehicleId(vehicle.getId()))
+        .thenReturn(Mono.just(true));
+
+    StepVerifier.create(reactiveTicketService.create(ticketForm))
+        .expectErrorMessage("The vehicle is already parked at a parking meter")
+        .verify();
+
+    verify(occupancyService, never()).tryOccupyReactive(anyString());
+    verify(reactiveTicketRepository, never()).insert(any(Ticket.class));
+  }
+
+  @Test
+  void releasesTheSpaceWhenTheInsertFails() {
+    when(reactiveTicketRepository.insert(any(Ticket.class)))
+        .thenReturn(Mono.error(new IllegalStateException("write failed")));
+
+    StepVerifier.create(reactiveTicketService.create(ticketForm))
+        .expectErrorMessage("write failed")
+        .verify();
+
+    verify(occupancyService).releaseReactive(parkingMeter.getId());
+    verifyNoInteractions(ticketCacheInvalidator);
+  }
+}
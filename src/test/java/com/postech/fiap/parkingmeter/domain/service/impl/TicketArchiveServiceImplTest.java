@@ -0,0 +1,174 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.OperationHours;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Rate;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.TicketArchiveState;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.dto.CursorPageDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.PageModeEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketService;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Archives tickets spread over three months and checks that the ticket queries return the same
+ * pages, totals and tickets as before they were moved.
+ */
+@SpringBootTest(
+    properties = {
+      "parkingmeter.rollup.backfill-on-startup=false",
+      "parkingmeter.spend-ledger.backfill-on-startup=false",
+      "parkingmeter.indexes.create-on-startup=false",
+      "parkingmeter.tickets.migrate-on-startup=false",
+      "parkingmeter.projections.enabled=false",
+      "parkingmeter.archive.enabled=false",
+      "parkingmeter.archive.batch-size=7",
+      "parkingmeter.occupancy.initial-delay=PT1H"
+    })
+@Testcontainers(disabledWithoutDocker = true)
+class TicketArchiveServiceImplTest {
+
+  private static final LocalDateTime FIRST_START = LocalDateTime.of(2024, 8, 1, 8, 0);
+  private static final int TICKETS = 90;
+
+  @Container static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+  @DynamicPropertySource
+  static void mongoProperties(DynamicPropertyRegistry registry) {
+    registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+  }
+
+  @Autowired private TicketArchiveService ticketArchiveService;
+  @Autowired private TicketService ticketService;
+  @Autowired private MongoTemplate mongoTemplate;
+  @Autowired private CacheManager cacheManager;
+
+  private List<Ticket> tickets;
+
+  @BeforeEach
+  void seed() {
+    mongoTemplate.getCollectionNames().stream()
+        .filter(name -> name.startsWith(TicketArchiveService.ARCHIVE_PREFIX))
+        .forEach(mongoTemplate::dropCollection);
+    mongoTemplate.dropCollection(Ticket.class);
+    mongoTemplate.dropCollection(ParkingMeter.class);
+    mongoTemplate.dropCollection(Vehicle.class);
+
+    ParkingMeter parkingMeter = mongoTemplate.insert(parkingMeter());
+    Vehicle vehicle =
+        mongoTemplate.insert(Vehicle.builder().licensePlate("ABC1D23").model("Onix").build());
+    tickets =
+        IntStream.range(0, TICKETS)
+            .mapToObj(
+                i ->
+                    mongoTemplate.insert(
+                        Ticket.builder()
+                            .startTime(FIRST_START.plusDays(i))
+                            .totalAmountCharged(i % 3 == 0 ? 0 : 5.0)
+                            .paymentStatus(
+                                PaymentStatusEnum.values()[i % PaymentStatusEnum.values().length])
+                            .parkingMeter(ParkingMeterSnapshot.of(parkingMeter))
+                            .vehicle(VehicleSnapshot.of(vehicle))
+                            .build()))
+            .toList();
+  }
+
+  @Test
+  void archivedTicketsAreReadAsBefore() {
+    LocalDateTime start = FIRST_START.plusDays(20);
+    LocalDateTime end = FIRST_START.plusDays(70);
+    PageRequest page = PageRequest.of(1, 10, Sort.by("startTime"));
+    Slice<TicketDTO> byDateRange =
+        ticketService.findTicketsByDateRange(start, end, page, PageModeEnum.PAGE);
+    Slice<TicketDTO> paid =
+        ticketService.findTicketsByStatus(PaymentStatusEnum.PAID, page, PageModeEnum.PAGE);
+    List<TicketDTO> scrolled = scrollAll();
+    TicketDTO ticket = ticketService.getById(tickets.get(5).getId());
+
+    long archived = ticketArchiveService.archive();
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+    long closed =
+        tickets.stream().filter(t -> t.getPaymentStatus() != PaymentStatusEnum.PENDING).count();
+    assertThat(archived).isEqualTo(closed);
+    assertThat(mongoTemplate.count(new Query(), Ticket.class)).isEqualTo(TICKETS - closed);
+    assertThat(ticketArchiveService.getArchiveCollections())
+        .containsExactly(
+            "ticket_archive_202410", "ticket_archive_202409", "ticket_archive_202408");
+    assertThat(ticketService.findTicketsByDateRange(start, end, page, PageModeEnum.PAGE))
+        .isEqualTo(byDateRange);
+    assertThat(ticketService.findTicketsByStatus(PaymentStatusEnum.PAID, page, PageModeEnum.PAGE))
+        .isEqualTo(paid);
+    assertThat(scrollAll()).isEqualTo(scrolled);
+    assertThat(ticketService.getById(tickets.get(5).getId())).isEqualTo(ticket);
+  }
+
+  @Test
+  void rangesAfterTheArchivedTicketsOnlyReadTheTicketCollection() {
+    ticketArchiveService.archive();
+
+    TicketArchiveState state = mongoTemplate.findById("ticket", TicketArchiveState.class);
+    assertThat(
+            ticketArchiveService.getCollections(
+                state.getArchivedBefore(), state.getArchivedBefore().plusDays(1)))
+        .containsExactly("ticket");
+    assertThat(ticketArchiveService.getCollections(PaymentStatusEnum.PENDING))
+        .containsExactly("ticket");
+  }
+
+  private List<TicketDTO> scrollAll() {
+    List<TicketDTO> all = new ArrayList<>();
+    String cursor = null;
+    CursorPageDTO<TicketDTO> page;
+    do {
+      page = ticketService.scrollAll(cursor, 7);
+      all.addAll(page.getContent());
+      cursor = page.getNextCursor();
+    } while (page.isHasNext());
+    return all;
+  }
+
+  private static ParkingMeter parkingMeter() {
+    return ParkingMeter.builder()
+        .operatingHours(OperationHours.builder().start("00:00").end("23:59").build())
+        .rate(Rate.builder().firstHour(5.0).additionalHours(3.0).build())
+        .availableSpaces(20)
+        .occupied(0)
+        .address(
+            Address.builder()
+                .street("Avenida Paulista")
+                .number("1000")
+                .city("São Paulo")
+                .state("SP")
+                .zipCode("01310100")
+                .build())
+        .build();
+  }
+}
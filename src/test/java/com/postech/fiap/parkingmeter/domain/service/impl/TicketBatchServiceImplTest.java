@@ -0,0 +1,317 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.postech.fiap.parkingmeter.domain.model.OperationHours;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Rate;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketEventResultDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.TicketEventForm;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketEventTypeEnum;
+import com.postech.fiap.parkingmeter.domain.repository.TicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.domain.service.VehicleSpendLedgerService;
+import com.postech.fiap.parkingmeter.infrastructure.cache.TicketCacheInvalidator;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TicketBatchServiceImplTest {
+
+  private static final LocalDateTime START =
+      LocalDateTime.now().minusDays(1).withHour(10).withMinute(0);
+
+  @Mock private TicketSnapshotService ticketSnapshotService;
+  @Mock private OccupancyService occupancyService;
+  @Mock private EarningsRollupService earningsRollupService;
+  @Mock private VehicleSpendLedgerService vehicleSpendLedgerService;
+  @Mock private TicketRepository ticketRepository;
+  @Mock private MongoTemplate mongoTemplate;
+  @Mock private TicketCacheInvalidator ticketCacheInvalidator;
+  @Mock private MongoTransactionManager transactionManager;
+  @Mock private BulkOperations bulkOperations;
+
+  private TicketBatchServiceImpl ticketBatchService;
+  private final ParkingMeter parkingMeter =
+      ParkingMeter.builder()
+          .id(new ObjectId().toHexString())
+          .operatingHours(OperationHours.builder().start("00:00").end("23:59").build())
+          .rate(Rate.builder().firstHour(5.0).additionalHours(3.0).build())
+          .availableSpaces(10)
+          .build();
+  private final Vehicle vehicle =
+      Vehicle.builder().id(new ObjectId().toHexString()).licensePlate("ABC1D23").build();
+  private final Vehicle parkedVehicle =
+      Vehicle.builder().id(new ObjectId().toHexString()).licensePlate("XYZ9Z99").build();
+
+  @BeforeEach
+  void setUp() {
+    ticketBatchService =
+        new TicketBatchServiceImpl(
+            ticketSnapshotService,
+            occupancyService,
+            earningsRollupService,
+            vehicleSpendLedgerService,
+            ticketRepository,
+            mongoTemplate,
+            transactionManager,
+            ticketCacheInvalidator);
+
+    when(ticketSnapshotService.getVehicles(anyCollection()))
+        .thenReturn(Map.of(vehicle.getId(), vehicle, parkedVehicle.getId(), parkedVehicle));
+    when(ticketSnapshotService.getParkingMeters(anyCollection()))
+        .thenReturn(Map.of(parkingMeter.getId(), parkingMeter));
+    when(ticketRepository.findAllById(any())).thenReturn(List.of());
+    when(mongoTemplate.find(any(Query.class), eq(Ticket.class)))
+        .thenReturn(List.of(Ticket.builder().vehicle(VehicleSnapshot.of(parkedVehicle)).build()));
+    when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Ticket.class))
+        .thenReturn(bulkOperations);
+    when(bulkOperations.execute())
+        .thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()));
+    when(occupancyService.tryOccupy(anyString(), anyInt()))
+        .thenAnswer(invocation -> invocation.getArgument(1));
+  }
+
+  @Test
+  void eventsOfTheSameTicketAreFoldedIntoOneInsert() {
+    String ticketId = new ObjectId().toHexString();
+
+    List<TicketEventResultDTO> results =
+        ticketBatchService.ingest(
+            List.of(
+                create(ticketId, vehicle, START),
+                event(TicketEventTypeEnum.PAY, ticketId, START.plusMinutes(90))));
+
+    assertThat(results).allMatch(TicketEventResultDTO::isApplied);
+    ArgumentCaptor<Ticket> inserted = ArgumentCaptor.forClass(Ticket.class);
+    verify(bulkOperations).insert(inserted.capture());
+    assertThat(inserted.getValue().getId()).isEqualTo(ticketId);
+    assertThat(inserted.getValue().getPaymentStatus()).isEqualTo(PaymentStatusEnum.PAID);
+    assertThat(inserted.getValue().getTotalAmountCharged()).isEqualTo(8.0);
+
+    verify(earningsRollupService).applyPayments(List.of(inserted.getValue()), List.of());
+    verify(vehicleSpendLedgerService).applyPayments(List.of(inserted.getValue()), List.of());
+    verify(occupancyService).tryOccupy(parkingMeter.getId(), 1);
+    verify(occupancyService).adjust(Map.of(parkingMeter.getId(), -1));
+  }
+
+  @Test
+  void invalidEventsAreRejectedWithoutAffectingTheOthers() {
+    List<TicketEventResultDTO> results =
+        ticketBatchService.ingest(
+            List.of(
+                create(null, parkedVehicle, START),
+                event(TicketEventTypeEnum.PAY, new ObjectId().toHexString(), START),
+                create(null, vehicle, START),
+                create(null, vehicle, START.plusMinutes(1))));
+
+    assertThat(results)
+        .extracting(TicketEventResultDTO::isApplied)
+        .containsExactly(false, false, true, false);
+    assertThat(results)
+        .extracting(TicketEventResultDTO::getMessage)
+        .containsExactly(
+            "The vehicle is already parked at a parking meter",
+            "Ticket not found",
+            null,
+            "The vehicle is already parked at a parking meter");
+    verify(occupancyService).tryOccupy(parkingMeter.getId(), 3);
+    verify(occupancyService).adjust(Map.of(parkingMeter.getId(), -2));
+  }
+
+  @Test
+  void failedWritesRejectEveryEventFoldedIntoThem() {
+    String duplicateId = new ObjectId().toHexString();
+    String ticketId = new ObjectId().toHexString();
+    Vehicle otherVehicle = Vehicle.builder().id(new ObjectId().toHexString()).build();
+    when(ticketSnapshotService.getVehicles(anyCollection()))
+        .thenReturn(Map.of(vehicle.getId(), vehicle, otherVehicle.getId(), otherVehicle));
+    when(bulkOperations.execute())
+        .thenThrow(
+            new BulkOperationException(
+                "E11000",
+                new MongoBulkWriteException(
+                    BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                    List.of(new BulkWriteError(11000, "E11000", new BsonDocument(), 0)),
+                    null,
+                    new ServerAddress(),
+                    Set.of())))
+        .thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()));
+
+    List<TicketEventResultDTO> results =
+        ticketBatchService.ingest(
+            List.of(
+                create(duplicateId, vehicle, START),
+                event(TicketEventTypeEnum.CANCEL, duplicateId, START.plusMinutes(2)),
+                create(ticketId, otherVehicle, START)));
+
+    assertThat(results)
+        .extracting(TicketEventResultDTO::getMessage)
+        .containsExactly("Ticket already exists", "Ticket already exists", null);
+    verify(bulkOperations, times(2))
+        .insert(argThat((Ticket ticket) -> ticket.getId().equals(ticketId)));
+    verify(transactionManager).rollback(any());
+    verify(transactionManager).commit(any());
+    ArgumentCaptor<Map<String, Integer>> occupancy = ArgumentCaptor.forClass(Map.class);
+    verify(occupancyService).adjust(occupancy.capture());
+    assertThat(occupancy.getValue()).containsExactly(Map.entry(parkingMeter.getId(), -1));
+    verify(earningsRollupService).applyPayments(List.of(), List.of());
+  }
+
+  @Test
+  void paymentsAreAppliedInTheTransactionOfTheirTickets() {
+    String ticketId = new ObjectId().toHexString();
+
+    ticketBatchService.ingest(
+        List.of(
+            create(ticketId, vehicle, START),
+            event(TicketEventTypeEnum.PAY, ticketId, START.plusMinutes(90))));
+
+    InOrder inOrder =
+        inOrder(
+            transactionManager, bulkOperations, earningsRollupService, vehicleSpendLedgerService);
+    inOrder.verify(transactionManager).getTransaction(any());
+    inOrder.verify(bulkOperations).execute();
+    inOrder.verify(earningsRollupService).applyPayments(anyList(), anyList());
+    inOrder.verify(vehicleSpendLedgerService).applyPayments(anyList(), anyList());
+    inOrder.verify(transactionManager).commit(any());
+  }
+
+  @Test
+  void aChunkThatCannotBeCommittedRejectsItsEvents() {
+    String ticketId = new ObjectId().toHexString();
+    when(bulkOperations.execute())
+        .thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()));
+    doThrow(new DataAccessResourceFailureException("Connection reset"))
+        .when(earningsRollupService)
+        .applyPayments(anyList(), anyList());
+
+    List<TicketEventResultDTO> results =
+        ticketBatchService.ingest(
+            List.of(
+                create(ticketId, vehicle, START),
+                event(TicketEventTypeEnum.PAY, ticketId, START.plusMinutes(90))));
+
+    assertThat(results)
+        .extracting(TicketEventResultDTO::getMessage)
+        .containsExactly("Connection reset", "Connection reset");
+    verify(transactionManager).rollback(any());
+    verify(transactionManager, never()).commit(any());
+    verify(occupancyService).adjust(Map.of(parkingMeter.getId(), -1));
+  }
+
+  @Test
+  void createsBeyondTheFreeSpacesAreRejected() {
+    Vehicle otherVehicle = Vehicle.builder().id(new ObjectId().toHexString()).build();
+    Vehicle thirdVehicle = Vehicle.builder().id(new ObjectId().toHexString()).build();
+    when(ticketSnapshotService.getVehicles(anyCollection()))
+        .thenReturn(
+            Map.of(
+                vehicle.getId(),
+                vehicle,
+                otherVehicle.getId(),
+                otherVehicle,
+                thirdVehicle.getId(),
+                thirdVehicle));
+    when(occupancyService.tryOccupy(parkingMeter.getId(), 3)).thenReturn(1);
+
+    List<TicketEventResultDTO> results =
+        ticketBatchService.ingest(
+            List.of(
+                create(null, vehicle, START),
+                create(null, otherVehicle, START.plusMinutes(1)),
+                create(null, thirdVehicle, START.plusMinutes(2))));
+
+    assertThat(results)
+        .extracting(TicketEventResultDTO::getMessage)
+        .containsExactly(
+            null,
+            "This parking meter has no available spaces",
+            "This parking meter has no available spaces");
+    verify(bulkOperations).insert(any(Ticket.class));
+    verify(occupancyService).adjust(Map.of(parkingMeter.getId(), 0));
+  }
+
+  @Test
+  void aFullParkingMeterAdmitsCreatesOnlyIntoSpacesFreedByTheBatch() {
+    Ticket parked =
+        Ticket.builder()
+            .id(new ObjectId().toHexString())
+            .startTime(START)
+            .paymentStatus(PaymentStatusEnum.PENDING)
+            .parkingMeter(ParkingMeterSnapshot.of(parkingMeter))
+            .vehicle(VehicleSnapshot.of(parkedVehicle))
+            .build();
+    when(ticketRepository.findAllById(any())).thenReturn(List.of(parked));
+    when(occupancyService.tryOccupy(parkingMeter.getId(), 2)).thenReturn(0);
+    when(bulkOperations.execute())
+        .thenReturn(BulkWriteResult.acknowledged(1, 1, 0, 1, List.of(), List.of()));
+
+    List<TicketEventResultDTO> results =
+        ticketBatchService.ingest(
+            List.of(
+                create(null, vehicle, START.plusMinutes(30)),
+                event(TicketEventTypeEnum.PAY, parked.getId(), START.plusMinutes(40)),
+                create(null, vehicle, START.plusMinutes(50))));
+
+    assertThat(results)
+        .extracting(TicketEventResultDTO::getMessage)
+        .containsExactly("This parking meter has no available spaces", null, null);
+    verify(bulkOperations).insert(any(Ticket.class));
+    verify(occupancyService).adjust(Map.of(parkingMeter.getId(), 0));
+  }
+
+  private TicketEventForm create(String ticketId, Vehicle vehicle, LocalDateTime occurredAt) {
+    return new TicketEventForm(
+        TicketEventTypeEnum.CREATE, ticketId, vehicle.getId(), parkingMeter.getId(), occurredAt);
+  }
+
+  private static TicketEventForm event(
+      TicketEventTypeEnum type, String ticketId, LocalDateTime occurredAt) {
+    return new TicketEventForm(type, ticketId, null, null, occurredAt);
+  }
+}
@@ -0,0 +1,197 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.TicketExportFormatEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.util.TicketDtoAssembler;
+import com.postech.fiap.parkingmeter.domain.util.TieredTicketQueries;
+import com.postech.fiap.parkingmeter.infrastructure.exception.TicketException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Checks the CSV escaping and that resuming an export after a ticket skips exactly the tickets up
+ * to it, including the ones that started at the same time. The resume filter the service builds
+ * is evaluated in memory against the seeded tickets.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TicketExportServiceImplTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2024, 10, 1, 0, 0);
+  private static final LocalDateTime END = START.plusDays(1);
+  private static final LocalDateTime SHARED_START = START.plusHours(10);
+
+  @Mock private MongoTemplate mongoTemplate;
+  @Mock private TicketDtoAssembler ticketDtoAssembler;
+  @Mock private TicketArchiveService ticketArchiveService;
+  @Mock private TieredTicketQueries tieredTicketQueries;
+
+  private TicketExportServiceImpl ticketExportService;
+  private List<Ticket> tickets;
+
+  @BeforeEach
+  void setUp() {
+    ticketExportService =
+        new TicketExportServiceImpl(
+            mongoTemplate,
+            ticketDtoAssembler,
+            ticketArchiveService,
+            tieredTicketQueries,
+            new ObjectMapper());
+    tickets =
+        List.of(
+            ticket(SHARED_START.minusHours(1)),
+            ticket(SHARED_START),
+            ticket(SHARED_START),
+            ticket(SHARED_START),
+            ticket(SHARED_START.plusHours(1)));
+
+    when(ticketArchiveService.getCollections(START, END)).thenReturn(List.of("ticket"));
+    when(mongoTemplate.findOne(any(Query.class), eq(Ticket.class), eq("ticket")))
+        .thenAnswer(
+            invocation -> {
+              Object id = invocation.<Query>getArgument(0).getQueryObject().get("id");
+              return tickets.stream().filter(t -> t.getId().equals(id)).findFirst().orElse(null);
+            });
+    when(tieredTicketQueries.stream(any(Query.class), eq(List.of("ticket")), any()))
+        .thenAnswer(
+            invocation -> {
+              Document query = invocation.<Query>getArgument(0).getQueryObject();
+              Comparator<Ticket> order = invocation.getArgument(2);
+              return tickets.stream().filter(ticket -> resumes(query, ticket)).sorted(order);
+            });
+  }
+
+  @Test
+  void valuesWithSeparatorsQuotesOrLineBreaksAreQuoted() {
+    Ticket ticket =
+        Ticket.builder()
+            .id("65f0c0ffee0000000000abcd")
+            .startTime(START)
+            .paymentStatus(PaymentStatusEnum.PENDING)
+            .parkingMeter(
+                ParkingMeterSnapshot.builder()
+                    .id("meter-1")
+                    .address(
+                        Address.builder()
+                            .city("São Paulo, SP")
+                            .neighborhood("Jardim \"Paulista\"")
+                            .build())
+                    .build())
+            .vehicle(VehicleSnapshot.builder().id("vehicle-1").licensePlate("ABC\n1D23").build())
+            .build();
+
+    assertThat(TicketExportServiceImpl.csvLine(ticket))
+        .isEqualTo(
+            "65f0c0ffee0000000000abcd,2024-10-01T00:00,,PENDING,0.0,meter-1,"
+                + "\"São Paulo, SP\",\"Jardim \"\"Paulista\"\"\",vehicle-1,\"ABC\n1D23\"");
+  }
+
+  @Test
+  void missingParkingMeterAndVehicleAreWrittenAsEmptyColumns() {
+    Ticket ticket = Ticket.builder().id("ticket-1").startTime(START).build();
+
+    assertThat(TicketExportServiceImpl.csvLine(ticket))
+        .isEqualTo("ticket-1,2024-10-01T00:00,,,0.0,,,,,");
+  }
+
+  @Test
+  void fullExportListsEveryTicketInStartTimeAndIdOrder() throws IOException {
+    assertThat(exportedIds(null)).containsExactlyElementsOf(ids(tickets));
+  }
+
+  @Test
+  void resumingAfterATicketSharingItsStartTimeSkipsOnlyTheTicketsUpToIt() throws IOException {
+    for (int last = 0; last < tickets.size(); last++) {
+      assertThat(exportedIds(tickets.get(last).getId()))
+          .containsExactlyElementsOf(ids(tickets.subList(last + 1, tickets.size())));
+    }
+  }
+
+  @Test
+  void resumingAfterAnUnknownTicketIsRejected() {
+    assertThatThrownBy(() -> exportedIds(new ObjectId().toHexString()))
+        .isInstanceOf(TicketException.class)
+        .extracting(e -> ((TicketException) e).getStatus())
+        .isEqualTo(HttpStatus.NOT_FOUND);
+    assertThatThrownBy(() -> exportedIds("not-an-id"))
+        .isInstanceOf(TicketException.class)
+        .extracting(e -> ((TicketException) e).getStatus())
+        .isEqualTo(HttpStatus.BAD_REQUEST);
+  }
+
+  private List<String> exportedIds(String after) throws IOException {
+    StreamingResponseBody body =
+        ticketExportService.export(START, END, after, TicketExportFormatEnum.CSV);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    body.writeTo(out);
+    return Arrays.stream(out.toString(StandardCharsets.UTF_8).split("\n"))
+        .skip(1)
+        .map(line -> line.substring(0, line.indexOf(',')))
+        .toList();
+  }
+
+  /** Evaluates the range and resume conditions of the export query against a ticket. */
+  private static boolean resumes(Document query, Ticket ticket) {
+    Document range = query.get("startTime", Document.class);
+    if (ticket.getStartTime().isBefore((LocalDateTime) range.get("$gte"))
+        || !ticket.getStartTime().isBefore((LocalDateTime) range.get("$lt"))) {
+      return false;
+    }
+    List<Document> or = query.getList("$or", Document.class);
+    return or == null || or.stream().anyMatch(condition -> matches(condition, ticket));
+  }
+
+  private static boolean matches(Document condition, Ticket ticket) {
+    Object startTime = condition.get("startTime");
+    boolean startMatches =
+        startTime instanceof Document gt
+            ? ticket.getStartTime().isAfter((LocalDateTime) gt.get("$gt"))
+            : ticket.getStartTime().equals(startTime);
+    Document id = condition.get("id", Document.class);
+    return startMatches
+        && (id == null || new ObjectId(ticket.getId()).compareTo((ObjectId) id.get("$gt")) > 0);
+  }
+
+  private static List<String> ids(List<Ticket> tickets) {
+    return tickets.stream().map(Ticket::getId).toList();
+  }
+
+  private static Ticket ticket(LocalDateTime startTime) {
+    return Ticket.builder()
+        .id(new ObjectId().toHexString())
+        .startTime(startTime)
+        .paymentStatus(PaymentStatusEnum.PENDING)
+        .build();
+  }
+}
@@ -0,0 +1,110 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.postech.fiap.parkingmeter.domain.model.ProjectionCheckpoint;
+import com.postech.fiap.parkingmeter.domain.projection.BusyHourWriter;
+import com.postech.fiap.parkingmeter.domain.projection.OccupancyHistogramWriter;
+import com.postech.fiap.parkingmeter.domain.projection.TicketEventWriter;
+import com.postech.fiap.parkingmeter.domain.projection.VehicleVisitWriter;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.infrastructure.cache.TicketCacheInvalidator;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/** Readiness of an instance that is not projecting, read from the stored checkpoint. */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TicketProjectionServiceImplReadinessTest {
+
+  @Mock private MongoTemplate mongoTemplate;
+  @Mock private MongoTransactionManager transactionManager;
+  @Mock private TicketCacheInvalidator ticketCacheInvalidator;
+  @Mock private TicketSnapshotService ticketSnapshotService;
+  @Mock private ConverterToDTO converterToDTO;
+  @Mock private TicketArchiveService ticketArchiveService;
+  @Mock private BusyHourWriter busyHourWriter;
+  @Mock private VehicleVisitWriter vehicleVisitWriter;
+  @Mock private OccupancyHistogramWriter occupancyHistogramWriter;
+  @Mock private TicketEventWriter ticketEventWriter;
+
+  @Test
+  void aRecentCheckpointIsReadOnce() {
+    TicketProjectionServiceImpl projector = projector(Duration.ofHours(1));
+    when(mongoTemplate.findById("ticket", ProjectionCheckpoint.class))
+        .thenReturn(checkpoint(LocalDateTime.now().minusSeconds(5)));
+
+    assertThat(projector.isReady()).isTrue();
+    assertThat(projector.isReady()).isTrue();
+    assertThat(projector.isReady()).isTrue();
+
+    verify(mongoTemplate, times(1)).findById(eq("ticket"), eq(ProjectionCheckpoint.class));
+  }
+
+  @Test
+  void aStaleCheckpointIsReadAgainOncePerCheckpointInterval() {
+    TicketProjectionServiceImpl projector = projector(Duration.ofHours(1));
+    when(mongoTemplate.findById("ticket", ProjectionCheckpoint.class))
+        .thenReturn(checkpoint(LocalDateTime.now().minusMinutes(5)));
+
+    assertThat(projector.isReady()).isFalse();
+    assertThat(projector.isReady()).isFalse();
+
+    verify(mongoTemplate, times(1)).findById(eq("ticket"), eq(ProjectionCheckpoint.class));
+  }
+
+  @Test
+  void aCheckpointOfAnUnfinishedRebuildIsNotReady() {
+    TicketProjectionServiceImpl projector = projector(Duration.ZERO);
+    ProjectionCheckpoint rebuilding = checkpoint(LocalDateTime.now());
+    rebuilding.setBootstrappedAt(null);
+    when(mongoTemplate.findById("ticket", ProjectionCheckpoint.class)).thenReturn(rebuilding);
+
+    assertThat(projector.isReady()).isFalse();
+
+    when(mongoTemplate.findById("ticket", ProjectionCheckpoint.class))
+        .thenReturn(checkpoint(LocalDateTime.now()));
+    assertThat(projector.isReady()).isTrue();
+  }
+
+  private TicketProjectionServiceImpl projector(Duration checkpointInterval) {
+    return new TicketProjectionServiceImpl(
+        mongoTemplate,
+        transactionManager,
+        ticketCacheInvalidator,
+        ticketSnapshotService,
+        converterToDTO,
+        ticketArchiveService,
+        busyHourWriter,
+        vehicleVisitWriter,
+        occupancyHistogramWriter,
+        ticketEventWriter,
+        false,
+        500,
+        checkpointInterval,
+        Duration.ofMinutes(1),
+        Duration.ofSeconds(1));
+  }
+
+  private static ProjectionCheckpoint checkpoint(LocalDateTime updatedAt) {
+    return ProjectionCheckpoint.builder()
+        .id("ticket")
+        .bootstrappedAt(updatedAt.minusHours(1))
+        .updatedAt(updatedAt)
+        .build();
+  }
+}
@@ -0,0 +1,392 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.BusyHourProjection;
+import com.postech.fiap.parkingmeter.domain.model.OccupancyHistogram;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.ProjectionCheckpoint;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.TicketEvent;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.VehicleVisitProjection;
+import com.postech.fiap.parkingmeter.domain.model.dto.BusyHoursDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.ActivityIntervalEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.repository.TicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.TicketProjectionService;
+import com.postech.fiap.parkingmeter.domain.util.TicketEvents;
+import com.postech.fiap.parkingmeter.infrastructure.index.IndexBootstrapper;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Writes tickets against a replica set while the projector follows the change stream, and checks
+ * every projection against a recomputation from the tickets left in the collection.
+ */
+@SpringBootTest(
+    properties = {
+      "parkingmeter.rollup.backfill-on-startup=false",
+      "parkingmeter.spend-ledger.backfill-on-startup=false",
+      "parkingmeter.indexes.create-on-startup=false",
+      "parkingmeter.tickets.migrate-on-startup=false",
+      "parkingmeter.occupancy.initial-delay=PT1H",
+      "parkingmeter.projections.batch-size=50",
+      "parkingmeter.projections.checkpoint-interval=PT1S",
+      "parkingmeter.projections.retry-backoff=PT0.1S"
+    })
+@Testcontainers(disabledWithoutDocker = true)
+class TicketProjectionServiceImplTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2024, 10, 1, 0, 0);
+  private static final int PARKING_METERS = 5;
+  private static final int TICKETS = 500;
+  private static final List<Class<?>> PROJECTIONS =
+      List.of(BusyHourProjection.class, VehicleVisitProjection.class, OccupancyHistogram.class);
+
+  @Container static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+  @DynamicPropertySource
+  static void mongoProperties(DynamicPropertyRegistry registry) {
+    registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+  }
+
+  @Autowired private TicketProjectionService ticketProjectionService;
+  @Autowired private TicketRepository ticketRepository;
+  @Autowired private MongoTemplate mongoTemplate;
+  @Autowired private IndexBootstrapper indexBootstrapper;
+
+  private final Random random = new Random(42);
+  private List<ParkingMeter> parkingMeters;
+
+  @BeforeEach
+  void setUp() throws InterruptedException {
+    indexBootstrapper.ensureIndexes();
+    ticketProjectionService.start();
+    mongoTemplate.remove(new Query(), Ticket.class);
+    mongoTemplate.remove(new Query(), ParkingMeter.class);
+    parkingMeters =
+        IntStream.range(0, PARKING_METERS)
+            .mapToObj(i -> mongoTemplate.insert(parkingMeter(i)))
+            .toList();
+    awaitProjectionsMatchTickets();
+  }
+
+  @Test
+  void projectionsFollowInsertsUpdatesReplacementsAndDeletes() throws InterruptedException {
+    List<Ticket> tickets = insertTickets(TICKETS);
+    writeChanges(tickets);
+
+    awaitProjectionsMatchTickets();
+  }
+
+  @Test
+  void restartResumesFromTheStoredTokenWithoutCountingTwice() throws InterruptedException {
+    List<Ticket> tickets = insertTickets(TICKETS);
+    awaitProjectionsMatchTickets();
+    ProjectionCheckpoint before = checkpoint();
+
+    ticketProjectionService.stop();
+    writeChanges(tickets);
+    insertTickets(TICKETS / 5);
+    ticketProjectionService.start();
+
+    awaitProjectionsMatchTickets();
+    assertThat(checkpoint().getBootstrappedAt()).isEqualTo(before.getBootstrappedAt());
+    assertThat(checkpoint().getResumeToken()).isNotEqualTo(before.getResumeToken());
+  }
+
+  @Test
+  void rebuildReproducesTheIncrementalProjections() throws InterruptedException {
+    writeChanges(insertTickets(TICKETS));
+    awaitProjectionsMatchTickets();
+    Projections incremental = projections();
+    LocalDateTime bootstrappedAt = checkpoint().getBootstrappedAt();
+
+    ticketProjectionService.rebuild();
+    while (checkpoint() == null || bootstrappedAt.equals(checkpoint().getBootstrappedAt())) {
+      Thread.sleep(100);
+    }
+
+    awaitProjectionsMatchTickets();
+    assertThat(projections()).isEqualTo(incremental);
+  }
+
+  @Test
+  void busiestHourFromTheProjectionMatchesTheTicketQuery() throws InterruptedException {
+    writeChanges(insertTickets(TICKETS));
+    awaitProjectionsMatchTickets();
+
+    LocalDateTime end = START.plusDays(3);
+    Map<String, Long> fromTickets =
+        totalsByParkingMeter(ticketRepository.findBusiestHour(START, end, Pageable.unpaged()));
+    Map<String, Long> fromProjection =
+        totalsByParkingMeter(
+            ticketProjectionService.findBusiestHour(START, end, Pageable.unpaged()));
+
+    assertThat(fromProjection).isNotEmpty().isEqualTo(fromTickets);
+  }
+
+  @Test
+  void ticketEventsAreWrittenOnceAcrossRestarts() throws InterruptedException {
+    List<Ticket> tickets = insertTickets(TICKETS);
+    awaitProjectionsMatchTickets();
+
+    ticketProjectionService.stop();
+    for (Ticket ticket : tickets.subList(0, TICKETS / 2)) {
+      mongoTemplate.updateFirst(
+          Query.query(Criteria.where("id").is(ticket.getId())),
+          new Update()
+              .set("paymentStatus", PaymentStatusEnum.PAID)
+              .set("endTime", ticket.getStartTime().plusHours(1))
+              .set("totalAmountCharged", 2.5),
+          Ticket.class);
+    }
+    ticketProjectionService.start();
+    awaitProjectionsMatchTickets();
+
+    assertEventsMatchTickets();
+  }
+
+  @Test
+  void aReplayedBatchSkipsTheEventsItAlreadyWrote() throws InterruptedException {
+    List<Ticket> tickets = insertTickets(TICKETS);
+    awaitProjectionsMatchTickets();
+    ticketProjectionService.stop();
+    ProjectionCheckpoint before = checkpoint();
+    Map<Class<?>, List<Document>> projected = new HashMap<>();
+    for (Class<?> projection : PROJECTIONS) {
+      projected.put(projection, mongoTemplate.findAll(Document.class, collection(projection)));
+    }
+
+    ticketProjectionService.start();
+    writeChanges(tickets);
+    awaitProjectionsMatchTickets();
+    ticketProjectionService.stop();
+
+    // The events were written but, as if the checkpoint transaction had failed, the projections
+    // and the resume token are rolled back, so the changes are replayed.
+    for (Class<?> projection : PROJECTIONS) {
+      mongoTemplate.dropCollection(projection);
+      mongoTemplate.insert(projected.get(projection), collection(projection));
+    }
+    mongoTemplate.updateFirst(
+        Query.query(Criteria.where("id").is("ticket")),
+        new Update().set("resumeToken", before.getResumeToken()),
+        ProjectionCheckpoint.class);
+    ticketProjectionService.start();
+    awaitProjectionsMatchTickets();
+
+    assertThat(checkpoint().getEventsWrittenThrough()).isNotNull();
+    assertEventsMatchTickets();
+  }
+
+  private void assertEventsMatchTickets() {
+    List<Ticket> stored = mongoTemplate.findAll(Ticket.class);
+    for (ParkingMeter parkingMeter : parkingMeters) {
+      List<TicketEvent> expected =
+          stored.stream()
+              .filter(ticket -> ticket.getParkingMeter().getId().equals(parkingMeter.getId()))
+              .flatMap(ticket -> TicketEvents.of(ticket).stream())
+              .toList();
+      assertThat(
+              ticketProjectionService.findActivity(
+                  parkingMeter.getId(), START, START.plusDays(4), ActivityIntervalEnum.HOUR))
+          .isEqualTo(TicketEvents.activity(expected, ActivityIntervalEnum.HOUR));
+    }
+  }
+
+  private String collection(Class<?> projection) {
+    return mongoTemplate.getCollectionName(projection);
+  }
+
+  private List<Ticket> insertTickets(int count) {
+    List<Ticket> tickets = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      tickets.add(
+          Ticket.builder()
+              .parkingMeter(
+                  ParkingMeterSnapshot.of(parkingMeters.get(random.nextInt(PARKING_METERS))))
+              .vehicle(
+                  new VehicleSnapshot(new ObjectId().toHexString(), "ABC-" + random.nextInt(20)))
+              .startTime(START.plusMinutes(random.nextInt(3 * 24 * 60)))
+              .paymentStatus(PaymentStatusEnum.PENDING)
+              .build());
+    }
+    return new ArrayList<>(mongoTemplate.insert(tickets, Ticket.class));
+  }
+
+  /** Pays, moves and deletes a share of the tickets. */
+  private void writeChanges(List<Ticket> tickets) {
+    for (Ticket ticket : tickets) {
+      int change = random.nextInt(4);
+      if (change == 0) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("id").is(ticket.getId())),
+            new Update()
+                .set("paymentStatus", PaymentStatusEnum.PAID)
+                .set("endTime", ticket.getStartTime().plusHours(1))
+                .set("totalAmountCharged", 2.5 * (1 + random.nextInt(4))),
+            Ticket.class);
+      } else if (change == 1) {
+        ticket.setStartTime(ticket.getStartTime().plusMinutes(random.nextInt(180)));
+        ticket.setParkingMeter(
+            ParkingMeterSnapshot.of(parkingMeters.get(random.nextInt(PARKING_METERS))));
+        mongoTemplate.save(ticket);
+      } else if (change == 2) {
+        mongoTemplate.remove(ticket);
+      }
+    }
+  }
+
+  private void awaitProjectionsMatchTickets() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 30_000;
+    while (System.currentTimeMillis() < deadline
+        && !(ticketProjectionService.isReady() && projections().equals(recomputed()))) {
+      Thread.sleep(100);
+    }
+    assertThat(ticketProjectionService.isReady()).isTrue();
+    assertThat(projections()).isEqualTo(recomputed());
+  }
+
+  private Projections recomputed() {
+    List<Ticket> tickets = mongoTemplate.findAll(Ticket.class);
+    Map<String, long[]> histograms = new HashMap<>();
+    for (Ticket ticket : tickets) {
+      long[] slots =
+          histograms.computeIfAbsent(
+              ticket.getParkingMeter().getId(), id -> new long[2 * OccupancyHistogram.SLOTS]);
+      slots[OccupancyHistogram.slot(ticket.getStartTime())]++;
+      if (ticket.getEndTime() != null) {
+        for (LocalDateTime hour = ticket.getStartTime().truncatedTo(ChronoUnit.HOURS);
+            hour.isBefore(ticket.getEndTime());
+            hour = hour.plusHours(1)) {
+          slots[OccupancyHistogram.SLOTS + OccupancyHistogram.slot(hour)]++;
+        }
+      }
+    }
+    return new Projections(
+        tickets.stream()
+            .collect(
+                Collectors.groupingBy(
+                    ticket ->
+                        new BusyHour(
+                            ticket.getParkingMeter().getId(),
+                            ticket.getStartTime().truncatedTo(ChronoUnit.HOURS)),
+                    Collectors.counting())),
+        tickets.stream()
+            .collect(
+                Collectors.groupingBy(
+                    ticket ->
+                        new VehicleVisit(
+                            ticket.getParkingMeter().getId(),
+                            ticket.getVehicle().getLicensePlate(),
+                            ticket.getStartTime().toLocalDate()),
+                    Collectors.counting())),
+        histograms.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, entry -> slots(entry.getValue()))));
+  }
+
+  private Projections projections() {
+    return new Projections(
+        mongoTemplate.findAll(BusyHourProjection.class).stream()
+            .filter(busyHour -> busyHour.getTicketCount() != 0)
+            .collect(
+                Collectors.toMap(
+                    busyHour -> new BusyHour(busyHour.getParkingMeterId(), busyHour.getHour()),
+                    BusyHourProjection::getTicketCount)),
+        mongoTemplate.findAll(VehicleVisitProjection.class).stream()
+            .filter(visit -> visit.getTicketCount() != 0)
+            .collect(
+                Collectors.toMap(
+                    visit ->
+                        new VehicleVisit(
+                            visit.getParkingMeterId(), visit.getLicensePlate(), visit.getDay()),
+                    VehicleVisitProjection::getTicketCount)),
+        mongoTemplate.findAll(OccupancyHistogram.class).stream()
+            .filter(
+                histogram ->
+                    Arrays.stream(histogram.getArrivals()).anyMatch(count -> count != 0))
+            .collect(
+                Collectors.toMap(
+                    OccupancyHistogram::getParkingMeterId,
+                    histogram ->
+                        slots(
+                            LongStream.concat(
+                                    Arrays.stream(histogram.getArrivals()),
+                                    Arrays.stream(histogram.getOccupiedHours()))
+                                .toArray()))));
+  }
+
+  private static List<Long> slots(long[] slots) {
+    return Arrays.stream(slots).boxed().toList();
+  }
+
+  private ProjectionCheckpoint checkpoint() {
+    return mongoTemplate.findById("ticket", ProjectionCheckpoint.class);
+  }
+
+  private static Map<String, Long> totalsByParkingMeter(Iterable<BusyHoursDTO> busiestHours) {
+    List<BusyHoursDTO> list = new ArrayList<>();
+    busiestHours.forEach(list::add);
+    return list.stream()
+        .collect(
+            Collectors.toMap(
+                busiestHour -> busiestHour.getParkingMeter().getId(),
+                BusyHoursDTO::getTotalTickets));
+  }
+
+  private static ParkingMeter parkingMeter(int i) {
+    return ParkingMeter.builder()
+        .availableSpaces(100)
+        .occupied(0)
+        .address(
+            Address.builder()
+                .street("Rua " + i)
+                .neighborhood("Centro")
+                .city("São Paulo")
+                .state("SP")
+                .zipCode(String.format("02%06d", i))
+                .number(String.valueOf(i))
+                .build())
+        .build();
+  }
+
+  private record BusyHour(String parkingMeterId, LocalDateTime hour) {}
+
+  private record VehicleVisit(String parkingMeterId, String licensePlate, LocalDate day) {}
+
+  /** The histograms hold the arrival slots followed by the occupied hour slots. */
+  private record Projections(
+      Map<BusyHour, Long> busyHours,
+      Map<VehicleVisit, Long> vehicleVisits,
+      Map<String, List<Long>> histograms) {}
+}
@@ -0,0 +1,278 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.PageModeEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.repository.TicketRepository;
+import com.postech.fiap.parkingmeter.domain.service.EarningsRollupService;
+import com.postech.fiap.parkingmeter.domain.service.OccupancyService;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketCountService;
+import com.postech.fiap.parkingmeter.domain.service.TicketProjectionService;
+import com.postech.fiap.parkingmeter.domain.service.TicketService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.domain.service.VehicleSpendLedgerService;
+import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.domain.util.DateRangeNormalizer;
+import com.postech.fiap.parkingmeter.domain.util.KeysetPaginator;
+import com.postech.fiap.parkingmeter.domain.util.TicketDtoAssembler;
+import com.postech.fiap.parkingmeter.domain.util.TieredTicketQueries;
+import com.postech.fiap.parkingmeter.infrastructure.cache.CacheKeys;
+import com.postech.fiap.parkingmeter.infrastructure.cache.TicketCacheInvalidator;
+import com.postech.fiap.parkingmeter.infrastructure.config.CacheConfig;
+import com.postech.fiap.parkingmeter.infrastructure.config.PaginationProperties;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+@SpringJUnitConfig(TicketServiceImplCacheTest.Config.class)
+@TestPropertySource(
+    properties = {
+      "parkingmeter.cache.specs[ticketsPorIntervaloDeData]=maximumSize=500,recordStats",
+      "parkingmeter.cache.specs[ticketsPorStatus]=maximumSize=500,recordStats",
+      "parkingmeter.cache.specs[busyHours]=maximumSize=500,recordStats"
+    })
+class TicketServiceImplCacheTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2024, 10, 1, 18, 0, 5);
+
+  @Autowired private TicketService ticketService;
+  @Autowired private TicketCacheInvalidator ticketCacheInvalidator;
+  @Autowired private CacheManager cacheManager;
+
+  @MockBean private TicketRepository ticketRepository;
+  @MockBean private TicketSnapshotService ticketSnapshotService;
+  @MockBean private OccupancyService occupancyService;
+  @MockBean private EarningsRollupService earningsRollupService;
+  @MockBean private KeysetPaginator keysetPaginator;
+  @MockBean private TicketCountService ticketCountService;
+  @MockBean private TicketProjectionService ticketProjectionService;
+  @MockBean private VehicleSpendLedgerService vehicleSpendLedgerService;
+  @MockBean private TicketArchiveService ticketArchiveService;
+  @MockBean private TieredTicketQueries tieredTicketQueries;
+
+  @BeforeEach
+  void setUp() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    when(ticketArchiveService.getCollections(any(), any())).thenReturn(List.of("ticket"));
+    when(ticketArchiveService.getCollections(any(PaymentStatusEnum.class)))
+        .thenReturn(List.of("ticket"));
+    when(ticketRepository.findByStartTimeBetween(any(), any(), any()))
+        .thenAnswer(invocation -> page(invocation.getArgument(2)));
+    when(ticketRepository.findByPaymentStatus(any(), any()))
+        .thenAnswer(invocation -> page(invocation.getArgument(1)));
+    when(ticketRepository.findSliceByPaymentStatus(any(), any()))
+        .thenAnswer(invocation -> slice(invocation.getArgument(1)));
+  }
+
+  @Test
+  void eachPageIsCachedSeparately() {
+    Slice<TicketDTO> firstPage =
+        ticketService.findTicketsByDateRange(
+            NOW.minusDays(1), NOW, PageRequest.of(0, 15), PageModeEnum.PAGE);
+    Slice<TicketDTO> secondPage =
+        ticketService.findTicketsByDateRange(
+            NOW.minusDays(1), NOW, PageRequest.of(1, 15), PageModeEnum.PAGE);
+    Slice<TicketDTO> secondPageAgain =
+        ticketService.findTicketsByDateRange(
+            NOW.minusDays(1), NOW, PageRequest.of(1, 15), PageModeEnum.PAGE);
+
+    assertThat(ids(firstPage)).first().isEqualTo("0-0");
+    assertThat(ids(secondPage)).first().isEqualTo("1-0");
+    assertThat(ids(secondPageAgain)).isEqualTo(ids(secondPage));
+    verify(ticketRepository, times(2)).findByStartTimeBetween(any(), any(), any());
+  }
+
+  @Test
+  void sortAndPageSizeArePartOfTheKey() {
+    ticketService.findTicketsByStatus(
+        PaymentStatusEnum.PAID, PageRequest.of(0, 15), PageModeEnum.PAGE);
+    ticketService.findTicketsByStatus(
+        PaymentStatusEnum.PAID, PageRequest.of(0, 30), PageModeEnum.PAGE);
+    Slice<TicketDTO> sorted =
+        ticketService.findTicketsByStatus(
+            PaymentStatusEnum.PAID, PageRequest.of(0, 15, Sort.by("start_time")), PageModeEnum.PAGE);
+
+    assertThat(sorted.getPageable().getSort()).isEqualTo(Sort.by("start_time"));
+    verify(ticketRepository, times(3)).findByPaymentStatus(any(), any());
+  }
+
+  @Test
+  void sliceModeSkipsTheCountAndIsCachedApart() {
+    Slice<TicketDTO> slice =
+        ticketService.findTicketsByStatus(
+            PaymentStatusEnum.PAID, PageRequest.of(0, 15), PageModeEnum.SLICE);
+    ticketService.findTicketsByStatus(
+        PaymentStatusEnum.PAID, PageRequest.of(0, 15), PageModeEnum.SLICE);
+    Slice<TicketDTO> page =
+        ticketService.findTicketsByStatus(
+            PaymentStatusEnum.PAID, PageRequest.of(0, 15), PageModeEnum.PAGE);
+
+    assertThat(slice).isNotInstanceOf(Page.class);
+    assertThat(slice.hasNext()).isTrue();
+    assertThat(page).isInstanceOf(Page.class);
+    verify(ticketRepository, times(1)).findSliceByPaymentStatus(any(), any());
+    verify(ticketRepository, times(1)).findByPaymentStatus(any(), any());
+    verifyNoInteractions(ticketCountService);
+  }
+
+  @Test
+  void approximateTotalNeverHidesTheNextPage() {
+    when(ticketCountService.approximateCountByStatus(PaymentStatusEnum.PAID)).thenReturn(10L);
+
+    Page<TicketDTO> page =
+        (Page<TicketDTO>)
+            ticketService.findTicketsByStatus(
+                PaymentStatusEnum.PAID, PageRequest.of(2, 15), PageModeEnum.APPROXIMATE);
+
+    assertThat(page.getTotalElements()).isEqualTo(46);
+    assertThat(page.hasNext()).isTrue();
+    verify(ticketRepository, times(0)).findByPaymentStatus(any(), any());
+  }
+
+  @Test
+  void nearlyIdenticalRangesQueryTheWholeBucket() {
+    ticketService.findTicketsByDateRange(
+        NOW.minusDays(1), NOW, PageRequest.of(0, 15), PageModeEnum.PAGE);
+    ticketService.findTicketsByDateRange(
+        NOW.minusDays(1).plusSeconds(20),
+        NOW.plusSeconds(20),
+        PageRequest.of(0, 15),
+        PageModeEnum.PAGE);
+
+    verify(ticketRepository)
+        .findByStartTimeBetween(
+            eq(LocalDateTime.of(2024, 9, 30, 18, 0)),
+            eq(LocalDateTime.of(2024, 10, 1, 18, 1)),
+            any());
+  }
+
+  @Test
+  void replayedDashboardWorkloadKeepsTheHitRateHigh() {
+    // 20 dashboards showing the last 24 hours, refreshed every 5 seconds for 10 minutes and
+    // browsing the first three pages.
+    for (int second = 0; second < 600; second += 5) {
+      for (int dashboard = 0; dashboard < 20; dashboard++) {
+        LocalDateTime now = NOW.plusSeconds(second).plusNanos(dashboard * 1_000_000L);
+        ticketService.findTicketsByDateRange(
+            now.minusDays(1), now, PageRequest.of(dashboard % 3, 15), PageModeEnum.PAGE);
+      }
+    }
+
+    CacheStats stats = stats(TicketCacheInvalidator.TICKETS_BY_DATE_RANGE);
+    assertThat(stats.requestCount()).isEqualTo(2400);
+    assertThat(stats.hitRate()).isGreaterThan(0.95);
+    verify(ticketRepository, times((int) stats.missCount()))
+        .findByStartTimeBetween(any(), any(), any());
+  }
+
+  @Test
+  void ticketChangeOnlyEvictsTheAffectedEntries() {
+    LocalDateTime yesterday = NOW.minusDays(1);
+    ticketService.findTicketsByDateRange(
+        yesterday.minusDays(1), yesterday, PageRequest.of(0, 15), PageModeEnum.PAGE);
+    ticketService.findTicketsByDateRange(
+        yesterday, NOW, PageRequest.of(0, 15), PageModeEnum.PAGE);
+    ticketService.findTicketsByStatus(
+        PaymentStatusEnum.PENDING, PageRequest.of(0, 15), PageModeEnum.PAGE);
+    ticketService.findTicketsByStatus(
+        PaymentStatusEnum.CANCELLED, PageRequest.of(0, 15), PageModeEnum.PAGE);
+    clearInvocations(ticketRepository);
+
+    ticketCacheInvalidator.ticketChanged(
+        NOW.minusHours(1), "ABC-1234", PaymentStatusEnum.PENDING, PaymentStatusEnum.PAID);
+
+    ticketService.findTicketsByDateRange(
+        yesterday.minusDays(1), yesterday, PageRequest.of(0, 15), PageModeEnum.PAGE);
+    ticketService.findTicketsByDateRange(
+        yesterday, NOW, PageRequest.of(0, 15), PageModeEnum.PAGE);
+    ticketService.findTicketsByStatus(
+        PaymentStatusEnum.PENDING, PageRequest.of(0, 15), PageModeEnum.PAGE);
+    ticketService.findTicketsByStatus(
+        PaymentStatusEnum.CANCELLED, PageRequest.of(0, 15), PageModeEnum.PAGE);
+
+    verify(ticketRepository, times(1)).findByStartTimeBetween(any(), any(), any());
+    verify(ticketRepository, times(1)).findByPaymentStatus(eq(PaymentStatusEnum.PENDING), any());
+    verify(ticketRepository, times(0))
+        .findByPaymentStatus(eq(PaymentStatusEnum.CANCELLED), any());
+  }
+
+  private CacheStats stats(String cacheName) {
+    var cache = (TransactionAwareCacheDecorator) cacheManager.getCache(cacheName);
+    return ((CaffeineCache) cache.getTargetCache()).getNativeCache().stats();
+  }
+
+  private static Page<Ticket> page(Pageable pageable) {
+    List<Ticket> tickets =
+        IntStream.range(0, pageable.getPageSize())
+            .mapToObj(
+                i ->
+                    Ticket.builder()
+                        .id(pageable.getPageNumber() + "-" + i)
+                        .paymentStatus(PaymentStatusEnum.PAID)
+                        .build())
+            .toList();
+    return new PageImpl<>(tickets, pageable, 1000);
+  }
+
+  private static Slice<Ticket> slice(Pageable pageable) {
+    return new SliceImpl<>(page(pageable).getContent(), pageable, true);
+  }
+
+  private static List<String> ids(Slice<TicketDTO> page) {
+    return page.getContent().stream().map(TicketDTO::getId).toList();
+  }
+
+  @Configuration
+  @Import({
+    CacheConfig.class,
+    ConverterToDTO.class,
+    TicketDtoAssembler.class,
+    CacheKeys.class,
+    TicketCacheInvalidator.class,
+    TicketServiceImpl.class
+  })
+  static class Config {
+
+    @Bean
+    DateRangeNormalizer dateRangeNormalizer() {
+      return new DateRangeNormalizer(Duration.ofMinutes(1));
+    }
+
+    @Bean
+    PaginationProperties paginationProperties() {
+      return new PaginationProperties();
+    }
+  }
+}
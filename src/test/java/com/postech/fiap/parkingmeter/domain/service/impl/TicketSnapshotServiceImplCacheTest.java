@@ -0,0 +1,181 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.OperationHours;
+import com.postech.fiap.parkingmeter.domain.model.Owner;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.Rate;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.OwnerForm;
+import com.postech.fiap.parkingmeter.domain.model.dto.forms.parkingmeter.AddressParkingForm;
+import com.postech.fiap.parkingmeter.domain.repository.OwnerRepository;
+import com.postech.fiap.parkingmeter.domain.repository.VehicleRepository;
+import com.postech.fiap.parkingmeter.domain.service.OwnerService;
+import com.postech.fiap.parkingmeter.domain.service.TicketSnapshotService;
+import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.domain.util.KeysetPaginator;
+import com.postech.fiap.parkingmeter.infrastructure.config.CacheConfig;
+import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import reactor.core.publisher.Mono;
+
+@SpringJUnitConfig(TicketSnapshotServiceImplCacheTest.Config.class)
+class TicketSnapshotServiceImplCacheTest {
+
+  private static final String VEHICLE_ID = "vehicle-1";
+  private static final String OWNER_ID = "owner-1";
+  private static final String PARKING_METER_ID = "parking-meter-1";
+
+  @Autowired private TicketSnapshotService ticketSnapshotService;
+  @Autowired private OwnerService ownerService;
+  @Autowired private CacheManager cacheManager;
+
+  @MockBean private MongoTemplate mongoTemplate;
+  @MockBean private ReactiveMongoTemplate reactiveMongoTemplate;
+  @MockBean private VehicleRepository vehicleRepository;
+  @MockBean private OwnerRepository ownerRepository;
+  @MockBean private KeysetPaginator keysetPaginator;
+
+  @BeforeEach
+  void setUp() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    when(vehicleRepository.findById(VEHICLE_ID)).thenAnswer(invocation -> Optional.of(vehicle()));
+    when(reactiveMongoTemplate.findById(VEHICLE_ID, Vehicle.class))
+        .thenAnswer(invocation -> Mono.just(vehicle()));
+    when(mongoTemplate.findOne(any(Query.class), eq(ParkingMeter.class)))
+        .thenAnswer(invocation -> parkingMeter());
+    when(mongoTemplate.find(any(Query.class), eq(ParkingMeter.class)))
+        .thenAnswer(invocation -> List.of(parkingMeter()));
+    when(ownerRepository.findById(OWNER_ID)).thenAnswer(invocation -> Optional.of(owner()));
+    when(ownerRepository.existsById(OWNER_ID)).thenReturn(true);
+    when(ownerRepository.save(any(Owner.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+  }
+
+  @Test
+  void changingAReturnedVehicleDoesNotChangeTheCachedSnapshot() throws VehicleException {
+    Vehicle vehicle = ticketSnapshotService.getVehicle(VEHICLE_ID);
+    vehicle.setLicensePlate("XYZ9Z99");
+    vehicle.getOwner().setName("Someone else");
+    vehicle.getOwner().getAddress().setCity("Campinas");
+    ticketSnapshotService.getVehicleReactive(VEHICLE_ID).block().setModel("Gol");
+    ticketSnapshotService.getVehicles(List.of(VEHICLE_ID)).get(VEHICLE_ID).setColor("Red");
+
+    assertThat(ticketSnapshotService.getVehicle(VEHICLE_ID)).isEqualTo(vehicle());
+    verify(vehicleRepository, times(1)).findById(VEHICLE_ID);
+  }
+
+  @Test
+  void changingAReturnedParkingMeterDoesNotChangeTheCachedSnapshot() {
+    ParkingMeter parkingMeter = ticketSnapshotService.getParkingMeter(PARKING_METER_ID);
+    parkingMeter.getRate().setFirstHour(50.0);
+    parkingMeter.getOperatingHours().setEnd("12:00");
+    parkingMeter.getAddress().setStreet("Rua Augusta");
+
+    assertThat(ticketSnapshotService.getParkingMeter(PARKING_METER_ID))
+        .isEqualTo(parkingMeter())
+        .isNotSameAs(ticketSnapshotService.getParkingMeter(PARKING_METER_ID));
+    assertThat(ticketSnapshotService.getParkingMeters(List.of(PARKING_METER_ID)))
+        .containsEntry(PARKING_METER_ID, parkingMeter());
+    verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(ParkingMeter.class));
+  }
+
+  @Test
+  void updatingAnOwnerEvictsTheVehicleSnapshots() throws VehicleException {
+    ticketSnapshotService.getVehicle(VEHICLE_ID);
+
+    ownerService.updateById(OWNER_ID, ownerForm());
+    ticketSnapshotService.getVehicle(VEHICLE_ID);
+
+    verify(vehicleRepository, times(2)).findById(VEHICLE_ID);
+  }
+
+  @Test
+  void deletingAnOwnerEvictsTheVehicleSnapshots() throws VehicleException {
+    ticketSnapshotService.getVehicle(VEHICLE_ID);
+
+    ownerService.deleteById(OWNER_ID);
+    ticketSnapshotService.getVehicle(VEHICLE_ID);
+
+    verify(vehicleRepository, times(2)).findById(VEHICLE_ID);
+  }
+
+  private static Vehicle vehicle() {
+    return Vehicle.builder()
+        .id(VEHICLE_ID)
+        .licensePlate("ABC1D23")
+        .model("Onix")
+        .color("Black")
+        .owner(owner())
+        .build();
+  }
+
+  private static Owner owner() {
+    return Owner.builder()
+        .id(OWNER_ID)
+        .name("Maria")
+        .cpf("12345678900")
+        .email("maria@example.com")
+        .phone("11999999999")
+        .address(address())
+        .build();
+  }
+
+  private static ParkingMeter parkingMeter() {
+    return ParkingMeter.builder()
+        .id(PARKING_METER_ID)
+        .operatingHours(OperationHours.builder().start("08:00").end("20:00").build())
+        .rate(Rate.builder().firstHour(5.0).additionalHours(3.0).build())
+        .availableSpaces(20)
+        .address(address())
+        .build();
+  }
+
+  private static Address address() {
+    return Address.builder()
+        .street("Avenida Paulista")
+        .number("1000")
+        .city("São Paulo")
+        .state("SP")
+        .zipCode("01310100")
+        .build();
+  }
+
+  private static OwnerForm ownerForm() {
+    return new OwnerForm(
+        "Maria Silva",
+        "12345678900",
+        "11999999999",
+        "maria@example.com",
+        new AddressParkingForm(
+            "Avenida Paulista", "Bela Vista", "São Paulo", "SP", "01310100", "1000", ""));
+  }
+
+  @Configuration
+  @Import({
+    CacheConfig.class,
+    ConverterToDTO.class,
+    TicketSnapshotServiceImpl.class,
+    OwnerServiceImpl.class
+  })
+  static class Config {}
+}
@@ -0,0 +1,248 @@
+package com.postech.fiap.parkingmeter.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Rate;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSpendLedger;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketService;
+import com.postech.fiap.parkingmeter.domain.service.VehicleSpendLedgerService;
+import com.postech.fiap.parkingmeter.infrastructure.exception.VehicleException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Builds the vehicle spend ledger by recording payments, by rebuilding it and by the startup
+ * backfill, and checks each against the spend recomputed from the paid tickets.
+ */
+@SpringBootTest(
+    properties = {
+      "parkingmeter.rollup.backfill-on-startup=false",
+      "parkingmeter.spend-ledger.backfill-on-startup=false",
+      "parkingmeter.indexes.create-on-startup=false",
+      "parkingmeter.tickets.migrate-on-startup=false",
+      "parkingmeter.projections.enabled=false",
+      "parkingmeter.archive.enabled=false",
+      "parkingmeter.occupancy.initial-delay=PT1H"
+    })
+@Testcontainers(disabledWithoutDocker = true)
+class VehicleSpendLedgerServiceImplTest {
+
+  private static final LocalDateTime FIRST_START = LocalDateTime.of(2024, 7, 20, 8, 0);
+  private static final List<String> LICENSE_PLATES = List.of("ABC1D23", "DEF4G56", "HIJ7K89");
+  private static final int TICKETS = 90;
+
+  @Container static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+  @DynamicPropertySource
+  static void mongoProperties(DynamicPropertyRegistry registry) {
+    registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+  }
+
+  @Autowired private VehicleSpendLedgerService vehicleSpendLedgerService;
+  @Autowired private TicketService ticketService;
+  @Autowired private MongoTemplate mongoTemplate;
+
+  private ParkingMeter parkingMeter;
+
+  @BeforeEach
+  void seed() {
+    mongoTemplate.getCollectionNames().stream()
+        .filter(name -> name.startsWith(TicketArchiveService.ARCHIVE_PREFIX))
+        .forEach(mongoTemplate::dropCollection);
+    mongoTemplate.dropCollection(Ticket.class);
+    mongoTemplate.dropCollection(VehicleSpendLedger.class);
+    mongoTemplate.dropCollection(ParkingMeter.class);
+
+    parkingMeter =
+        mongoTemplate.insert(
+            ParkingMeter.builder()
+                .availableSpaces(20)
+                .occupied(0)
+                .rate(Rate.builder().firstHour(5.0).additionalHours(3.0).build())
+                .address(Address.builder().street("Avenida Paulista").city("São Paulo").build())
+                .build());
+    IntStream.range(0, TICKETS)
+        .forEach(
+            i -> {
+              LocalDateTime start = FIRST_START.plusHours(17L * i);
+              mongoTemplate.insert(
+                  ticket(
+                      LICENSE_PLATES.get(i % LICENSE_PLATES.size()),
+                      start,
+                      PaymentStatusEnum.values()[i % PaymentStatusEnum.values().length],
+                      5.0 + 2.5 * (i % 4)));
+            });
+  }
+
+  @Test
+  void rebuildMatchesThePaidTickets() {
+    vehicleSpendLedgerService.rebuild();
+
+    assertThat(storedLedger()).isEqualTo(ledgerFromTickets());
+  }
+
+  @Test
+  void recordedPaymentsMatchARebuild() {
+    List<Ticket> paid = paidTickets();
+    List<Ticket> recorded = paid.subList(0, paid.size() / 2);
+    List<Ticket> applied = paid.subList(paid.size() / 2, paid.size());
+    recorded.forEach(vehicleSpendLedgerService::recordPayment);
+    vehicleSpendLedgerService.recordPayment(paid.get(0));
+    vehicleSpendLedgerService.applyPayments(applied, List.of(paid.get(0)));
+
+    assertThat(storedLedger()).isEqualTo(ledgerFromTickets());
+    Map<String, VehicleSpendLedger> recordedLedger = storedLedger();
+    vehicleSpendLedgerService.rebuild();
+    assertThat(storedLedger()).isEqualTo(recordedLedger);
+  }
+
+  @Test
+  void revertedPaymentsLeaveNoSpend() {
+    List<Ticket> paid = paidTickets();
+    paid.forEach(vehicleSpendLedgerService::recordPayment);
+    vehicleSpendLedgerService.applyPayments(List.of(), paid);
+
+    assertThat(storedLedger()).isEmpty();
+  }
+
+  @Test
+  void cancellingAPaidTicketTakesItsAmountOffTheVehicle() throws VehicleException {
+    vehicleSpendLedgerService.rebuild();
+    String licensePlate = LICENSE_PLATES.get(0);
+    Ticket ticket =
+        mongoTemplate.insert(
+            ticket(
+                licensePlate, LocalDateTime.now().minusMinutes(1), PaymentStatusEnum.PENDING, 0));
+    double spentBefore = ticketService.getTotalSpentByVehicle(licensePlate).getTotalSpent();
+
+    ticketService.updatePayment(ticket.getId());
+    assertThat(storedLedger()).isEqualTo(ledgerFromTickets());
+    assertThat(ticketService.getTotalSpentByVehicle(licensePlate).getTotalSpent())
+        .isGreaterThan(spentBefore);
+
+    ticketService.cancelTicket(ticket.getId());
+    assertThat(storedLedger()).isEqualTo(ledgerFromTickets());
+    assertThat(ticketService.getTotalSpentByVehicle(licensePlate).getTotalSpent())
+        .isEqualTo(spentBefore);
+  }
+
+  @Test
+  void monthlyBucketsAreLeftOutWhenDisabled() {
+    VehicleSpendLedgerServiceImpl target = AopTestUtils.getTargetObject(vehicleSpendLedgerService);
+    ReflectionTestUtils.setField(target, "monthlyBuckets", false);
+    try {
+      vehicleSpendLedgerService.rebuild();
+      assertThat(storedLedger().values())
+          .isNotEmpty()
+          .extracting(VehicleSpendLedger::getMonthlySpent)
+          .containsOnlyNulls();
+
+      vehicleSpendLedgerService.recordPayment(paidTickets().get(0));
+      assertThat(storedLedger().values())
+          .extracting(VehicleSpendLedger::getMonthlySpent)
+          .containsOnlyNulls();
+    } finally {
+      ReflectionTestUtils.setField(target, "monthlyBuckets", true);
+    }
+  }
+
+  @Test
+  void backfillRebuildsAnEmptyLedger() {
+    VehicleSpendLedgerServiceImpl target = AopTestUtils.getTargetObject(vehicleSpendLedgerService);
+    ReflectionTestUtils.setField(target, "backfillOnStartup", true);
+    try {
+      target.backfill();
+      assertThat(storedLedger()).isEqualTo(ledgerFromTickets());
+
+      vehicleSpendLedgerService.revertPayment(paidTickets().get(0));
+      target.backfill();
+      assertThat(storedLedger()).isNotEqualTo(ledgerFromTickets());
+    } finally {
+      ReflectionTestUtils.setField(target, "backfillOnStartup", false);
+    }
+  }
+
+  /** The stored ledger without the vehicles and months whose payments were all reverted. */
+  private Map<String, VehicleSpendLedger> storedLedger() {
+    return mongoTemplate.findAll(VehicleSpendLedger.class).stream()
+        .filter(ledger -> ledger.getPaidTickets() != 0)
+        .map(VehicleSpendLedgerServiceImplTest::withoutRevertedMonths)
+        .collect(Collectors.toMap(VehicleSpendLedger::getLicensePlate, Function.identity()));
+  }
+
+  private static VehicleSpendLedger withoutRevertedMonths(VehicleSpendLedger ledger) {
+    if (ledger.getMonthlySpent() != null) {
+      ledger.getMonthlySpent().values().removeIf(spent -> spent == 0);
+    }
+    return ledger;
+  }
+
+  private Map<String, VehicleSpendLedger> ledgerFromTickets() {
+    return paidTickets().stream()
+        .collect(Collectors.groupingBy(t -> t.getVehicle().getLicensePlate()))
+        .entrySet()
+        .stream()
+        .collect(
+            Collectors.toMap(
+                Map.Entry::getKey,
+                entry ->
+                    VehicleSpendLedger.builder()
+                        .licensePlate(entry.getKey())
+                        .totalSpent(
+                            entry.getValue().stream()
+                                .mapToDouble(Ticket::getTotalAmountCharged)
+                                .sum())
+                        .paidTickets(entry.getValue().size())
+                        .monthlySpent(
+                            entry.getValue().stream()
+                                .collect(
+                                    Collectors.groupingBy(
+                                        t -> YearMonth.from(t.getStartTime()).toString(),
+                                        Collectors.summingDouble(Ticket::getTotalAmountCharged))))
+                        .build()));
+  }
+
+  private List<Ticket> paidTickets() {
+    return mongoTemplate.find(
+        Query.query(Criteria.where("paymentStatus").is(PaymentStatusEnum.PAID)), Ticket.class);
+  }
+
+  private Ticket ticket(
+      String licensePlate, LocalDateTime start, PaymentStatusEnum status, double amount) {
+    return Ticket.builder()
+        .startTime(start)
+        .endTime(status == PaymentStatusEnum.PENDING ? null : start.plusMinutes(45))
+        .totalAmountCharged(amount)
+        .paymentStatus(status)
+        .parkingMeter(ParkingMeterSnapshot.of(parkingMeter))
+        .vehicle(new VehicleSnapshot(new ObjectId().toHexString(), licensePlate))
+        .build();
+  }
+}
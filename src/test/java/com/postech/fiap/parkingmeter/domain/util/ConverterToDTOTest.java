@@ -0,0 +1,164 @@
+package com.postech.fiap.parkingmeter.domain.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.OperationHours;
+import com.postech.fiap.parkingmeter.domain.model.Owner;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeterSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.Rate;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.VehicleSnapshot;
+import com.postech.fiap.parkingmeter.domain.model.dto.AddressDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.OwnerDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.ParkingMeterDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.dto.VehicleDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+/** Checks the hand-written mappers against the ModelMapper output they replaced. */
+class ConverterToDTOTest {
+
+  private final ConverterToDTO converterToDTO = new ConverterToDTO();
+  private final ModelMapper modelMapper = new ModelMapper();
+
+  @Test
+  void mapsTicketsLikeModelMapper() {
+    ParkingMeter parkingMeter = parkingMeter();
+    Vehicle vehicle = vehicle(owner());
+    Ticket ticket = ticket(parkingMeter, vehicle);
+
+    assertThat(converterToDTO.toDto(ticket, parkingMeter, vehicle))
+        .isEqualTo(modelMapperDto(ticket, parkingMeter, vehicle));
+  }
+
+  @Test
+  void mapsPartialTicketsLikeModelMapper() {
+    ParkingMeter parkingMeter = parkingMeter();
+    parkingMeter.setRate(null);
+    parkingMeter.setOperatingHours(null);
+    parkingMeter.setVersion(null);
+    Vehicle vehicle = vehicle(null);
+    Ticket ticket = ticket(parkingMeter, vehicle);
+    ticket.setEndTime(null);
+    ticket.setPaymentStatus(null);
+
+    assertThat(converterToDTO.toDto(ticket, parkingMeter, vehicle))
+        .isEqualTo(modelMapperDto(ticket, parkingMeter, vehicle));
+  }
+
+  @Test
+  void keepsTheRateAddressAndLicensePlateOfTheTicket() {
+    ParkingMeter parkingMeter = parkingMeter();
+    Vehicle vehicle = vehicle(owner());
+    Ticket ticket = ticket(parkingMeter, vehicle);
+    parkingMeter.setRate(Rate.builder().firstHour(8.0).additionalHours(6.0).build());
+    parkingMeter.setAddress(address("01310200"));
+    vehicle.setLicensePlate("XYZ9Z99");
+
+    TicketDTO ticketDTO = converterToDTO.toDto(ticket, parkingMeter, vehicle);
+
+    assertThat(ticketDTO.getParkingMeter().getRate().getFirstHour()).isEqualTo(5.0);
+    assertThat(ticketDTO.getParkingMeter().getAddress().getZipCode()).isEqualTo("01310100");
+    assertThat(ticketDTO.getParkingMeter().getOperatingHours().getEnd()).isEqualTo("20:00");
+    assertThat(ticketDTO.getVehicle().getLicensePlate()).isEqualTo("ABC1D23");
+    assertThat(ticketDTO.getVehicle().getOwner().getName()).isEqualTo("Maria Silva");
+  }
+
+  @Test
+  void mapsOnlyTheTicketFieldsWhenTheParkingMeterAndVehicleAreGone() {
+    Ticket ticket = ticket(parkingMeter(), vehicle(owner()));
+
+    TicketDTO ticketDTO = converterToDTO.toDto(ticket);
+
+    assertThat(ticketDTO.getParkingMeter().getId()).isEqualTo("66f1c0a1e4b0a1b2c3d4e5f6");
+    assertThat(ticketDTO.getParkingMeter().getRate().getAdditionalHours()).isEqualTo(3.0);
+    assertThat(ticketDTO.getParkingMeter().getOperatingHours()).isNull();
+    assertThat(ticketDTO.getVehicle().getLicensePlate()).isEqualTo("ABC1D23");
+    assertThat(ticketDTO.getVehicle().getOwner()).isNull();
+  }
+
+  @Test
+  void mapsEachModelLikeModelMapper() {
+    ParkingMeter parkingMeter = parkingMeter();
+    Owner owner = owner();
+    Vehicle vehicle = vehicle(owner);
+
+    assertThat(converterToDTO.toDto(parkingMeter))
+        .isEqualTo(modelMapper.map(parkingMeter, ParkingMeterDTO.class));
+    assertThat(converterToDTO.toDto(vehicle)).isEqualTo(modelMapper.map(vehicle, VehicleDTO.class));
+    assertThat(converterToDTO.toDto(owner)).isEqualTo(modelMapper.map(owner, OwnerDTO.class));
+    assertThat(converterToDTO.toDto(owner.getAddress()))
+        .isEqualTo(modelMapper.map(owner.getAddress(), AddressDTO.class));
+  }
+
+  private static Ticket ticket(ParkingMeter parkingMeter, Vehicle vehicle) {
+    return Ticket.builder()
+        .id("66f1c0a1e4b0a1b2c3d4e5f9")
+        .totalAmountCharged(11.0)
+        .startTime(LocalDateTime.of(2024, 10, 1, 9, 15))
+        .endTime(LocalDateTime.of(2024, 10, 1, 12, 5))
+        .paymentStatus(PaymentStatusEnum.PAID)
+        .parkingMeter(ParkingMeterSnapshot.of(parkingMeter))
+        .vehicle(VehicleSnapshot.of(vehicle))
+        .build();
+  }
+
+  /** The DTO ModelMapper built from a ticket that embedded the whole parking meter and vehicle. */
+  private TicketDTO modelMapperDto(Ticket ticket, ParkingMeter parkingMeter, Vehicle vehicle) {
+    TicketDTO ticketDTO = modelMapper.map(ticket, TicketDTO.class);
+    ticketDTO.setParkingMeter(modelMapper.map(parkingMeter, ParkingMeterDTO.class));
+    ticketDTO.setVehicle(modelMapper.map(vehicle, VehicleDTO.class));
+    return ticketDTO;
+  }
+
+  private static ParkingMeter parkingMeter() {
+    return ParkingMeter.builder()
+        .id("66f1c0a1e4b0a1b2c3d4e5f6")
+        .operatingHours(OperationHours.builder().start("08:00").end("20:00").build())
+        .rate(Rate.builder().firstHour(5.0).additionalHours(3.0).build())
+        .availableSpaces(20)
+        .address(address("01310100"))
+        .occupied(4)
+        .version(7L)
+        .build();
+  }
+
+  private static Vehicle vehicle(Owner owner) {
+    return Vehicle.builder()
+        .id("66f1c0a1e4b0a1b2c3d4e5f7")
+        .licensePlate("ABC1D23")
+        .model("Onix")
+        .color("Prata")
+        .owner(owner)
+        .build();
+  }
+
+  private static Owner owner() {
+    return Owner.builder()
+        .id("66f1c0a1e4b0a1b2c3d4e5f8")
+        .name("Maria Silva")
+        .cpf("12345678909")
+        .email("maria@parkingmeter.test")
+        .phone("11999990000")
+        .address(address("04538133"))
+        .build();
+  }
+
+  private static Address address(String zipCode) {
+    return Address.builder()
+        .street("Avenida Paulista")
+        .number("1000")
+        .complement("Conjunto 12")
+        .neighborhood("Bela Vista")
+        .city("São Paulo")
+        .state("SP")
+        .zipCode(zipCode)
+        .build();
+  }
+}
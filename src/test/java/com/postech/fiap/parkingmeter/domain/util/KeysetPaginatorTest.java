@@ -0,0 +1,79 @@
+package com.postech.fiap.parkingmeter.domain.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.infrastructure.exception.CursorException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+class KeysetPaginatorTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2024, 10, 1, 18, 0, 5, 123_000_000);
+  private static final String ID = "66fbf1a2c9e77c2b5c3d4e5f";
+
+  private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+  private final KeysetPaginator keysetPaginator = new KeysetPaginator(mongoTemplate);
+
+  KeysetPaginatorTest() {
+    MappingMongoConverter converter =
+        new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+    converter.afterPropertiesSet();
+    when(mongoTemplate.getConverter()).thenReturn(converter);
+  }
+
+  @Test
+  void cursorRoundTripsTheSortKeysAsStored() {
+    Map<String, Object> keys = new LinkedHashMap<>();
+    keys.put("startTime", START);
+    keys.put("id", ID);
+
+    KeysetScrollPosition position =
+        keysetPaginator.decode(keysetPaginator.encode(ScrollPosition.forward(keys)));
+
+    assertThat(position.getDirection()).isEqualTo(ScrollPosition.Direction.FORWARD);
+    assertThat(position.getKeys())
+        .containsExactly(
+            Map.entry("startTime", Date.from(START.atZone(ZoneId.systemDefault()).toInstant())),
+            Map.entry("id", ID));
+  }
+
+  @Test
+  void missingCursorStartsFromTheFirstPage() {
+    assertThat(keysetPaginator.decode(null).isInitial()).isTrue();
+    assertThat(keysetPaginator.decode(" ").isInitial()).isTrue();
+  }
+
+  @Test
+  void rejectsTamperedCursorsAndSizes() {
+    assertThatThrownBy(() -> keysetPaginator.decode("not a cursor"))
+        .isInstanceOf(CursorException.class);
+    assertThatThrownBy(() -> keysetPaginator.decode("e30"))
+        .isInstanceOf(CursorException.class);
+    assertThatThrownBy(
+            () ->
+                keysetPaginator.scroll(
+                    new Query(),
+                    Sort.by("id"),
+                    null,
+                    KeysetPaginator.MAX_SIZE + 1,
+                    Ticket.class,
+                    ticket -> ticket))
+        .isInstanceOf(CursorException.class);
+  }
+}
@@ -0,0 +1,72 @@
+package com.postech.fiap.parkingmeter.infrastructure.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.postech.fiap.parkingmeter.domain.model.enums.PageModeEnum;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.util.DateRangeNormalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+class CacheKeysTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2024, 10, 1, 8, 0, 12);
+  private static final LocalDateTime END = LocalDateTime.of(2024, 10, 2, 8, 0, 12);
+
+  private final CacheKeys cacheKeys = new CacheKeys(new DateRangeNormalizer(Duration.ofMinutes(1)));
+
+  @Test
+  void keysDifferByPageSizeAndSort() {
+    var firstPage = cacheKeys.dateRange(START, END, PageRequest.of(0, 15));
+    var secondPage = cacheKeys.dateRange(START, END, PageRequest.of(1, 15));
+    var biggerPage = cacheKeys.dateRange(START, END, PageRequest.of(0, 30));
+    var sorted = cacheKeys.dateRange(START, END, PageRequest.of(0, 15, Sort.by("start_time")));
+
+    assertThat(firstPage)
+        .isNotEqualTo(secondPage)
+        .isNotEqualTo(biggerPage)
+        .isNotEqualTo(sorted)
+        .isEqualTo(cacheKeys.dateRange(START, END, PageRequest.of(0, 15)));
+  }
+
+  @Test
+  void rangesWithinTheSameBucketShareTheKey() {
+    var key = cacheKeys.dateRange(START, END, PageRequest.of(0, 15));
+    var nearlyIdentical =
+        cacheKeys.dateRange(START.plusSeconds(40), END.plusSeconds(30), PageRequest.of(0, 15));
+    var nextBucket =
+        cacheKeys.dateRange(START.plusMinutes(1), END.plusMinutes(1), PageRequest.of(0, 15));
+
+    assertThat(key).isEqualTo(nearlyIdentical).isNotEqualTo(nextBucket);
+  }
+
+  @Test
+  void stringAndDateTimeRangesAreWidenedToTheBucket() {
+    var key =
+        cacheKeys.dateRange(
+            "2024-10-01T08:00:12Z", "2024-10-02T08:00:12Z", PageRequest.of(0, 15));
+
+    assertThat(key.start()).hasToString("2024-10-01T08:00:00Z");
+    assertThat(key.end()).hasToString("2024-10-02T08:01:00Z");
+  }
+
+  @Test
+  void statusKeysDifferByStatusAndPage() {
+    PageModeEnum page = PageModeEnum.PAGE;
+    assertThat(cacheKeys.status(PaymentStatusEnum.PAID, PageRequest.of(0, 15), page))
+        .isEqualTo(cacheKeys.status(PaymentStatusEnum.PAID, PageRequest.of(0, 15), page))
+        .isNotEqualTo(cacheKeys.status(PaymentStatusEnum.PAID, PageRequest.of(1, 15), page))
+        .isNotEqualTo(cacheKeys.status(PaymentStatusEnum.PENDING, PageRequest.of(0, 15), page));
+  }
+
+  @Test
+  void zeroBucketKeepsTheExactRange() {
+    var exactKeys = new CacheKeys(new DateRangeNormalizer(Duration.ZERO));
+
+    assertThat(exactKeys.dateRange(START, END, PageRequest.of(0, 15)))
+        .isNotEqualTo(exactKeys.dateRange(START.plusSeconds(1), END, PageRequest.of(0, 15)));
+  }
+}
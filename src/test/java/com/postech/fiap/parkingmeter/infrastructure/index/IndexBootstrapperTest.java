@@ -0,0 +1,97 @@
+package com.postech.fiap.parkingmeter.infrastructure.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import java.util.List;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Builds the declared indexes on a ticket collection that still carries the indexes of the old
+ * annotations next to indexes an operator created by hand.
+ */
+@SpringBootTest(
+    properties = {
+      "parkingmeter.rollup.backfill-on-startup=false",
+      "parkingmeter.spend-ledger.backfill-on-startup=false",
+      "parkingmeter.indexes.create-on-startup=false",
+      "parkingmeter.tickets.migrate-on-startup=false",
+      "parkingmeter.projections.enabled=false",
+      "parkingmeter.archive.enabled=false",
+      "parkingmeter.occupancy.initial-delay=PT1H"
+    })
+@Testcontainers(disabledWithoutDocker = true)
+class IndexBootstrapperTest {
+
+  @Container static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+  @DynamicPropertySource
+  static void mongoProperties(DynamicPropertyRegistry registry) {
+    registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+  }
+
+  @Autowired private IndexBootstrapper indexBootstrapper;
+  @Autowired private MongoTemplate mongoTemplate;
+
+  private IndexOperations ticketIndexes;
+
+  @BeforeEach
+  void seed() {
+    mongoTemplate.dropCollection(Ticket.class);
+    mongoTemplate.insert(new Document("payment_status", "PENDING"), "ticket");
+    ticketIndexes = mongoTemplate.indexOps(Ticket.class);
+
+    ticketIndexes.ensureIndex(new Index().on("start_time", Direction.ASC).named("start_time"));
+    ticketIndexes.ensureIndex(new Index().on("parkingMeter", Direction.ASC).named("parkingMeter"));
+    ticketIndexes.ensureIndex(
+        new Index()
+            .on("parkingMeter.address.zipCode", Direction.ASC)
+            .named("parkingMeter.address.zipCode"));
+    ticketIndexes.ensureIndex(
+        new Index().on("vehicle.model", Direction.ASC).named("vehicle_model_report"));
+    ticketIndexes.ensureIndex(
+        new Index()
+            .on("parkingMeter.address.city", Direction.ASC)
+            .on("start_time", Direction.DESC)
+            .named("city_start_time_report"));
+    ticketIndexes.ensureIndex(new Index().on("end_time", Direction.DESC).named("end_time_desc"));
+  }
+
+  @Test
+  void onlyTheLegacyIndexesAreDropped() {
+    indexBootstrapper.ensureIndexes();
+
+    assertThat(indexNames())
+        .doesNotContain("start_time", "parkingMeter", "parkingMeter.address.zipCode")
+        .contains("vehicle_model_report", "city_start_time_report", "end_time_desc")
+        .contains("parking_meter_status_start_time", "status_vehicle", "vehicle_license_plate");
+  }
+
+  @Test
+  void ensuringTheIndexesAgainChangesNothing() {
+    indexBootstrapper.ensureIndexes();
+    List<String> built = indexNames();
+
+    indexBootstrapper.ensureIndexes();
+
+    assertThat(indexNames()).containsExactlyInAnyOrderElementsOf(built);
+  }
+
+  private List<String> indexNames() {
+    return ticketIndexes.getIndexInfo().stream().map(IndexInfo::getName).toList();
+  }
+}
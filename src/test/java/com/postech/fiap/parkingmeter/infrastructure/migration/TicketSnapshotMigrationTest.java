@@ -0,0 +1,231 @@
+package com.postech.fiap.parkingmeter.infrastructure.migration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mongodb.client.MongoCollection;
+import com.postech.fiap.parkingmeter.domain.model.Address;
+import com.postech.fiap.parkingmeter.domain.model.OperationHours;
+import com.postech.fiap.parkingmeter.domain.model.Owner;
+import com.postech.fiap.parkingmeter.domain.model.ParkingMeter;
+import com.postech.fiap.parkingmeter.domain.model.Rate;
+import com.postech.fiap.parkingmeter.domain.model.Ticket;
+import com.postech.fiap.parkingmeter.domain.model.TicketArchiveState;
+import com.postech.fiap.parkingmeter.domain.model.Vehicle;
+import com.postech.fiap.parkingmeter.domain.model.dto.TicketDTO;
+import com.postech.fiap.parkingmeter.domain.model.enums.PaymentStatusEnum;
+import com.postech.fiap.parkingmeter.domain.service.TicketArchiveService;
+import com.postech.fiap.parkingmeter.domain.service.TicketService;
+import com.postech.fiap.parkingmeter.domain.util.ConverterToDTO;
+import com.postech.fiap.parkingmeter.infrastructure.migration.TicketSnapshotMigration.MigrationStatus;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Writes tickets that embed the whole parking meter and vehicle, as they were stored before the
+ * compact format, and checks that the migration shrinks them without changing what is read back.
+ */
+@SpringBootTest(
+    properties = {
+      "parkingmeter.rollup.backfill-on-startup=false",
+      "parkingmeter.spend-ledger.backfill-on-startup=false",
+      "parkingmeter.indexes.create-on-startup=false",
+      "parkingmeter.tickets.migrate-on-startup=false",
+      "parkingmeter.tickets.migration-batch-size=7",
+      "parkingmeter.projections.enabled=false",
+      "parkingmeter.archive.enabled=false",
+      "parkingmeter.occupancy.initial-delay=PT1H"
+    })
+@Testcontainers(disabledWithoutDocker = true)
+class TicketSnapshotMigrationTest {
+
+  private static final int TICKETS = 50;
+  private static final String ARCHIVE = TicketArchiveService.ARCHIVE_PREFIX + "202409";
+
+  @Container static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+  @DynamicPropertySource
+  static void mongoProperties(DynamicPropertyRegistry registry) {
+    registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+  }
+
+  @Autowired private TicketSnapshotMigration ticketSnapshotMigration;
+  @Autowired private TicketService ticketService;
+  @Autowired private ConverterToDTO converterToDTO;
+  @Autowired private MongoTemplate mongoTemplate;
+
+  private ParkingMeter parkingMeter;
+  private Vehicle vehicle;
+  private List<String> ticketIds;
+
+  @BeforeEach
+  void seed() {
+    mongoTemplate.dropCollection(ARCHIVE);
+    mongoTemplate.dropCollection(TicketArchiveState.class);
+    mongoTemplate.dropCollection(Ticket.class);
+    mongoTemplate.dropCollection(ParkingMeter.class);
+    mongoTemplate.dropCollection(Vehicle.class);
+
+    parkingMeter = mongoTemplate.insert(parkingMeter());
+    vehicle = mongoTemplate.insert(vehicle());
+    ticketIds =
+        IntStream.range(0, TICKETS)
+            .mapToObj(i -> insertLegacyTicket(LocalDateTime.of(2024, 10, 1, 8, 0).plusHours(i)))
+            .toList();
+  }
+
+  @Test
+  void migratedTicketsAreSmallerAndReadTheSame() {
+    List<TicketDTO> before = ticketIds.stream().map(ticketService::getById).toList();
+    long sizeBefore = ticketCollectionSize();
+    assertThat(ticketSnapshotMigration.status().legacyTickets()).isEqualTo(TICKETS);
+
+    MigrationStatus status = ticketSnapshotMigration.migrate();
+
+    assertThat(status.migrated()).isEqualTo(TICKETS);
+    assertThat(status.legacyTickets()).isZero();
+    assertThat(ticketCollectionSize()).isLessThan(sizeBefore);
+    assertThat(ticketIds.stream().map(ticketService::getById).toList()).isEqualTo(before);
+    assertThat(before.get(0).getParkingMeter()).isEqualTo(converterToDTO.toDto(parkingMeter));
+    assertThat(before.get(0).getVehicle()).isEqualTo(converterToDTO.toDto(vehicle));
+
+    Document stored = ticketCollection().find().first();
+    assertThat(stored.get("parkingMeter", Document.class).keySet())
+        .containsExactlyInAnyOrder("_id", "rate", "address");
+    assertThat(stored.get("vehicle", Document.class).keySet())
+        .containsExactlyInAnyOrder("_id", "license_plate");
+  }
+
+  @Test
+  void migrationCanBeRunAgain() {
+    ticketSnapshotMigration.migrate();
+
+    MigrationStatus status = ticketSnapshotMigration.migrate();
+
+    assertThat(status.migrated()).isZero();
+    assertThat(status.legacyTickets()).isZero();
+  }
+
+  @Test
+  void archivedTicketsAreMigratedToo() {
+    mongoTemplate.insert(
+        TicketArchiveState.builder()
+            .id("ticket")
+            .archivedBefore(LocalDateTime.of(2024, 10, 1, 0, 0))
+            .collections(List.of(ARCHIVE))
+            .build());
+    String archivedId =
+        insertLegacyTicket(
+            mongoTemplate.getCollection(ARCHIVE), LocalDateTime.of(2024, 9, 2, 8, 0));
+    TicketDTO before = ticketService.getById(archivedId);
+    assertThat(ticketSnapshotMigration.status().legacyTickets()).isEqualTo(TICKETS + 1);
+
+    MigrationStatus status = ticketSnapshotMigration.migrate();
+
+    assertThat(status.migrated()).isEqualTo(TICKETS + 1);
+    assertThat(status.legacyTickets()).isZero();
+    assertThat(ticketService.getById(archivedId)).isEqualTo(before);
+    assertThat(
+            mongoTemplate
+                .getCollection(ARCHIVE)
+                .find()
+                .first()
+                .get("vehicle", Document.class)
+                .keySet())
+        .containsExactlyInAnyOrder("_id", "license_plate");
+  }
+
+  private String insertLegacyTicket(LocalDateTime startTime) {
+    return insertLegacyTicket(ticketCollection(), startTime);
+  }
+
+  private String insertLegacyTicket(MongoCollection<Document> collection, LocalDateTime startTime) {
+    ObjectId id = new ObjectId();
+    collection.insertOne(
+        new Document("_id", id)
+            .append("total_amount_charged", 0.0)
+            .append("start_time", toDate(startTime))
+            .append("payment_status", PaymentStatusEnum.PENDING.name())
+            .append("parkingMeter", embedded(parkingMeter))
+            .append("vehicle", embedded(vehicle))
+            .append("_class", Ticket.class.getName()));
+    return id.toHexString();
+  }
+
+  private static Date toDate(LocalDateTime localDateTime) {
+    return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+  private Document embedded(Object entity) {
+    Document document = new Document();
+    mongoTemplate.getConverter().write(entity, document);
+    document.remove("_class");
+    return document;
+  }
+
+  private long ticketCollectionSize() {
+    Document bytes = new Document("$sum", new Document("$bsonSize", "$$ROOT"));
+    Document size =
+        ticketCollection()
+            .aggregate(
+                List.of(new Document("$group", new Document("_id", null).append("bytes", bytes))))
+            .first();
+    return size != null ? size.get("bytes", Number.class).longValue() : 0;
+  }
+
+  private MongoCollection<Document> ticketCollection() {
+    return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Ticket.class));
+  }
+
+  private static ParkingMeter parkingMeter() {
+    return ParkingMeter.builder()
+        .operatingHours(OperationHours.builder().start("00:00").end("23:59").build())
+        .rate(Rate.builder().firstHour(5.0).additionalHours(3.0).build())
+        .availableSpaces(20)
+        .occupied(0)
+        .address(address("01310100"))
+        .build();
+  }
+
+  private static Vehicle vehicle() {
+    return Vehicle.builder()
+        .licensePlate("ABC1D23")
+        .model("Onix")
+        .color("Prata")
+        .owner(
+            Owner.builder()
+                .id(new ObjectId().toHexString())
+                .name("Maria Silva")
+                .cpf("12345678909")
+                .email("maria@parkingmeter.test")
+                .phone("11999990000")
+                .address(address("04538133"))
+                .build())
+        .build();
+  }
+
+  private static Address address(String zipCode) {
+    return Address.builder()
+        .street("Avenida Paulista")
+        .number("1000")
+        .neighborhood("Bela Vista")
+        .city("São Paulo")
+        .state("SP")
+        .zipCode(zipCode)
+        .build();
+  }
+}